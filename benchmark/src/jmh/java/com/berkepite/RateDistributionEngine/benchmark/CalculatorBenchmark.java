@@ -0,0 +1,186 @@
+package com.berkepite.RateDistributionEngine.benchmark;
+
+import com.berkepite.RateDistributionEngine.calculator.CalculatorLoader;
+import com.berkepite.RateDistributionEngine.calculator.FormulaCalculator;
+import com.berkepite.RateDistributionEngine.calculator.JavascriptCalculator;
+import com.berkepite.RateDistributionEngine.calculator.NativeCalculator;
+import com.berkepite.RateDistributionEngine.calculator.PythonCalculator;
+import com.berkepite.RateDistributionEngine.common.calculator.CalculatorEnum;
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every {@link IRateCalculator} operation for each calculation strategy.
+ * <p>
+ * Parameters:
+ * <ul>
+ *     <li>{@code strategy}: the {@link CalculatorEnum} to run, created the way {@code CalculatorFactory} does,</li>
+ *     <li>{@code providers}: the number of bids and asks per rate type,</li>
+ *     <li>{@code context}: {@code warm} reuses one calculator for the whole trial, so the guest code is compiled;
+ *     {@code cold} creates a new calculator, with a new polyglot engine, before every call and measures that first call.</li>
+ * </ul>
+ * Throughput and sampled latency are both reported; the sample mode gives the p50 to p99.99 percentiles, and the
+ * gc profiler configured in the build gives the allocation rate. Cold runs set up a calculator per call, so they
+ * are best run on their own, e.g. {@code ./gradlew :benchmark:jmh -PjmhIncludes=CalculatorBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculatorBenchmark {
+    private static final String CALCULATOR_DIR = System.getProperty("rde.calculator.dir",
+            "../rate-distribution-engine/src/test/resources/rate_calculators");
+    private static final List<String> CROSS_RATE_TYPES = List.of("EUR_USD", "GBP_USD", "CHF_USD", "JPY_USD");
+
+    @Param({"JAVASCRIPT", "PYTHON", "JAVA", "FORMULA"})
+    private CalculatorEnum strategy;
+
+    @Param({"2", "5", "10", "25", "50"})
+    private int providers;
+
+    @Param({"warm", "cold"})
+    private String context;
+
+    private final RateFactory rateFactory = new RateFactory();
+    private final RateConverter rateConverter = new RateConverter();
+    private final CalculatorLoader calculatorLoader = new CalculatorLoader();
+
+    private double[] bids;
+    private double[] asks;
+    private double usdmid;
+    private Map<String, List<double[]>> bidsAndAsksPerType;
+    private RawRate incomingRate;
+    private MeanRate meanRate;
+    private IRateCalculator calculator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bids = new double[providers];
+        asks = new double[providers];
+        for (int i = 0; i < providers; i++) {
+            bids[i] = 1.08765 + i * 0.00001;
+            asks[i] = 1.08785 + i * 0.00001;
+        }
+        usdmid = 34.85;
+
+        bidsAndAsksPerType = new LinkedHashMap<>();
+        for (String type : CROSS_RATE_TYPES) {
+            bidsAndAsksPerType.put(type, List.of(bids, asks));
+        }
+
+        incomingRate = rateFactory.createRawRate("USD_TRY", "PROVIDER_0", 34.5, 35.0, Instant.now());
+        meanRate = rateFactory.createMeanRate(34.4, 34.9);
+
+        if (isWarm()) {
+            calculator = createCalculator();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        if (!isWarm()) {
+            calculator = createCalculator();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        if (!isWarm()) {
+            calculator.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (isWarm()) {
+            calculator.close();
+        }
+    }
+
+    @Benchmark
+    public MeanRate calculateMeanRate() throws Exception {
+        return calculator.calculateMeanRate(bids, asks);
+    }
+
+    @Benchmark
+    public Double calculateUSDMID() throws Exception {
+        return calculator.calculateUSDMID(bids, asks);
+    }
+
+    @Benchmark
+    public CalculatedRate calculateForUSD_TRY() throws Exception {
+        return calculator.calculateForUSD_TRY(bids, asks);
+    }
+
+    @Benchmark
+    public CalculatedRate calculateForRawRateType() throws Exception {
+        return calculator.calculateForRawRateType("EUR_USD", usdmid, bids, asks);
+    }
+
+    @Benchmark
+    public List<CalculatedRate> calculateForRawRateTypes() throws Exception {
+        return calculator.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+    }
+
+    @Benchmark
+    public boolean hasAtLeastOnePercentDiff() throws Exception {
+        return calculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+    }
+
+    private boolean isWarm() {
+        return context.equals("warm");
+    }
+
+    /**
+     * Creates and initializes a calculator of the benchmarked strategy, with a single pooled context
+     * so that every warm call runs on the same compiled guest code.
+     */
+    private IRateCalculator createCalculator() throws CalculatorException {
+        IRateCalculator rateCalculator = switch (strategy) {
+            case JAVASCRIPT -> new JavascriptCalculator(rateFactory, rateConverter, calculatorLoader, 1, 1000);
+            case PYTHON -> new PythonCalculator(rateFactory, rateConverter, calculatorLoader, 1, 1000);
+            case JAVA -> new NativeCalculator(rateFactory, rateConverter);
+            case FORMULA -> new FormulaCalculator(rateFactory, rateConverter, calculatorLoader);
+        };
+        rateCalculator.init(calculatorPath());
+
+        return rateCalculator;
+    }
+
+    private String calculatorPath() {
+        return switch (strategy) {
+            case JAVASCRIPT -> new File(CALCULATOR_DIR, "js-test-valid.mjs").getPath();
+            case PYTHON -> new File(CALCULATOR_DIR, "py-test-valid.py").getPath();
+            case JAVA -> null;
+            case FORMULA -> new File(CALCULATOR_DIR, "formula-test-valid.formula").getPath();
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package com.berkepite.RateDistributionEngine.benchmark;
+
+import com.berkepite.RateDistributionEngine.calculator.ContextPool;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares passing bids and asks to a guest calculator as boxed {@code Double[]} (the previous
+ * calculator contract) against primitive {@code double[]} (the current one).
+ * <p>
+ * Each benchmark starts from the cached {@link RawRate}s, like {@code RateManager} does, so the cost
+ * of building the arrays is included. The {@code sum} benchmarks call a trivial guest function to
+ * isolate the marshalling; the {@code meanRate} benchmarks call the real calculator module.
+ * Run with {@code ./gradlew :benchmark:jmh}; the gc profiler reports the allocation rate.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculatorMarshallingBenchmark {
+    private static final String CALCULATOR_DIR = System.getProperty("rde.calculator.dir",
+            "../rate-distribution-engine/src/test/resources/rate_calculators");
+
+    private static final String JS_SUM = """
+            export function sum(values) {
+                let total = 0;
+                for (const value of values) {
+                    total += value;
+                }
+                return total;
+            }
+            """;
+
+    private static final String PY_SUM = """
+            import polyglot
+
+            @polyglot.export_value
+            def sum_values(values):
+                total = 0.0
+                for value in values:
+                    total += value
+                return total
+            """;
+
+    @Param({"js", "python"})
+    private String language;
+
+    @Param({"2", "10", "50"})
+    private int providers;
+
+    private List<RawRate> rates;
+    private ContextPool sumPool;
+    private ContextPool calculatorPool;
+    private String sumFunction;
+    private String meanRateFunction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RateFactory rateFactory = new RateFactory();
+        rates = new ArrayList<>(providers);
+        for (int i = 0; i < providers; i++) {
+            rates.add(rateFactory.createRawRate("USD_TRY", "PROVIDER_" + i, 34.1 + i * 0.001, 34.3 + i * 0.001, Instant.now()));
+        }
+
+        if (language.equals("js")) {
+            sumFunction = "sum";
+            meanRateFunction = "calculateMeanRate";
+            sumPool = new ContextPool("js",
+                    Source.newBuilder("js", JS_SUM, "sum.mjs").mimeType("application/javascript+module").build(),
+                    Map.of("js.esm-eval-returns-exports", "true"), List.of(sumFunction), 1, 1000);
+            calculatorPool = new ContextPool("js",
+                    Source.newBuilder("js", new File(CALCULATOR_DIR, "js-test-valid.mjs"))
+                            .mimeType("application/javascript+module").build(),
+                    Map.of("js.esm-eval-returns-exports", "true"), List.of(meanRateFunction), 1, 1000);
+        } else {
+            sumFunction = "sum_values";
+            meanRateFunction = "calculate_mean_rate";
+            sumPool = new ContextPool("python", Source.newBuilder("python", PY_SUM, "sum.py").build(),
+                    Map.of(), List.of(sumFunction), 1, 1000);
+            calculatorPool = new ContextPool("python",
+                    Source.newBuilder("python", new File(CALCULATOR_DIR, "py-test-valid.py")).build(),
+                    Map.of(), List.of(meanRateFunction), 1, 1000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sumPool.close();
+        calculatorPool.close();
+    }
+
+    @Benchmark
+    public double sumBoxed() throws Exception {
+        List<Double[]> values = boxedBidsAndAsks(rates);
+        return sumPool.execute(sumFunction, Value::asDouble, (Object) values.get(0));
+    }
+
+    @Benchmark
+    public double sumPrimitive() throws Exception {
+        List<double[]> values = primitiveBidsAndAsks(rates);
+        return sumPool.execute(sumFunction, Value::asDouble, (Object) values.get(0));
+    }
+
+    @Benchmark
+    public double meanRateBoxed() throws Exception {
+        List<Double[]> values = boxedBidsAndAsks(rates);
+        return calculatorPool.execute(meanRateFunction, result -> result.getArrayElement(0).asDouble(),
+                values.get(0), values.get(1));
+    }
+
+    @Benchmark
+    public double meanRatePrimitive() throws Exception {
+        List<double[]> values = primitiveBidsAndAsks(rates);
+        return calculatorPool.execute(meanRateFunction, result -> result.getArrayElement(0).asDouble(),
+                values.get(0), values.get(1));
+    }
+
+    /**
+     * The array extraction {@code RateManager} used before the calculator contract took {@code double[]}.
+     */
+    private static List<Double[]> boxedBidsAndAsks(List<RawRate> rates) {
+        List<Double> bids = new ArrayList<>();
+        rates.forEach(rate -> bids.add(rate.getBid()));
+
+        List<Double> asks = new ArrayList<>();
+        rates.forEach(rate -> asks.add(rate.getAsk()));
+
+        return Arrays.asList(bids.toArray(new Double[0]), asks.toArray(new Double[0]));
+    }
+
+    private static List<double[]> primitiveBidsAndAsks(List<RawRate> rates) {
+        double[] bids = new double[rates.size()];
+        double[] asks = new double[rates.size()];
+        for (int i = 0; i < rates.size(); i++) {
+            RawRate rate = rates.get(i);
+            bids[i] = rate.getBid();
+            asks[i] = rate.getAsk();
+        }
+
+        return Arrays.asList(bids, asks);
+    }
+}
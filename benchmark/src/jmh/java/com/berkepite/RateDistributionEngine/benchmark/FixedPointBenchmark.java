@@ -0,0 +1,144 @@
+package com.berkepite.RateDistributionEngine.benchmark;
+
+import com.berkepite.RateDistributionEngine.calculator.CalculatorLoader;
+import com.berkepite.RateDistributionEngine.calculator.JavascriptCalculator;
+import com.berkepite.RateDistributionEngine.common.decimal.FixedPoint;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exact arithmetic of the calculators on the same cross rate and one percent difference inputs:
+ * <ul>
+ *     <li>{@code fixedPoint}: {@link FixedPoint} on {@code long}s, without allocation,</li>
+ *     <li>{@code bigDecimal}: string converted {@link BigDecimal}s, as the JAVA calculator does,</li>
+ *     <li>{@code decimalJs}: the JavaScript calculator, which builds decimal.js objects on every call.</li>
+ * </ul>
+ * The gc profiler shows the allocation per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixedPointBenchmark {
+    private static final String CALCULATOR_DIR = System.getProperty("rde.calculator.dir",
+            "../rate-distribution-engine/src/test/resources/rate_calculators");
+    private static final MathContext MATH_CONTEXT = new MathContext(20, RoundingMode.HALF_UP);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Param({"2", "10", "50"})
+    private int providers;
+
+    private final FixedPoint fixedPoint = new FixedPoint(9, RoundingMode.HALF_UP);
+
+    private double[] bids;
+    private double[] asks;
+    private double usdmid;
+    private long usdmidFixed;
+    private RawRate incomingRate;
+    private MeanRate meanRate;
+    private JavascriptCalculator javascriptCalculator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bids = new double[providers];
+        asks = new double[providers];
+        for (int i = 0; i < providers; i++) {
+            bids[i] = 1.08765 + i * 0.00001;
+            asks[i] = 1.08785 + i * 0.00001;
+        }
+        usdmid = 34.85;
+        usdmidFixed = fixedPoint.fromDouble(usdmid);
+
+        incomingRate = new RawRate();
+        incomingRate.setBid(34.5);
+        incomingRate.setAsk(35.0);
+        meanRate = new MeanRate();
+        meanRate.setMeanBid(34.4);
+        meanRate.setMeanAsk(34.9);
+
+        javascriptCalculator = new JavascriptCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        javascriptCalculator.init(new File(CALCULATOR_DIR, "js-test-valid.mjs").getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        javascriptCalculator.close();
+    }
+
+    @Benchmark
+    public long crossRateFixedPoint() {
+        long bid = fixedPoint.multiply(fixedPoint.mean(bids), usdmidFixed);
+        long ask = fixedPoint.multiply(fixedPoint.mean(asks), usdmidFixed);
+        return bid + ask;
+    }
+
+    @Benchmark
+    public double crossRateBigDecimal() {
+        BigDecimal usdmidDecimal = new BigDecimal(Double.toString(usdmid));
+        double bid = mean(bids).multiply(usdmidDecimal, MATH_CONTEXT).doubleValue();
+        double ask = mean(asks).multiply(usdmidDecimal, MATH_CONTEXT).doubleValue();
+        return bid + ask;
+    }
+
+    @Benchmark
+    public double crossRateDecimalJs() throws Exception {
+        CalculatedRate rate = javascriptCalculator.calculateForRawRateType("EUR_USD", usdmid, bids, asks);
+        return rate.getBid() + rate.getAsk();
+    }
+
+    @Benchmark
+    public boolean percentDiffFixedPoint() {
+        long percentageAsk = fixedPoint.percentDifference(fixedPoint.fromDouble(incomingRate.getAsk()), fixedPoint.fromDouble(meanRate.getMeanAsk()));
+        long percentageBid = fixedPoint.percentDifference(fixedPoint.fromDouble(incomingRate.getBid()), fixedPoint.fromDouble(meanRate.getMeanBid()));
+        return percentageAsk + percentageBid >= 2 * fixedPoint.one();
+    }
+
+    @Benchmark
+    public boolean percentDiffBigDecimal() {
+        BigDecimal percentageAsk = percentage(new BigDecimal(Double.toString(incomingRate.getAsk())), new BigDecimal(Double.toString(meanRate.getMeanAsk())));
+        BigDecimal percentageBid = percentage(new BigDecimal(Double.toString(incomingRate.getBid())), new BigDecimal(Double.toString(meanRate.getMeanBid())));
+        return percentageAsk.add(percentageBid, MATH_CONTEXT).divide(BigDecimal.TWO, MATH_CONTEXT).compareTo(BigDecimal.ONE) >= 0;
+    }
+
+    @Benchmark
+    public boolean percentDiffDecimalJs() throws Exception {
+        return javascriptCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+    }
+
+    private static BigDecimal mean(double[] values) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value : values) {
+            sum = sum.add(new BigDecimal(Double.toString(value)), MATH_CONTEXT);
+        }
+
+        return sum.divide(BigDecimal.valueOf(values.length), MATH_CONTEXT);
+    }
+
+    private static BigDecimal percentage(BigDecimal incoming, BigDecimal mean) {
+        return incoming.subtract(mean, MATH_CONTEXT).divide(incoming, MATH_CONTEXT).multiply(HUNDRED, MATH_CONTEXT).abs();
+    }
+}
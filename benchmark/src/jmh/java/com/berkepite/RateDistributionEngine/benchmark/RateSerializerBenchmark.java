@@ -0,0 +1,120 @@
+package com.berkepite.RateDistributionEngine.benchmark;
+
+import com.berkepite.RateDistributionEngine.cache.CalculatedRateRedisSerializer;
+import com.berkepite.RateDistributionEngine.cache.RawRateRedisSerializer;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cache serializers of the rates, writing and reading one value:
+ * <ul>
+ *     <li>{@code json}: {@link Jackson2JsonRedisSerializer} with the JavaTimeModule, as the templates used before,</li>
+ *     <li>{@code binary}: {@link RawRateRedisSerializer} and {@link CalculatedRateRedisSerializer}.</li>
+ * </ul>
+ * The gc profiler shows the allocation per operation; the size of each encoding is reported next to the serialize
+ * benchmarks, as the {@code rawRateBytes} and {@code calcRateBytes} counters of {@link EncodedSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateSerializerBenchmark {
+    @Param({"json", "binary"})
+    private String format;
+
+    private RedisSerializer<RawRate> rawRateSerializer;
+    private RedisSerializer<CalculatedRate> calcRateSerializer;
+
+    private RawRate rawRate;
+    private CalculatedRate calcRate;
+    private byte[] rawRateBytes;
+    private byte[] calcRateBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Jackson2JsonRedisSerializer<RawRate> rawRateJson = new Jackson2JsonRedisSerializer<>(mapper, RawRate.class);
+        Jackson2JsonRedisSerializer<CalculatedRate> calcRateJson = new Jackson2JsonRedisSerializer<>(mapper, CalculatedRate.class);
+
+        if (format.equals("json")) {
+            rawRateSerializer = rawRateJson;
+            calcRateSerializer = calcRateJson;
+        } else {
+            rawRateSerializer = new RawRateRedisSerializer(rawRateJson);
+            calcRateSerializer = new CalculatedRateRedisSerializer(calcRateJson);
+        }
+
+        RateFactory rateFactory = new RateFactory();
+        rawRate = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER1", 34.12345, 34.13456, Instant.now());
+        calcRate = rateFactory.createCalcRate("EUR_TRY", 37.12345, 37.13456, Instant.now());
+        rawRateBytes = rawRateSerializer.serialize(rawRate);
+        calcRateBytes = calcRateSerializer.serialize(calcRate);
+    }
+
+    @Benchmark
+    public byte[] serializeRawRate(EncodedSize size) {
+        return rawRateSerializer.serialize(rawRate);
+    }
+
+    @Benchmark
+    public RawRate deserializeRawRate() {
+        return rawRateSerializer.deserialize(rawRateBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeCalcRate(EncodedSize size) {
+        return calcRateSerializer.serialize(calcRate);
+    }
+
+    @Benchmark
+    public CalculatedRate deserializeCalcRate() {
+        return calcRateSerializer.deserialize(calcRateBytes);
+    }
+
+    /**
+     * Reports the size of each encoding in bytes with the results of the benchmarks taking it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        private int rawRateBytes;
+        private int calcRateBytes;
+
+        @Setup(Level.Trial)
+        public void setUp(RateSerializerBenchmark benchmark) {
+            rawRateBytes = benchmark.rawRateBytes.length;
+            calcRateBytes = benchmark.calcRateBytes.length;
+        }
+
+        public int rawRateBytes() {
+            return rawRateBytes;
+        }
+
+        public int calcRateBytes() {
+            return calcRateBytes;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.berkepite.RateDistributionEngine.benchmark;
+
+import com.berkepite.RateDistributionEngine.cache.CacheConfig;
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceRedisAPI;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading all raw rates of one type from Redis with the old key layout against the per-type hash.
+ * <p>
+ * Both layouts hold the same {@code keys} raw rates, {@code providers} per type:
+ * <ul>
+ *     <li>{@code keysAndGet}: one key per rate, read with {@code KEYS *}, a client-side filter and one GET per
+ *     match, as {@code getAllRawRatesForType} did before,</li>
+ *     <li>{@code hashValues}: one hash per type, read with a single HVALS through {@link RateCacheServiceRedisAPI}.</li>
+ * </ul>
+ * Needs a running Redis, set with {@code -Drde.redis.host}, {@code -Drde.redis.port} and {@code -Drde.redis.database}
+ * (default {@code localhost:6379}, database 15). Only the keys written by the benchmark are deleted afterwards.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawRateLookupBenchmark {
+    private static final String LEGACY_KEY_FORMAT = "raw_rates::rates:%s:%s";
+
+    @Param({"1000", "10000"})
+    private int keys;
+
+    @Param({"10"})
+    private int providers;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, RawRate> rawRateRedisTemplate;
+    private RateCacheServiceRedisAPI rateCacheService;
+    private final List<String> writtenKeys = new ArrayList<>();
+    private String type;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("rde.redis.host", "localhost"),
+                Integer.getInteger("rde.redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("rde.redis.database", 15));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        CacheConfig cacheConfig = new CacheConfig();
+        rawRateRedisTemplate = cacheConfig.rawRateRedisTemplate(connectionFactory);
+        rawRateRedisTemplate.afterPropertiesSet();
+        RedisTemplate<String, CalculatedRate> calculatedRateRedisTemplate = cacheConfig.calculatedRateRedisTemplate(connectionFactory);
+        calculatedRateRedisTemplate.afterPropertiesSet();
+        RedisTemplate<String, Double> usdmidRedisTemplate = cacheConfig.usdmidRedisTemplate(connectionFactory);
+        usdmidRedisTemplate.afterPropertiesSet();
+        rateCacheService = new RateCacheServiceRedisAPI(rawRateRedisTemplate, calculatedRateRedisTemplate, usdmidRedisTemplate);
+
+        RateFactory rateFactory = new RateFactory();
+        int types = keys / providers;
+        for (int t = 0; t < types; t++) {
+            String rateType = "T%04d_USD".formatted(t);
+            Map<String, RawRate> legacyRates = new HashMap<>();
+            Map<String, RawRate> hashRates = new HashMap<>();
+            for (int p = 0; p < providers; p++) {
+                String provider = "PROVIDER_" + p;
+                RawRate rate = rateFactory.createRawRate(rateType, provider, 1.08 + p * 0.0001, 1.09 + p * 0.0001, Instant.now());
+                legacyRates.put(LEGACY_KEY_FORMAT.formatted(provider, rateType), rate);
+                hashRates.put(provider, rate);
+            }
+
+            rawRateRedisTemplate.opsForValue().multiSet(legacyRates);
+            rawRateRedisTemplate.<String, RawRate>opsForHash().putAll("raw_rates:" + rateType, hashRates);
+            writtenKeys.addAll(legacyRates.keySet());
+            writtenKeys.add("raw_rates:" + rateType);
+        }
+
+        type = "T%04d_USD".formatted(types / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rawRateRedisTemplate.delete(writtenKeys);
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public List<RawRate> keysAndGet() {
+        List<String> matching = rawRateRedisTemplate.keys("*")
+                .stream()
+                .filter(s -> s.startsWith("raw_rates::rates:") && s.endsWith(":" + type))
+                .toList();
+
+        return matching.stream()
+                .map(key -> rawRateRedisTemplate.opsForValue().get(key))
+                .toList();
+    }
+
+    @Benchmark
+    public List<RawRate> hashValues() throws Exception {
+        return rateCacheService.getAllRawRatesForType(type);
+    }
+}
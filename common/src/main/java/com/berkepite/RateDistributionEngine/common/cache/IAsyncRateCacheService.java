@@ -0,0 +1,46 @@
+package com.berkepite.RateDistributionEngine.common.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link IRateCacheService}: every call returns at once with a future of its result.
+ * <p>
+ * The futures complete exceptionally with a
+ * {@link com.berkepite.RateDistributionEngine.common.exception.cache.CacheException} if the cache fails.
+ * Calls made one after another from one thread reach the cache in that order, so a read issued after a
+ * write sees it without waiting for the write to complete.
+ * </p>
+ */
+public interface IAsyncRateCacheService {
+    CompletableFuture<CalculatedRate> getCalcRate(CalculatedRate rate);
+
+    CompletableFuture<RawRate> getRawRate(RawRate rate);
+
+    CompletableFuture<CalculatedRate> saveCalcRate(CalculatedRate rate);
+
+    CompletableFuture<List<CalculatedRate>> saveCalcRates(List<CalculatedRate> rates);
+
+    CompletableFuture<Double> saveUSDMID(Double value);
+
+    CompletableFuture<Double> getUSDMID();
+
+    CompletableFuture<RawRate> saveRawRate(RawRate rate);
+
+    CompletableFuture<List<RawRate>> getAllRawRatesForType(String type);
+
+    /**
+     * @see IRateCacheService#getTickSnapshot(List)
+     */
+    CompletableFuture<RateCacheSnapshot> getTickSnapshot(List<String> types);
+
+    /**
+     * @see IRateCacheService#saveTick(RawRate, Double, List)
+     */
+    CompletableFuture<Void> saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates);
+
+    String getName();
+}
@@ -0,0 +1,27 @@
+package com.berkepite.RateDistributionEngine.common.cache;
+
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.util.List;
+
+/**
+ * An {@link IRateCacheService} that can check and save an incoming raw rate as one atomic step.
+ * <p>
+ * The rate manager upserts the incoming rates through it when {@code app.redis.atomic-upsert.enabled} is set,
+ * and checks and saves them itself otherwise.
+ * </p>
+ */
+public interface IAtomicRateCacheService extends IRateCacheService {
+    /**
+     * Checks the incoming rate against the mean of the cached rates of its type and saves it unless its provider
+     * is already cached and it differs at least the tolerance from that mean, then reads the USD mid rate and the
+     * raw rates of the given types. Everything happens as one atomic step in the cache, so several engine
+     * instances sharing the cache never decide on stale rates.
+     *
+     * @param rawRate the incoming raw rate
+     * @param types   the raw rate types to read after the write, the rate's own type first
+     * @return whether the rate was kept and, if so, the snapshot with the rate in place
+     */
+    RawRateUpsertResult upsertRawRate(RawRate rawRate, List<String> types) throws CacheException;
+}
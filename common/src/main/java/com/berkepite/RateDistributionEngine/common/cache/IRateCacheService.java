@@ -4,7 +4,9 @@ import com.berkepite.RateDistributionEngine.common.exception.cache.CacheExceptio
 import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface IRateCacheService {
     CalculatedRate getCalcRate(CalculatedRate rate) throws CacheException;
@@ -13,6 +15,14 @@ public interface IRateCacheService {
 
     CalculatedRate saveCalcRate(CalculatedRate rate) throws CacheException;
 
+    default List<CalculatedRate> saveCalcRates(List<CalculatedRate> rates) throws CacheException {
+        for (CalculatedRate rate : rates) {
+            saveCalcRate(rate);
+        }
+
+        return rates;
+    }
+
     Double saveUSDMID(Double value) throws CacheException;
 
     Double getUSDMID() throws CacheException;
@@ -21,5 +31,38 @@ public interface IRateCacheService {
 
     List<RawRate> getAllRawRatesForType(String type) throws CacheException;
 
+    /**
+     * Reads the USD mid rate and the raw rates of the given types, as one incoming rate needs them.
+     * Implementations backed by a remote cache read everything in a single round trip.
+     */
+    default RateCacheSnapshot getTickSnapshot(List<String> types) throws CacheException {
+        Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+        for (String type : types) {
+            rawRatesByType.put(type, getAllRawRatesForType(type));
+        }
+
+        return new RateCacheSnapshot(getUSDMID(), rawRatesByType);
+    }
+
+    /**
+     * Saves what one incoming rate produced. Implementations backed by a remote cache write everything
+     * in a single round trip.
+     *
+     * @param rawRate   the raw rate to save, or null
+     * @param usdmid    the new USD mid rate, or null if it did not change
+     * @param calcRates the calculated rates to save, may be empty
+     */
+    default void saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) throws CacheException {
+        if (rawRate != null) {
+            saveRawRate(rawRate);
+        }
+        if (usdmid != null) {
+            saveUSDMID(usdmid);
+        }
+        if (!calcRates.isEmpty()) {
+            saveCalcRates(calcRates);
+        }
+    }
+
     String getName();
 }
@@ -0,0 +1,43 @@
+package com.berkepite.RateDistributionEngine.common.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cached values one incoming rate needs: the USD mid rate and the raw rates of some types,
+ * read together by {@link IRateCacheService#getTickSnapshot(List)}.
+ */
+public class RateCacheSnapshot {
+    private final Double usdmid;
+    private final Map<String, List<RawRate>> rawRatesByType;
+
+    public RateCacheSnapshot(Double usdmid, Map<String, List<RawRate>> rawRatesByType) {
+        this.usdmid = usdmid;
+        this.rawRatesByType = rawRatesByType;
+    }
+
+    /**
+     * @return the cached USD mid rate, or null if there is none
+     */
+    public Double getUSDMID() {
+        return usdmid;
+    }
+
+    /**
+     * @param type the raw rate type
+     * @return the cached raw rates of the type, or an empty list if none were read
+     */
+    public List<RawRate> getRawRates(String type) {
+        return rawRatesByType.getOrDefault(type, List.of());
+    }
+
+    @Override
+    public String toString() {
+        return "RateCacheSnapshot{" +
+                "usdmid=" + usdmid +
+                ", rawRatesByType=" + rawRatesByType +
+                '}';
+    }
+}
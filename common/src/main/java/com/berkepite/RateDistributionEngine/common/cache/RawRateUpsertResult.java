@@ -0,0 +1,58 @@
+package com.berkepite.RateDistributionEngine.common.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.util.List;
+
+/**
+ * The outcome of {@link IAtomicRateCacheService#upsertRawRate(RawRate, List)}: whether the incoming rate was kept,
+ * and if so the cached values right after it was saved.
+ */
+public class RawRateUpsertResult {
+    private static final RawRateUpsertResult REJECTED = new RawRateUpsertResult(false, null);
+
+    private final boolean accepted;
+    private final RateCacheSnapshot snapshot;
+
+    private RawRateUpsertResult(boolean accepted, RateCacheSnapshot snapshot) {
+        this.accepted = accepted;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @param snapshot the cached values after the incoming rate was saved
+     * @return a result for a rate that was saved
+     */
+    public static RawRateUpsertResult accepted(RateCacheSnapshot snapshot) {
+        return new RawRateUpsertResult(true, snapshot);
+    }
+
+    /**
+     * @return the result for a rate that was dropped, nothing was written
+     */
+    public static RawRateUpsertResult rejected() {
+        return REJECTED;
+    }
+
+    /**
+     * @return true if the rate was within the tolerance, or its provider was new, and it was saved
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the cached values with the incoming rate in place, or null if the rate was dropped
+     */
+    public RateCacheSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "RawRateUpsertResult{" +
+                "accepted=" + accepted +
+                ", snapshot=" + snapshot +
+                '}';
+    }
+}
@@ -3,4 +3,6 @@ package com.berkepite.RateDistributionEngine.common.calculator;
 public enum CalculatorEnum {
     JAVASCRIPT,
     PYTHON,
+    JAVA,
+    FORMULA,
 }
@@ -1,7 +1,12 @@
 package com.berkepite.RateDistributionEngine.common.calculator;
 
+import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
 import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
 
 public interface ICalculatorFactory {
     IRateCalculator getCalculator() throws CalculatorException;
+
+    IRateCalculator getUnwrappedCalculator() throws CalculatorException;
+
+    void setCoordinator(ICoordinator coordinator);
 }
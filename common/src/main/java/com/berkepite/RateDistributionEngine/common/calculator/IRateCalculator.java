@@ -6,22 +6,38 @@ import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 public interface IRateCalculator {
     void init(String calculatorPath) throws CalculatorException;
 
-    MeanRate calculateMeanRate(Double[] bids, Double[] asks) throws CalculatorException;
+    MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException;
+
+    CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException;
 
-    CalculatedRate calculateForRawRateType(String type, Double usdmid, Double[] bids, Double[] asks) throws CalculatorException;
+    default List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        List<CalculatedRate> calcRates = new ArrayList<>(bidsAndAsksPerType.size());
+        for (Map.Entry<String, List<double[]>> entry : bidsAndAsksPerType.entrySet()) {
+            calcRates.add(calculateForRawRateType(entry.getKey(), usdmid, entry.getValue().get(0), entry.getValue().get(1)));
+        }
 
-    CalculatedRate calculateForUSD_TRY(Double[] bids, Double[] asks) throws CalculatorException;
+        return calcRates;
+    }
+
+    CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException;
 
     boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException;
 
-    Double calculateUSDMID(Double[] bids, Double[] asks) throws CalculatorException;
+    Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException;
 
     String getStrategy();
 
     String getPath();
 
     Logger getLogger();
+
+    default void close() {
+    }
 }
@@ -0,0 +1,349 @@
+package com.berkepite.RateDistributionEngine.common.decimal;
+
+import java.math.RoundingMode;
+
+/**
+ * Allocation-free fixed-point arithmetic on prices stored as {@code long}s.
+ * <p>
+ * A price is a plain {@code long} holding the value multiplied by {@code 10^scale}, so {@code 34.85}
+ * at scale 6 is {@code 34_850_000}. A FixedPoint instance only describes the scale and the rounding mode,
+ * much like a {@link java.math.MathContext}, and performs the operations on such raw values. No operation
+ * allocates, so prices can live in primitive arrays and fields on the hot path.
+ * </p>
+ * <p>
+ * Every operation rounds its exact result once, with the configured {@link RoundingMode}. Additions and
+ * subtractions are exact. Results that do not fit into a {@code long} throw an {@link ArithmeticException}
+ * instead of wrapping around, as does division by zero and {@link RoundingMode#UNNECESSARY} on an inexact result.
+ * </p>
+ * <p>
+ * The scale is limited to {@value #MAX_SCALE}, which keeps products of two fractional parts within a
+ * {@code long} and still leaves prices up to about 9.2 billion.
+ * </p>
+ */
+public final class FixedPoint {
+    public static final int MAX_SCALE = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final long HUNDRED = 100;
+
+    private final int scale;
+    private final long factor;
+    private final RoundingMode rounding;
+
+    /**
+     * Creates the arithmetic for the given scale and rounding.
+     *
+     * @param scale    number of fraction digits, between 0 and {@value #MAX_SCALE}
+     * @param rounding how inexact results are rounded
+     * @throws IllegalArgumentException if the scale is out of range or the rounding is null
+     */
+    public FixedPoint(int scale, RoundingMode rounding) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale must be between 0 and %d: %d".formatted(MAX_SCALE, scale));
+        }
+        if (rounding == null) {
+            throw new IllegalArgumentException("Rounding must not be null");
+        }
+
+        this.scale = scale;
+        this.factor = POWERS_OF_TEN[scale];
+        this.rounding = rounding;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public RoundingMode getRounding() {
+        return rounding;
+    }
+
+    /**
+     * Returns the raw value of one.
+     *
+     * @return {@code 10^scale}
+     */
+    public long one() {
+        return factor;
+    }
+
+    /**
+     * Converts a whole number.
+     *
+     * @param value the whole number
+     * @return the raw fixed-point value
+     */
+    public long fromLong(long value) {
+        return Math.multiplyExact(value, factor);
+    }
+
+    /**
+     * Converts a double, rounding as if from its shortest decimal representation.
+     * <p>
+     * The binary representation error of the double is ignored, so {@code 1.005} at scale 2 is a tie
+     * ({@code 100.5}) and not {@code 100.4999...}. This holds for every double with up to {@code scale + 1}
+     * fraction digits, which covers prices quoted at the configured scale.
+     * </p>
+     *
+     * @param value the double to convert
+     * @return the raw fixed-point value
+     * @throws ArithmeticException if the value is not finite or out of range
+     */
+    public long fromDouble(double value) {
+        if (!Double.isFinite(value)) {
+            throw new ArithmeticException("Not a finite number: " + value);
+        }
+
+        double scaled = value * factor;
+        if (Math.abs(scaled) >= 0x1p63) {
+            throw new ArithmeticException("Out of range at scale %d: %s".formatted(scale, value));
+        }
+
+        double tolerance = 4 * Math.ulp(scaled);
+        if (tolerance >= 0.125) {
+            // Too large to carry any fraction reliably; the nearest whole raw value is the decimal one.
+            return (long) Math.rint(scaled);
+        }
+
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        long integer = (long) floor;
+
+        if (fraction <= tolerance) {
+            return integer;
+        }
+        if (1 - fraction <= tolerance) {
+            return Math.incrementExact(integer);
+        }
+
+        // Quarters of a unit are enough to tell the rounding whether the value is below, at or above the tie.
+        long quarters = fraction < 0.5 - tolerance ? 1 : fraction > 0.5 + tolerance ? 3 : 2;
+        return round(integer, quarters, 4, value < 0);
+    }
+
+    /**
+     * Converts a raw value to the nearest double.
+     *
+     * @param value the raw fixed-point value
+     * @return the value as a double
+     */
+    public double toDouble(long value) {
+        return (double) value / factor;
+    }
+
+    /**
+     * Adds two values.
+     *
+     * @throws ArithmeticException on overflow
+     */
+    public long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts {@code b} from {@code a}.
+     *
+     * @throws ArithmeticException on overflow
+     */
+    public long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiplies two values, rounding the exact product once.
+     *
+     * @throws ArithmeticException on overflow
+     */
+    public long multiply(long a, long b) {
+        boolean negative = (a < 0) != (b < 0);
+        long magnitudeA = Math.absExact(a);
+        long magnitudeB = Math.absExact(b);
+
+        // (qa + ra / f) * (qb + rb / f) * f = qa * qb * f + qa * rb + ra * qb + ra * rb / f, where ra * rb < f^2 fits.
+        long quotientA = magnitudeA / factor;
+        long remainderA = magnitudeA % factor;
+        long quotientB = magnitudeB / factor;
+        long remainderB = magnitudeB % factor;
+        long fractions = remainderA * remainderB;
+
+        long quotient = Math.multiplyExact(Math.multiplyExact(quotientA, quotientB), factor);
+        quotient = Math.addExact(quotient, Math.multiplyExact(quotientA, remainderB));
+        quotient = Math.addExact(quotient, Math.multiplyExact(remainderA, quotientB));
+        quotient = Math.addExact(quotient, fractions / factor);
+
+        return roundMagnitude(quotient, fractions % factor, factor, negative);
+    }
+
+    /**
+     * Divides {@code a} by {@code b}, rounding the exact quotient once.
+     *
+     * @throws ArithmeticException if {@code b} is zero or on overflow
+     */
+    public long divide(long a, long b) {
+        if (b == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+
+        boolean negative = (a < 0) != (b < 0);
+        long magnitudeA = Math.absExact(a);
+        long magnitudeB = Math.absExact(b);
+
+        long quotient = magnitudeA / magnitudeB;
+        long remainder = magnitudeA % magnitudeB;
+
+        if (remainder <= Long.MAX_VALUE / factor) {
+            long scaledRemainder = remainder * factor;
+            quotient = Math.addExact(Math.multiplyExact(quotient, factor), scaledRemainder / magnitudeB);
+            remainder = scaledRemainder % magnitudeB;
+        } else {
+            // Long division one digit at a time. remainder * 10 may not fit into a long for huge divisors, so it is
+            // summed up modulo the divisor instead; remainder < magnitudeB < 2^63 keeps each sum within 64 unsigned bits.
+            for (int i = 0; i < scale; i++) {
+                long digit = 0;
+                long scaledRemainder = 0;
+                for (int j = 0; j < 10; j++) {
+                    scaledRemainder += remainder;
+                    if (Long.compareUnsigned(scaledRemainder, magnitudeB) >= 0) {
+                        scaledRemainder -= magnitudeB;
+                        digit++;
+                    }
+                }
+                quotient = Math.addExact(Math.multiplyExact(quotient, 10L), digit);
+                remainder = scaledRemainder;
+            }
+        }
+
+        return roundMagnitude(quotient, remainder, magnitudeB, negative);
+    }
+
+    /**
+     * Calculates the mean of the first {@code count} values, rounding the exact mean once.
+     *
+     * @param values the raw values
+     * @param count  how many values to use
+     * @return the raw mean
+     * @throws ArithmeticException if count is zero or the sum overflows
+     */
+    public long mean(long[] values, int count) {
+        if (count <= 0) {
+            throw new ArithmeticException("Cannot calculate the mean of no values");
+        }
+
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum = Math.addExact(sum, values[i]);
+        }
+
+        return divideByCount(sum, count);
+    }
+
+    /**
+     * Calculates the mean of doubles, converting each with {@link #fromDouble(double)} first.
+     *
+     * @param values the prices
+     * @return the raw mean
+     * @throws ArithmeticException if there are no values or the sum overflows
+     */
+    public long mean(double[] values) {
+        if (values.length == 0) {
+            throw new ArithmeticException("Cannot calculate the mean of no values");
+        }
+
+        long sum = 0;
+        for (double value : values) {
+            sum = Math.addExact(sum, fromDouble(value));
+        }
+
+        return divideByCount(sum, values.length);
+    }
+
+    /**
+     * Calculates the absolute difference of {@code value} to {@code reference} in percent of {@code value},
+     * as the one percent tolerance rule does. The exact result is rounded once.
+     *
+     * @param value     the raw value, for example an incoming price
+     * @param reference the raw reference, for example the mean price
+     * @return the raw percentage, e.g. {@link #one()} for one percent
+     * @throws ArithmeticException if value is zero or on overflow
+     */
+    public long percentDifference(long value, long reference) {
+        long difference = Math.absExact(Math.subtractExact(value, reference));
+        return divide(Math.multiplyExact(difference, HUNDRED), Math.absExact(value));
+    }
+
+    /**
+     * Formats a raw value as a plain decimal string.
+     *
+     * @param value the raw fixed-point value
+     * @return the decimal string, e.g. {@code "34.850000"} at scale 6
+     */
+    public String toString(long value) {
+        if (scale == 0) {
+            return Long.toString(value);
+        }
+
+        String digits = Long.toString(Math.abs(value / factor));
+        String fraction = Long.toString(Math.abs(value % factor) + factor).substring(1);
+        return (value < 0 ? "-" : "") + digits + "." + fraction;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPoint{" +
+                "scale=" + scale +
+                ", rounding=" + rounding +
+                '}';
+    }
+
+    private long divideByCount(long sum, int count) {
+        return roundMagnitude(Math.abs(sum / count), Math.abs(sum % count), count, sum < 0);
+    }
+
+    /**
+     * Rounds {@code ±(quotient + remainder / divisor)} given as magnitudes.
+     */
+    private long roundMagnitude(long quotient, long remainder, long divisor, boolean negative) {
+        if (!negative) {
+            return round(quotient, remainder, divisor, false);
+        }
+
+        if (remainder == 0) {
+            return -quotient;
+        }
+
+        // -(q + r/d) = (-q - 1) + (d - r)/d
+        return round(-quotient - 1, divisor - remainder, divisor, true);
+    }
+
+    /**
+     * Rounds {@code floor + remainder / divisor}, where {@code 0 <= remainder < divisor}, to a whole raw value.
+     */
+    private long round(long floor, long remainder, long divisor, boolean negative) {
+        if (remainder == 0) {
+            return floor;
+        }
+
+        boolean up = switch (rounding) {
+            case FLOOR -> false;
+            case CEILING -> true;
+            case DOWN -> negative;
+            case UP -> !negative;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                int half = Long.compare(remainder, divisor - remainder);
+                if (half != 0) {
+                    yield half > 0;
+                }
+                yield switch (rounding) {
+                    case HALF_UP -> !negative;
+                    case HALF_DOWN -> negative;
+                    default -> (floor & 1) != 0;
+                };
+            }
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary at scale " + scale);
+        };
+
+        return up ? Math.incrementExact(floor) : floor;
+    }
+}
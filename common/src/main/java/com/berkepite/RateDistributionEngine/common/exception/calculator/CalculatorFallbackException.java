@@ -0,0 +1,14 @@
+package com.berkepite.RateDistributionEngine.common.exception.calculator;
+
+public class CalculatorFallbackException extends CalculatorTimeoutException {
+    private final String fallbackStrategy;
+
+    public CalculatorFallbackException(CalculatorTimeoutException timeout, String fallbackStrategy) {
+        super("%s The result was calculated by the %s calculator instead.".formatted(timeout.getMessage(), fallbackStrategy), timeout);
+        this.fallbackStrategy = fallbackStrategy;
+    }
+
+    public String getFallbackStrategy() {
+        return fallbackStrategy;
+    }
+}
@@ -0,0 +1,11 @@
+package com.berkepite.RateDistributionEngine.common.exception.calculator;
+
+public class CalculatorTimeoutException extends CalculatorException {
+    public CalculatorTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CalculatorTimeoutException(String message) {
+        super(message);
+    }
+}
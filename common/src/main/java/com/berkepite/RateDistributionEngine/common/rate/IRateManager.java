@@ -3,4 +3,8 @@ package com.berkepite.RateDistributionEngine.common.rate;
 public interface IRateManager {
 
     void manageIncomingRawRate(RawRate rawRate);
+
+    void publishRawRate(RawRate rawRate);
+
+    void processRawRate(RawRate rawRate);
 }
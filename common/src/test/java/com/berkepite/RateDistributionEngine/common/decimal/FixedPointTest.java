@@ -0,0 +1,182 @@
+package com.berkepite.RateDistributionEngine.common.decimal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class FixedPointTest {
+    private static final int[] SCALES = {0, 2, 6, FixedPoint.MAX_SCALE};
+
+    @Test
+    public void shouldRoundTiesOfBothSignsInEveryMode() {
+        FixedPoint halfUp = new FixedPoint(0, RoundingMode.HALF_UP);
+        FixedPoint halfDown = new FixedPoint(0, RoundingMode.HALF_DOWN);
+        FixedPoint halfEven = new FixedPoint(0, RoundingMode.HALF_EVEN);
+        FixedPoint floor = new FixedPoint(0, RoundingMode.FLOOR);
+        FixedPoint ceiling = new FixedPoint(0, RoundingMode.CEILING);
+        FixedPoint up = new FixedPoint(0, RoundingMode.UP);
+        FixedPoint down = new FixedPoint(0, RoundingMode.DOWN);
+
+        Assertions.assertEquals(3, halfUp.divide(5, 2));
+        Assertions.assertEquals(-3, halfUp.divide(-5, 2));
+        Assertions.assertEquals(2, halfDown.divide(5, 2));
+        Assertions.assertEquals(-2, halfDown.divide(-5, 2));
+        Assertions.assertEquals(2, halfEven.divide(5, 2));
+        Assertions.assertEquals(-4, halfEven.divide(-7, 2));
+        Assertions.assertEquals(-3, floor.divide(-5, 2));
+        Assertions.assertEquals(-2, ceiling.divide(-5, 2));
+        Assertions.assertEquals(-3, up.divide(-5, 2));
+        Assertions.assertEquals(-2, down.divide(-5, 2));
+        Assertions.assertThrows(ArithmeticException.class, () -> new FixedPoint(0, RoundingMode.UNNECESSARY).divide(5, 2));
+
+        for (int scale : new int[]{0, FixedPoint.MAX_SCALE}) {
+            for (RoundingMode rounding : RoundingMode.values()) {
+                FixedPoint fixedPoint = new FixedPoint(scale, rounding);
+                long one = fixedPoint.one();
+
+                for (long numerator = -7; numerator <= 7; numerator++) {
+                    long a = numerator;
+                    // Halves and quarters of a raw unit: ties, values beside them and exact values.
+                    for (long divisor : new long[]{2 * one, -2 * one, 4 * one}) {
+                        assertMatches(reference(() -> new BigDecimal(a).divide(new BigDecimal(divisor), scale, rounding)),
+                                () -> fixedPoint.divide(a, divisor), fixedPoint + " " + a + " / " + divisor);
+                    }
+                    if (scale > 0) {
+                        assertMatches(reference(() -> multiplied(a, one / 2, scale, rounding)),
+                                () -> fixedPoint.multiply(a, one / 2), fixedPoint + " " + a + " * 0.5");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldMultiplyAndDivideLikeBigDecimal() {
+        Random random = new Random(7);
+
+        for (int scale : SCALES) {
+            for (RoundingMode rounding : RoundingMode.values()) {
+                FixedPoint fixedPoint = new FixedPoint(scale, rounding);
+
+                for (int i = 0; i < 5_000; i++) {
+                    long bound = i % 3 == 0 ? 1_000_000L : i % 3 == 1 ? 1_000_000_000_000L : Long.MAX_VALUE / 2;
+                    long a = random.nextLong(-bound, bound);
+                    long b = random.nextLong(-bound, bound);
+
+                    assertMatches(reference(() -> multiplied(a, b, scale, rounding)),
+                            () -> fixedPoint.multiply(a, b), fixedPoint + " " + a + " * " + b);
+                    assertMatches(reference(() -> new BigDecimal(a).divide(new BigDecimal(b), scale, rounding)),
+                            () -> fixedPoint.divide(a, b), fixedPoint + " " + a + " / " + b);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldThrowInsteadOfOverflowing() {
+        FixedPoint fixedPoint = new FixedPoint(FixedPoint.MAX_SCALE, RoundingMode.HALF_EVEN);
+
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.add(Long.MAX_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.add(Long.MIN_VALUE, -1));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.subtract(Long.MIN_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.multiply(fixedPoint.fromLong(4_000_000_000L), fixedPoint.fromLong(3)));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.multiply(fixedPoint.fromLong(-4_000_000_000L), fixedPoint.fromLong(3)));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.divide(Long.MAX_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.divide(Long.MIN_VALUE, fixedPoint.one()));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.divide(fixedPoint.one(), 0));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.fromLong(10_000_000_000L));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.fromDouble(1e10));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.fromDouble(Double.NaN));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.mean(new long[]{Long.MAX_VALUE, 1}, 2));
+        Assertions.assertThrows(ArithmeticException.class, () -> fixedPoint.mean(new double[0]));
+
+        Assertions.assertEquals(Long.MAX_VALUE, fixedPoint.add(Long.MAX_VALUE - 1, 1));
+        Assertions.assertEquals(9_000_000_000_000_000_000L, fixedPoint.multiply(fixedPoint.fromLong(3_000_000_000L), fixedPoint.fromLong(3)));
+    }
+
+    @Test
+    public void shouldKeepTheSignOfNegativeValues() {
+        FixedPoint fixedPoint = new FixedPoint(6, RoundingMode.HALF_UP);
+
+        Assertions.assertEquals(-3_000_000, fixedPoint.multiply(-1_500_000, 2_000_000));
+        Assertions.assertEquals(3_000_000, fixedPoint.multiply(-1_500_000, -2_000_000));
+        Assertions.assertEquals(-333_333, fixedPoint.divide(-1_000_000, 3_000_000));
+        Assertions.assertEquals(-666_667, fixedPoint.divide(2_000_000, -3_000_000));
+        Assertions.assertEquals(-2, fixedPoint.mean(new long[]{-1, -2}, 2));
+        Assertions.assertEquals(-1, new FixedPoint(6, RoundingMode.HALF_DOWN).mean(new long[]{-1, -2}, 2));
+        Assertions.assertEquals(-34_850_000, fixedPoint.fromDouble(-34.85));
+        Assertions.assertEquals(-34.85, fixedPoint.toDouble(-34_850_000));
+        Assertions.assertEquals("-0.500000", fixedPoint.toString(-500_000));
+        Assertions.assertEquals("-34.850000", fixedPoint.toString(-34_850_000));
+        Assertions.assertEquals(fixedPoint.one(), fixedPoint.percentDifference(-100_000_000, -101_000_000));
+    }
+
+    @Test
+    public void shouldHandleTheSmallestAndLargestScale() {
+        FixedPoint whole = new FixedPoint(0, RoundingMode.HALF_EVEN);
+        FixedPoint nano = new FixedPoint(FixedPoint.MAX_SCALE, RoundingMode.HALF_EVEN);
+
+        Assertions.assertEquals(1, whole.one());
+        Assertions.assertEquals(35, whole.fromDouble(34.85));
+        Assertions.assertEquals("-35", whole.toString(-35));
+        Assertions.assertEquals(1_000_000_000L, nano.one());
+        Assertions.assertEquals(34_850_000_001L, nano.fromDouble(34.850000001));
+        Assertions.assertEquals("34.850000001", nano.toString(34_850_000_001L));
+        Assertions.assertEquals("-0.000000001", nano.toString(-1));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FixedPoint(-1, RoundingMode.HALF_EVEN));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FixedPoint(FixedPoint.MAX_SCALE + 1, RoundingMode.HALF_EVEN));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FixedPoint(6, null));
+    }
+
+    @Test
+    public void shouldConvertDoublesLikeTheirDecimalRepresentation() {
+        Random random = new Random(11);
+
+        for (int scale : SCALES) {
+            for (RoundingMode rounding : RoundingMode.values()) {
+                FixedPoint fixedPoint = new FixedPoint(scale, rounding);
+
+                for (int i = 0; i < 5_000; i++) {
+                    // Every other value has 15 significant digits and one more fraction digit than the scale, so every tenth is a tie.
+                    double value = i % 2 == 0
+                            ? BigDecimal.valueOf(random.nextLong(-999_999_999_999_999L, 999_999_999_999_999L), scale + 1).doubleValue()
+                            : (random.nextDouble() * 2 - 1) * Math.pow(10, random.nextInt(4));
+
+                    assertMatches(reference(() -> new BigDecimal(Double.toString(value)).setScale(scale, rounding)),
+                            () -> fixedPoint.fromDouble(value), fixedPoint + " " + value);
+                }
+            }
+        }
+    }
+
+    private static BigDecimal multiplied(long a, long b, int scale, RoundingMode rounding) {
+        return BigDecimal.valueOf(a, scale).multiply(BigDecimal.valueOf(b, scale)).setScale(scale, rounding);
+    }
+
+    /**
+     * @return the raw value of the reference result, or the exception it throws, as it fits no long or needs rounding
+     */
+    private static Object reference(Supplier<BigDecimal> result) {
+        try {
+            return result.get().unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return ArithmeticException.class;
+        }
+    }
+
+    private static void assertMatches(Object expected, LongSupplier actual, String message) {
+        Object outcome;
+        try {
+            outcome = actual.getAsLong();
+        } catch (ArithmeticException e) {
+            outcome = ArithmeticException.class;
+        }
+        Assertions.assertEquals(expected, outcome, message);
+    }
+}
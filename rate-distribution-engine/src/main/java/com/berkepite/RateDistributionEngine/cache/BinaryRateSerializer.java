@@ -0,0 +1,140 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Base of the fixed-layout binary {@link RedisSerializer}s of the cached rates.
+ * <p>
+ * Every value starts with a version byte, followed by the fields of the rate in a fixed order, big-endian:
+ * strings as one length byte and their UTF-8 bytes, prices as 8-byte IEEE 754 doubles, so they read back
+ * exactly, and the timestamp as 8 bytes of nanoseconds since the epoch. A null string has the length 255,
+ * a null timestamp is {@link Long#MIN_VALUE}.
+ * </p>
+ * <p>
+ * Values written as JSON by earlier versions start with '{', which is never a version byte; they are read
+ * with the given JSON serializer, so the cache does not have to be flushed when switching formats.
+ * </p>
+ *
+ * @param <T> the rate class
+ */
+abstract class BinaryRateSerializer<T> implements RedisSerializer<T> {
+    static final byte VERSION_1 = 1;
+
+    private static final byte JSON_OBJECT_START = '{';
+    private static final int NULL_STRING_LENGTH = 0xFF;
+    private static final int MAX_STRING_LENGTH = NULL_STRING_LENGTH - 1;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final RedisSerializer<T> jsonSerializer;
+
+    /**
+     * @param jsonSerializer reads the values written as JSON by earlier versions
+     */
+    BinaryRateSerializer(RedisSerializer<T> jsonSerializer) {
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JSON_OBJECT_START) {
+            return jsonSerializer.deserialize(bytes);
+        }
+        if (bytes[0] != VERSION_1) {
+            throw new SerializationException("Unsupported rate format version: " + bytes[0]);
+        }
+
+        try {
+            return read(ByteBuffer.wrap(bytes, 1, bytes.length - 1));
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated rate of " + bytes.length + " bytes.", e);
+        }
+    }
+
+    /**
+     * Reads the fields of a version 1 value, the buffer is positioned after the version byte.
+     */
+    abstract T read(ByteBuffer buffer);
+
+    /**
+     * @return the UTF-8 bytes of the string, or null
+     * @throws SerializationException if the string is longer than 254 bytes
+     */
+    static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new SerializationException("String of " + bytes.length + " bytes is too long for a cached rate.");
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return the number of bytes {@link #putString(ByteBuffer, byte[])} writes
+     */
+    static int stringSize(byte[] encoded) {
+        return encoded == null ? 1 : 1 + encoded.length;
+    }
+
+    static void putString(ByteBuffer buffer, byte[] encoded) {
+        if (encoded == null) {
+            buffer.put((byte) NULL_STRING_LENGTH);
+            return;
+        }
+
+        buffer.put((byte) encoded.length);
+        buffer.put(encoded);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = Byte.toUnsignedInt(buffer.get());
+        if (length == NULL_STRING_LENGTH) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * @throws SerializationException if the timestamp is outside the years 1677 to 2262
+     */
+    static void putTimestamp(ByteBuffer buffer, Instant timestamp) {
+        if (timestamp == null) {
+            buffer.putLong(NULL_TIMESTAMP);
+            return;
+        }
+
+        try {
+            buffer.putLong(Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), NANOS_PER_SECOND), timestamp.getNano()));
+        } catch (ArithmeticException e) {
+            throw new SerializationException("Timestamp " + timestamp + " does not fit in epoch nanoseconds.", e);
+        }
+    }
+
+    static Instant getTimestamp(ByteBuffer buffer) {
+        long epochNanos = buffer.getLong();
+        if (epochNanos == NULL_TIMESTAMP) {
+            return null;
+        }
+
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+}
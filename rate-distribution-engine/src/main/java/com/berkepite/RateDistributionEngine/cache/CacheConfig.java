@@ -21,6 +21,10 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 @Configuration
 @EnableCaching
 public class CacheConfig {
+    /**
+     * Only reads values written as JSON by earlier versions, shared by the templates.
+     */
+    static final ObjectMapper LEGACY_JSON_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
 
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
@@ -41,11 +45,14 @@ public class CacheConfig {
         // Use StringRedisSerializer for keys
         template.setKeySerializer(new StringRedisSerializer());
 
-        // Use Jackson JSON Serializer for values
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        Jackson2JsonRedisSerializer<RawRate> serializer = new Jackson2JsonRedisSerializer<>(mapper, RawRate.class);
+        // Use the binary serializer for values, it still reads rates cached as JSON
+        RawRateRedisSerializer serializer = new RawRateRedisSerializer(new Jackson2JsonRedisSerializer<>(LEGACY_JSON_MAPPER, RawRate.class));
         template.setValueSerializer(serializer);
 
+        // Raw rates are kept in one hash per type, with the provider as the field
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(serializer);
+
         return template;
     }
 
@@ -57,10 +64,8 @@ public class CacheConfig {
         // Use StringRedisSerializer for keys
         template.setKeySerializer(new StringRedisSerializer());
 
-        // Use Jackson JSON Serializer for values
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        Jackson2JsonRedisSerializer<RawRate> serializer = new Jackson2JsonRedisSerializer<>(mapper, RawRate.class);
-        template.setValueSerializer(serializer);
+        // Use the binary serializer for values, it still reads rates cached as JSON
+        template.setValueSerializer(new CalculatedRateRedisSerializer(new Jackson2JsonRedisSerializer<>(LEGACY_JSON_MAPPER, CalculatedRate.class)));
 
         return template;
     }
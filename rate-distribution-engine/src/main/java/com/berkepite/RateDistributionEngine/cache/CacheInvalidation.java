@@ -0,0 +1,48 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message telling the other engine instances which cached entries a write changed.
+ * <p>
+ * It is published on {@link #CHANNEL} together with the write, in the same round trip. The body is the id of
+ * the writing instance followed by the changed Redis keys, one per line, so an instance can ignore its own writes.
+ * </p>
+ *
+ * @param origin the id of the instance that wrote
+ * @param keys   the Redis keys that changed, e.g. "raw_rates:USD_TRY" or "usdmid"
+ */
+record CacheInvalidation(String origin, List<String> keys) {
+    static final String CHANNEL = "rate_cache:invalidations";
+
+    CacheInvalidation {
+        keys = List.copyOf(keys);
+    }
+
+    /**
+     * @return the message body
+     */
+    String toMessage() {
+        return origin + "\n" + String.join("\n", keys);
+    }
+
+    /**
+     * @param body the received message body
+     * @return the invalidation, or null if the body is malformed
+     */
+    static CacheInvalidation fromMessage(byte[] body) {
+        String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+        if (lines.length < 2) {
+            return null;
+        }
+
+        List<String> keys = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            keys.add(lines[i]);
+        }
+
+        return new CacheInvalidation(lines[0], keys);
+    }
+}
@@ -0,0 +1,53 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary {@link RedisSerializer} for {@link CalculatedRate}.
+ * <p>
+ * Layout: version, type, bid, ask, timestamp, see {@link BinaryRateSerializer}.
+ * </p>
+ */
+public class CalculatedRateRedisSerializer extends BinaryRateSerializer<CalculatedRate> {
+    private static final int FIXED_SIZE = 1 + 8 + 8 + 8;
+
+    /**
+     * @param jsonSerializer reads the calculated rates written as JSON by earlier versions
+     */
+    public CalculatedRateRedisSerializer(RedisSerializer<CalculatedRate> jsonSerializer) {
+        super(jsonSerializer);
+    }
+
+    @Override
+    public byte[] serialize(CalculatedRate rate) throws SerializationException {
+        if (rate == null) {
+            return new byte[0];
+        }
+
+        byte[] type = encode(rate.getType());
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + stringSize(type));
+
+        buffer.put(VERSION_1);
+        putString(buffer, type);
+        buffer.putDouble(rate.getBid());
+        buffer.putDouble(rate.getAsk());
+        putTimestamp(buffer, rate.getTimestamp());
+
+        return buffer.array();
+    }
+
+    @Override
+    CalculatedRate read(ByteBuffer buffer) {
+        CalculatedRate rate = new CalculatedRate();
+        rate.setType(getString(buffer));
+        rate.setBid(buffer.getDouble());
+        rate.setAsk(buffer.getDouble());
+        rate.setTimestamp(getTimestamp(buffer));
+
+        return rate;
+    }
+}
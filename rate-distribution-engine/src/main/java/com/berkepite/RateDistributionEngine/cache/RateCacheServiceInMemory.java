@@ -1,36 +1,49 @@
 package com.berkepite.RateDistributionEngine.cache;
 
 import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
-import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
 import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
-import org.springframework.context.annotation.Profile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * In-memory implementation of {@link IRateCacheService} for use in testing environments.
+ * In-memory implementation of {@link IRateCacheService}, for single-node deployments and tests.
  * <p>
- * This service stores rates and USD mid values in local HashMaps, providing
- * fast and lightweight caching without external dependencies.
+ * Rate types and providers are interned to dense ids the first time they are seen. Each type has a slot,
+ * kept in an array indexed by type id, holding its raw rates in an array indexed by provider id, its
+ * calculated rate and a ready-made list of its raw rates.
  * </p>
  * <p>
- * It is active only under the {@code test} Spring profile.
+ * Reads never lock: a slot publishes immutable arrays and lists through volatile fields, so
+ * {@link #getAllRawRatesForType(String)} returns without copying or scanning other types. Writes lock only the
+ * slot of their type and replace its arrays, so writers of different types never contend. Registering a new
+ * type or provider takes a short global lock once.
  * </p>
  * <p>
- * Note: This implementation is not thread-safe and should only be used for
- * testing or development scenarios where concurrent access is not expected.
+ * Active when {@code app.rate-cache} is {@code memory}, which the {@code test} profile sets.
  * </p>
  */
 @Service
-@Profile("test")
+@ConditionalOnProperty(name = "app.rate-cache", havingValue = "memory")
 public class RateCacheServiceInMemory implements IRateCacheService {
+    private static final int INITIAL_CAPACITY = 16;
 
-    private final Map<String, RawRate> rawRateCache = new HashMap<>();
-    private final Map<String, CalculatedRate> calculatedRateCache = new HashMap<>();
-    private final Map<String, Double> usdmidCache = new HashMap<>();
+    private final Map<String, Integer> typeIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> providerIds = new ConcurrentHashMap<>();
+    private final Object registrationLock = new Object();
+
+    /**
+     * Indexed by type id, grown under the registration lock; a slot is stored before its id is published.
+     */
+    private volatile TypeSlot[] slots = new TypeSlot[INITIAL_CAPACITY];
+    private volatile Double usdmid;
 
     /**
      * Retrieves the cached USD mid value.
@@ -39,8 +52,7 @@ public class RateCacheServiceInMemory implements IRateCacheService {
      */
     @Override
     public Double getUSDMID() {
-        String key = "usdmid";
-        return usdmidCache.get(key);
+        return usdmid;
     }
 
     /**
@@ -51,8 +63,7 @@ public class RateCacheServiceInMemory implements IRateCacheService {
      */
     @Override
     public Double saveUSDMID(Double value) {
-        String key = "usdmid";
-        usdmidCache.put(key, value);
+        usdmid = value;
         return value;
     }
 
@@ -64,8 +75,8 @@ public class RateCacheServiceInMemory implements IRateCacheService {
      */
     @Override
     public CalculatedRate getCalcRate(CalculatedRate rate) {
-        String key = String.format("calc_rates::rates:%s", rate.getType());
-        return calculatedRateCache.get(key);
+        TypeSlot slot = findSlot(rate.getType());
+        return slot == null ? null : slot.calcRate;
     }
 
     /**
@@ -76,8 +87,7 @@ public class RateCacheServiceInMemory implements IRateCacheService {
      */
     @Override
     public CalculatedRate saveCalcRate(CalculatedRate rate) {
-        String key = String.format("calc_rates::rates:%s", rate.getType());
-        calculatedRateCache.put(key, rate);
+        slot(rate.getType()).calcRate = rate;
         return rate;
     }
 
@@ -89,44 +99,106 @@ public class RateCacheServiceInMemory implements IRateCacheService {
      */
     @Override
     public RawRate getRawRate(RawRate rate) {
-        String key = String.format("raw_rates::rates:%s:%s", rate.getProvider(), rate.getType());
-        return rawRateCache.get(key);
+        TypeSlot slot = findSlot(rate.getType());
+        Integer providerId = providerIds.get(rate.getProvider());
+        if (slot == null || providerId == null) {
+            return null;
+        }
+
+        RawRate[] byProvider = slot.rawRatesByProvider;
+        return providerId < byProvider.length ? byProvider[providerId] : null;
     }
 
     /**
-     * Saves a raw rate in the cache.
+     * Saves a raw rate in the slot of its type, replacing the provider's previous rate.
      *
      * @param rate The {@link RawRate} to cache.
      * @return The saved rate.
      */
     @Override
     public RawRate saveRawRate(RawRate rate) {
-        String key = String.format("raw_rates::rates:%s:%s", rate.getProvider(), rate.getType());
-        rawRateCache.put(key, rate);
+        TypeSlot slot = slot(rate.getType());
+        int providerId = providerId(rate.getProvider());
+
+        synchronized (slot) {
+            RawRate[] byProvider = slot.rawRatesByProvider;
+            RawRate[] updated = Arrays.copyOf(byProvider, Math.max(byProvider.length, providerId + 1));
+            boolean newProvider = updated[providerId] == null;
+            updated[providerId] = rate;
+
+            List<RawRate> rates = new ArrayList<>(slot.rawRates.size() + (newProvider ? 1 : 0));
+            for (RawRate cached : updated) {
+                if (cached != null) {
+                    rates.add(cached);
+                }
+            }
+
+            slot.rawRatesByProvider = updated;
+            slot.rawRates = Collections.unmodifiableList(rates);
+        }
+
         return rate;
     }
 
     /**
-     * Retrieves all raw rates of a specific type.
+     * Retrieves all raw rates of a specific type, ordered by the first appearance of their providers.
      *
      * @param type The type of raw rates to retrieve.
-     * @return List of matching {@link RawRate} instances, or an empty list if none found.
-     * @throws CacheException Never thrown in this implementation, but declared by interface.
+     * @return Unmodifiable list of the cached {@link RawRate}s, or an empty list if none found.
      */
     @Override
-    public List<RawRate> getAllRawRatesForType(String type) throws CacheException {
-        List<String> keys = rawRateCache.keySet()
-                .stream()
-                .filter(s -> s.startsWith("raw_rates::rates:") && s.endsWith(":" + type))
-                .toList();
-
-        if (keys.isEmpty()) {
-            return List.of();
+    public List<RawRate> getAllRawRatesForType(String type) {
+        TypeSlot slot = findSlot(type);
+        return slot == null ? List.of() : slot.rawRates;
+    }
+
+    /**
+     * Returns the slot of a type, or null if the type was never written.
+     */
+    private TypeSlot findSlot(String type) {
+        Integer typeId = typeIds.get(type);
+        return typeId == null ? null : slots[typeId];
+    }
+
+    /**
+     * Returns the slot of a type, registering the type if it is new.
+     */
+    private TypeSlot slot(String type) {
+        TypeSlot slot = findSlot(type);
+        if (slot != null) {
+            return slot;
         }
 
-        return keys.stream()
-                .map(rawRateCache::get)
-                .collect(Collectors.toList());
+        synchronized (registrationLock) {
+            Integer typeId = typeIds.get(type);
+            if (typeId != null) {
+                return slots[typeId];
+            }
+
+            int id = typeIds.size();
+            TypeSlot[] current = slots;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            slot = new TypeSlot();
+            current[id] = slot;
+            slots = current;
+            // Published after the slot, so a reader that sees the id also sees the slot
+            typeIds.put(type, id);
+
+            return slot;
+        }
+    }
+
+    private int providerId(String provider) {
+        Integer providerId = providerIds.get(provider);
+        if (providerId != null) {
+            return providerId;
+        }
+
+        synchronized (registrationLock) {
+            return providerIds.computeIfAbsent(provider, p -> providerIds.size());
+        }
     }
 
     /**
@@ -138,4 +210,13 @@ public class RateCacheServiceInMemory implements IRateCacheService {
     public String getName() {
         return "InMemoryAPI";
     }
+
+    /**
+     * The cached values of one rate type. The arrays and lists are never modified once published.
+     */
+    private static final class TypeSlot {
+        private volatile RawRate[] rawRatesByProvider = new RawRate[0];
+        private volatile List<RawRate> rawRates = List.of();
+        private volatile CalculatedRate calcRate;
+    }
 }
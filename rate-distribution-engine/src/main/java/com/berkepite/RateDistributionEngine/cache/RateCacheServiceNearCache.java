@@ -0,0 +1,432 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.IAtomicRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Two-level implementation of {@link IRateCacheService}: an in-process near cache in front of
+ * {@link RateCacheServiceRedisAPI}.
+ * <p>
+ * The near cache keeps the latest raw rates of every type read so far, the calculated rates and the USD mid rate.
+ * Reads are answered from memory and go to Redis only on a miss. Writes go to Redis first and then update the
+ * near cache, so this instance never waits for its own writes to come back.
+ * </p>
+ * <p>
+ * Every write publishes a {@link CacheInvalidation} with the changed keys, in the same round trip as the write,
+ * or with the write-behind flush that writes them.
+ * Other instances drop those entries and read them from Redis again on the next access. Until the subscription
+ * is established, and whenever it is established again after a connection loss, the near cache is emptied and
+ * nothing is kept, so invalidations missed in between can never leave a stale entry behind.
+ * </p>
+ * <p>
+ * Active under the {@code debug}, {@code dev}, and {@code prod} Spring profiles when the rates are cached in Redis,
+ * unless {@code app.redis.near-cache.enabled} is false or the ticks go through the asynchronous cache
+ * ({@code app.redis.async.enabled}), whose writes would not invalidate it.
+ * </p>
+ */
+@Service
+@Primary
+@Profile({"debug", "dev", "prod"})
+@ConditionalOnExpression("'${app.rate-cache:redis}' == 'redis' and ${app.redis.near-cache.enabled:true} and !${app.redis.async.enabled:false}")
+public class RateCacheServiceNearCache implements IAtomicRateCacheService, MessageListener, SubscriptionListener {
+    private static final Logger LOGGER = LogManager.getLogger(RateCacheServiceNearCache.class);
+    private static final String RAW_RATES_KEY_PREFIX = RateCacheServiceRedisAPI.rawRatesKey("");
+    private static final String CALC_RATES_KEY_PREFIX = RateCacheServiceRedisAPI.CALC_RATES_KEY_FORMAT.formatted("");
+
+    private final RateCacheServiceRedisAPI redis;
+    private final RedisConnectionFactory connectionFactory;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Raw rates per type, in the order Redis returns them; every list is immutable and replaced on write.
+     */
+    private final Map<String, List<RawRate>> rawRatesByType = new ConcurrentHashMap<>();
+    private final Map<String, CalculatedRate> calcRatesByType = new ConcurrentHashMap<>();
+    /**
+     * Null while unknown, empty if Redis has no USD mid rate.
+     */
+    private final AtomicReference<Optional<Double>> usdmid = new AtomicReference<>();
+
+    /**
+     * Guards loads from Redis against invalidations that arrive while the load is in flight.
+     */
+    private final Object invalidationLock = new Object();
+    private long invalidations;
+    private volatile boolean subscribed;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * Constructs the near cache in front of the Redis cache service.
+     *
+     * @param redis             The Redis cache service written through to.
+     * @param connectionFactory The connection factory used to subscribe to invalidations.
+     */
+    public RateCacheServiceNearCache(RateCacheServiceRedisAPI redis, RedisConnectionFactory connectionFactory) {
+        this.redis = redis;
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Subscribes to the invalidations of the other instances.
+     */
+    @PostConstruct
+    public void init() {
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CacheInvalidation.CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    /**
+     * Stops the subscription.
+     */
+    @PreDestroy
+    public void destroy() throws Exception {
+        subscribed = false;
+        listenerContainer.destroy();
+    }
+
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        clear();
+        subscribed = true;
+        LOGGER.info("Near cache subscribed to invalidations as instance {}.", instanceId);
+    }
+
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        subscribed = false;
+        clear();
+        LOGGER.warn("Near cache lost its invalidation subscription, reading from Redis until it is back.");
+    }
+
+    /**
+     * Drops the entries written by another instance.
+     *
+     * @param message The published {@link CacheInvalidation}.
+     * @param pattern Unused, the listener subscribes to a channel.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidation invalidation = CacheInvalidation.fromMessage(message.getBody());
+        if (invalidation == null) {
+            LOGGER.warn("Ignoring malformed cache invalidation.");
+            return;
+        }
+        if (invalidation.origin().equals(instanceId)) {
+            return;
+        }
+
+        synchronized (invalidationLock) {
+            invalidations++;
+            for (String key : invalidation.keys()) {
+                if (key.equals(RateCacheServiceRedisAPI.USDMID_KEY)) {
+                    usdmid.set(null);
+                } else if (key.startsWith(RAW_RATES_KEY_PREFIX)) {
+                    rawRatesByType.remove(key.substring(RAW_RATES_KEY_PREFIX.length()));
+                } else if (key.startsWith(CALC_RATES_KEY_PREFIX)) {
+                    calcRatesByType.remove(key.substring(CALC_RATES_KEY_PREFIX.length()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Double getUSDMID() throws CacheException {
+        Optional<Double> cached = usdmid.get();
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        long loadedAt = loadStarted();
+        Double value = redis.getUSDMID();
+        storeIfCurrent(loadedAt, () -> usdmid.compareAndSet(null, Optional.ofNullable(value)));
+        return value;
+    }
+
+    @Override
+    public Double saveUSDMID(Double value) throws CacheException {
+        redis.saveTick(null, value, List.of(), invalidation(List.of(RateCacheServiceRedisAPI.USDMID_KEY)));
+        putUSDMID(value);
+        return value;
+    }
+
+    @Override
+    public CalculatedRate getCalcRate(CalculatedRate rate) throws CacheException {
+        CalculatedRate cached = calcRatesByType.get(rate.getType());
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = loadStarted();
+        CalculatedRate value = redis.getCalcRate(rate);
+        if (value != null) {
+            storeIfCurrent(loadedAt, () -> calcRatesByType.putIfAbsent(rate.getType(), value));
+        }
+        return value;
+    }
+
+    @Override
+    public CalculatedRate saveCalcRate(CalculatedRate rate) throws CacheException {
+        return saveCalcRates(List.of(rate)).get(0);
+    }
+
+    @Override
+    public List<CalculatedRate> saveCalcRates(List<CalculatedRate> rates) throws CacheException {
+        if (rates.isEmpty()) {
+            return rates;
+        }
+
+        redis.saveTick(null, null, rates, invalidation(calcRateKeys(rates)));
+        putCalcRates(rates);
+        return rates;
+    }
+
+    @Override
+    public RawRate getRawRate(RawRate rate) throws CacheException {
+        for (RawRate cached : getAllRawRatesForType(rate.getType())) {
+            if (cached.getProvider().equals(rate.getProvider())) {
+                return cached;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public RawRate saveRawRate(RawRate rate) throws CacheException {
+        redis.saveTick(rate, null, List.of(), invalidation(List.of(RateCacheServiceRedisAPI.rawRatesKey(rate.getType()))));
+        putRawRate(rate);
+        return rate;
+    }
+
+    @Override
+    public List<RawRate> getAllRawRatesForType(String type) throws CacheException {
+        List<RawRate> cached = rawRatesByType.get(type);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = loadStarted();
+        List<RawRate> rates = List.copyOf(redis.getAllRawRatesForType(type));
+        storeIfCurrent(loadedAt, () -> rawRatesByType.putIfAbsent(type, rates));
+        return rates;
+    }
+
+    /**
+     * Answers from memory if every requested value is cached, otherwise reads the missing types and the USD mid
+     * rate from Redis in one pipelined round trip.
+     */
+    @Override
+    public RateCacheSnapshot getTickSnapshot(List<String> types) throws CacheException {
+        Optional<Double> cachedUsdmid = usdmid.get();
+        Map<String, List<RawRate>> rawRates = new LinkedHashMap<>();
+        List<String> missingTypes = new ArrayList<>();
+        for (String type : types) {
+            List<RawRate> cached = rawRatesByType.get(type);
+            if (cached != null) {
+                rawRates.put(type, cached);
+            } else {
+                missingTypes.add(type);
+            }
+        }
+
+        if (cachedUsdmid != null && missingTypes.isEmpty()) {
+            return new RateCacheSnapshot(cachedUsdmid.orElse(null), rawRates);
+        }
+
+        long loadedAt = loadStarted();
+        RateCacheSnapshot loaded = redis.getTickSnapshot(missingTypes);
+        Map<String, List<RawRate>> loadedRates = new LinkedHashMap<>();
+        for (String type : missingTypes) {
+            loadedRates.put(type, List.copyOf(loaded.getRawRates(type)));
+        }
+        storeIfCurrent(loadedAt, () -> {
+            usdmid.compareAndSet(null, Optional.ofNullable(loaded.getUSDMID()));
+            loadedRates.forEach(rawRatesByType::putIfAbsent);
+        });
+
+        rawRates.putAll(loadedRates);
+        return new RateCacheSnapshot(loaded.getUSDMID(), orderedAs(types, rawRates));
+    }
+
+    @Override
+    public void saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) throws CacheException {
+        List<String> keys = new ArrayList<>(calcRateKeys(calcRates));
+        if (rawRate != null) {
+            keys.add(RateCacheServiceRedisAPI.rawRatesKey(rawRate.getType()));
+        }
+        if (usdmid != null) {
+            keys.add(RateCacheServiceRedisAPI.USDMID_KEY);
+        }
+
+        redis.saveTick(rawRate, usdmid, calcRates, keys.isEmpty() ? null : invalidation(keys));
+
+        if (rawRate != null) {
+            putRawRate(rawRate);
+        }
+        if (usdmid != null) {
+            putUSDMID(usdmid);
+        }
+        putCalcRates(calcRates);
+    }
+
+    /**
+     * Runs the atomic upsert in Redis, which publishes the invalidation itself, and keeps the returned snapshot.
+     * <p>
+     * The saved rate is applied to the cached rates of its type like any own write. The rest of the snapshot only
+     * fills in what is not cached: a value this instance wrote while the script ran is newer than the reply, and
+     * own writes do not count as invalidations, so the reply must never replace a cached value.
+     * </p>
+     */
+    @Override
+    public RawRateUpsertResult upsertRawRate(RawRate rawRate, List<String> types) throws CacheException {
+        long loadedAt = loadStarted();
+        RawRateUpsertResult result = redis.upsertRawRate(rawRate, types,
+                invalidation(List.of(RateCacheServiceRedisAPI.rawRatesKey(rawRate.getType()))));
+
+        if (result.isAccepted()) {
+            putRawRate(rawRate);
+
+            RateCacheSnapshot snapshot = result.getSnapshot();
+            storeIfCurrent(loadedAt, () -> {
+                usdmid.compareAndSet(null, Optional.ofNullable(snapshot.getUSDMID()));
+                for (String type : types) {
+                    rawRatesByType.putIfAbsent(type, List.copyOf(snapshot.getRawRates(type)));
+                }
+            });
+        }
+
+        return result;
+    }
+
+    private CacheInvalidation invalidation(List<String> keys) {
+        return new CacheInvalidation(instanceId, keys);
+    }
+
+    private static List<String> calcRateKeys(List<CalculatedRate> calcRates) {
+        List<String> keys = new ArrayList<>(calcRates.size());
+        for (CalculatedRate calcRate : calcRates) {
+            keys.add(RateCacheServiceRedisAPI.CALC_RATES_KEY_FORMAT.formatted(calcRate.getType()));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Updates the cached rates of the type, if they are cached, as Redis holds them after the write:
+     * the provider's rate is replaced in place, or the rate is appended if the provider is new.
+     */
+    private void putRawRate(RawRate rate) {
+        rawRatesByType.computeIfPresent(rate.getType(), (type, rates) -> {
+            List<RawRate> updated = new ArrayList<>(rates.size() + 1);
+            boolean replaced = false;
+            for (RawRate cached : rates) {
+                if (!replaced && cached.getProvider().equals(rate.getProvider())) {
+                    updated.add(rate);
+                    replaced = true;
+                } else {
+                    updated.add(cached);
+                }
+            }
+
+            if (!replaced) {
+                updated.add(rate);
+            }
+
+            return List.copyOf(updated);
+        });
+    }
+
+    private void putUSDMID(Double value) {
+        if (subscribed) {
+            usdmid.set(Optional.of(value));
+        }
+    }
+
+    private void putCalcRates(List<CalculatedRate> calcRates) {
+        if (!subscribed) {
+            return;
+        }
+
+        for (CalculatedRate calcRate : calcRates) {
+            calcRatesByType.put(calcRate.getType(), calcRate);
+        }
+    }
+
+    private long loadStarted() {
+        synchronized (invalidationLock) {
+            return invalidations;
+        }
+    }
+
+    /**
+     * Keeps a value loaded from Redis only if no invalidation arrived since the load started
+     * and the subscription is up, otherwise the value may already be stale.
+     */
+    private void storeIfCurrent(long loadedAt, Runnable store) {
+        synchronized (invalidationLock) {
+            if (subscribed && invalidations == loadedAt) {
+                store.run();
+            }
+        }
+    }
+
+    private void clear() {
+        synchronized (invalidationLock) {
+            invalidations++;
+            rawRatesByType.clear();
+            calcRatesByType.clear();
+            usdmid.set(null);
+        }
+    }
+
+    private static Map<String, List<RawRate>> orderedAs(List<String> types, Map<String, List<RawRate>> rawRates) {
+        Map<String, List<RawRate>> ordered = new LinkedHashMap<>();
+        for (String type : types) {
+            ordered.put(type, rawRates.get(type));
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Returns the name of this cache service implementation.
+     *
+     * @return The string "NearCache".
+     */
+    @Override
+    public String getName() {
+        return "NearCache";
+    }
+}
@@ -0,0 +1,239 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.IAsyncRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking Redis implementation of {@link IAsyncRateCacheService}, on a {@link ReactiveRedisTemplate}.
+ * <p>
+ * It uses the same keys and serializers as {@link RateCacheServiceRedisAPI}, so both read and write the same values.
+ * No thread waits for a reply: the commands are sent on Lettuce's shared connection and the futures complete on
+ * its event loop. The commands of one call are sent together and answered in one round trip, like the pipelines
+ * of the blocking implementation, and the commands of consecutive calls reach Redis in the order of the calls.
+ * </p>
+ * <p>
+ * Active under the {@code debug}, {@code dev}, and {@code prod} Spring profiles when the rates are cached in Redis
+ * and {@code app.redis.async.enabled} is true. {@link com.berkepite.RateDistributionEngine.rate.RateManager} then
+ * reads and writes the ticks through it; the near cache is not used, and neither is the write-behind buffer.
+ * </p>
+ */
+@Service
+@Profile({"debug", "dev", "prod"})
+@ConditionalOnExpression("'${app.rate-cache:redis}' == 'redis' and ${app.redis.async.enabled:false}")
+public class RateCacheServiceReactiveRedisAPI implements IAsyncRateCacheService {
+    private final ReactiveValueOperations<String, byte[]> values;
+    private final ReactiveHashOperations<String, String, byte[]> hashes;
+
+    private final RedisSerializer<RawRate> rawRateSerializer;
+    private final RedisSerializer<CalculatedRate> calcRateSerializer;
+    private final RedisSerializer<Double> usdmidSerializer;
+
+    /**
+     * Constructs a RateCacheServiceReactiveRedisAPI instance, taking the value serializers of the blocking templates.
+     *
+     * @param connectionFactory           Factory of the reactive connections.
+     * @param rawRateRedisTemplate        Redis template for raw rates.
+     * @param calculatedRateRedisTemplate Redis template for calculated rates.
+     * @param redisUSDMIDTemplate         Redis template for USD mid values.
+     */
+    @SuppressWarnings("unchecked")
+    public RateCacheServiceReactiveRedisAPI(ReactiveRedisConnectionFactory connectionFactory,
+                                            RedisTemplate<String, RawRate> rawRateRedisTemplate,
+                                            RedisTemplate<String, CalculatedRate> calculatedRateRedisTemplate,
+                                            RedisTemplate<String, Double> redisUSDMIDTemplate) {
+        this(byteArrayTemplate(connectionFactory),
+                (RedisSerializer<RawRate>) rawRateRedisTemplate.getHashValueSerializer(),
+                (RedisSerializer<CalculatedRate>) calculatedRateRedisTemplate.getValueSerializer(),
+                (RedisSerializer<Double>) redisUSDMIDTemplate.getValueSerializer());
+    }
+
+    /**
+     * Constructs a RateCacheServiceReactiveRedisAPI instance on a template that keeps the values as bytes.
+     *
+     * @param template           Reactive template with string keys and hash keys and byte array values.
+     * @param rawRateSerializer  Serializer of the raw rates.
+     * @param calcRateSerializer Serializer of the calculated rates.
+     * @param usdmidSerializer   Serializer of the USD mid rate.
+     */
+    RateCacheServiceReactiveRedisAPI(ReactiveRedisTemplate<String, byte[]> template,
+                                     RedisSerializer<RawRate> rawRateSerializer,
+                                     RedisSerializer<CalculatedRate> calcRateSerializer,
+                                     RedisSerializer<Double> usdmidSerializer) {
+        this.values = template.opsForValue();
+        this.hashes = template.opsForHash();
+        this.rawRateSerializer = rawRateSerializer;
+        this.calcRateSerializer = calcRateSerializer;
+        this.usdmidSerializer = usdmidSerializer;
+    }
+
+    private static ReactiveRedisTemplate<String, byte[]> byteArrayTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        // Values stay bytes in the template, they are serialized here with the serializer of their kind
+        RedisSerializationContext<String, byte[]> context = RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.byteArray())
+                .key(RedisSerializer.string())
+                .hashKey(RedisSerializer.string())
+                .build();
+
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    @Override
+    public CompletableFuture<Double> getUSDMID() {
+        return toFuture(() -> values.get(RateCacheServiceRedisAPI.USDMID_KEY).map(usdmidSerializer::deserialize));
+    }
+
+    @Override
+    public CompletableFuture<Double> saveUSDMID(Double value) {
+        return toFuture(() -> values.set(RateCacheServiceRedisAPI.USDMID_KEY, usdmidSerializer.serialize(value)).map(saved -> value));
+    }
+
+    @Override
+    public CompletableFuture<CalculatedRate> getCalcRate(CalculatedRate rate) {
+        return toFuture(() -> values.get(calcRateKey(rate)).map(calcRateSerializer::deserialize));
+    }
+
+    @Override
+    public CompletableFuture<CalculatedRate> saveCalcRate(CalculatedRate rate) {
+        return toFuture(() -> values.set(calcRateKey(rate), calcRateSerializer.serialize(rate)).map(saved -> rate));
+    }
+
+    /**
+     * Saves several calculated rates with a single MSET.
+     */
+    @Override
+    public CompletableFuture<List<CalculatedRate>> saveCalcRates(List<CalculatedRate> rates) {
+        if (rates.isEmpty()) {
+            return CompletableFuture.completedFuture(rates);
+        }
+
+        return toFuture(() -> values.multiSet(calcRateValues(rates)).map(saved -> rates));
+    }
+
+    @Override
+    public CompletableFuture<RawRate> getRawRate(RawRate rate) {
+        return toFuture(() -> hashes.get(RateCacheServiceRedisAPI.rawRatesKey(rate.getType()), rate.getProvider())
+                .map(rawRateSerializer::deserialize));
+    }
+
+    @Override
+    public CompletableFuture<RawRate> saveRawRate(RawRate rate) {
+        return toFuture(() -> putRawRate(rate).map(saved -> rate));
+    }
+
+    /**
+     * Reads all raw rates of a type with a single HVALS on the hash of the type.
+     */
+    @Override
+    public CompletableFuture<List<RawRate>> getAllRawRatesForType(String type) {
+        return toFuture(() -> rawRates(type));
+    }
+
+    /**
+     * Reads the USD mid rate and the raw rates of every given type; all commands are sent at once.
+     */
+    @Override
+    public CompletableFuture<RateCacheSnapshot> getTickSnapshot(List<String> types) {
+        return toFuture(() -> {
+            Mono<Optional<Double>> usdmid = values.get(RateCacheServiceRedisAPI.USDMID_KEY)
+                    .map(value -> Optional.ofNullable(usdmidSerializer.deserialize(value)))
+                    .defaultIfEmpty(Optional.empty());
+            // Subscribes to every HVALS at once and keeps the replies in the order of the types
+            Mono<List<List<RawRate>>> rawRates = Flux.fromIterable(types).flatMapSequential(this::rawRates).collectList();
+
+            return Mono.zip(usdmid, rawRates).map(replies -> {
+                Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+                for (int i = 0; i < types.size(); i++) {
+                    rawRatesByType.put(types.get(i), replies.getT2().get(i));
+                }
+
+                return new RateCacheSnapshot(replies.getT1().orElse(null), rawRatesByType);
+            });
+        });
+    }
+
+    /**
+     * Saves the raw rate, the USD mid rate and the calculated rates of one tick; all commands are sent at once.
+     */
+    @Override
+    public CompletableFuture<Void> saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) {
+        return toFuture(() -> {
+            List<Mono<Boolean>> writes = new ArrayList<>(3);
+            if (rawRate != null) {
+                writes.add(putRawRate(rawRate));
+            }
+            if (usdmid != null) {
+                writes.add(values.set(RateCacheServiceRedisAPI.USDMID_KEY, usdmidSerializer.serialize(usdmid)));
+            }
+            if (!calcRates.isEmpty()) {
+                writes.add(values.multiSet(calcRateValues(calcRates)));
+            }
+
+            return Mono.when(writes);
+        });
+    }
+
+    private Mono<Boolean> putRawRate(RawRate rate) {
+        return hashes.put(RateCacheServiceRedisAPI.rawRatesKey(rate.getType()), rate.getProvider(), rawRateSerializer.serialize(rate));
+    }
+
+    private Mono<List<RawRate>> rawRates(String type) {
+        return hashes.values(RateCacheServiceRedisAPI.rawRatesKey(type)).map(rawRateSerializer::deserialize).collectList();
+    }
+
+    private Map<String, byte[]> calcRateValues(List<CalculatedRate> rates) {
+        Map<String, byte[]> ratesByKey = new LinkedHashMap<>();
+        for (CalculatedRate rate : rates) {
+            ratesByKey.put(calcRateKey(rate), calcRateSerializer.serialize(rate));
+        }
+
+        return ratesByKey;
+    }
+
+    private static String calcRateKey(CalculatedRate rate) {
+        return RateCacheServiceRedisAPI.CALC_RATES_KEY_FORMAT.formatted(rate.getType());
+    }
+
+    /**
+     * Builds the reply and subscribes at once, so the commands are sent in the order of the calls. Failures, also
+     * those of serializing the values, complete the future with a {@link CacheException}; an empty reply with null.
+     */
+    private static <T> CompletableFuture<T> toFuture(Supplier<Mono<T>> reply) {
+        try {
+            return reply.get().onErrorMap(e -> new CacheException(e.getMessage(), e)).toFuture();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new CacheException(e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Returns the name of this cache service implementation.
+     *
+     * @return The string "ReactiveRedisAPI".
+     */
+    @Override
+    public String getName() {
+        return "ReactiveRedisAPI";
+    }
+}
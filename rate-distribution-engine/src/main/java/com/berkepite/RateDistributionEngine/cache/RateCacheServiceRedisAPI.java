@@ -1,16 +1,29 @@
 package com.berkepite.RateDistributionEngine.cache;
 
+import com.berkepite.RateDistributionEngine.common.cache.IAtomicRateCacheService;
 import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
 import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
 import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
-import org.springframework.context.annotation.Primary;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Redis-backed implementation of the {@link IRateCacheService} interface.
@@ -20,19 +33,79 @@ import java.util.stream.Collectors;
  * from a Redis cache, handling exceptions by wrapping them in {@link CacheException}.
  * </p>
  * <p>
- * This implementation is marked as {@code @Primary} and active under the {@code debug}, {@code dev},
- * and {@code prod} Spring profiles.
+ * Raw rates are stored in one hash per rate type, {@code raw_rates:TYPE}, with one field per provider,
+ * so all rates of a type are read with a single command instead of scanning the keyspace.
+ * Rates written by earlier versions under {@code raw_rates::rates:PROVIDER:TYPE} are moved into the
+ * hashes at startup by {@link RawRateKeyMigration}.
+ * </p>
+ * <p>
+ * The reads and the writes of one incoming rate are pipelined on one connection
+ * ({@link #getTickSnapshot(List)} and {@link #saveTick(RawRate, Double, List)}), so a tick costs two
+ * round trips however many rate types it touches.
+ * </p>
+ * <p>
+ * As an {@link IAtomicRateCacheService}, with {@code app.redis.atomic-upsert.enabled}, the tolerance check and the write of the raw rate run in Redis
+ * as one Lua script, {@code redis/upsert_raw_rate.lua}, called with EVALSHA ({@link #upsertRawRate(RawRate, List)}).
+ * The script also returns the snapshot the tick needs, so several engine instances can share one Redis without
+ * deciding on rates another instance is about to overwrite.
+ * </p>
+ * <p>
+ * With {@code app.redis.write-behind.enabled}, writes return once they are buffered in a {@link RedisWriteBehind},
+ * which coalesces them per key and writes the latest values in one pipeline every flush interval. Reads overlay the
+ * buffered values, so this instance reads its own writes at once; other instances see them after the flush.
+ * Raw rates saved by the atomic upsert are written by the script and bypass the buffer.
+ * </p>
+ * <p>
+ * This implementation is active under the {@code debug}, {@code dev}, and {@code prod} Spring profiles,
+ * unless {@code app.rate-cache} is {@code memory}.
+ * Unless the near cache is disabled, it is used through {@link RateCacheServiceNearCache}, which keeps
+ * the latest values in memory and writes through to this service.
  * </p>
  */
 @Service
-@Primary
 @Profile({"debug", "dev", "prod"})
-public class RateCacheServiceRedisAPI implements IRateCacheService {
+@ConditionalOnProperty(name = "app.rate-cache", havingValue = "redis", matchIfMissing = true)
+public class RateCacheServiceRedisAPI implements IAtomicRateCacheService {
+    static final String RAW_RATES_KEY_FORMAT = "raw_rates:%s";
+    static final String CALC_RATES_KEY_FORMAT = "calc_rates::rates:%s";
+    static final String USDMID_KEY = "usdmid";
+
+    /**
+     * Loaded once; {@code RedisTemplate} calls it with EVALSHA and sends the source only if Redis does not know it yet.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> UPSERT_RAW_RATE_SCRIPT = RedisScript.of(new ClassPathResource("redis/upsert_raw_rate.lua"), List.class);
+
+    /**
+     * Leaves the bulk strings of a script reply as bytes, they are deserialized with the serializers of the templates.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisSerializer<List> SCRIPT_REPLY_SERIALIZER = (RedisSerializer) RedisSerializer.byteArray();
 
     private final RedisTemplate<String, RawRate> rawRateRedisTemplate;
     private final RedisTemplate<String, CalculatedRate> calculatedRateRedisTemplate;
     private final RedisTemplate<String, Double> redisUSDMIDTemplate;
 
+    /**
+     * Tolerance in percent the Lua script checks incoming raw rates with, in place of the calculator.
+     */
+    @Value("${app.redis.atomic-upsert.tolerance-percent:1}")
+    private double upsertTolerancePercent;
+
+    @Value("${app.redis.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    @Value("${app.redis.write-behind.flush-interval-ms:50}")
+    private long writeBehindFlushIntervalMillis;
+
+    @Value("${app.redis.write-behind.batch-size:512}")
+    private int writeBehindBatchSize;
+
+    /**
+     * Buffers the writes when write-behind is enabled, null otherwise.
+     */
+    private RedisWriteBehind writeBehind;
+
     /**
      * Constructs a RateCacheServiceRedisAPI instance with the provided Redis templates.
      *
@@ -48,6 +121,26 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
         this.redisUSDMIDTemplate = redisUSDMIDTemplate;
     }
 
+    /**
+     * Starts the write-behind flusher if enabled.
+     */
+    @PostConstruct
+    public void init() {
+        if (writeBehindEnabled) {
+            writeBehind = new RedisWriteBehind(this::write, writeBehindFlushIntervalMillis, writeBehindBatchSize);
+        }
+    }
+
+    /**
+     * Flushes the buffered writes, if any, before the connections are closed.
+     */
+    @PreDestroy
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
     /**
      * Retrieves the cached USD mid value from Redis.
      *
@@ -56,7 +149,12 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public Double getUSDMID() throws CacheException {
-        String key = "usdmid";
+        String key = USDMID_KEY;
+        Double pending = writeBehind == null ? null : writeBehind.pendingUSDMID();
+        if (pending != null) {
+            return pending;
+        }
+
         try {
             return redisUSDMIDTemplate.opsForValue().get(key);
         } catch (Exception e) {
@@ -73,7 +171,12 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public Double saveUSDMID(Double value) throws CacheException {
-        String key = "usdmid";
+        if (writeBehind != null) {
+            writeBehind.save(null, value, List.of(), null);
+            return value;
+        }
+
+        String key = USDMID_KEY;
         try {
             redisUSDMIDTemplate.opsForValue().set(key, value);
             return value;
@@ -91,8 +194,13 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public CalculatedRate getCalcRate(CalculatedRate rate) throws CacheException {
+        CalculatedRate pending = writeBehind == null ? null : writeBehind.pendingCalcRate(rate.getType());
+        if (pending != null) {
+            return pending;
+        }
+
         try {
-            String key = String.format("calc_rates::rates:%s", rate.getType());
+            String key = CALC_RATES_KEY_FORMAT.formatted(rate.getType());
             return calculatedRateRedisTemplate.opsForValue().get(key);
         } catch (Exception e) {
             throw new CacheException(e.getMessage(), e);
@@ -108,8 +216,13 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public CalculatedRate saveCalcRate(CalculatedRate rate) throws CacheException {
+        if (writeBehind != null) {
+            writeBehind.save(null, null, List.of(rate), null);
+            return rate;
+        }
+
         try {
-            String key = String.format("calc_rates::rates:%s", rate.getType());
+            String key = CALC_RATES_KEY_FORMAT.formatted(rate.getType());
             calculatedRateRedisTemplate.opsForValue().set(key, rate);
             return rate;
         } catch (Exception e) {
@@ -117,6 +230,36 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
         }
     }
 
+    /**
+     * Saves several calculated rates into Redis cache with a single MSET.
+     *
+     * @param rates The {@link CalculatedRate}s to save.
+     * @return The saved {@link CalculatedRate}s.
+     * @throws CacheException If Redis access fails.
+     */
+    @Override
+    public List<CalculatedRate> saveCalcRates(List<CalculatedRate> rates) throws CacheException {
+        if (rates.isEmpty()) {
+            return rates;
+        }
+        if (writeBehind != null) {
+            writeBehind.save(null, null, rates, null);
+            return rates;
+        }
+
+        try {
+            Map<String, CalculatedRate> ratesByKey = new LinkedHashMap<>();
+            for (CalculatedRate rate : rates) {
+                ratesByKey.put(CALC_RATES_KEY_FORMAT.formatted(rate.getType()), rate);
+            }
+
+            calculatedRateRedisTemplate.opsForValue().multiSet(ratesByKey);
+            return rates;
+        } catch (Exception e) {
+            throw new CacheException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Retrieves a cached raw rate from Redis by provider and type.
      *
@@ -126,16 +269,20 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public RawRate getRawRate(RawRate rate) throws CacheException {
+        RawRate pending = writeBehind == null ? null : writeBehind.pendingRawRates(rate.getType()).get(rate.getProvider());
+        if (pending != null) {
+            return pending;
+        }
+
         try {
-            String key = String.format("raw_rates::rates:%s:%s", rate.getProvider(), rate.getType());
-            return rawRateRedisTemplate.opsForValue().get(key);
+            return rawRateRedisTemplate.<String, RawRate>opsForHash().get(rawRatesKey(rate.getType()), rate.getProvider());
         } catch (Exception e) {
             throw new CacheException(e.getMessage(), e);
         }
     }
 
     /**
-     * Saves a raw rate into Redis cache.
+     * Saves a raw rate into the hash of its type, under its provider.
      *
      * @param rate The {@link RawRate} to save.
      * @return The saved {@link RawRate}.
@@ -143,9 +290,13 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public RawRate saveRawRate(RawRate rate) throws CacheException {
+        if (writeBehind != null) {
+            writeBehind.save(rate, null, List.of(), null);
+            return rate;
+        }
+
         try {
-            String key = String.format("raw_rates::rates:%s:%s", rate.getProvider(), rate.getType());
-            rawRateRedisTemplate.opsForValue().set(key, rate);
+            rawRateRedisTemplate.<String, RawRate>opsForHash().put(rawRatesKey(rate.getType()), rate.getProvider(), rate);
             return rate;
         } catch (Exception e) {
             throw new CacheException(e.getMessage(), e);
@@ -153,7 +304,7 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
     }
 
     /**
-     * Retrieves all cached raw rates of a specified type.
+     * Retrieves all cached raw rates of a specified type with a single HVALS on the hash of the type.
      *
      * @param type The type of raw rates to retrieve.
      * @return List of all matching {@link RawRate} entries, or an empty list if none found.
@@ -161,25 +312,247 @@ public class RateCacheServiceRedisAPI implements IRateCacheService {
      */
     @Override
     public List<RawRate> getAllRawRatesForType(String type) throws CacheException {
+        // Taken before the read, so a value flushed in between is found in Redis
+        Map<String, RawRate> pending = pendingRawRates(type);
+        try {
+            List<RawRate> rates = rawRateRedisTemplate.<String, RawRate>opsForHash().values(rawRatesKey(type));
+            return RedisWriteBehind.overlay(rates == null ? List.of() : rates, pending);
+        } catch (Exception e) {
+            throw new CacheException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the USD mid rate and the raw rates of every given type in one pipelined round trip.
+     *
+     * @param types The raw rate types to read.
+     * @return The snapshot of the cached values.
+     * @throws CacheException If Redis access fails.
+     */
+    @Override
+    public RateCacheSnapshot getTickSnapshot(List<String> types) throws CacheException {
+        Double pendingUsdmid = writeBehind == null ? null : writeBehind.pendingUSDMID();
+        List<Map<String, RawRate>> pending = new ArrayList<>(types.size());
+        for (String type : types) {
+            pending.add(pendingRawRates(type));
+        }
+
+        try {
+            List<Object> results = rawRateRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().get(toBytes(USDMID_KEY));
+                for (String type : types) {
+                    connection.hashCommands().hVals(toBytes(rawRatesKey(type)));
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+
+            Double usdmid = pendingUsdmid != null ? pendingUsdmid : usdmidSerializer().deserialize((byte[]) results.get(0));
+            Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+            for (int i = 0; i < types.size(); i++) {
+                List<?> values = (List<?>) results.get(i + 1);
+                List<RawRate> rates = new ArrayList<>(values == null ? 0 : values.size());
+                if (values != null) {
+                    for (Object value : values) {
+                        rates.add(rawRateSerializer().deserialize((byte[]) value));
+                    }
+                }
+                rawRatesByType.put(types.get(i), RedisWriteBehind.overlay(rates, pending.get(i)));
+            }
+
+            return new RateCacheSnapshot(usdmid, rawRatesByType);
+        } catch (Exception e) {
+            throw new CacheException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves the raw rate, the USD mid rate and the calculated rates of one tick in one pipelined round trip.
+     *
+     * @param rawRate   The raw rate to save, or null.
+     * @param usdmid    The new USD mid rate, or null if it did not change.
+     * @param calcRates The calculated rates to save, may be empty.
+     * @throws CacheException If Redis access fails.
+     */
+    @Override
+    public void saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) throws CacheException {
+        saveTick(rawRate, usdmid, calcRates, null);
+    }
+
+    /**
+     * Saves one tick like {@link #saveTick(RawRate, Double, List)} and publishes the invalidation in the same pipeline.
+     * With write-behind, the tick is buffered and the invalidation is published by the flush that writes it.
+     *
+     * @param invalidation The invalidation to publish, or null.
+     */
+    void saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) throws CacheException {
+        if (writeBehind != null) {
+            writeBehind.save(rawRate, usdmid, calcRates, invalidation);
+            return;
+        }
+
+        write(rawRate == null ? List.of() : List.of(rawRate), usdmid, calcRates, invalidation);
+    }
+
+    /**
+     * Writes raw rates, the USD mid rate and calculated rates in one pipelined round trip and publishes the invalidation.
+     *
+     * @param rawRates     The raw rates to save, may be empty.
+     * @param usdmid       The USD mid rate, or null.
+     * @param calcRates    The calculated rates to save, may be empty.
+     * @param invalidation The invalidation to publish, or null.
+     * @throws CacheException If Redis access fails.
+     */
+    private void write(List<RawRate> rawRates, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) throws CacheException {
+        try {
+            List<byte[]> rawRateValues = new ArrayList<>(rawRates.size());
+            for (RawRate rawRate : rawRates) {
+                rawRateValues.add(rawRateSerializer().serialize(rawRate));
+            }
+            byte[] usdmidValue = usdmid == null ? null : usdmidSerializer().serialize(usdmid);
+            Map<byte[], byte[]> calcRateValues = new LinkedHashMap<>();
+            for (CalculatedRate calcRate : calcRates) {
+                calcRateValues.put(toBytes(CALC_RATES_KEY_FORMAT.formatted(calcRate.getType())), calcRateSerializer().serialize(calcRate));
+            }
+
+            rawRateRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < rawRates.size(); i++) {
+                    RawRate rawRate = rawRates.get(i);
+                    connection.hashCommands().hSet(toBytes(rawRatesKey(rawRate.getType())), toBytes(rawRate.getProvider()), rawRateValues.get(i));
+                }
+                if (usdmidValue != null) {
+                    connection.stringCommands().set(toBytes(USDMID_KEY), usdmidValue);
+                }
+                if (!calcRateValues.isEmpty()) {
+                    connection.stringCommands().mSet(calcRateValues);
+                }
+                if (invalidation != null) {
+                    connection.pubSubCommands().publish(toBytes(CacheInvalidation.CHANNEL), toBytes(invalidation.toMessage()));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            throw new CacheException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the tolerance check and the write of the raw rate in Redis with one EVALSHA, which also reads
+     * the USD mid rate and the raw rates of the given types after the write.
+     * <p>
+     * The script computes the mean and the tolerance rule of {@code hasAtLeastOnePercentDiff} in doubles, with the
+     * tolerance of {@code app.redis.atomic-upsert.tolerance-percent}. The configured calculator is not called, so a
+     * calculator with a rule of its own is bypassed, and a rate right at the boundary may be decided differently.
+     * </p>
+     *
+     * @param rawRate The incoming raw rate.
+     * @param types   The raw rate types to read, the rate's own type first.
+     * @return Whether the rate was saved and, if so, the snapshot after the write.
+     * @throws CacheException If Redis access or the script fails.
+     */
+    @Override
+    public RawRateUpsertResult upsertRawRate(RawRate rawRate, List<String> types) throws CacheException {
+        return upsertRawRate(rawRate, types, null);
+    }
+
+    /**
+     * Runs the upsert like {@link #upsertRawRate(RawRate, List)} and, if the rate is saved, publishes the
+     * invalidation from the script.
+     *
+     * @param invalidation The invalidation to publish, or null.
+     */
+    RawRateUpsertResult upsertRawRate(RawRate rawRate, List<String> types, CacheInvalidation invalidation) throws CacheException {
         try {
-            List<String> keys = rawRateRedisTemplate.keys("*")
-                    .stream()
-                    .filter(s -> s.startsWith("raw_rates::rates:") && s.endsWith(":" + type))
-                    .toList();
+            // The reply holds the rates of the incoming rate's type first, then those of the other types
+            List<String> replyTypes = new ArrayList<>(types.size() + 1);
+            replyTypes.add(rawRate.getType());
+            for (String type : types) {
+                if (!type.equals(rawRate.getType())) {
+                    replyTypes.add(type);
+                }
+            }
 
-            if (keys.isEmpty()) {
-                return List.of();
+            // Taken before the script runs, so a value flushed in between is found in the reply
+            Double pendingUsdmid = writeBehind == null ? null : writeBehind.pendingUSDMID();
+            List<Map<String, RawRate>> pending = new ArrayList<>(replyTypes.size());
+            for (String type : replyTypes) {
+                pending.add(pendingRawRates(type));
             }
 
-            return keys.stream()
-                    .map(key -> rawRateRedisTemplate.opsForValue().get(key))
-                    .collect(Collectors.toList());
+            List<String> keys = new ArrayList<>(replyTypes.size() + 1);
+            keys.add(rawRatesKey(rawRate.getType()));
+            keys.add(USDMID_KEY);
+            for (int i = 1; i < replyTypes.size(); i++) {
+                keys.add(rawRatesKey(replyTypes.get(i)));
+            }
 
+            // The arguments are passed as bytes, the serialized rate is binary
+            List<?> reply = rawRateRedisTemplate.execute(UPSERT_RAW_RATE_SCRIPT, RedisSerializer.byteArray(), SCRIPT_REPLY_SERIALIZER, keys,
+                    toBytes(rawRate.getProvider()), rawRateSerializer().serialize(rawRate),
+                    toBytes(Double.toString(rawRate.getBid())), toBytes(Double.toString(rawRate.getAsk())), toBytes(Double.toString(upsertTolerancePercent)),
+                    toBytes(invalidation == null ? "" : CacheInvalidation.CHANNEL), toBytes(invalidation == null ? "" : invalidation.toMessage()));
+
+            if (((Number) reply.get(0)).longValue() == 0) {
+                return RawRateUpsertResult.rejected();
+            }
+
+            Double usdmid = pendingUsdmid != null ? pendingUsdmid : usdmidSerializer().deserialize((byte[]) reply.get(1));
+            Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+            int index = 2;
+            for (int i = 0; i < replyTypes.size(); i++) {
+                String type = replyTypes.get(i);
+                int count = ((Number) reply.get(index++)).intValue();
+                List<RawRate> rates = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    rates.add(rawRateSerializer().deserialize((byte[]) reply.get(index++)));
+                }
+                rawRatesByType.put(type, RedisWriteBehind.overlay(rates, pending.get(i)));
+            }
+
+            return RawRateUpsertResult.accepted(new RateCacheSnapshot(usdmid, rawRatesByType));
         } catch (Exception e) {
             throw new CacheException(e.getMessage(), e);
         }
     }
 
+    /**
+     * @return the buffered raw rates of a type by provider, empty without write-behind
+     */
+    private Map<String, RawRate> pendingRawRates(String type) {
+        return writeBehind == null ? Map.of() : writeBehind.pendingRawRates(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<RawRate> rawRateSerializer() {
+        return (RedisSerializer<RawRate>) rawRateRedisTemplate.getHashValueSerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<CalculatedRate> calcRateSerializer() {
+        return (RedisSerializer<CalculatedRate>) calculatedRateRedisTemplate.getValueSerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Double> usdmidSerializer() {
+        return (RedisSerializer<Double>) redisUSDMIDTemplate.getValueSerializer();
+    }
+
+    /**
+     * Serializes a key or hash field like the {@code StringRedisSerializer} of the templates does.
+     */
+    private static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the key of the hash holding the raw rates of a type.
+     *
+     * @param type The raw rate type.
+     * @return The hash key, e.g. "raw_rates:USD_TRY".
+     */
+    static String rawRatesKey(String type) {
+        return RAW_RATES_KEY_FORMAT.formatted(type);
+    }
+
     /**
      * Returns the name of this cache service implementation.
      *
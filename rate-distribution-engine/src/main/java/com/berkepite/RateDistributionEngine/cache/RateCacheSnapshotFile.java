@@ -0,0 +1,134 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local snapshot of the rate cache, from which {@link RateCacheWarmStart} restores the in-memory cache.
+ * <p>
+ * Layout, big-endian: a magic number and a version, the time of writing as epoch milliseconds, a flag and the USD mid
+ * rate, then the raw rates and the calculated rates, each as a count followed by length-prefixed values in the binary
+ * format of the Redis cache ({@link RawRateRedisSerializer}, {@link CalculatedRateRedisSerializer}).
+ * </p>
+ */
+final class RateCacheSnapshotFile {
+    private static final int MAGIC = 0x52444543;
+    private static final int VERSION_1 = 1;
+
+    private static final RawRateRedisSerializer RAW_RATE_SERIALIZER =
+            new RawRateRedisSerializer(new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, RawRate.class));
+    private static final CalculatedRateRedisSerializer CALC_RATE_SERIALIZER =
+            new CalculatedRateRedisSerializer(new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, CalculatedRate.class));
+
+    private RateCacheSnapshotFile() {
+    }
+
+    /**
+     * The contents of a snapshot.
+     *
+     * @param writtenAt when the snapshot was written
+     * @param usdmid    the USD mid rate, or null
+     * @param rawRates  the raw rates of every type
+     * @param calcRates the calculated rates
+     */
+    record Contents(Instant writtenAt, Double usdmid, List<RawRate> rawRates, List<CalculatedRate> calcRates) {
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the path and moves it in place, so a crash while writing
+     * never leaves a truncated snapshot behind.
+     *
+     * @throws IOException If the file cannot be written or a rate cannot be serialized.
+     */
+    static void write(Path path, Contents contents) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION_1);
+                out.writeLong(contents.writtenAt().toEpochMilli());
+                out.writeBoolean(contents.usdmid() != null);
+                out.writeDouble(contents.usdmid() == null ? 0 : contents.usdmid());
+
+                out.writeInt(contents.rawRates().size());
+                for (RawRate rate : contents.rawRates()) {
+                    writeValue(out, RAW_RATE_SERIALIZER.serialize(rate));
+                }
+                out.writeInt(contents.calcRates().size());
+                for (CalculatedRate rate : contents.calcRates()) {
+                    writeValue(out, CALC_RATE_SERIALIZER.serialize(rate));
+                }
+            }
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SerializationException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @throws IOException If the file cannot be read or is not a snapshot of a supported version.
+     */
+    static Contents read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a rate cache snapshot.");
+            }
+            int version = in.readInt();
+            if (version != VERSION_1) {
+                throw new IOException("Unsupported rate cache snapshot version: " + version);
+            }
+
+            Instant writtenAt = Instant.ofEpochMilli(in.readLong());
+            boolean hasUsdmid = in.readBoolean();
+            double usdmid = in.readDouble();
+
+            int rawRateCount = in.readInt();
+            List<RawRate> rawRates = new ArrayList<>(rawRateCount);
+            for (int i = 0; i < rawRateCount; i++) {
+                rawRates.add(RAW_RATE_SERIALIZER.deserialize(readValue(in)));
+            }
+            int calcRateCount = in.readInt();
+            List<CalculatedRate> calcRates = new ArrayList<>(calcRateCount);
+            for (int i = 0; i < calcRateCount; i++) {
+                calcRates.add(CALC_RATE_SERIALIZER.deserialize(readValue(in)));
+            }
+
+            return new Contents(writtenAt, hasUsdmid ? usdmid : null, rawRates, calcRates);
+        } catch (SerializationException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, byte[] value) throws IOException {
+        out.writeShort(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readValue(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readUnsignedShort()];
+        in.readFully(value);
+        return value;
+    }
+}
@@ -0,0 +1,255 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.IRatesLoader;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores the last known rates into the rate cache at startup, before the subscribers connect, so the first
+ * tick of every provider is checked against the rates it sent before the restart and the USD mid rate is not
+ * recalculated from a single quote.
+ * <p>
+ * With Redis, the rates are still there after a restart; they are read once per type in parallel, which fills
+ * the near cache and opens the connections before the first tick. With the in-memory cache, the rates are
+ * written to a {@link RateCacheSnapshotFile} on shutdown and loaded back in parallel at the next start, unless
+ * the snapshot is older than the configured maximum age.
+ * </p>
+ */
+@Service
+public class RateCacheWarmStart {
+    private static final Logger LOGGER = LogManager.getLogger(RateCacheWarmStart.class);
+
+    private final IRateCacheService rateCacheService;
+    private final IRatesLoader ratesLoader;
+    private final IRateConverter rateConverter;
+    private final IRateFactory rateFactory;
+
+    /**
+     * Whether the cache is restored at startup and, for the in-memory cache, saved on shutdown.
+     */
+    @Value("${app.warm-start.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Where the rates are cached, "redis" or "memory".
+     */
+    @Value("${app.rate-cache:redis}")
+    private String rateCache;
+
+    /**
+     * Snapshot file of the in-memory cache.
+     */
+    @Value("${app.warm-start.snapshot-file:rate-cache.snapshot}")
+    private String snapshotFile;
+
+    /**
+     * Snapshots older than this (in milliseconds) are ignored, their rates would be dropped as outliers.
+     */
+    @Value("${app.warm-start.snapshot-max-age-ms:600000}")
+    private long snapshotMaxAgeMillis;
+
+    /**
+     * Number of threads loading the rates.
+     */
+    @Value("${app.warm-start.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * Constructs the RateCacheWarmStart with its dependencies.
+     *
+     * @param rateCacheService Cache service the rates are restored into.
+     * @param ratesLoader      Loader for the configured rate types.
+     * @param rateConverter    Converter from raw rate types to calculated rate types.
+     * @param rateFactory      Factory for the calculated rates looked up by type.
+     */
+    public RateCacheWarmStart(IRateCacheService rateCacheService, IRatesLoader ratesLoader,
+                              IRateConverter rateConverter, IRateFactory rateFactory) {
+        this.rateCacheService = rateCacheService;
+        this.ratesLoader = ratesLoader;
+        this.rateConverter = rateConverter;
+        this.rateFactory = rateFactory;
+    }
+
+    /**
+     * Restores the cache if the warm start is enabled. A failure is logged and the engine starts cold.
+     *
+     * @return the warm start result, or null if the warm start is disabled or failed
+     */
+    public WarmStartResult warmStartIfEnabled() {
+        if (!enabled) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            WarmStartResult result = rateCache.equals("memory") ? loadSnapshot(start) : loadFromCache(start);
+            if (result != null) {
+                LOGGER.info("Warm start restored {} raw rates, {} calculated rates and {} USD mid rate from {} in {} ms.",
+                        result.rawRates(), result.calcRates(), result.usdmid() ? "the" : "no", result.source(), result.durationMillis());
+            }
+            return result;
+        } catch (Exception e) {
+            LOGGER.warn("Warm start failed after {} ms, starting with a cold cache.",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the USD mid rate, the raw rates of every type and the calculated rates in parallel through the cache service.
+     */
+    private WarmStartResult loadFromCache(long start) throws Exception {
+        List<String> types = ratesLoader.getRatesList();
+
+        try (ExecutorService executor = newExecutor()) {
+            Future<Double> usdmid = executor.submit(rateCacheService::getUSDMID);
+            List<Future<List<RawRate>>> rawRates = new ArrayList<>(types.size());
+            List<Future<CalculatedRate>> calcRates = new ArrayList<>(types.size());
+            for (String type : types) {
+                rawRates.add(executor.submit(() -> rateCacheService.getAllRawRatesForType(type)));
+                calcRates.add(executor.submit(() -> rateCacheService.getCalcRate(calcRateOf(type))));
+            }
+
+            int rawRateCount = 0;
+            for (Future<List<RawRate>> rates : rawRates) {
+                rawRateCount += rates.get().size();
+            }
+            int calcRateCount = 0;
+            for (Future<CalculatedRate> rate : calcRates) {
+                calcRateCount += rate.get() == null ? 0 : 1;
+            }
+
+            return new WarmStartResult(rateCacheService.getName(), rawRateCount, calcRateCount, usdmid.get() != null, elapsedMillis(start));
+        }
+    }
+
+    /**
+     * Loads the snapshot file into the cache, the raw rates of each type in parallel.
+     *
+     * @return the result, or null if there is no usable snapshot
+     */
+    private WarmStartResult loadSnapshot(long start) throws Exception {
+        Path path = Path.of(snapshotFile);
+        if (!Files.isReadable(path)) {
+            LOGGER.info("No rate cache snapshot at {}, starting with a cold cache.", path.toAbsolutePath());
+            return null;
+        }
+
+        RateCacheSnapshotFile.Contents contents = RateCacheSnapshotFile.read(path);
+        Duration age = Duration.between(contents.writtenAt(), Instant.now());
+        if (age.toMillis() > snapshotMaxAgeMillis) {
+            LOGGER.warn("Rate cache snapshot at {} is {} s old, starting with a cold cache.", path.toAbsolutePath(), age.toSeconds());
+            return null;
+        }
+
+        Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+        for (RawRate rate : contents.rawRates()) {
+            rawRatesByType.computeIfAbsent(rate.getType(), type -> new ArrayList<>()).add(rate);
+        }
+
+        try (ExecutorService executor = newExecutor()) {
+            List<Future<?>> saves = new ArrayList<>(rawRatesByType.size() + 2);
+            for (List<RawRate> rates : rawRatesByType.values()) {
+                saves.add(executor.submit(() -> {
+                    for (RawRate rate : rates) {
+                        rateCacheService.saveRawRate(rate);
+                    }
+                    return null;
+                }));
+            }
+            saves.add(executor.submit(() -> rateCacheService.saveCalcRates(contents.calcRates())));
+            if (contents.usdmid() != null) {
+                saves.add(executor.submit(() -> rateCacheService.saveUSDMID(contents.usdmid())));
+            }
+
+            for (Future<?> save : saves) {
+                save.get();
+            }
+        }
+
+        return new WarmStartResult(path.toString(), contents.rawRates().size(), contents.calcRates().size(),
+                contents.usdmid() != null, elapsedMillis(start));
+    }
+
+    /**
+     * Writes the in-memory cache to the snapshot file on shutdown.
+     */
+    @PreDestroy
+    public void saveSnapshotIfEnabled() {
+        if (!enabled || !rateCache.equals("memory")) {
+            return;
+        }
+
+        Path path = Path.of(snapshotFile);
+        try {
+            List<RawRate> rawRates = new ArrayList<>();
+            List<CalculatedRate> calcRates = new ArrayList<>();
+            for (String type : ratesLoader.getRatesList()) {
+                rawRates.addAll(rateCacheService.getAllRawRatesForType(type));
+
+                CalculatedRate calcRate = rateCacheService.getCalcRate(calcRateOf(type));
+                if (calcRate != null) {
+                    calcRates.add(calcRate);
+                }
+            }
+
+            RateCacheSnapshotFile.write(path, new RateCacheSnapshotFile.Contents(Instant.now(), rateCacheService.getUSDMID(), rawRates, calcRates));
+            LOGGER.info("Rate cache snapshot of {} raw rates and {} calculated rates written to {}.",
+                    rawRates.size(), calcRates.size(), path.toAbsolutePath());
+        } catch (Exception e) {
+            LOGGER.error("Failed to write the rate cache snapshot to {}.", path.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @return a calculated rate that only carries the calculated type of a raw rate type, to look it up with
+     */
+    private CalculatedRate calcRateOf(String rawRateType) {
+        return rateFactory.createCalcRate(rateConverter.convertFromRawToCalc(rawRateType), 0.0, 0.0, null);
+    }
+
+    private ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "rate-cache-warm-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Outcome of a warm start.
+     *
+     * @param source         the cache service or the snapshot file the rates came from
+     * @param rawRates       number of raw rates restored
+     * @param calcRates      number of calculated rates restored
+     * @param usdmid         whether the USD mid rate was restored
+     * @param durationMillis wall-clock duration of the warm start
+     */
+    public record WarmStartResult(String source, int rawRates, int calcRates, boolean usdmid, long durationMillis) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves raw rates from the old key layout into the per-type hashes of {@link RateCacheServiceRedisAPI}.
+ * <p>
+ * Earlier versions stored every raw rate under its own key, {@code raw_rates::rates:PROVIDER:TYPE}.
+ * At startup, before the subscribers connect, this component walks those keys with SCAN, so Redis is
+ * never blocked the way {@code KEYS} blocks it. Each rate is copied into the hash {@code raw_rates:TYPE}
+ * under its provider, unless the hash already has a newer rate for that provider, and the old key is deleted.
+ * </p>
+ * <p>
+ * The migration is idempotent, so it can stay enabled; once no old keys are left it is a single empty scan.
+ * A failure is logged and does not stop the application, the affected rates are simply rebuilt by new ticks.
+ * </p>
+ */
+@Component
+@Profile({"debug", "dev", "prod"})
+@ConditionalOnProperty(name = "app.rate-cache", havingValue = "redis", matchIfMissing = true)
+public class RawRateKeyMigration {
+    static final String LEGACY_KEY_PREFIX = "raw_rates::rates:";
+
+    private static final Logger LOGGER = LogManager.getLogger(RawRateKeyMigration.class);
+    private static final long SCAN_COUNT = 1000;
+
+    private final RedisTemplate<String, RawRate> rawRateRedisTemplate;
+
+    /**
+     * Whether old raw rate keys are migrated at startup.
+     */
+    @Value("${app.redis.raw-rate-migration.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Constructs the migration with the raw rate template.
+     *
+     * @param rawRateRedisTemplate Redis template for raw rates.
+     */
+    public RawRateKeyMigration(RedisTemplate<String, RawRate> rawRateRedisTemplate) {
+        this.rawRateRedisTemplate = rawRateRedisTemplate;
+    }
+
+    /**
+     * Runs the migration at startup if it is enabled.
+     */
+    @PostConstruct
+    public void migrateIfEnabled() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            int migrated = migrate();
+            if (migrated > 0) {
+                LOGGER.info("Migrated {} raw rates to per-type hashes.", migrated);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Raw rate key migration failed, old keys are left in place.", e);
+        }
+    }
+
+    /**
+     * Moves every raw rate stored under an old key into the hash of its type.
+     *
+     * @return the number of old keys that were migrated
+     */
+    public int migrate() {
+        ScanOptions options = ScanOptions.scanOptions().match(LEGACY_KEY_PREFIX + "*").count(SCAN_COUNT).build();
+        int migrated = 0;
+
+        try (Cursor<String> keys = rawRateRedisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                if (migrateKey(keys.next())) {
+                    migrated++;
+                }
+            }
+        }
+
+        return migrated;
+    }
+
+    private boolean migrateKey(String legacyKey) {
+        // raw_rates::rates:PROVIDER:TYPE; types never contain ':' so the last one separates them
+        String providerAndType = legacyKey.substring(LEGACY_KEY_PREFIX.length());
+        int separator = providerAndType.lastIndexOf(':');
+        if (separator <= 0 || separator == providerAndType.length() - 1) {
+            LOGGER.warn("Skipping raw rate key with unexpected format: {}", legacyKey);
+            return false;
+        }
+
+        String provider = providerAndType.substring(0, separator);
+        String type = providerAndType.substring(separator + 1);
+
+        RawRate rate = rawRateRedisTemplate.opsForValue().get(legacyKey);
+        if (rate != null) {
+            // A rate already written to the hash by this version is newer than the old key
+            rawRateRedisTemplate.<String, RawRate>opsForHash().putIfAbsent(RateCacheServiceRedisAPI.rawRatesKey(type), provider, rate);
+        }
+
+        rawRateRedisTemplate.delete(legacyKey);
+        return rate != null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary {@link RedisSerializer} for {@link RawRate}.
+ * <p>
+ * Layout: version, type, provider, bid, ask, timestamp, see {@link BinaryRateSerializer}.
+ * A USD_TRY rate of a 13 character provider takes 47 bytes, less than half of its JSON form.
+ * The Lua script {@code redis/upsert_raw_rate.lua} reads the bid and ask at these offsets.
+ * </p>
+ */
+public class RawRateRedisSerializer extends BinaryRateSerializer<RawRate> {
+    private static final int FIXED_SIZE = 1 + 8 + 8 + 8;
+
+    /**
+     * @param jsonSerializer reads the raw rates written as JSON by earlier versions
+     */
+    public RawRateRedisSerializer(RedisSerializer<RawRate> jsonSerializer) {
+        super(jsonSerializer);
+    }
+
+    @Override
+    public byte[] serialize(RawRate rate) throws SerializationException {
+        if (rate == null) {
+            return new byte[0];
+        }
+
+        byte[] type = encode(rate.getType());
+        byte[] provider = encode(rate.getProvider());
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + stringSize(type) + stringSize(provider));
+
+        buffer.put(VERSION_1);
+        putString(buffer, type);
+        putString(buffer, provider);
+        buffer.putDouble(rate.getBid());
+        buffer.putDouble(rate.getAsk());
+        putTimestamp(buffer, rate.getTimestamp());
+
+        return buffer.array();
+    }
+
+    @Override
+    RawRate read(ByteBuffer buffer) {
+        RawRate rate = new RawRate();
+        rate.setType(getString(buffer));
+        rate.setProvider(getString(buffer));
+        rate.setBid(buffer.getDouble());
+        rate.setAsk(buffer.getDouble());
+        rate.setTimestamp(getTimestamp(buffer));
+
+        return rate;
+    }
+}
@@ -0,0 +1,292 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer of {@link RateCacheServiceRedisAPI}.
+ * <p>
+ * Every write lands in a latest-value slot per key: one per type and provider for raw rates, one per type for
+ * calculated rates and one for the USD mid rate. A newer value replaces a pending one, so bursts of ticks are
+ * coalesced into one Redis write per key. A background thread writes all dirty slots with one pipelined
+ * {@link Writer} call every flush interval, or as soon as the number of dirty slots reaches the batch size.
+ * </p>
+ * <p>
+ * A slot is cleared only after its value was written, and only if no newer value replaced it meanwhile, so a failed
+ * flush is retried with the latest values by the next one. Until then the pending values are overlaid on what
+ * is read from Redis, so this instance always reads its own writes. The remaining slots are flushed on {@link #close()}.
+ * </p>
+ */
+final class RedisWriteBehind implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(RedisWriteBehind.class);
+
+    private final Writer writer;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor flusher;
+
+    private final Map<String, Map<String, RawRate>> pendingRawRates = new ConcurrentHashMap<>();
+    private final Map<String, CalculatedRate> pendingCalcRates = new ConcurrentHashMap<>();
+    private final AtomicReference<Double> pendingUsdmid = new AtomicReference<>();
+    private final AtomicInteger dirtySlots = new AtomicInteger();
+    /**
+     * {@link System#nanoTime()} of the oldest write not yet flushed, 0 if there is none.
+     */
+    private final AtomicLong dirtySince = new AtomicLong();
+    /**
+     * Origin of the invalidations published with each flush, set by the first write that carries one.
+     */
+    private volatile String invalidationOrigin;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile long lastFlushLagMillis;
+    private final AtomicLong maxFlushLagMillis = new AtomicLong();
+
+    /**
+     * Writes a batch of values to Redis in one round trip.
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(List<RawRate> rawRates, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) throws CacheException;
+    }
+
+    /**
+     * Starts the flusher.
+     *
+     * @param writer               Writes the dirty values.
+     * @param flushIntervalMillis  Time between two flushes.
+     * @param batchSize            Number of dirty slots that triggers a flush before the interval ends.
+     */
+    RedisWriteBehind(Writer writer, long flushIntervalMillis, int batchSize) {
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "redis-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores the values of one tick in their slots.
+     *
+     * @param rawRate      The raw rate, or null.
+     * @param usdmid       The USD mid rate, or null.
+     * @param calcRates    The calculated rates, may be empty.
+     * @param invalidation The invalidation the caller wants published, only its origin is kept; may be null.
+     */
+    void save(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) {
+        if (invalidation != null) {
+            invalidationOrigin = invalidation.origin();
+        }
+
+        int newSlots = 0;
+        if (rawRate != null) {
+            Map<String, RawRate> rates = pendingRawRates.computeIfAbsent(rawRate.getType(), type -> new ConcurrentHashMap<>());
+            newSlots += rates.put(rawRate.getProvider(), rawRate) == null ? 1 : 0;
+        }
+        if (usdmid != null) {
+            newSlots += pendingUsdmid.getAndSet(usdmid) == null ? 1 : 0;
+        }
+        for (CalculatedRate calcRate : calcRates) {
+            newSlots += pendingCalcRates.put(calcRate.getType(), calcRate) == null ? 1 : 0;
+        }
+
+        writes.add((rawRate == null ? 0 : 1) + (usdmid == null ? 0 : 1) + calcRates.size());
+        dirtySince.compareAndSet(0, System.nanoTime());
+
+        int dirty = dirtySlots.addAndGet(newSlots);
+        if (newSlots > 0 && dirty >= batchSize && dirty - newSlots < batchSize) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * @return a copy of the pending raw rates of a type by provider, to be overlaid on rates read afterward
+     */
+    Map<String, RawRate> pendingRawRates(String type) {
+        Map<String, RawRate> rates = pendingRawRates.get(type);
+        return rates == null || rates.isEmpty() ? Map.of() : Map.copyOf(rates);
+    }
+
+    /**
+     * @return the pending USD mid rate, or null
+     */
+    Double pendingUSDMID() {
+        return pendingUsdmid.get();
+    }
+
+    /**
+     * @return the pending calculated rate of a type, or null
+     */
+    CalculatedRate pendingCalcRate(String type) {
+        return pendingCalcRates.get(type);
+    }
+
+    /**
+     * Returns the rates read from Redis with the pending rates in place: a provider's stored rate is replaced,
+     * a provider without one is appended.
+     *
+     * @param stored  The rates read from Redis.
+     * @param pending The pending rates of the type, taken before the read.
+     */
+    static List<RawRate> overlay(List<RawRate> stored, Map<String, RawRate> pending) {
+        if (pending.isEmpty()) {
+            return stored;
+        }
+
+        Map<String, RawRate> byProvider = new LinkedHashMap<>();
+        for (RawRate rate : stored) {
+            byProvider.put(rate.getProvider(), rate);
+        }
+        byProvider.putAll(pending);
+
+        return new ArrayList<>(byProvider.values());
+    }
+
+    /**
+     * Writes every dirty slot with one call to the writer and clears the slots that were not replaced meanwhile.
+     * Runs on the flusher thread, and on the closing thread once the flusher has stopped.
+     *
+     * @throws CacheException If the write fails; the slots stay dirty.
+     */
+    void flush() throws CacheException {
+        long since = dirtySince.getAndSet(0);
+
+        List<RawRate> rawRates = new ArrayList<>();
+        for (Map<String, RawRate> rates : pendingRawRates.values()) {
+            rawRates.addAll(rates.values());
+        }
+        Double usdmid = pendingUsdmid.get();
+        List<CalculatedRate> calcRates = new ArrayList<>(pendingCalcRates.values());
+
+        int count = rawRates.size() + (usdmid == null ? 0 : 1) + calcRates.size();
+        if (count == 0) {
+            return;
+        }
+
+        try {
+            writer.write(rawRates, usdmid, calcRates, invalidation(rawRates, usdmid, calcRates));
+        } catch (CacheException | RuntimeException e) {
+            failedFlushes.increment();
+            dirtySince.compareAndSet(0, since);
+            throw e;
+        }
+
+        int cleared = 0;
+        for (RawRate rate : rawRates) {
+            Map<String, RawRate> rates = pendingRawRates.get(rate.getType());
+            cleared += rates != null && rates.remove(rate.getProvider(), rate) ? 1 : 0;
+        }
+        if (usdmid != null && pendingUsdmid.compareAndSet(usdmid, null)) {
+            cleared++;
+        }
+        for (CalculatedRate calcRate : calcRates) {
+            cleared += pendingCalcRates.remove(calcRate.getType(), calcRate) ? 1 : 0;
+        }
+        dirtySlots.addAndGet(-cleared);
+
+        flushes.increment();
+        flushedWrites.add(count);
+        if (since != 0) {
+            long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+            lastFlushLagMillis = lag;
+            maxFlushLagMillis.accumulateAndGet(lag, Math::max);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Write-behind flush of {} dirty cache entries failed, retrying with the next flush.", dirtySlots.get(), e);
+        }
+    }
+
+    private CacheInvalidation invalidation(List<RawRate> rawRates, Double usdmid, List<CalculatedRate> calcRates) {
+        String origin = invalidationOrigin;
+        if (origin == null) {
+            return null;
+        }
+
+        List<String> keys = new ArrayList<>();
+        rawRates.stream().map(RawRate::getType).distinct().map(RateCacheServiceRedisAPI::rawRatesKey).forEach(keys::add);
+        if (usdmid != null) {
+            keys.add(RateCacheServiceRedisAPI.USDMID_KEY);
+        }
+        for (CalculatedRate calcRate : calcRates) {
+            keys.add(RateCacheServiceRedisAPI.CALC_RATES_KEY_FORMAT.formatted(calcRate.getType()));
+        }
+
+        return new CacheInvalidation(origin, keys);
+    }
+
+    /**
+     * @return the write and flush counters so far
+     */
+    Statistics getStatistics() {
+        return new Statistics(writes.sum(), flushedWrites.sum(), flushes.sum(), failedFlushes.sum(),
+                lastFlushLagMillis, maxFlushLagMillis.get());
+    }
+
+    /**
+     * Stops the flusher, flushes the remaining slots and logs the statistics.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Write-behind flusher did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Final write-behind flush failed, {} cache entries were not written.", dirtySlots.get(), e);
+        }
+
+        LOGGER.info("Redis write-behind: {}", getStatistics());
+    }
+
+    /**
+     * Counters of the write-behind buffer.
+     *
+     * @param writes             values saved
+     * @param flushedWrites      values written to Redis, a value replaced before its flush is never written
+     * @param flushes            successful flushes
+     * @param failedFlushes      flushes that failed and were retried
+     * @param lastFlushLagMillis time from the oldest pending write to the end of the last flush
+     * @param maxFlushLagMillis  the largest such time so far
+     */
+    record Statistics(long writes, long flushedWrites, long flushes, long failedFlushes,
+                      long lastFlushLagMillis, long maxFlushLagMillis) {
+        /**
+         * @return the share of writes that were replaced by a newer value before reaching Redis
+         */
+        double coalescingRatio() {
+            return writes == 0 ? 0 : 1 - (double) flushedWrites / writes;
+        }
+    }
+}
@@ -4,33 +4,49 @@ import com.berkepite.RateDistributionEngine.common.calculator.CalculatorEnum;
 import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
 import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorLoader;
 import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
 import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
 import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorLoadingException;
 import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
 import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+
 /**
  * Factory service responsible for creating and providing the appropriate {@link IRateCalculator}
  * implementation based on the configured rate calculation strategy.
  * <p>
- * Supports multiple calculation strategies such as JavaScript and Python.
+ * Supports multiple calculation strategies such as JavaScript, Python, a built-in Java one
+ * and compiled formula files.
  * The implementation is loaded dynamically and initialized at startup.
  * </p>
+ * <p>
+ * With hot reload enabled, scripted calculators are wrapped in a {@link ReloadableCalculator} and the
+ * script is watched by a {@link CalculatorReloader}, so a changed formula goes live without a restart.
+ * </p>
+ * <p>
+ * With a call timeout, scripted calculators are wrapped in a {@link FallbackCalculator}: a call that runs
+ * past its deadline is cancelled, answered by the built-in Java calculator and reported to the coordinator.
+ * </p>
  */
 @Service
 public class CalculatorFactory implements ICalculatorFactory {
     private static final Logger LOGGER = LogManager.getLogger(CalculatorFactory.class);
 
     private IRateCalculator rateCalculator;
+    private volatile IRateCalculator unwrappedCalculator;
+    private CalculatorReloader calculatorReloader;
     private final IRateFactory rateFactory;
     private final IRateConverter rateConverter;
     private final ICalculatorLoader calculatorLoader;
+    private volatile ICoordinator coordinator;
 
     /**
      * The calculation strategy defined in application properties,
@@ -45,6 +61,61 @@ public class CalculatorFactory implements ICalculatorFactory {
     @Value("${app.rate-calculator-path}")
     private String rateCalculatorPath;
 
+    /**
+     * The maximum number of pooled polyglot contexts used by scripted calculators.
+     */
+    @Value("${app.rate-calculator-pool.size:8}")
+    private int rateCalculatorPoolSize;
+
+    /**
+     * How long (in milliseconds) a calculation may wait for a free pooled context.
+     */
+    @Value("${app.rate-calculator-pool.acquire-timeout-ms:1000}")
+    private long rateCalculatorPoolAcquireTimeoutMillis;
+
+    /**
+     * How long (in milliseconds) a scripted calculation may run before it is cancelled and
+     * answered by the built-in Java calculator; 0 disables the deadline.
+     */
+    @Value("${app.rate-calculator-pool.call-timeout-ms:0}")
+    private long rateCalculatorPoolCallTimeoutMillis;
+
+    /**
+     * Whether the calculator script is watched and hot reloaded when it changes.
+     */
+    @Value("${app.rate-calculator-hot-reload.enabled:false}")
+    private boolean hotReloadEnabled;
+
+    /**
+     * How long (in milliseconds) the script must stay unchanged before it is reloaded.
+     */
+    @Value("${app.rate-calculator-hot-reload.debounce-ms:500}")
+    private long hotReloadDebounceMillis;
+
+    /**
+     * How many rounds of recent inputs a reloaded calculator is warmed up with before it goes live.
+     */
+    @Value("${app.rate-calculator-hot-reload.warm-up-iterations:200}")
+    private int hotReloadWarmUpIterations;
+
+    /**
+     * The largest relative deviation from the live results a reloaded calculator may have; 0 only logs it.
+     */
+    @Value("${app.rate-calculator-hot-reload.max-deviation:0.1}")
+    private double hotReloadMaxDeviation;
+
+    /**
+     * Whether calculator results are memoized by input, see {@link MemoizingCalculator}.
+     */
+    @Value("${app.rate-calculator-memo.enabled:false}")
+    private boolean memoEnabled;
+
+    /**
+     * The maximum number of memoized inputs per calculator operation.
+     */
+    @Value("${app.rate-calculator-memo.size:1024}")
+    private int memoSize;
+
     /**
      * Constructs the CalculatorFactory with required dependencies.
      *
@@ -67,23 +138,43 @@ public class CalculatorFactory implements ICalculatorFactory {
      */
     @PostConstruct
     public void init() throws CalculatorException {
+        CalculatorEnum calculatorEnum;
         try {
-            CalculatorEnum calculatorEnum = CalculatorEnum.valueOf(rateCalculationStrategy);
-
-            switch (calculatorEnum) {
-                case CalculatorEnum.JAVASCRIPT -> {
-                    rateCalculator = getJavascriptCalculator();
-                }
-                case CalculatorEnum.PYTHON -> {
-                    rateCalculator = getPythonCalculator();
-                }
-                default ->
-                        throw new CalculatorLoadingException("Unsupported rate calculation strategy: " + rateCalculationStrategy);
-            }
+            calculatorEnum = CalculatorEnum.valueOf(rateCalculationStrategy);
         } catch (IllegalArgumentException e) {
             throw new CalculatorLoadingException("Unsupported rate calculation strategy: " + rateCalculationStrategy, e);
-        } catch (Exception e) {
-            throw new CalculatorLoadingException("Something went wrong: " + rateCalculationStrategy, e);
+        }
+
+        unwrappedCalculator = createCalculator(calculatorEnum);
+        rateCalculator = wrapCalculator(calculatorEnum, unwrappedCalculator);
+
+        if (hotReloadEnabled && calculatorEnum != CalculatorEnum.JAVA) {
+            ReloadableCalculator reloadableCalculator = new ReloadableCalculator(rateCalculator);
+            calculatorReloader = new CalculatorReloader(calculatorLoader.load(rateCalculatorPath), reloadableCalculator,
+                    () -> createCalculator(calculatorEnum), calculator -> {
+                        unwrappedCalculator = calculator;
+                        return wrapCalculator(calculatorEnum, calculator);
+                    }, hotReloadDebounceMillis, hotReloadWarmUpIterations, hotReloadMaxDeviation);
+            try {
+                calculatorReloader.start();
+            } catch (IOException e) {
+                LOGGER.error("Could not watch calculator {}, hot reload is disabled.", rateCalculatorPath, e);
+            }
+            rateCalculator = reloadableCalculator;
+        }
+    }
+
+    /**
+     * Releases the resources held by the calculator, such as pooled polyglot contexts.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (calculatorReloader != null) {
+            calculatorReloader.close();
+        }
+
+        if (rateCalculator != null) {
+            rateCalculator.close();
         }
     }
 
@@ -102,6 +193,77 @@ public class CalculatorFactory implements ICalculatorFactory {
         }
     }
 
+    /**
+     * Returns the live calculator without the memo, the fallback and the hot reload wrappers, so its calls always
+     * reach the calculator of the configured strategy and are not counted or recorded by any wrapper.
+     *
+     * @return the unwrapped rate calculator instance
+     * @throws CalculatorException if the calculator is not initialized.
+     */
+    @Override
+    public IRateCalculator getUnwrappedCalculator() throws CalculatorException {
+        IRateCalculator calculator = unwrappedCalculator;
+        if (calculator != null) {
+            return calculator;
+        } else {
+            throw new CalculatorException("Rate calculator does not exist!");
+        }
+    }
+
+    /**
+     * Sets the coordinator that is notified of calculator errors, such as calls that ran out of time.
+     *
+     * @param coordinator the coordinator
+     */
+    @Override
+    public void setCoordinator(ICoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Creates and initializes a calculator for the given strategy.
+     *
+     * @param calculatorEnum the calculation strategy
+     * @return the initialized {@link IRateCalculator}
+     * @throws CalculatorException if the strategy is unsupported or initialization fails.
+     */
+    private IRateCalculator createCalculator(CalculatorEnum calculatorEnum) throws CalculatorException {
+        try {
+            return switch (calculatorEnum) {
+                case CalculatorEnum.JAVASCRIPT -> getJavascriptCalculator();
+                case CalculatorEnum.PYTHON -> getPythonCalculator();
+                case CalculatorEnum.JAVA -> getNativeCalculator();
+                case CalculatorEnum.FORMULA -> getFormulaCalculator();
+            };
+        } catch (CalculatorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CalculatorLoadingException("Something went wrong: " + rateCalculationStrategy, e);
+        }
+    }
+
+    /**
+     * Memoizes a calculator if enabled and backs it by the built-in Java calculator if it is scripted and has a
+     * call timeout. A reloaded calculator is only wrapped once it is warmed up, so the warm-up runs the script instead
+     * of the memo, and gets its own memo, so results of a replaced script are never reused.
+     *
+     * @param calculatorEnum the calculation strategy
+     * @param calculator     the initialized calculator of that strategy
+     * @return the calculator to hand out
+     */
+    private IRateCalculator wrapCalculator(CalculatorEnum calculatorEnum, IRateCalculator calculator) {
+        if (memoEnabled) {
+            calculator = new MemoizingCalculator(calculator, rateFactory, memoSize);
+        }
+
+        boolean scripted = calculatorEnum == CalculatorEnum.JAVASCRIPT || calculatorEnum == CalculatorEnum.PYTHON;
+        if (scripted && rateCalculatorPoolCallTimeoutMillis > 0) {
+            calculator = new FallbackCalculator(calculator, getNativeCalculator(), this::onCalculatorError);
+        }
+
+        return calculator;
+    }
+
     /**
      * Creates and initializes a JavaScript-based calculator.
      *
@@ -109,7 +271,8 @@ public class CalculatorFactory implements ICalculatorFactory {
      * @throws CalculatorException if initialization fails.
      */
     private JavascriptCalculator getJavascriptCalculator() throws CalculatorException {
-        var c = new JavascriptCalculator(rateFactory, rateConverter, calculatorLoader);
+        var c = new JavascriptCalculator(rateFactory, rateConverter, calculatorLoader,
+                rateCalculatorPoolSize, rateCalculatorPoolAcquireTimeoutMillis, rateCalculatorPoolCallTimeoutMillis);
         c.init(rateCalculatorPath);
 
         return c;
@@ -122,9 +285,50 @@ public class CalculatorFactory implements ICalculatorFactory {
      * @throws CalculatorException if initialization fails.
      */
     private PythonCalculator getPythonCalculator() throws CalculatorException {
-        var c = new PythonCalculator(rateFactory, rateConverter, calculatorLoader);
+        var c = new PythonCalculator(rateFactory, rateConverter, calculatorLoader,
+                rateCalculatorPoolSize, rateCalculatorPoolAcquireTimeoutMillis, rateCalculatorPoolCallTimeoutMillis);
+        c.init(rateCalculatorPath);
+
+        return c;
+    }
+
+    /**
+     * Creates and initializes a calculator from a formula file.
+     *
+     * @return the initialized {@link FormulaCalculator}
+     * @throws CalculatorException if initialization fails.
+     */
+    private FormulaCalculator getFormulaCalculator() throws CalculatorException {
+        var c = new FormulaCalculator(rateFactory, rateConverter, calculatorLoader);
+        c.init(rateCalculatorPath);
+
+        return c;
+    }
+
+    /**
+     * Creates and initializes the built-in Java calculator.
+     *
+     * @return the initialized {@link NativeCalculator}
+     */
+    private NativeCalculator getNativeCalculator() {
+        var c = new NativeCalculator(rateFactory, rateConverter);
         c.init(rateCalculatorPath);
 
         return c;
     }
+
+    /**
+     * Reports a calculator error to the coordinator, or logs it while no coordinator is set.
+     *
+     * @param calculator the calculator that failed
+     * @param e          the error
+     */
+    private void onCalculatorError(IRateCalculator calculator, CalculatorException e) {
+        ICoordinator coordinator = this.coordinator;
+        if (coordinator != null) {
+            coordinator.onCalculatorError(calculator, e);
+        } else {
+            LOGGER.warn("({}) calculator error: {}", calculator.getStrategy(), e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,322 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Watches the calculator script and hot reloads it into a {@link ReloadableCalculator}.
+ * <p>
+ * When the script changes, a fresh calculator (and with it a fresh context pool) is built on the
+ * reloader thread, warmed up by replaying the recent real inputs of the live calculator and validated.
+ * Only if every warm-up call succeeds with finite results is the new calculator wrapped, for example in a memo,
+ * and swapped in; otherwise it is closed and the live calculator keeps running. The warm-up runs on the unwrapped
+ * calculator, so every replayed input reaches the script.
+ * </p>
+ * <p>
+ * The results of the new calculator on the recent inputs are also compared with those of the live one. The largest
+ * relative deviation is logged, and a calculator that deviates by more than the allowed maximum is rejected, so a
+ * script that is off by orders of magnitude or returns zeros never goes live.
+ * </p>
+ * <p>
+ * The whole directory of the script is watched, since editors and volume mounts often replace a file
+ * instead of modifying it. Reloads are debounced and skipped if the script content did not change.
+ * </p>
+ */
+public class CalculatorReloader implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(CalculatorReloader.class);
+    private static final RecentInputSample SYNTHETIC_INPUT = new RecentInputSample("EUR_USD", 34.85,
+            new double[]{1.0825, 1.0827}, new double[]{1.0829, 1.0831});
+
+    private final Path scriptPath;
+    private final ReloadableCalculator reloadableCalculator;
+    private final CalculatorSupplier calculatorSupplier;
+    private final UnaryOperator<IRateCalculator> calculatorWrapper;
+    private final long debounceMillis;
+    private final int warmUpIterations;
+    private final double maxDeviation;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private byte[] loadedDigest;
+
+    /**
+     * Creates a reloader for the given script.
+     *
+     * @param scriptPath           the calculator script to watch
+     * @param reloadableCalculator the calculator whose live delegate is replaced on reload
+     * @param calculatorSupplier   creates and initializes a new calculator from the current script
+     * @param calculatorWrapper    wraps a warmed up calculator before it is swapped in
+     * @param debounceMillis       how long the script must stay unchanged before it is reloaded
+     * @param warmUpIterations     how many rounds of recent inputs are replayed before the swap
+     * @param maxDeviation         the largest relative deviation from the live results a new calculator may have;
+     *                             0 only logs the deviation
+     */
+    public CalculatorReloader(Path scriptPath, ReloadableCalculator reloadableCalculator,
+                              CalculatorSupplier calculatorSupplier, UnaryOperator<IRateCalculator> calculatorWrapper,
+                              long debounceMillis, int warmUpIterations, double maxDeviation) {
+        this.scriptPath = scriptPath.toAbsolutePath();
+        this.reloadableCalculator = reloadableCalculator;
+        this.calculatorSupplier = calculatorSupplier;
+        this.calculatorWrapper = calculatorWrapper;
+        this.debounceMillis = debounceMillis;
+        this.warmUpIterations = warmUpIterations;
+        this.maxDeviation = maxDeviation;
+    }
+
+    /**
+     * Starts watching the script directory on a daemon thread.
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    public void start() throws IOException {
+        loadedDigest = digest();
+
+        watchService = FileSystems.getDefault().newWatchService();
+        scriptPath.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcherThread = new Thread(this::watch, "calculator-reloader");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        LOGGER.info("Watching {} for calculator changes.", scriptPath);
+    }
+
+    /**
+     * Stops watching the script.
+     */
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close calculator watch service.", e);
+            }
+        }
+
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    /**
+     * Builds a calculator from the current script, warms it up and swaps it in if it validates.
+     *
+     * @return true if the new calculator went live; false if it was rejected
+     */
+    public boolean reload() {
+        long start = System.nanoTime();
+
+        IRateCalculator candidate;
+        try {
+            candidate = calculatorSupplier.create();
+        } catch (CalculatorException e) {
+            LOGGER.error("Could not load changed calculator {}, keeping the live one.", scriptPath, e);
+            return false;
+        }
+
+        try {
+            List<RecentInputSample> samples = samples(reloadableCalculator.getRecentInputs());
+            warmUp(candidate, samples);
+            requireCloseToLive(candidate, samples);
+        } catch (Exception e) {
+            LOGGER.error("Changed calculator {} failed validation, keeping the live one.", scriptPath, e);
+            candidate.close();
+            return false;
+        }
+
+        reloadableCalculator.swap(calculatorWrapper.apply(candidate));
+        LOGGER.info("Reloaded {} calculator from {} in {} ms.", candidate.getStrategy(), scriptPath,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                key.reset();
+
+                // Wait until the directory has been quiet for the debounce period.
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+
+                byte[] digest = digest();
+                if (digest == null || Arrays.equals(digest, loadedDigest)) {
+                    continue;
+                }
+
+                if (reload()) {
+                    loadedDigest = digest;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // closed on shutdown
+        }
+    }
+
+    private static List<RecentInputSample> samples(List<ReloadableCalculator.RecentInput> recentInputs) {
+        return recentInputs.isEmpty()
+                ? List.of(SYNTHETIC_INPUT)
+                : recentInputs.stream().map(RecentInputSample::of).toList();
+    }
+
+    /**
+     * Replays the recent inputs against the candidate and checks that every result is finite.
+     */
+    private void warmUp(IRateCalculator candidate, List<RecentInputSample> samples) throws CalculatorException {
+        for (int i = 0; i < warmUpIterations; i++) {
+            RecentInputSample sample = samples.get(i % samples.size());
+
+            MeanRate meanRate = candidate.calculateMeanRate(sample.bids(), sample.asks());
+            requireFinite("calculateMeanRate", meanRate.getMeanBid(), meanRate.getMeanAsk());
+
+            Double usdmid = candidate.calculateUSDMID(sample.bids(), sample.asks());
+            requireFinite("calculateUSDMID", usdmid);
+
+            RawRate incomingRate = new RawRate();
+            incomingRate.setBid(sample.bids()[0]);
+            incomingRate.setAsk(sample.asks()[0]);
+            candidate.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+
+            CalculatedRate usdTry = candidate.calculateForUSD_TRY(sample.bids(), sample.asks());
+            requireFinite("calculateForUSD_TRY", usdTry.getBid(), usdTry.getAsk());
+
+            CalculatedRate crossRate = candidate.calculateForRawRateType(sample.type(), sample.usdmid(), sample.bids(), sample.asks());
+            requireFinite("calculateForRawRateType", crossRate.getBid(), crossRate.getAsk());
+        }
+
+        Map<String, List<double[]>> bidsAndAsksPerType = new LinkedHashMap<>();
+        samples.forEach(sample -> bidsAndAsksPerType.put(sample.type(), List.of(sample.bids(), sample.asks())));
+        for (CalculatedRate crossRate : candidate.calculateForRawRateTypes(samples.getFirst().usdmid(), bidsAndAsksPerType)) {
+            requireFinite("calculateForRawRateTypes", crossRate.getBid(), crossRate.getAsk());
+        }
+    }
+
+    /**
+     * Compares the results of the candidate with those of the live calculator on every recent input, logs the largest
+     * relative deviation and rejects the candidate if it is above the maximum. Inputs the live calculator fails on
+     * are not compared.
+     */
+    private void requireCloseToLive(IRateCalculator candidate, List<RecentInputSample> samples) throws CalculatorException {
+        IRateCalculator liveCalculator = reloadableCalculator.getLiveCalculator();
+        double deviation = 0;
+
+        for (RecentInputSample sample : samples) {
+            double[] candidateResults = results(candidate, sample);
+            double[] liveResults;
+            try {
+                liveResults = results(liveCalculator, sample);
+            } catch (CalculatorException e) {
+                continue;
+            }
+
+            for (int i = 0; i < candidateResults.length; i++) {
+                deviation = Math.max(deviation, relativeDeviation(candidateResults[i], liveResults[i]));
+            }
+        }
+
+        LOGGER.info("Results of changed calculator {} deviate from the live ones by at most {}%.", scriptPath,
+                "%.4f".formatted(deviation * 100));
+        if (maxDeviation > 0 && deviation > maxDeviation) {
+            throw new CalculatorException("Results deviate from the live calculator by %.4f%%, more than the allowed %.4f%%."
+                    .formatted(deviation * 100, maxDeviation * 100));
+        }
+    }
+
+    /**
+     * Returns the mean rate, USD mid, USD/TRY and cross rate results of a calculator for one input.
+     */
+    private static double[] results(IRateCalculator calculator, RecentInputSample sample) throws CalculatorException {
+        MeanRate meanRate = calculator.calculateMeanRate(sample.bids(), sample.asks());
+        Double usdmid = calculator.calculateUSDMID(sample.bids(), sample.asks());
+        CalculatedRate usdTry = calculator.calculateForUSD_TRY(sample.bids(), sample.asks());
+        CalculatedRate crossRate = calculator.calculateForRawRateType(sample.type(), sample.usdmid(), sample.bids(), sample.asks());
+        requireFinite("calculateUSDMID", usdmid);
+
+        return new double[]{meanRate.getMeanBid(), meanRate.getMeanAsk(), usdmid, usdTry.getBid(), usdTry.getAsk(),
+                crossRate.getBid(), crossRate.getAsk()};
+    }
+
+    private static double relativeDeviation(double candidate, double live) {
+        if (candidate == live || !Double.isFinite(live)) {
+            return 0;
+        }
+
+        return Math.abs(candidate - live) / Math.abs(live);
+    }
+
+    private static void requireFinite(String function, double... values) throws CalculatorException {
+        for (double value : values) {
+            if (!Double.isFinite(value)) {
+                throw new CalculatorException("%s returned a non-finite value: %s.".formatted(function, value));
+            }
+        }
+    }
+
+    private static void requireFinite(String function, Double value) throws CalculatorException {
+        if (value == null) {
+            throw new CalculatorException("%s returned null.".formatted(function));
+        }
+        requireFinite(function, new double[]{value});
+    }
+
+    private byte[] digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(scriptPath));
+        } catch (IOException e) {
+            // the file may be mid-replacement; the next event will retry
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates and initializes a new calculator from the current script.
+     */
+    @FunctionalInterface
+    public interface CalculatorSupplier {
+        IRateCalculator create() throws CalculatorException;
+    }
+
+    /**
+     * A recent input completed with a cross rate type and USD mid rate, so it can drive every calculator function.
+     */
+    private record RecentInputSample(String type, Double usdmid, double[] bids, double[] asks) {
+        private static RecentInputSample of(ReloadableCalculator.RecentInput input) {
+            String type = input.type() == null || input.type().equals("USD_TRY") ? SYNTHETIC_INPUT.type() : input.type();
+            Double usdmid = input.usdmid() == null ? SYNTHETIC_INPUT.usdmid() : input.usdmid();
+            return new RecentInputSample(type, usdmid, input.bids(), input.asks());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+
+/**
+ * Template of the classes {@link FormulaCompiler} links each compiled formula into.
+ * <p>
+ * It is never loaded under its own name. For every formula, the compiler defines a hidden class from the bytes of
+ * this one, with the formula's {@link MethodHandle} as class data. The handle thus ends up in a {@code static final}
+ * field, which the JIT treats as a constant: it inlines the whole handle tree into {@link #evaluate}, so every
+ * formula is compiled into one method of its own, like hand-written Java.
+ * </p>
+ */
+final class CompiledFormula implements FormulaCompiler.Formula {
+    private static final MethodHandle FORMULA = formula();
+
+    private static MethodHandle formula() {
+        try {
+            return MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public BigDecimal evaluate(double[] bids, double[] asks, double[] scalars) {
+        try {
+            return (BigDecimal) FORMULA.invokeExact(bids, asks, scalars);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorLoadingException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorTimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded pool of GraalVM {@link Context}s that all share one polyglot {@link Engine}.
+ * <p>
+ * Each pooled context evaluates the calculator module exactly once when it is created and
+ * keeps the exported function {@link Value} handles, so a calculation is a single guest call
+ * on an already warm context instead of a context spin-up plus a module evaluation.
+ * Sharing the engine lets every context reuse the compiled code of the others.
+ * </p>
+ * <p>
+ * A polyglot context may only be used by one thread at a time; contexts are therefore lent out
+ * to the calling thread for the duration of one call and returned afterwards. Contexts are
+ * created lazily up to the configured size; when all of them are busy the caller waits for at
+ * most the configured acquire timeout.
+ * </p>
+ * <p>
+ * With a call timeout, every call has a deadline. A call that is still running when its deadline
+ * passes is cancelled with {@link Context#close(boolean) Context.close(true)} and fails with a
+ * {@link CalculatorTimeoutException}; the cancelled context is discarded and replaced lazily.
+ * </p>
+ */
+public class ContextPool implements AutoCloseable {
+    public static final int DEFAULT_SIZE = 8;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 1000;
+
+    private static final Logger LOGGER = LogManager.getLogger(ContextPool.class);
+    private static final ScheduledThreadPoolExecutor DEADLINES = createDeadlineExecutor();
+
+    private final String languageId;
+    private final Source source;
+    private final Map<String, String> contextOptions;
+    private final List<String> functionNames;
+    private final int size;
+    private final long acquireTimeoutMillis;
+    private final long callTimeoutMillis;
+
+    private final Engine engine;
+    private final Set<String> exportedFunctions;
+    private final BlockingQueue<PooledContext> idleContexts;
+    private final AtomicInteger createdContexts = new AtomicInteger();
+    private final AtomicBoolean engineClosed = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    /**
+     * Creates the pool without a call timeout.
+     *
+     * @param languageId           the guest language id, e.g. "js" or "python"
+     * @param source               the calculator module source
+     * @param contextOptions       language options applied to every context
+     * @param functionNames        names of the module members to cache per context
+     * @param size                 maximum number of contexts in the pool
+     * @param acquireTimeoutMillis how long a caller may wait for a free context
+     * @throws CalculatorException if the module cannot be evaluated
+     */
+    public ContextPool(String languageId, Source source, Map<String, String> contextOptions,
+                       List<String> functionNames, int size, long acquireTimeoutMillis) throws CalculatorException {
+        this(languageId, source, contextOptions, functionNames, size, acquireTimeoutMillis, 0);
+    }
+
+    /**
+     * Creates the pool and eagerly evaluates the module in the first context,
+     * so that a broken script is reported at load time.
+     *
+     * @param languageId           the guest language id, e.g. "js" or "python"
+     * @param source               the calculator module source
+     * @param contextOptions       language options applied to every context
+     * @param functionNames        names of the module members to cache per context
+     * @param size                 maximum number of contexts in the pool
+     * @param acquireTimeoutMillis how long a caller may wait for a free context
+     * @param callTimeoutMillis    how long a guest call may run before it is cancelled; 0 for no limit
+     * @throws CalculatorException if the module cannot be evaluated
+     */
+    public ContextPool(String languageId, Source source, Map<String, String> contextOptions,
+                       List<String> functionNames, int size, long acquireTimeoutMillis, long callTimeoutMillis) throws CalculatorException {
+        if (size < 1) {
+            throw new CalculatorLoadingException("Context pool size must be at least 1, got: " + size);
+        }
+
+        this.languageId = languageId;
+        this.source = source;
+        this.contextOptions = contextOptions;
+        this.functionNames = functionNames;
+        this.size = size;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.idleContexts = new LinkedBlockingQueue<>(size);
+
+        this.engine = Engine.newBuilder(languageId)
+                .option("engine.WarnInterpreterOnly", "false")
+                .build();
+
+        try {
+            createdContexts.incrementAndGet();
+            PooledContext pooledContext = createContext();
+            this.exportedFunctions = Set.copyOf(pooledContext.functions.keySet());
+            idleContexts.add(pooledContext);
+        } catch (Exception e) {
+            engine.close();
+            throw new CalculatorLoadingException("Could not evaluate calculator module (%s).".formatted(source.getName()), e);
+        }
+    }
+
+    /**
+     * Borrows a context, executes the given module function with the given arguments and maps
+     * the result while the context is still held, then returns the context to the pool.
+     * <p>
+     * The mapper must fully convert the guest value; the {@link Value} must not escape the call.
+     * </p>
+     *
+     * @param functionName the exported module member to execute
+     * @param mapper       converts the guest result into a host value
+     * @param args         arguments passed to the guest function
+     * @param <T>          the mapped result type
+     * @return the mapped result
+     * @throws CalculatorException        if no context is available in time or the function does not exist
+     * @throws CalculatorTimeoutException if the call ran past the call timeout and was cancelled
+     */
+    public <T> T execute(String functionName, Function<Value, T> mapper, Object... args) throws CalculatorException {
+        PooledContext pooledContext = acquire();
+        Value function = pooledContext.functions.get(functionName);
+        if (function == null) {
+            release(pooledContext);
+            throw new CalculatorException("Calculator module does not export '%s'.".formatted(functionName));
+        }
+
+        if (callTimeoutMillis <= 0) {
+            try {
+                return mapper.apply(function.execute(args));
+            } finally {
+                release(pooledContext);
+            }
+        }
+
+        Deadline deadline = new Deadline(pooledContext);
+        deadline.schedule(callTimeoutMillis);
+        try {
+            return mapper.apply(function.execute(args));
+        } catch (PolyglotException | IllegalStateException e) {
+            if (deadline.cancelled()) {
+                throw new CalculatorTimeoutException("'%s' did not finish within %d ms and was cancelled."
+                        .formatted(functionName, callTimeoutMillis), e);
+            }
+            throw e;
+        } finally {
+            if (deadline.complete()) {
+                release(pooledContext);
+            } else {
+                discard(pooledContext);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the calculator module exports the given function.
+     * Every context evaluates the same module, so the first context is representative.
+     *
+     * @param functionName the module member to look for
+     * @return true if the module exports the function
+     */
+    public boolean exports(String functionName) {
+        return exportedFunctions.contains(functionName);
+    }
+
+    /**
+     * Returns the maximum number of contexts in this pool.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Closes all idle contexts and the shared engine. Contexts that are lent out at this
+     * moment are closed as soon as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        discardIdleContexts();
+        closeEngineIfUnused();
+
+        LOGGER.debug("Context pool for {} ({}) closed.", languageId, source.getName());
+    }
+
+    private PooledContext acquire() throws CalculatorException {
+        if (closed) {
+            throw new CalculatorException("Context pool is closed.");
+        }
+
+        PooledContext pooledContext = idleContexts.poll();
+        if (pooledContext != null) {
+            return pooledContext;
+        }
+
+        if (createdContexts.incrementAndGet() <= size) {
+            try {
+                return createContext();
+            } catch (Exception e) {
+                createdContexts.decrementAndGet();
+                throw new CalculatorException("Could not create calculator context.", e);
+            }
+        }
+        createdContexts.decrementAndGet();
+
+        try {
+            pooledContext = idleContexts.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CalculatorException("Interrupted while waiting for a calculator context.", e);
+        }
+
+        if (pooledContext == null) {
+            throw new CalculatorException("No calculator context became available within %d ms.".formatted(acquireTimeoutMillis));
+        }
+
+        return pooledContext;
+    }
+
+    private void release(PooledContext pooledContext) {
+        if (!closed && idleContexts.offer(pooledContext)) {
+            if (closed) {
+                discardIdleContexts();
+            }
+            return;
+        }
+
+        discard(pooledContext);
+    }
+
+    private void discardIdleContexts() {
+        PooledContext pooledContext;
+        while ((pooledContext = idleContexts.poll()) != null) {
+            discard(pooledContext);
+        }
+    }
+
+    private void discard(PooledContext pooledContext) {
+        pooledContext.context.close();
+        createdContexts.decrementAndGet();
+        closeEngineIfUnused();
+    }
+
+    private void closeEngineIfUnused() {
+        if (closed && createdContexts.get() == 0 && engineClosed.compareAndSet(false, true)) {
+            engine.close();
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "calculator-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private PooledContext createContext() {
+        Context context = Context.newBuilder(languageId)
+                .engine(engine)
+                .allowAllAccess(true)
+                .options(contextOptions)
+                .build();
+
+        try {
+            Value module = context.eval(source);
+
+            Map<String, Value> functions = new HashMap<>();
+            for (String functionName : functionNames) {
+                Value function = module.getMember(functionName);
+                if (function != null && !function.isNull()) {
+                    functions.put(functionName, function);
+                }
+            }
+
+            return new PooledContext(context, functions);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Deadline of one call. Exactly one of completing the call and cancelling the context wins,
+     * so a context is never returned to the pool while it is being closed.
+     */
+    private static final class Deadline implements Runnable {
+        private static final int RUNNING = 0;
+        private static final int COMPLETED = 1;
+        private static final int CANCELLED = 2;
+
+        private final PooledContext pooledContext;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private ScheduledFuture<?> future;
+
+        private Deadline(PooledContext pooledContext) {
+            this.pooledContext = pooledContext;
+        }
+
+        private void schedule(long timeoutMillis) {
+            future = DEADLINES.schedule(this, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (state.compareAndSet(RUNNING, CANCELLED)) {
+                try {
+                    pooledContext.context.close(true);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Could not cancel calculator context.", e);
+                }
+            }
+        }
+
+        /**
+         * Marks the call as completed.
+         *
+         * @return false if the deadline passed first and the context was cancelled
+         */
+        private boolean complete() {
+            future.cancel(false);
+            return state.compareAndSet(RUNNING, COMPLETED);
+        }
+
+        private boolean cancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    /**
+     * A context together with the function handles resolved from its module.
+     */
+    private static final class PooledContext {
+        private final Context context;
+        private final Map<String, Value> functions;
+
+        private PooledContext(Context context, Map<String, Value> functions) {
+            this.context = context;
+            this.functions = functions;
+        }
+    }
+}
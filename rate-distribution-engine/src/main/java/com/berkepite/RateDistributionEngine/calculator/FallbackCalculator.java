@@ -0,0 +1,170 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorFallbackException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorTimeoutException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link IRateCalculator} that answers a call with a fallback calculator when the primary one runs out of time.
+ * <p>
+ * A scripted calculator with a call timeout cancels a call that runs past its deadline and fails it with a
+ * {@link CalculatorTimeoutException}. This wrapper catches that failure, repeats the call on the fallback, usually
+ * the built-in {@link NativeCalculator}, and reports it to the error listener as a {@link CalculatorFallbackException}
+ * naming the fallback strategy, so a stuck script costs one deadline instead of the tick, and it is visible which
+ * formulas the published rates came from. Any other failure of the primary calculator is rethrown unchanged.
+ * </p>
+ */
+public class FallbackCalculator implements IRateCalculator {
+    private final IRateCalculator rateCalculator;
+    private final IRateCalculator fallbackCalculator;
+    private final BiConsumer<IRateCalculator, CalculatorException> errorListener;
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * Creates the wrapper around already initialized calculators.
+     *
+     * @param rateCalculator     the primary calculator
+     * @param fallbackCalculator the calculator used when a primary call times out
+     * @param errorListener      receives the primary calculator and a {@link CalculatorFallbackException} for every fallback
+     */
+    public FallbackCalculator(IRateCalculator rateCalculator, IRateCalculator fallbackCalculator,
+                              BiConsumer<IRateCalculator, CalculatorException> errorListener) {
+        this.rateCalculator = rateCalculator;
+        this.fallbackCalculator = fallbackCalculator;
+        this.errorListener = errorListener;
+    }
+
+    /**
+     * Returns how many calls were answered by the fallback calculator.
+     *
+     * @return the number of fallbacks since creation
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void init(String calculatorPath) throws CalculatorException {
+        rateCalculator.init(calculatorPath);
+        fallbackCalculator.init(calculatorPath);
+    }
+
+    @Override
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateCalculator.calculateMeanRate(bids, asks);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.calculateMeanRate(bids, asks);
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateCalculator.calculateForRawRateType(type, usdmid, bids, asks);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.calculateForRawRateType(type, usdmid, bids, asks);
+        }
+    }
+
+    @Override
+    public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        try {
+            return rateCalculator.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateCalculator.calculateForUSD_TRY(bids, asks);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.calculateForUSD_TRY(bids, asks);
+        }
+    }
+
+    @Override
+    public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        try {
+            return rateCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+        }
+    }
+
+    @Override
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateCalculator.calculateUSDMID(bids, asks);
+        } catch (CalculatorException e) {
+            onTimeout(e);
+            return fallbackCalculator.calculateUSDMID(bids, asks);
+        }
+    }
+
+    @Override
+    public String getStrategy() {
+        return rateCalculator.getStrategy();
+    }
+
+    @Override
+    public String getPath() {
+        return rateCalculator.getPath();
+    }
+
+    @Override
+    public Logger getLogger() {
+        return rateCalculator.getLogger();
+    }
+
+    /**
+     * Closes both calculators.
+     */
+    @Override
+    public void close() {
+        rateCalculator.close();
+        fallbackCalculator.close();
+    }
+
+    /**
+     * Reports a timeout of the primary calculator together with the fallback strategy that answers the call instead,
+     * or rethrows the failure if it was not a timeout.
+     * The scripted calculators wrap the timeout in their own exception, so the whole cause chain is searched.
+     */
+    private void onTimeout(CalculatorException e) throws CalculatorException {
+        CalculatorTimeoutException timeout = findTimeout(e);
+        if (timeout == null) {
+            throw e;
+        }
+
+        fallbacks.increment();
+        errorListener.accept(rateCalculator, new CalculatorFallbackException(timeout, fallbackCalculator.getStrategy()));
+    }
+
+    private static CalculatorTimeoutException findTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CalculatorTimeoutException timeout) {
+                return timeout;
+            }
+        }
+
+        return null;
+    }
+}
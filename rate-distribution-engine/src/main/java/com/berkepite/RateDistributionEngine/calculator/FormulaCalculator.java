@@ -0,0 +1,394 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorLoader;
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorLoadingException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link IRateCalculator} that evaluates the formulas of a declarative formula file.
+ * <p>
+ * The file consists of {@code target = expression} lines, blank lines and {@code #} comments:
+ * </p>
+ * <pre>
+ * precision = 20
+ * mean.bid = mean(bid)
+ * mean.ask = mean(ask)
+ * usdmid = (mean(USD_TRY.bid) + mean(USD_TRY.ask)) / 2
+ * diff = (abs((incoming.ask - mean.ask) / incoming.ask * 100) + abs((incoming.bid - mean.bid) / incoming.bid * 100)) / 2
+ * USD_TRY.bid = mean(USD_TRY.bid)
+ * USD_TRY.ask = mean(USD_TRY.ask)
+ * EUR_TRY.bid = mean(EUR_USD.bid) * usdmid
+ * EUR_TRY.ask = mean(EUR_USD.ask) * usdmid
+ * *.bid = mean(bid) * usdmid
+ * *.ask = mean(ask) * usdmid
+ * </pre>
+ * <p>
+ * {@code mean.*}, {@code usdmid}, {@code diff} and {@code USD_TRY.*} are required. Cross rates are looked up
+ * by their calculated type and fall back to {@code *}. A rate is dropped as an outlier when {@code diff}
+ * is at least 1. The optional {@code precision} (default 20) and {@code rounding} (default HALF_UP) directives
+ * set the {@link MathContext} every intermediate result is rounded with.
+ * </p>
+ * <p>
+ * At load time every expression is compiled by {@link FormulaCompiler} into a {@link MethodHandle} tree linked
+ * into a class of its own, so evaluation runs as plain Java the JIT can inline, without a polyglot runtime. Invalid files fail to load with the line
+ * of the first error, which also makes a broken file a rejected hot reload rather than a broken calculator.
+ * </p>
+ */
+public class FormulaCalculator implements IRateCalculator {
+    private static final int DEFAULT_PRECISION = 20;
+    private static final RoundingMode DEFAULT_ROUNDING = RoundingMode.HALF_UP;
+    private static final String WILDCARD = "*";
+    private static final double[] NO_SCALARS = new double[0];
+    private static final BigDecimal DIFF_THRESHOLD = BigDecimal.ONE;
+
+    private static final FormulaCompiler.Scope MEAN_SCOPE = new FormulaCompiler.Scope(type -> false, Map.of());
+    private static final FormulaCompiler.Scope USD_TRY_SCOPE = new FormulaCompiler.Scope("USD_TRY"::equals, Map.of());
+    private static final FormulaCompiler.Scope DIFF_SCOPE = new FormulaCompiler.Scope(type -> false,
+            Map.of("incoming.bid", 0, "incoming.ask", 1, "mean.bid", 2, "mean.ask", 3));
+    private static final Map<String, Integer> CROSS_SCALARS = Map.of("usdmid", 0);
+
+    private final Logger LOGGER = LogManager.getLogger(FormulaCalculator.class);
+    private final IRateFactory rateFactory;
+    private final IRateConverter rateConverter;
+    private final ICalculatorLoader calculatorLoader;
+    private String path;
+
+    private FormulaCompiler.Formula meanBidFormula;
+    private FormulaCompiler.Formula meanAskFormula;
+    private FormulaCompiler.Formula usdmidFormula;
+    private FormulaCompiler.Formula diffFormula;
+    private Map<String, RateFormulas> rateFormulas;
+
+    /**
+     * Constructs a FormulaCalculator with the required dependencies.
+     *
+     * @param rateFactory      factory for creating rate objects
+     * @param rateConverter    converter for rate type conversions
+     * @param calculatorLoader loader to load the formula file
+     */
+    public FormulaCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader) {
+        this.rateFactory = rateFactory;
+        this.rateConverter = rateConverter;
+        this.calculatorLoader = calculatorLoader;
+    }
+
+    /**
+     * Initializes the calculator by loading the formula file from the given path and compiling every formula.
+     *
+     * @param calculatorPath path to the formula file
+     * @throws CalculatorException if the file cannot be loaded or contains an invalid formula
+     */
+    @Override
+    public void init(String calculatorPath) throws CalculatorException {
+        setPath(calculatorPath);
+
+        List<String> lines;
+        try {
+            Path _path = calculatorLoader.load(calculatorPath);
+            lines = Files.readAllLines(_path);
+        } catch (IOException e) {
+            throw new CalculatorLoadingException("Could not load calculator source.", e);
+        }
+
+        compile(lines);
+    }
+
+    /**
+     * Calculates the mean bid and ask rates with the {@code mean.bid} and {@code mean.ask} formulas.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the calculated {@link MeanRate}
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateFactory.createMeanRate(
+                    meanBidFormula.evaluate(bids, asks, NO_SCALARS).doubleValue(),
+                    meanAskFormula.evaluate(bids, asks, NO_SCALARS).doubleValue());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate mean rate.", e);
+        }
+    }
+
+    /**
+     * Calculates a rate for a specified raw rate type with the formulas of its calculated type,
+     * or the {@code *} formulas if it has none.
+     *
+     * @param type   the raw rate type identifier
+     * @param usdmid the USD mid price
+     * @param bids   array of bid prices
+     * @param asks   array of ask prices
+     * @return the calculated {@link CalculatedRate}
+     * @throws CalculatorException if there is no formula for the type or the calculation fails
+     */
+    @Override
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        String calcType = rateConverter.convertFromRawToCalc(type);
+        RateFormulas formulas = rateFormulas.getOrDefault(calcType, rateFormulas.get(WILDCARD));
+        if (formulas == null) {
+            throw new CalculatorException("No formula for %s in %s.".formatted(calcType, path));
+        }
+
+        try {
+            double[] scalars = {usdmid};
+
+            return rateFactory.createCalcRate(calcType,
+                    formulas.bid().evaluate(bids, asks, scalars).doubleValue(),
+                    formulas.ask().evaluate(bids, asks, scalars).doubleValue(),
+                    Instant.now());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for raw rate %s.".formatted(type), e);
+        }
+    }
+
+    /**
+     * Calculates the USD_TRY rate with the {@code USD_TRY.bid} and {@code USD_TRY.ask} formulas.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the calculated {@link CalculatedRate}
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        RateFormulas formulas = rateFormulas.get("USD_TRY");
+
+        try {
+            return rateFactory.createCalcRate(rateConverter.convertFromRawToCalc("USD_TRY"),
+                    formulas.bid().evaluate(bids, asks, NO_SCALARS).doubleValue(),
+                    formulas.ask().evaluate(bids, asks, NO_SCALARS).doubleValue(),
+                    Instant.now());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for USD_TRY.", e);
+        }
+    }
+
+    /**
+     * Checks whether the {@code diff} formula evaluates to at least one percent.
+     *
+     * @param incomingRate the new incoming raw rate
+     * @param meanRate     the mean rate to compare against
+     * @return true if the difference is at least one percent; false otherwise
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        try {
+            double[] scalars = {incomingRate.getBid(), incomingRate.getAsk(), meanRate.getMeanBid(), meanRate.getMeanAsk()};
+
+            return diffFormula.evaluate(NO_SCALARS, NO_SCALARS, scalars).compareTo(DIFF_THRESHOLD) >= 0;
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate one percent difference.", e);
+        }
+    }
+
+    /**
+     * Calculates the USD mid rate with the {@code usdmid} formula.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the USD mid rate value
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return usdmidFormula.evaluate(bids, asks, NO_SCALARS).doubleValue();
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for usdmid.", e);
+        }
+    }
+
+    /**
+     * Returns the strategy name for this calculator implementation.
+     *
+     * @return the string "FORMULA"
+     */
+    @Override
+    public String getStrategy() {
+        return "FORMULA";
+    }
+
+    /**
+     * Returns the path to the formula file.
+     *
+     * @return the file path as a string
+     */
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the logger used by this class.
+     *
+     * @return the {@link Logger} instance
+     */
+    @Override
+    public Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Reads the directives of the file, then compiles every formula with the resulting {@link MathContext}.
+     */
+    private void compile(List<String> lines) throws CalculatorLoadingException {
+        int precision = DEFAULT_PRECISION;
+        RoundingMode rounding = DEFAULT_ROUNDING;
+        Map<String, Integer> targetLines = new LinkedHashMap<>();
+        Map<String, String> expressions = new HashMap<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw new CalculatorLoadingException("Expected 'target = expression' at line %d of %s.".formatted(i + 1, path));
+            }
+
+            String target = line.substring(0, equals).strip();
+            String expression = line.substring(equals + 1).strip();
+
+            try {
+                switch (target) {
+                    case "precision" -> precision = Integer.parseInt(expression);
+                    case "rounding" -> rounding = RoundingMode.valueOf(expression);
+                    default -> {
+                        if (targetLines.putIfAbsent(target, i + 1) != null) {
+                            throw new CalculatorLoadingException("Duplicate formula for %s at line %d of %s.".formatted(target, i + 1, path));
+                        }
+                        expressions.put(target, expression);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new CalculatorLoadingException("Invalid %s at line %d of %s.".formatted(target, i + 1, path), e);
+            }
+        }
+
+        if (precision <= 0) {
+            throw new CalculatorLoadingException("Precision must be positive in %s.".formatted(path));
+        }
+
+        FormulaCompiler compiler = new FormulaCompiler(new MathContext(precision, rounding));
+        Map<String, FormulaCompiler.Formula> compiled = new HashMap<>();
+        for (Map.Entry<String, Integer> targetLine : targetLines.entrySet()) {
+            String target = targetLine.getKey();
+            try {
+                compiled.put(target, compiler.compile(expressions.get(target), scopeOf(target)));
+            } catch (CalculatorLoadingException e) {
+                throw new CalculatorLoadingException("Invalid formula at line %d of %s.".formatted(targetLine.getValue(), path), e);
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String required : List.of("mean.bid", "mean.ask", "usdmid", "diff", "USD_TRY.bid", "USD_TRY.ask")) {
+            if (!compiled.containsKey(required)) {
+                missing.add(required);
+            }
+        }
+
+        Map<String, RateFormulas> rates = new HashMap<>();
+        for (String target : targetLines.keySet()) {
+            if (target.endsWith(".bid") || target.endsWith(".ask")) {
+                String type = target.substring(0, target.length() - ".bid".length());
+                if (type.equals("mean")) {
+                    continue;
+                }
+
+                FormulaCompiler.Formula bid = compiled.get(type + ".bid");
+                FormulaCompiler.Formula ask = compiled.get(type + ".ask");
+                if (bid == null || ask == null) {
+                    missing.add(bid == null ? type + ".bid" : type + ".ask");
+                } else {
+                    rates.put(type, new RateFormulas(bid, ask));
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            throw new CalculatorLoadingException("Missing formulas %s in %s.".formatted(missing.stream().distinct().toList(), path));
+        }
+
+        meanBidFormula = compiled.get("mean.bid");
+        meanAskFormula = compiled.get("mean.ask");
+        usdmidFormula = compiled.get("usdmid");
+        diffFormula = compiled.get("diff");
+        rateFormulas = Map.copyOf(rates);
+
+        LOGGER.info("Compiled {} formulas from {} with precision {} and rounding {}.", compiled.size(), path, precision, rounding);
+    }
+
+    /**
+     * Returns the identifiers a target's formula may use.
+     */
+    private FormulaCompiler.Scope scopeOf(String target) throws CalculatorLoadingException {
+        switch (target) {
+            case "mean.bid", "mean.ask" -> {
+                return MEAN_SCOPE;
+            }
+            case "usdmid", "USD_TRY.bid", "USD_TRY.ask" -> {
+                return USD_TRY_SCOPE;
+            }
+            case "diff" -> {
+                return DIFF_SCOPE;
+            }
+        }
+
+        if (!target.endsWith(".bid") && !target.endsWith(".ask")) {
+            throw new CalculatorLoadingException("Unknown target %s.".formatted(target));
+        }
+
+        String calcType = target.substring(0, target.length() - ".bid".length());
+        if (calcType.equals(WILDCARD)) {
+            return new FormulaCompiler.Scope(type -> false, CROSS_SCALARS);
+        }
+
+        // TYPE.bid may only refer to the raw rate that is calculated into this target, e.g. EUR_USD for EUR_TRY.
+        return new FormulaCompiler.Scope(rawType -> convertsTo(rawType, calcType), CROSS_SCALARS);
+    }
+
+    private boolean convertsTo(String rawType, String calcType) {
+        try {
+            return rateConverter.convertFromRawToCalc(rawType).equals(calcType);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Compiled bid and ask formulas of one calculated rate type.
+     */
+    private record RateFormulas(FormulaCompiler.Formula bid, FormulaCompiler.Formula ask) {
+    }
+}
@@ -0,0 +1,407 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorLoadingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Compiles formula expressions into {@link MethodHandle} trees.
+ * <p>
+ * Every compiled expression has the type {@code (double[] bids, double[] asks, double[] scalars)BigDecimal}.
+ * Numbers become constant handles, operators and functions become {@link BigDecimal} methods bound to the
+ * configured {@link MathContext}, and sub-expressions are combined with {@link MethodHandles#collectArguments}
+ * and {@link MethodHandles#permuteArguments}. There is no interpreter loop left at evaluation time.
+ * </p>
+ * <p>
+ * A handle held in a field or a map is not constant to the JIT, which then calls through the tree instead of
+ * inlining it. Each tree is therefore linked into a hidden class of its own, a copy of {@link CompiledFormula}
+ * holding it in a {@code static final} field, so the JIT can inline the whole tree like hand-written Java.
+ * </p>
+ * <p>
+ * Grammar: {@code + - * /} with the usual precedence, unary minus, parentheses, decimal numbers,
+ * scalar identifiers of the {@link Scope}, {@code abs(expression)} and the array functions
+ * {@code mean, sum, min, max, count} applied to {@code bid}, {@code ask} or {@code TYPE.bid}, {@code TYPE.ask}.
+ * </p>
+ */
+final class FormulaCompiler {
+    static final MethodType FORMULA_TYPE = MethodType.methodType(BigDecimal.class, double[].class, double[].class, double[].class);
+
+    private static final int BIDS = 0;
+    private static final int ASKS = 1;
+
+    private static final MethodHandle READ_SCALAR;
+    private static final MethodHandle ADD;
+    private static final MethodHandle SUBTRACT;
+    private static final MethodHandle MULTIPLY;
+    private static final MethodHandle DIVIDE;
+    private static final MethodHandle NEGATE;
+    private static final MethodHandle ABS;
+    private static final Map<String, MethodHandle> ARRAY_FUNCTIONS;
+    private static final byte[] COMPILED_FORMULA_TEMPLATE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType binary = MethodType.methodType(BigDecimal.class, BigDecimal.class, MathContext.class);
+            MethodType unary = MethodType.methodType(BigDecimal.class, MathContext.class);
+            MethodType arrayFunction = MethodType.methodType(BigDecimal.class, double[].class, MathContext.class);
+
+            READ_SCALAR = lookup.findStatic(FormulaCompiler.class, "readScalar",
+                    MethodType.methodType(BigDecimal.class, double[].class, int.class));
+            ADD = lookup.findVirtual(BigDecimal.class, "add", binary);
+            SUBTRACT = lookup.findVirtual(BigDecimal.class, "subtract", binary);
+            MULTIPLY = lookup.findVirtual(BigDecimal.class, "multiply", binary);
+            DIVIDE = lookup.findVirtual(BigDecimal.class, "divide", binary);
+            NEGATE = lookup.findVirtual(BigDecimal.class, "negate", unary);
+            ABS = lookup.findVirtual(BigDecimal.class, "abs", unary);
+            ARRAY_FUNCTIONS = Map.of(
+                    "mean", lookup.findStatic(FormulaCompiler.class, "mean", arrayFunction),
+                    "sum", lookup.findStatic(FormulaCompiler.class, "sum", arrayFunction),
+                    "min", lookup.findStatic(FormulaCompiler.class, "min", arrayFunction),
+                    "max", lookup.findStatic(FormulaCompiler.class, "max", arrayFunction),
+                    "count", lookup.findStatic(FormulaCompiler.class, "count", arrayFunction));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+        try (InputStream template = FormulaCompiler.class.getResourceAsStream(CompiledFormula.class.getSimpleName() + ".class")) {
+            if (template == null) {
+                throw new ExceptionInInitializerError("Class file of %s not found.".formatted(CompiledFormula.class.getName()));
+            }
+            COMPILED_FORMULA_TEMPLATE = template.readAllBytes();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A compiled formula.
+     */
+    interface Formula {
+        /**
+         * Evaluates the formula.
+         *
+         * @param bids    the bids its array functions read
+         * @param asks    the asks its array functions read
+         * @param scalars the values of its scalar identifiers, by slot
+         * @return the result, rounded with the compiler's {@link MathContext}
+         */
+        BigDecimal evaluate(double[] bids, double[] asks, double[] scalars);
+    }
+
+    private final MathContext mathContext;
+
+    /**
+     * Creates a compiler that rounds every intermediate result with the given context.
+     *
+     * @param mathContext precision and rounding of the compiled formulas
+     */
+    FormulaCompiler(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression to compile
+     * @param scope      the identifiers the expression may use
+     * @return the formula, linked into a class of its own
+     * @throws CalculatorLoadingException if the expression is invalid
+     */
+    Formula compile(String expression, Scope scope) throws CalculatorLoadingException {
+        return link(new Parser(expression, scope).parse());
+    }
+
+    /**
+     * Defines a hidden copy of {@link CompiledFormula} with the handle as its class data and creates an instance.
+     * The class is unloaded with the last reference to the formula, for example after a hot reload.
+     *
+     * @param handle a handle of {@link #FORMULA_TYPE}
+     */
+    private static Formula link(MethodHandle handle) throws CalculatorLoadingException {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(COMPILED_FORMULA_TEMPLATE, handle, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+            return (Formula) constructor.invoke();
+        } catch (Throwable e) {
+            throw new CalculatorLoadingException("Could not link the compiled formula.", e);
+        }
+    }
+
+    /**
+     * Identifiers an expression may use.
+     *
+     * @param arrayTypes which {@code TYPE} prefixes may be used for {@code TYPE.bid} and {@code TYPE.ask}
+     * @param scalars    the scalar identifiers and their slot in the scalars argument
+     */
+    record Scope(Predicate<String> arrayTypes, Map<String, Integer> scalars) {
+    }
+
+    private final class Parser {
+        private final String expression;
+        private final Scope scope;
+        private int position;
+
+        private Parser(String expression, Scope scope) {
+            this.expression = expression;
+            this.scope = scope;
+        }
+
+        private MethodHandle parse() throws CalculatorLoadingException {
+            MethodHandle handle = parseSum();
+            skipWhitespace();
+            if (position < expression.length()) {
+                throw error("Unexpected '%s'".formatted(expression.charAt(position)));
+            }
+
+            return handle;
+        }
+
+        private MethodHandle parseSum() throws CalculatorLoadingException {
+            MethodHandle left = parseProduct();
+            while (true) {
+                if (accept('+')) {
+                    left = binary(ADD, left, parseProduct());
+                } else if (accept('-')) {
+                    left = binary(SUBTRACT, left, parseProduct());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private MethodHandle parseProduct() throws CalculatorLoadingException {
+            MethodHandle left = parseUnary();
+            while (true) {
+                if (accept('*')) {
+                    left = binary(MULTIPLY, left, parseUnary());
+                } else if (accept('/')) {
+                    left = binary(DIVIDE, left, parseUnary());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private MethodHandle parseUnary() throws CalculatorLoadingException {
+            if (accept('-')) {
+                return unary(NEGATE, parseUnary());
+            }
+
+            return parsePrimary();
+        }
+
+        private MethodHandle parsePrimary() throws CalculatorLoadingException {
+            if (accept('(')) {
+                MethodHandle handle = parseSum();
+                expect(')');
+                return handle;
+            }
+
+            skipWhitespace();
+            if (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+                return constant(parseNumber());
+            }
+
+            String identifier = parseIdentifier();
+            if (accept('(')) {
+                return parseFunction(identifier);
+            }
+
+            Integer slot = scope.scalars().get(identifier);
+            if (slot == null) {
+                throw error(isArray(identifier)
+                        ? "%s is an array, aggregate it with mean, sum, min, max or count".formatted(identifier)
+                        : "Unknown identifier %s".formatted(identifier));
+            }
+
+            return scalar(slot);
+        }
+
+        private MethodHandle parseFunction(String name) throws CalculatorLoadingException {
+            MethodHandle arrayFunction = ARRAY_FUNCTIONS.get(name);
+            if (arrayFunction != null) {
+                String identifier = parseIdentifier();
+                if (!isArray(identifier)) {
+                    throw error("%s expects bid, ask, TYPE.bid or TYPE.ask but got %s".formatted(name, identifier));
+                }
+                expect(')');
+                return array(arrayFunction, identifier.endsWith("bid") ? BIDS : ASKS);
+            }
+
+            if (name.equals("abs")) {
+                MethodHandle handle = parseSum();
+                expect(')');
+                return unary(ABS, handle);
+            }
+
+            throw error("Unknown function %s".formatted(name));
+        }
+
+        private BigDecimal parseNumber() throws CalculatorLoadingException {
+            int start = position;
+            while (position < expression.length()
+                    && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+                position++;
+            }
+
+            try {
+                return new BigDecimal(expression.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number %s".formatted(expression.substring(start, position)));
+            }
+        }
+
+        private String parseIdentifier() throws CalculatorLoadingException {
+            skipWhitespace();
+            int start = position;
+            while (position < expression.length()) {
+                char c = expression.charAt(position);
+                if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+                    break;
+                }
+                position++;
+            }
+
+            if (start == position) {
+                throw error(position < expression.length()
+                        ? "Unexpected '%s'".formatted(expression.charAt(position))
+                        : "Unexpected end of expression");
+            }
+
+            return expression.substring(start, position);
+        }
+
+        private boolean isArray(String identifier) {
+            if (identifier.equals("bid") || identifier.equals("ask")) {
+                return true;
+            }
+
+            int dot = identifier.lastIndexOf('.');
+            if (dot <= 0) {
+                return false;
+            }
+
+            String field = identifier.substring(dot + 1);
+            return (field.equals("bid") || field.equals("ask")) && scope.arrayTypes().test(identifier.substring(0, dot));
+        }
+
+        private boolean accept(char c) {
+            skipWhitespace();
+            if (position < expression.length() && expression.charAt(position) == c) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private void expect(char c) throws CalculatorLoadingException {
+            if (!accept(c)) {
+                throw error("Expected '%s'".formatted(c));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private CalculatorLoadingException error(String message) {
+            return new CalculatorLoadingException("%s at position %d of '%s'.".formatted(message, position + 1, expression));
+        }
+    }
+
+    private static MethodHandle constant(BigDecimal value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(BigDecimal.class, value), 0, FORMULA_TYPE.parameterList());
+    }
+
+    private static MethodHandle scalar(int slot) {
+        MethodHandle handle = MethodHandles.insertArguments(READ_SCALAR, 1, slot);
+        return MethodHandles.dropArguments(handle, 0, double[].class, double[].class);
+    }
+
+    private MethodHandle array(MethodHandle function, int array) {
+        MethodHandle handle = MethodHandles.insertArguments(function, 1, mathContext);
+        if (array == BIDS) {
+            return MethodHandles.dropArguments(handle, 1, double[].class, double[].class);
+        }
+
+        return MethodHandles.dropArguments(MethodHandles.dropArguments(handle, 0, double[].class), 2, double[].class);
+    }
+
+    private MethodHandle unary(MethodHandle operation, MethodHandle operand) {
+        return MethodHandles.collectArguments(MethodHandles.insertArguments(operation, 1, mathContext), 0, operand);
+    }
+
+    private MethodHandle binary(MethodHandle operation, MethodHandle left, MethodHandle right) {
+        MethodHandle handle = MethodHandles.insertArguments(operation, 2, mathContext);
+        handle = MethodHandles.collectArguments(handle, 1, right);
+        handle = MethodHandles.collectArguments(handle, 0, left);
+        return MethodHandles.permuteArguments(handle, FORMULA_TYPE, 0, 1, 2, 0, 1, 2);
+    }
+
+    private static BigDecimal readScalar(double[] scalars, int slot) {
+        return toDecimal(scalars[slot]);
+    }
+
+    private static BigDecimal mean(double[] values, MathContext mathContext) {
+        requireNotEmpty(values);
+        return sum(values, mathContext).divide(BigDecimal.valueOf(values.length), mathContext);
+    }
+
+    private static BigDecimal sum(double[] values, MathContext mathContext) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value : values) {
+            sum = sum.add(toDecimal(value), mathContext);
+        }
+
+        return sum;
+    }
+
+    private static BigDecimal min(double[] values, MathContext mathContext) {
+        requireNotEmpty(values);
+        double min = values[0];
+        for (double value : values) {
+            min = Math.min(min, value);
+        }
+
+        return toDecimal(min).round(mathContext);
+    }
+
+    private static BigDecimal max(double[] values, MathContext mathContext) {
+        requireNotEmpty(values);
+        double max = values[0];
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+
+        return toDecimal(max).round(mathContext);
+    }
+
+    private static BigDecimal count(double[] values, MathContext mathContext) {
+        return BigDecimal.valueOf(values.length);
+    }
+
+    private static void requireNotEmpty(double[] values) {
+        if (values.length == 0) {
+            throw new ArithmeticException("Cannot aggregate an empty array.");
+        }
+    }
+
+    /**
+     * Converts a double through its shortest decimal representation, like {@link NativeCalculator} does.
+     */
+    private static BigDecimal toDecimal(double value) {
+        return new BigDecimal(Double.toString(value));
+    }
+}
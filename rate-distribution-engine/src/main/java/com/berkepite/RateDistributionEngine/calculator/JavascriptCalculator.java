@@ -11,12 +11,14 @@ import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Javascript-based implementation of {@link IRateCalculator} that evaluates
@@ -27,6 +29,10 @@ import java.time.Instant;
  * and USD mid rate, as well as a method to check if there is at least a
  * one percent difference between given rates.
  * </p>
+ * <p>
+ * Calls are executed on a {@link ContextPool}, so the module is evaluated once per
+ * pooled context rather than once per call.
+ * </p>
  */
 public class JavascriptCalculator implements IRateCalculator {
 
@@ -34,25 +40,62 @@ public class JavascriptCalculator implements IRateCalculator {
     private final IRateFactory rateFactory;
     private final IRateConverter rateConverter;
     private final ICalculatorLoader calculatorLoader;
-    private Source source;
+    private final int poolSize;
+    private final long acquireTimeoutMillis;
+    private final long callTimeoutMillis;
+    private ContextPool contextPool;
     private String path;
 
     /**
-     * Constructs a JavascriptCalculator with the required dependencies.
+     * Constructs a JavascriptCalculator with the required dependencies
+     * and the default context pool settings.
      *
      * @param rateFactory      factory for creating rate objects
      * @param rateConverter    converter for rate type conversions
      * @param calculatorLoader loader to load the JavaScript calculator file
      */
     public JavascriptCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader) {
+        this(rateFactory, rateConverter, calculatorLoader, ContextPool.DEFAULT_SIZE, ContextPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a JavascriptCalculator with the required dependencies and context pool settings.
+     *
+     * @param rateFactory          factory for creating rate objects
+     * @param rateConverter        converter for rate type conversions
+     * @param calculatorLoader     loader to load the JavaScript calculator file
+     * @param poolSize             maximum number of pooled JavaScript contexts
+     * @param acquireTimeoutMillis how long a call may wait for a free context
+     */
+    public JavascriptCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader,
+                                int poolSize, long acquireTimeoutMillis) {
+        this(rateFactory, rateConverter, calculatorLoader, poolSize, acquireTimeoutMillis, 0);
+    }
+
+    /**
+     * Constructs a JavascriptCalculator with the required dependencies, context pool settings
+     * and a per-call deadline.
+     *
+     * @param rateFactory          factory for creating rate objects
+     * @param rateConverter        converter for rate type conversions
+     * @param calculatorLoader     loader to load the JavaScript calculator file
+     * @param poolSize             maximum number of pooled JavaScript contexts
+     * @param acquireTimeoutMillis how long a call may wait for a free context
+     * @param callTimeoutMillis    how long a call may run before it is cancelled; 0 for no limit
+     */
+    public JavascriptCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader,
+                                int poolSize, long acquireTimeoutMillis, long callTimeoutMillis) {
         this.rateFactory = rateFactory;
         this.calculatorLoader = calculatorLoader;
         this.rateConverter = rateConverter;
+        this.poolSize = poolSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
     }
 
     /**
      * Initializes the calculator by loading the JavaScript source file
-     * from the given path.
+     * from the given path and evaluating it into a context pool.
      *
      * @param calculatorPath path to the JavaScript calculator file
      * @throws CalculatorException if the source file cannot be loaded
@@ -60,6 +103,7 @@ public class JavascriptCalculator implements IRateCalculator {
     @Override
     public void init(String calculatorPath) throws CalculatorException {
         setPath(calculatorPath);
+        Source source;
         try {
             Path _path = calculatorLoader.load(calculatorPath);
             source = Source.newBuilder("js", _path.toFile())
@@ -68,6 +112,12 @@ public class JavascriptCalculator implements IRateCalculator {
         } catch (Exception e) {
             throw new CalculatorLoadingException("Could not load calculator source.", e);
         }
+
+        contextPool = new ContextPool("js", source,
+                Map.of("js.esm-eval-returns-exports", "true"),
+                List.of("calculateMeanRate", "hasAtLeastOnePercentDiff", "calculateUSDMID",
+                        "calculateForRawRateType", "calculateForRawRateTypes", "calculateForUSD_TRY"),
+                poolSize, acquireTimeoutMillis, callTimeoutMillis);
     }
 
     /**
@@ -80,18 +130,11 @@ public class JavascriptCalculator implements IRateCalculator {
      * @throws CalculatorException if the calculation fails
      */
     @Override
-    public MeanRate calculateMeanRate(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("js")
-                .allowAllAccess(true)
-                .option("js.esm-eval-returns-exports", "true")
-                .build()) {
-            Value module = context.eval(source);
-            Value calculateMean = module.getMember("calculateMeanRate");
-            Value result = calculateMean.execute(bids, asks);
-
-            return rateFactory.createMeanRate(
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return contextPool.execute("calculateMeanRate", result -> rateFactory.createMeanRate(
                     result.getArrayElement(0).asDouble(),
-                    result.getArrayElement(1).asDouble());
+                    result.getArrayElement(1).asDouble()), bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate mean rate.", e);
         }
@@ -109,26 +152,68 @@ public class JavascriptCalculator implements IRateCalculator {
      * @throws CalculatorException if the calculation fails
      */
     @Override
-    public CalculatedRate calculateForRawRateType(String type, Double usdmid, Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("js")
-                .allowAllAccess(true)
-                .option("js.esm-eval-returns-exports", "true")
-                .build()) {
-            Value module = context.eval(source);
-            Value m_calculateForRawRateType = module.getMember("calculateForRawRateType");
-            Value result = m_calculateForRawRateType.execute(usdmid, bids, asks);
-
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        try {
             String calcRateType = rateConverter.convertFromRawToCalc(type);
 
-            return rateFactory.createCalcRate(calcRateType,
+            return contextPool.execute("calculateForRawRateType", result -> rateFactory.createCalcRate(calcRateType,
                     result.getArrayElement(0).asDouble(),
                     result.getArrayElement(1).asDouble(),
-                    Instant.now());
+                    Instant.now()), usdmid, bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for raw rate %s.".formatted(type), e);
         }
     }
 
+    /**
+     * Calculates the rates for several raw rate types with a single call into the
+     * JavaScript module, using the same USD mid price for every type.
+     * <p>
+     * If the module does not export {@code calculateForRawRateTypes}, the types are
+     * calculated one by one instead.
+     * </p>
+     *
+     * @param usdmid             the USD mid price
+     * @param bidsAndAsksPerType bid and ask arrays keyed by raw rate type
+     * @return the calculated rates, in the iteration order of the given map
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        if (!contextPool.exports("calculateForRawRateTypes")) {
+            return IRateCalculator.super.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        }
+
+        try {
+            List<String> calcRateTypes = new ArrayList<>(bidsAndAsksPerType.size());
+            double[][] bidsPerType = new double[bidsAndAsksPerType.size()][];
+            double[][] asksPerType = new double[bidsAndAsksPerType.size()][];
+
+            int i = 0;
+            for (Map.Entry<String, List<double[]>> entry : bidsAndAsksPerType.entrySet()) {
+                calcRateTypes.add(rateConverter.convertFromRawToCalc(entry.getKey()));
+                bidsPerType[i] = entry.getValue().get(0);
+                asksPerType[i] = entry.getValue().get(1);
+                i++;
+            }
+
+            return contextPool.execute("calculateForRawRateTypes", result -> {
+                Instant now = Instant.now();
+                List<CalculatedRate> calcRates = new ArrayList<>(calcRateTypes.size());
+                for (int j = 0; j < calcRateTypes.size(); j++) {
+                    Value rate = result.getArrayElement(j);
+                    calcRates.add(rateFactory.createCalcRate(calcRateTypes.get(j),
+                            rate.getArrayElement(0).asDouble(),
+                            rate.getArrayElement(1).asDouble(),
+                            now));
+                }
+                return calcRates;
+            }, usdmid, bidsPerType, asksPerType);
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for raw rates %s.".formatted(bidsAndAsksPerType.keySet()), e);
+        }
+    }
+
     /**
      * Calculates the USD_TRY rate based on the given bids and asks
      * by invoking the corresponding JavaScript function.
@@ -139,21 +224,14 @@ public class JavascriptCalculator implements IRateCalculator {
      * @throws CalculatorException if the calculation fails
      */
     @Override
-    public CalculatedRate calculateForUSD_TRY(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("js")
-                .allowAllAccess(true)
-                .option("js.esm-eval-returns-exports", "true")
-                .build()) {
-            Value module = context.eval(source);
-            Value m_calculateForUSD_TRY = module.getMember("calculateForUSD_TRY");
-            Value result = m_calculateForUSD_TRY.execute(bids, asks);
-
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        try {
             String calcRateType = rateConverter.convertFromRawToCalc("USD_TRY");
 
-            return rateFactory.createCalcRate(calcRateType,
+            return contextPool.execute("calculateForUSD_TRY", result -> rateFactory.createCalcRate(calcRateType,
                     result.getArrayElement(0).asDouble(),
                     result.getArrayElement(1).asDouble(),
-                    Instant.now());
+                    Instant.now()), bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for USD_TRY.", e);
         }
@@ -171,17 +249,9 @@ public class JavascriptCalculator implements IRateCalculator {
      */
     @Override
     public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
-        try (Context context = Context.newBuilder("js")
-                .allowAllAccess(true)
-                .option("js.esm-eval-returns-exports", "true")
-                .build()) {
-            Value module = context.eval(source);
-            Value hasAtLeastOnePercentDiff = module.getMember("hasAtLeastOnePercentDiff");
-
-            Value result = hasAtLeastOnePercentDiff.execute(
+        try {
+            return contextPool.execute("hasAtLeastOnePercentDiff", Value::asBoolean,
                     incomingRate.getBid(), incomingRate.getAsk(), meanRate.getMeanBid(), meanRate.getMeanAsk());
-
-            return result.asBoolean();
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate one percent difference.", e);
         }
@@ -197,22 +267,24 @@ public class JavascriptCalculator implements IRateCalculator {
      * @throws CalculatorException if the calculation fails
      */
     @Override
-    public Double calculateUSDMID(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("js")
-                .allowAllAccess(true)
-                .option("js.esm-eval-returns-exports", "true")
-                .build()) {
-            Value module = context.eval(source);
-            Value calculateUSDMID = module.getMember("calculateUSDMID");
-
-            Value result = calculateUSDMID.execute(bids, asks);
-
-            return result.asDouble();
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return contextPool.execute("calculateUSDMID", Value::asDouble, bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for usdmid.", e);
         }
     }
 
+    /**
+     * Closes the context pool and its shared engine.
+     */
+    @Override
+    public void close() {
+        if (contextPool != null) {
+            contextPool.close();
+        }
+    }
+
     /**
      * Returns the strategy name for this calculator implementation.
      *
@@ -0,0 +1,326 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IRateCalculator} that remembers the results of its delegate by input, so repeated inputs skip the calculator.
+ * <p>
+ * Providers often resend an identical bid and ask, and the USD mid rate often does not move, which makes
+ * {@code calculateMeanRate}, {@code calculateUSDMID} and {@code calculateForRawRateType} recompute what they
+ * produced a moment ago. Each of these operations has its own bounded LRU cache, keyed by the rate type,
+ * the USD mid rate and the bid and ask vectors. The key hash is computed once from the primitive values;
+ * entries are still compared element by element, so a hash collision can never return a wrong result.
+ * </p>
+ * <p>
+ * Only the numbers are cached. Every hit returns a new {@link MeanRate} or {@link CalculatedRate}, with a
+ * fresh timestamp, so callers never share or see stale rate objects.
+ * </p>
+ */
+public class MemoizingCalculator implements IRateCalculator {
+    private final IRateCalculator rateCalculator;
+    private final IRateFactory rateFactory;
+    private final Map<Operation, Memo> memos = new EnumMap<>(Operation.class);
+
+    /**
+     * Creates the memoizing wrapper around an already initialized calculator.
+     *
+     * @param rateCalculator the calculator whose results are cached
+     * @param rateFactory    factory for the rates returned on a hit
+     * @param size           maximum number of cached inputs per operation
+     */
+    public MemoizingCalculator(IRateCalculator rateCalculator, IRateFactory rateFactory, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memo size must be positive: " + size);
+        }
+
+        this.rateCalculator = rateCalculator;
+        this.rateFactory = rateFactory;
+        for (Operation operation : Operation.values()) {
+            memos.put(operation, new Memo(size));
+        }
+    }
+
+    /**
+     * Returns the hit and miss counters of an operation.
+     *
+     * @param operation the memoized operation
+     * @return a snapshot of its statistics
+     */
+    public Statistics getStatistics(Operation operation) {
+        return memos.get(operation).statistics();
+    }
+
+    @Override
+    public void init(String calculatorPath) throws CalculatorException {
+        rateCalculator.init(calculatorPath);
+    }
+
+    @Override
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        Memo memo = memos.get(Operation.MEAN_RATE);
+        InputKey key = new InputKey(null, null, bids, asks);
+
+        double[] result = memo.get(key);
+        if (result == null) {
+            MeanRate meanRate = rateCalculator.calculateMeanRate(bids, asks);
+            memo.put(key, new double[]{meanRate.getMeanBid(), meanRate.getMeanAsk()});
+            return meanRate;
+        }
+
+        return rateFactory.createMeanRate(result[0], result[1]);
+    }
+
+    @Override
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        Memo memo = memos.get(Operation.RAW_RATE_TYPE);
+        InputKey key = new InputKey(type, usdmid, bids, asks);
+
+        CalculatedRate cached = memo.getRate(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CalculatedRate calcRate = rateCalculator.calculateForRawRateType(type, usdmid, bids, asks);
+        memo.putRate(key, calcRate);
+        return calcRate;
+    }
+
+    /**
+     * Answers cached types from the memo and calculates only the remaining ones, in one call to the delegate.
+     */
+    @Override
+    public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        Memo memo = memos.get(Operation.RAW_RATE_TYPE);
+        CalculatedRate[] calcRates = new CalculatedRate[bidsAndAsksPerType.size()];
+        Map<String, List<double[]>> missing = new LinkedHashMap<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        List<InputKey> missingKeys = new ArrayList<>();
+
+        int index = 0;
+        for (Map.Entry<String, List<double[]>> entry : bidsAndAsksPerType.entrySet()) {
+            InputKey key = new InputKey(entry.getKey(), usdmid, entry.getValue().get(0), entry.getValue().get(1));
+            calcRates[index] = memo.getRate(key);
+            if (calcRates[index] == null) {
+                missing.put(entry.getKey(), entry.getValue());
+                missingIndexes.add(index);
+                missingKeys.add(key);
+            }
+            index++;
+        }
+
+        if (!missing.isEmpty()) {
+            List<CalculatedRate> calculated = rateCalculator.calculateForRawRateTypes(usdmid, missing);
+            for (int i = 0; i < calculated.size(); i++) {
+                calcRates[missingIndexes.get(i)] = calculated.get(i);
+                memo.putRate(missingKeys.get(i), calculated.get(i));
+            }
+        }
+
+        return Arrays.asList(calcRates);
+    }
+
+    @Override
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        return rateCalculator.calculateForUSD_TRY(bids, asks);
+    }
+
+    @Override
+    public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        return rateCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+    }
+
+    @Override
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        Memo memo = memos.get(Operation.USDMID);
+        InputKey key = new InputKey(null, null, bids, asks);
+
+        double[] result = memo.get(key);
+        if (result == null) {
+            Double usdmid = rateCalculator.calculateUSDMID(bids, asks);
+            memo.put(key, new double[]{usdmid});
+            return usdmid;
+        }
+
+        return result[0];
+    }
+
+    @Override
+    public String getStrategy() {
+        return rateCalculator.getStrategy();
+    }
+
+    @Override
+    public String getPath() {
+        return rateCalculator.getPath();
+    }
+
+    @Override
+    public Logger getLogger() {
+        return rateCalculator.getLogger();
+    }
+
+    /**
+     * Logs the memo statistics and closes the delegate.
+     */
+    @Override
+    public void close() {
+        memos.forEach((operation, memo) -> getLogger().info("{} memo of {} calculator: {}", operation, getStrategy(), memo.statistics()));
+        rateCalculator.close();
+    }
+
+    /**
+     * The memoized operations.
+     */
+    public enum Operation {
+        MEAN_RATE,
+        USDMID,
+        RAW_RATE_TYPE
+    }
+
+    /**
+     * Hit and miss counters of one operation.
+     *
+     * @param hits   calls answered from the memo
+     * @param misses calls forwarded to the calculator
+     * @param size   number of cached inputs
+     */
+    public record Statistics(long hits, long misses, int size) {
+        public double hitRatio() {
+            long calls = hits + misses;
+            return calls == 0 ? 0 : (double) hits / calls;
+        }
+    }
+
+    /**
+     * Bounded LRU cache of one operation. Results are stored as primitive values.
+     */
+    private final class Memo {
+        private final LinkedHashMap<InputKey, Object> entries;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private Memo(int size) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<InputKey, Object> eldest) {
+                    return size() > size;
+                }
+            };
+        }
+
+        private double[] get(InputKey key) {
+            return (double[]) lookup(key);
+        }
+
+        private void put(InputKey key, double[] result) {
+            store(key, result);
+        }
+
+        private CalculatedRate getRate(InputKey key) {
+            CachedRate cached = (CachedRate) lookup(key);
+            return cached == null ? null : rateFactory.createCalcRate(cached.type(), cached.bid(), cached.ask(), Instant.now());
+        }
+
+        private void putRate(InputKey key, CalculatedRate calcRate) {
+            store(key, new CachedRate(calcRate.getType(), calcRate.getBid(), calcRate.getAsk()));
+        }
+
+        private Object lookup(InputKey key) {
+            Object result;
+            synchronized (entries) {
+                result = entries.get(key);
+            }
+
+            (result == null ? misses : hits).increment();
+            return result;
+        }
+
+        private void store(InputKey key, Object result) {
+            // The caller may reuse its arrays, so the stored key owns copies.
+            InputKey ownedKey = key.copy();
+            synchronized (entries) {
+                entries.put(ownedKey, result);
+            }
+        }
+
+        private Statistics statistics() {
+            synchronized (entries) {
+                return new Statistics(hits.sum(), misses.sum(), entries.size());
+            }
+        }
+    }
+
+    private record CachedRate(String type, double bid, double ask) {
+    }
+
+    /**
+     * Input vector of a call. The hash is computed once from the primitive values.
+     */
+    private static final class InputKey {
+        private final String type;
+        private final Double usdmid;
+        private final double[] bids;
+        private final double[] asks;
+        private final int hash;
+
+        private InputKey(String type, Double usdmid, double[] bids, double[] asks) {
+            this(type, usdmid, bids, asks, hash(type, usdmid, bids, asks));
+        }
+
+        private InputKey(String type, Double usdmid, double[] bids, double[] asks, int hash) {
+            this.type = type;
+            this.usdmid = usdmid;
+            this.bids = bids;
+            this.asks = asks;
+            this.hash = hash;
+        }
+
+        private InputKey copy() {
+            return new InputKey(type, usdmid, bids.clone(), asks.clone(), hash);
+        }
+
+        private static int hash(String type, Double usdmid, double[] bids, double[] asks) {
+            int hash = Objects.hashCode(type);
+            hash = 31 * hash + Objects.hashCode(usdmid);
+            hash = 31 * hash + Arrays.hashCode(bids);
+            return 31 * hash + Arrays.hashCode(asks);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InputKey other)) {
+                return false;
+            }
+
+            return hash == other.hash
+                    && Objects.equals(type, other.type)
+                    && Objects.equals(usdmid, other.usdmid)
+                    && Arrays.equals(bids, other.bids)
+                    && Arrays.equals(asks, other.asks);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
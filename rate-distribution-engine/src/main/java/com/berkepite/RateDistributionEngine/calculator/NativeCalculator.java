@@ -0,0 +1,223 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+
+/**
+ * Pure Java implementation of {@link IRateCalculator} that performs the standard
+ * mean, USD mid and cross rate formulas without a polyglot runtime.
+ * <p>
+ * The arithmetic mirrors {@code rate_calculators/js-calc.mjs} and {@code rate_calculators/py-calc.py}
+ * step by step: every input is converted through its shortest decimal string (as {@code num.toString()}
+ * and {@code str(num)} do), and every intermediate result is rounded to 20 significant digits,
+ * which is the default precision of decimal.js and the precision set by the Python script.
+ * Ties are rounded half up like decimal.js; Python rounds ties half even, which only matters when
+ * an intermediate result has more than 20 significant digits ending in an exact 5.
+ * </p>
+ */
+public class NativeCalculator implements IRateCalculator {
+    private static final MathContext MATH_CONTEXT = new MathContext(20, RoundingMode.HALF_UP);
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final Logger LOGGER = LogManager.getLogger(NativeCalculator.class);
+    private final IRateFactory rateFactory;
+    private final IRateConverter rateConverter;
+    private String path;
+
+    /**
+     * Constructs a NativeCalculator with the required dependencies.
+     *
+     * @param rateFactory   factory for creating rate objects
+     * @param rateConverter converter for rate type conversions
+     */
+    public NativeCalculator(IRateFactory rateFactory, IRateConverter rateConverter) {
+        this.rateFactory = rateFactory;
+        this.rateConverter = rateConverter;
+    }
+
+    /**
+     * Initializes the calculator. The formulas are built in, so the path is only kept for reporting.
+     *
+     * @param calculatorPath the configured calculator path, may be null
+     */
+    @Override
+    public void init(String calculatorPath) {
+        setPath(calculatorPath);
+    }
+
+    /**
+     * Calculates the mean bid and ask rates from the provided bid and ask arrays.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the calculated {@link MeanRate}
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateFactory.createMeanRate(mean(bids).doubleValue(), mean(asks).doubleValue());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate mean rate.", e);
+        }
+    }
+
+    /**
+     * Calculates a rate for a specified raw rate type by multiplying the mean bid and ask with the USD mid price.
+     *
+     * @param type   the raw rate type identifier
+     * @param usdmid the USD mid price
+     * @param bids   array of bid prices
+     * @param asks   array of ask prices
+     * @return the calculated {@link CalculatedRate}
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        try {
+            BigDecimal usdmidDecimal = toDecimal(usdmid);
+
+            return rateFactory.createCalcRate(rateConverter.convertFromRawToCalc(type),
+                    mean(bids).multiply(usdmidDecimal, MATH_CONTEXT).doubleValue(),
+                    mean(asks).multiply(usdmidDecimal, MATH_CONTEXT).doubleValue(),
+                    Instant.now());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for raw rate %s.".formatted(type), e);
+        }
+    }
+
+    /**
+     * Calculates the USD_TRY rate as the mean of the given bids and asks.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the calculated {@link CalculatedRate}
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return rateFactory.createCalcRate(rateConverter.convertFromRawToCalc("USD_TRY"),
+                    mean(bids).doubleValue(),
+                    mean(asks).doubleValue(),
+                    Instant.now());
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for USD_TRY.", e);
+        }
+    }
+
+    /**
+     * Determines whether the average of the bid and ask percentage differences between the
+     * incoming raw rate and the mean rate is at least one percent.
+     *
+     * @param incomingRate the incoming raw rate
+     * @param meanRate     the mean rate for comparison
+     * @return true if the difference is at least one percent; false otherwise
+     * @throws CalculatorException if the check fails
+     */
+    @Override
+    public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        try {
+            BigDecimal percentageAsk = percentage(toDecimal(incomingRate.getAsk()), toDecimal(meanRate.getMeanAsk()));
+            BigDecimal percentageBid = percentage(toDecimal(incomingRate.getBid()), toDecimal(meanRate.getMeanBid()));
+
+            BigDecimal diff = percentageAsk.add(percentageBid, MATH_CONTEXT).divide(TWO, MATH_CONTEXT);
+
+            return diff.compareTo(BigDecimal.ONE) >= 0;
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate one percent difference.", e);
+        }
+    }
+
+    /**
+     * Calculates the USD mid rate as the average of the mean bid and the mean ask.
+     *
+     * @param bids array of bid prices
+     * @param asks array of ask prices
+     * @return the USD mid rate value
+     * @throws CalculatorException if the calculation fails
+     */
+    @Override
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return mean(bids).add(mean(asks), MATH_CONTEXT).divide(TWO, MATH_CONTEXT).doubleValue();
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for usdmid.", e);
+        }
+    }
+
+    /**
+     * Returns the strategy name for this calculator implementation.
+     *
+     * @return the string "JAVA"
+     */
+    @Override
+    public String getStrategy() {
+        return "JAVA";
+    }
+
+    /**
+     * Returns the configured calculator path.
+     *
+     * @return the file path as a string, may be null
+     */
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the logger used by this class.
+     *
+     * @return the {@link Logger} instance
+     */
+    @Override
+    public Logger getLogger() {
+        return LOGGER;
+    }
+
+    private static BigDecimal mean(double[] values) {
+        if (values.length == 0) {
+            throw new ArithmeticException("Cannot calculate the mean of an empty array.");
+        }
+
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value : values) {
+            sum = sum.add(toDecimal(value), MATH_CONTEXT);
+        }
+
+        return sum.divide(BigDecimal.valueOf(values.length), MATH_CONTEXT);
+    }
+
+    private static BigDecimal percentage(BigDecimal incoming, BigDecimal mean) {
+        return incoming.subtract(mean, MATH_CONTEXT)
+                .divide(incoming, MATH_CONTEXT)
+                .multiply(HUNDRED, MATH_CONTEXT)
+                .abs();
+    }
+
+    /**
+     * Converts a double through its shortest decimal representation, which is what
+     * {@code num.toString()} in JavaScript and {@code str(num)} in Python produce.
+     */
+    private static BigDecimal toDecimal(double value) {
+        return new BigDecimal(Double.toString(value));
+    }
+
+    private void setPath(String path) {
+        this.path = path;
+    }
+}
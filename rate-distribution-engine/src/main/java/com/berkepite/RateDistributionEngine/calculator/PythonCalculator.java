@@ -11,13 +11,15 @@ import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
 import com.berkepite.RateDistributionEngine.common.rate.RawRate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of the {@link IRateCalculator} interface that uses
@@ -28,6 +30,10 @@ import java.time.Instant;
  * It supports calculating mean rates, raw rate types, USD/TRY rates,
  * and checks for differences in rates.
  * </p>
+ * <p>
+ * Calls are executed on a {@link ContextPool}, so the script is evaluated once per
+ * pooled context rather than once per call.
+ * </p>
  */
 public class PythonCalculator implements IRateCalculator {
 
@@ -35,25 +41,63 @@ public class PythonCalculator implements IRateCalculator {
     private final IRateFactory rateFactory;
     private final IRateConverter rateConverter;
     private final ICalculatorLoader calculatorLoader;
+    private final int poolSize;
+    private final long acquireTimeoutMillis;
+    private final long callTimeoutMillis;
 
-    private Source source;
+    private ContextPool contextPool;
     private String path;
 
     /**
-     * Constructs a PythonCalculator instance with required dependencies.
+     * Constructs a PythonCalculator instance with required dependencies
+     * and the default context pool settings.
      *
      * @param rateFactory      Factory to create rate objects.
      * @param rateConverter    Converter to convert between raw and calculated rate types.
      * @param calculatorLoader Loader responsible for loading the Python source file.
      */
     public PythonCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader) {
+        this(rateFactory, rateConverter, calculatorLoader, ContextPool.DEFAULT_SIZE, ContextPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a PythonCalculator instance with required dependencies and context pool settings.
+     *
+     * @param rateFactory          Factory to create rate objects.
+     * @param rateConverter        Converter to convert between raw and calculated rate types.
+     * @param calculatorLoader     Loader responsible for loading the Python source file.
+     * @param poolSize             Maximum number of pooled Python contexts.
+     * @param acquireTimeoutMillis How long a call may wait for a free context.
+     */
+    public PythonCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader,
+                            int poolSize, long acquireTimeoutMillis) {
+        this(rateFactory, rateConverter, calculatorLoader, poolSize, acquireTimeoutMillis, 0);
+    }
+
+    /**
+     * Constructs a PythonCalculator instance with required dependencies, context pool settings
+     * and a per-call deadline.
+     *
+     * @param rateFactory          Factory to create rate objects.
+     * @param rateConverter        Converter to convert between raw and calculated rate types.
+     * @param calculatorLoader     Loader responsible for loading the Python source file.
+     * @param poolSize             Maximum number of pooled Python contexts.
+     * @param acquireTimeoutMillis How long a call may wait for a free context.
+     * @param callTimeoutMillis    How long a call may run before it is cancelled; 0 for no limit.
+     */
+    public PythonCalculator(IRateFactory rateFactory, IRateConverter rateConverter, ICalculatorLoader calculatorLoader,
+                            int poolSize, long acquireTimeoutMillis, long callTimeoutMillis) {
         this.rateFactory = rateFactory;
         this.calculatorLoader = calculatorLoader;
         this.rateConverter = rateConverter;
+        this.poolSize = poolSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
     }
 
     /**
-     * Initializes the calculator by loading the Python source file from the given path.
+     * Initializes the calculator by loading the Python source file from the given path
+     * and evaluating it into a context pool.
      *
      * @param calculatorPath Path to the Python calculator script.
      * @throws CalculatorException If the source file cannot be loaded or read.
@@ -62,12 +106,18 @@ public class PythonCalculator implements IRateCalculator {
     public void init(String calculatorPath) throws CalculatorException {
         setPath(calculatorPath);
 
+        Source source;
         try {
             Path _path = calculatorLoader.load(calculatorPath);
             source = Source.newBuilder("python", _path.toFile()).build();
         } catch (IOException e) {
             throw new CalculatorLoadingException("Could not load calculator source.", e);
         }
+
+        contextPool = new ContextPool("python", source, Map.of(),
+                List.of("calculate_mean_rate", "has_at_least_one_percent_diff", "calculate_usdmid",
+                        "calculate_for_raw_rate_type", "calculate_for_raw_rate_types", "calculate_for_USD_TRY"),
+                poolSize, acquireTimeoutMillis, callTimeoutMillis);
     }
 
     /**
@@ -79,18 +129,12 @@ public class PythonCalculator implements IRateCalculator {
      * @throws CalculatorException If calculation fails.
      */
     @Override
-    public MeanRate calculateMeanRate(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("python")
-                .allowAllAccess(true)
-                .build()) {
-            Value module = context.eval(source);
-            Value m_calculateMeanRate = module.getMember("calculate_mean_rate");
-            Value result = m_calculateMeanRate.execute(bids, asks);
-
-            return rateFactory.createMeanRate(
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return contextPool.execute("calculate_mean_rate", result -> rateFactory.createMeanRate(
                     result.getArrayElement(0).asDouble(),
                     result.getArrayElement(1).asDouble()
-            );
+            ), bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate mean rate.", e);
         }
@@ -108,23 +152,66 @@ public class PythonCalculator implements IRateCalculator {
      * @throws CalculatorException If calculation fails.
      */
     @Override
-    public CalculatedRate calculateForRawRateType(String type, Double usdmid, Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("python")
-                .allowAllAccess(true)
-                .build()) {
-            Value module = context.eval(source);
-            Value calculateForType = module.getMember("calculate_for_raw_rate_type");
-            Value result = calculateForType.execute(usdmid, bids, asks);
-
-            return rateFactory.createCalcRate(type,
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return contextPool.execute("calculate_for_raw_rate_type", result -> rateFactory.createCalcRate(type,
                     result.getArrayElement(0).asDouble(),
                     result.getArrayElement(1).asDouble(),
-                    Instant.now());
+                    Instant.now()), usdmid, bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for raw rate %s.".formatted(type), e);
         }
     }
 
+    /**
+     * Calculates {@link CalculatedRate}s for several raw rate types with a single call into
+     * the Python calculator, using the same USD mid price for every type.
+     * <p>
+     * Falls back to calculating the types one by one if the script does not export
+     * {@code calculate_for_raw_rate_types}.
+     * </p>
+     *
+     * @param usdmid             USD mid price.
+     * @param bidsAndAsksPerType Bid and ask arrays keyed by raw rate type.
+     * @return Calculated rates, in the iteration order of the given map.
+     * @throws CalculatorException If calculation fails.
+     */
+    @Override
+    public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        if (!contextPool.exports("calculate_for_raw_rate_types")) {
+            return IRateCalculator.super.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        }
+
+        try {
+            List<String> calcRateTypes = new ArrayList<>(bidsAndAsksPerType.size());
+            double[][] bidsPerType = new double[bidsAndAsksPerType.size()][];
+            double[][] asksPerType = new double[bidsAndAsksPerType.size()][];
+
+            int i = 0;
+            for (Map.Entry<String, List<double[]>> entry : bidsAndAsksPerType.entrySet()) {
+                calcRateTypes.add(rateConverter.convertFromRawToCalc(entry.getKey()));
+                bidsPerType[i] = entry.getValue().get(0);
+                asksPerType[i] = entry.getValue().get(1);
+                i++;
+            }
+
+            return contextPool.execute("calculate_for_raw_rate_types", result -> {
+                Instant now = Instant.now();
+                List<CalculatedRate> calcRates = new ArrayList<>(calcRateTypes.size());
+                for (int j = 0; j < calcRateTypes.size(); j++) {
+                    Value rate = result.getArrayElement(j);
+                    calcRates.add(rateFactory.createCalcRate(calcRateTypes.get(j),
+                            rate.getArrayElement(0).asDouble(),
+                            rate.getArrayElement(1).asDouble(),
+                            now));
+                }
+                return calcRates;
+            }, usdmid, bidsPerType, asksPerType);
+        } catch (Exception e) {
+            throw new CalculatorException("Failed to calculate for raw rates %s.".formatted(bidsAndAsksPerType.keySet()), e);
+        }
+    }
+
     /**
      * Calculates the USD/TRY exchange rate using the Python calculator.
      *
@@ -134,20 +221,14 @@ public class PythonCalculator implements IRateCalculator {
      * @throws CalculatorException If calculation fails.
      */
     @Override
-    public CalculatedRate calculateForUSD_TRY(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("python")
-                .allowAllAccess(true)
-                .build()) {
-            Value module = context.eval(source);
-            Value m_calculateForUSD_TRY = module.getMember("calculate_for_USD_TRY");
-            Value result = m_calculateForUSD_TRY.execute(bids, asks);
-
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        try {
             String calcRateType = rateConverter.convertFromRawToCalc("USD_TRY");
 
-            return rateFactory.createCalcRate(calcRateType,
+            return contextPool.execute("calculate_for_USD_TRY", result -> rateFactory.createCalcRate(calcRateType,
                     result.getArrayElement(0).asDouble(),
                     result.getArrayElement(1).asDouble(),
-                    Instant.now());
+                    Instant.now()), bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for USD_TRY.", e);
         }
@@ -163,16 +244,9 @@ public class PythonCalculator implements IRateCalculator {
      */
     @Override
     public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
-        try (Context context = Context.newBuilder("python")
-                .allowAllAccess(true)
-                .build()) {
-            Value module = context.eval(source);
-            Value m_hasAtLeastOnePercentDiff = module.getMember("has_at_least_one_percent_diff");
-
-            Value result = m_hasAtLeastOnePercentDiff.execute(
+        try {
+            return contextPool.execute("has_at_least_one_percent_diff", Value::asBoolean,
                     incomingRate.getBid(), incomingRate.getAsk(), meanRate.getMeanBid(), meanRate.getMeanAsk());
-
-            return result.asBoolean();
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate one percent difference.", e);
         }
@@ -187,21 +261,24 @@ public class PythonCalculator implements IRateCalculator {
      * @throws CalculatorException If calculation fails.
      */
     @Override
-    public Double calculateUSDMID(Double[] bids, Double[] asks) throws CalculatorException {
-        try (Context context = Context.newBuilder("python")
-                .allowAllAccess(true)
-                .build()) {
-            Value module = context.eval(source);
-            Value calculateUSDMID = module.getMember("calculate_usdmid");
-
-            Value result = calculateUSDMID.execute(bids, asks);
-
-            return result.asDouble();
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        try {
+            return contextPool.execute("calculate_usdmid", Value::asDouble, bids, asks);
         } catch (Exception e) {
             throw new CalculatorException("Failed to calculate for usdmid.", e);
         }
     }
 
+    /**
+     * Closes the context pool and its shared engine.
+     */
+    @Override
+    public void close() {
+        if (contextPool != null) {
+            contextPool.close();
+        }
+    }
+
     /**
      * Returns the strategy identifier for this calculator.
      *
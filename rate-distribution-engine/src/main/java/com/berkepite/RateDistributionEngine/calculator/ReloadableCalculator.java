@@ -0,0 +1,247 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IRateCalculator} that forwards every call to a live calculator which can be replaced at runtime.
+ * <p>
+ * Each call runs entirely on one calculator: a call that started on the old calculator finishes on it,
+ * and calls that start after {@link #swap(IRateCalculator)} run on the new one. The old calculator is
+ * only closed once no call is running on it anymore, so in-flight ticks never see a closed context pool.
+ * </p>
+ * <p>
+ * The calculator also keeps the most recent inputs it has seen, so that a replacement can be warmed
+ * up and validated with real prices before it goes live.
+ * </p>
+ */
+public class ReloadableCalculator implements IRateCalculator {
+    public static final int RECENT_INPUTS_SIZE = 32;
+
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private final Logger LOGGER = LogManager.getLogger(ReloadableCalculator.class);
+    private final AtomicReferenceArray<RecentInput> recentInputs = new AtomicReferenceArray<>(RECENT_INPUTS_SIZE);
+    private final AtomicInteger recentInputIndex = new AtomicInteger();
+    private volatile Generation current;
+
+    /**
+     * Creates the wrapper around an already initialized calculator.
+     *
+     * @param rateCalculator the initial live calculator
+     */
+    public ReloadableCalculator(IRateCalculator rateCalculator) {
+        this.current = new Generation(rateCalculator);
+    }
+
+    /**
+     * Makes the given calculator live, waits for calls still running on the previous one to finish
+     * (for at most the drain timeout) and closes the previous calculator.
+     *
+     * @param rateCalculator     the new, already initialized and warmed up calculator
+     * @param drainTimeoutMillis how long to wait for in-flight calls on the previous calculator
+     */
+    public void swap(IRateCalculator rateCalculator, long drainTimeoutMillis) {
+        Generation previous = current;
+        current = new Generation(rateCalculator);
+
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        while (previous.inFlight.sum() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (previous.inFlight.sum() > 0) {
+            LOGGER.warn("Closing previous {} calculator with calls still in flight.", previous.calculator.getStrategy());
+        }
+
+        previous.calculator.close();
+    }
+
+    /**
+     * Makes the given calculator live and closes the previous one once its in-flight calls are done.
+     *
+     * @param rateCalculator the new, already initialized and warmed up calculator
+     */
+    public void swap(IRateCalculator rateCalculator) {
+        swap(rateCalculator, 30_000);
+    }
+
+    /**
+     * Returns the calculator that new calls are currently forwarded to.
+     *
+     * @return the live calculator
+     */
+    public IRateCalculator getLiveCalculator() {
+        return current.calculator;
+    }
+
+    /**
+     * Returns a snapshot of the most recent inputs, in no particular order.
+     *
+     * @return the recent inputs; empty if no calculation happened yet
+     */
+    public List<RecentInput> getRecentInputs() {
+        List<RecentInput> inputs = new ArrayList<>(RECENT_INPUTS_SIZE);
+        for (int i = 0; i < RECENT_INPUTS_SIZE; i++) {
+            RecentInput input = recentInputs.get(i);
+            if (input != null) {
+                inputs.add(input);
+            }
+        }
+
+        return inputs;
+    }
+
+    @Override
+    public void init(String calculatorPath) throws CalculatorException {
+        current.calculator.init(calculatorPath);
+    }
+
+    @Override
+    public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+        record(null, null, bids, asks);
+
+        Generation generation = enter();
+        try {
+            return generation.calculator.calculateMeanRate(bids, asks);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+        record(type, usdmid, bids, asks);
+
+        Generation generation = enter();
+        try {
+            return generation.calculator.calculateForRawRateType(type, usdmid, bids, asks);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+        bidsAndAsksPerType.forEach((type, values) -> record(type, usdmid, values.get(0), values.get(1)));
+
+        Generation generation = enter();
+        try {
+            return generation.calculator.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateForUSD_TRY(double[] bids, double[] asks) throws CalculatorException {
+        record("USD_TRY", null, bids, asks);
+
+        Generation generation = enter();
+        try {
+            return generation.calculator.calculateForUSD_TRY(bids, asks);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public boolean hasAtLeastOnePercentDiff(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        Generation generation = enter();
+        try {
+            return generation.calculator.hasAtLeastOnePercentDiff(incomingRate, meanRate);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+        record("USD_TRY", null, bids, asks);
+
+        Generation generation = enter();
+        try {
+            return generation.calculator.calculateUSDMID(bids, asks);
+        } finally {
+            generation.inFlight.decrement();
+        }
+    }
+
+    @Override
+    public String getStrategy() {
+        return current.calculator.getStrategy();
+    }
+
+    @Override
+    public String getPath() {
+        return current.calculator.getPath();
+    }
+
+    @Override
+    public Logger getLogger() {
+        return current.calculator.getLogger();
+    }
+
+    /**
+     * Closes the live calculator.
+     */
+    @Override
+    public void close() {
+        current.calculator.close();
+    }
+
+    /**
+     * Registers a call on the live generation. The generation is re-checked after registering,
+     * so a swap can never close a calculator between the lookup and the call.
+     */
+    private Generation enter() {
+        while (true) {
+            Generation generation = current;
+            generation.inFlight.increment();
+            if (generation == current) {
+                return generation;
+            }
+            generation.inFlight.decrement();
+        }
+    }
+
+    private void record(String type, Double usdmid, double[] bids, double[] asks) {
+        int index = recentInputIndex.getAndIncrement() & Integer.MAX_VALUE;
+        recentInputs.set(index % RECENT_INPUTS_SIZE, new RecentInput(type, usdmid, bids, asks));
+    }
+
+    /**
+     * Inputs of one recent calculation. The type and USD mid rate are null when the call did not have them.
+     */
+    public record RecentInput(String type, Double usdmid, double[] bids, double[] asks) {
+    }
+
+    /**
+     * A live calculator together with the number of calls currently running on it.
+     */
+    private static final class Generation {
+        private final IRateCalculator calculator;
+        private final LongAdder inFlight = new LongAdder();
+
+        private Generation(IRateCalculator calculator) {
+            this.calculator = calculator;
+        }
+    }
+}
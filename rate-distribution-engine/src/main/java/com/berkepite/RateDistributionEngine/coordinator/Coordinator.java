@@ -1,7 +1,9 @@
 package com.berkepite.RateDistributionEngine.coordinator;
 
+import com.berkepite.RateDistributionEngine.cache.RateCacheWarmStart;
 import com.berkepite.RateDistributionEngine.common.exception.subscriber.SubscriberConnectionException;
 import com.berkepite.RateDistributionEngine.common.exception.subscriber.SubscriberInitException;
+import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
 import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
 import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
 import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinatorConfig;
@@ -15,15 +17,18 @@ import com.berkepite.RateDistributionEngine.common.subscriber.ISubscriber;
 import com.berkepite.RateDistributionEngine.common.subscriber.ISubscriberConfig;
 import com.berkepite.RateDistributionEngine.common.subscriber.ISubscriberLoader;
 import com.berkepite.RateDistributionEngine.exception.ExceptionHandler;
+import com.berkepite.RateDistributionEngine.rate.RateWarmUp;
 import jakarta.annotation.PostConstruct;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.lang.management.ManagementFactory;
 import java.util.*;
 
 /**
@@ -47,9 +52,25 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
     private final IRatesLoader ratesLoader;
     private final ThreadPoolTaskExecutor executorService;
     private final ExceptionHandler exceptionHandler;
+    private final RateWarmUp rateWarmUp;
+    private final RateCacheWarmStart rateCacheWarmStart;
+    private final ICalculatorFactory calculatorFactory;
 
     private List<ISubscriber> subscribers;
 
+    /**
+     * Whether ticks are conflated before they reach the rate manager.
+     */
+    @Value("${app.coordinator.conflation.enabled:false}")
+    private boolean conflationEnabled;
+    /**
+     * Comma separated rate types to conflate, empty for all; the ticks of the others are all processed.
+     */
+    @Value("${app.coordinator.conflation.symbols:}")
+    private String conflationSymbols;
+    private Set<String> conflatedSymbols;
+    private TickConflator tickConflator;
+
     /**
      * Constructs the Coordinator with the required services and configurations.
      *
@@ -59,26 +80,35 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
      * @param rateManager       Service responsible for managing rate data.
      * @param subscriberLoader  Service for loading subscriber instances.
      * @param executorService   Thread pool executor for managing asynchronous tasks.
+     * @param rateWarmUp        Warm-up of the calculation pipeline, run before the subscribers connect.
+     * @param rateCacheWarmStart Restore of the last known rates into the cache, run before the subscribers connect.
+     * @param calculatorFactory Factory of the rate calculator, which reports calculator errors to this coordinator.
      */
     @Autowired
-    public Coordinator(ExceptionHandler exceptionHandler, IRatesLoader ratesLoader, ICoordinatorConfig coordinatorConfig, IRateManager rateManager, ISubscriberLoader subscriberLoader, @Qualifier("coordinatorExecutor") ThreadPoolTaskExecutor executorService) {
+    public Coordinator(ExceptionHandler exceptionHandler, IRatesLoader ratesLoader, ICoordinatorConfig coordinatorConfig, IRateManager rateManager, ISubscriberLoader subscriberLoader, @Qualifier("coordinatorExecutor") ThreadPoolTaskExecutor executorService, RateWarmUp rateWarmUp, RateCacheWarmStart rateCacheWarmStart, ICalculatorFactory calculatorFactory) {
         this.coordinatorConfig = coordinatorConfig;
         this.subscriberLoader = subscriberLoader;
         this.executorService = executorService;
         this.rateManager = rateManager;
         this.ratesLoader = ratesLoader;
         this.exceptionHandler = exceptionHandler;
+        this.rateWarmUp = rateWarmUp;
+        this.rateCacheWarmStart = rateCacheWarmStart;
+        this.calculatorFactory = calculatorFactory;
     }
 
     /**
      * Initializes the coordinator after construction.
      * <p>
-     * Loads subscriber classes based on configuration, initializes them,
-     * and adds a JVM shutdown hook to properly shut down the executor.
+     * Loads subscriber classes based on configuration, restores the rate cache and warms up
+     * the calculation pipeline if enabled, initializes the subscribers, reports the startup
+     * time, and adds a JVM shutdown hook to properly shut down the executor.
      * </p>
      */
     @PostConstruct
     private void init() {
+        calculatorFactory.setCoordinator(this);
+
         subscribers = new ArrayList<>(2);
         loadSubscriberClasses(coordinatorConfig.getSubscriberBindings(), subscribers);
 
@@ -89,17 +119,45 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
             return;
         }
 
+        initConflation();
+
+        rateCacheWarmStart.warmStartIfEnabled();
+        rateWarmUp.warmUpIfEnabled();
+
         LOGGER.info("Coordinator Initialized!");
         initSubscribers();
+        LOGGER.info("Subscribers initialized {} ms after JVM start.", ManagementFactory.getRuntimeMXBean().getUptime());
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             executorService.shutdown();
 
             LOGGER.info("Coordinator executor stopped. ({})", this.getClass().getSimpleName());
+            if (tickConflator != null) {
+                LOGGER.info("Tick conflation: {}", tickConflator.getStatistics());
+            }
         }, "shutdown-hook-coordinator"));
 
     }
 
+    /**
+     * Creates the tick conflator if conflation is enabled. The conflator hands the ticks to the rate manager without
+     * publishing them, since {@link #onRateUpdate(ISubscriber, RawRate)} publishes every tick before offering it.
+     */
+    private void initConflation() {
+        if (!conflationEnabled) {
+            return;
+        }
+
+        conflatedSymbols = new HashSet<>();
+        if (conflationSymbols != null && !conflationSymbols.isBlank()) {
+            for (String symbol : conflationSymbols.split(",")) {
+                conflatedSymbols.add(symbol.trim());
+            }
+        }
+        tickConflator = new TickConflator(executorService, rateManager::processRawRate);
+        LOGGER.info("Tick conflation enabled for {}.", conflatedSymbols.isEmpty() ? "all rates" : conflatedSymbols);
+    }
+
     /**
      * Initializes all loaded subscribers.
      * <p>
@@ -241,7 +299,10 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
     /**
      * Called when a rate update is received from a subscriber.
      * <p>
-     * The update is processed asynchronously by the rate manager unless the executor is shut down.
+     * The update is processed asynchronously by the rate manager unless the executor is shut down. With conflation
+     * enabled for its rate type, it is handed over through the {@link TickConflator}, which drops it if a newer
+     * update of the same provider and rate type arrives before it is processed. It is sent to the raw rate topic
+     * before that, so the topic still receives every update.
      * </p>
      *
      * @param subscriber The subscriber providing the rate update.
@@ -252,10 +313,13 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
         try {
             LOGGER.info("({}) rate received {}", subscriber.getConfig().getName(), rate.toString());
 
-            if (!executorService.getThreadPoolExecutor().isShutdown()) {
-                executorService.execute(() -> rateManager.manageIncomingRawRate(rate));
-            } else {
+            if (executorService.getThreadPoolExecutor().isShutdown()) {
                 LOGGER.warn("Executor is shut down. Dropping rate: {}", rate);
+            } else if (isConflated(rate)) {
+                rateManager.publishRawRate(rate);
+                tickConflator.offer(rate);
+            } else {
+                executorService.execute(() -> rateManager.manageIncomingRawRate(rate));
             }
 
         } catch (Exception e) {
@@ -263,6 +327,10 @@ public class Coordinator implements CommandLineRunner, ICoordinator {
         }
     }
 
+    private boolean isConflated(RawRate rate) {
+        return tickConflator != null && (conflatedSymbols.isEmpty() || conflatedSymbols.contains(rate.getType()));
+    }
+
     /**
      * Called when a subscriber-related error occurs.
      *
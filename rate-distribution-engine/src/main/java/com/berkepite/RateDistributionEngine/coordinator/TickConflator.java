@@ -0,0 +1,114 @@
+package com.berkepite.RateDistributionEngine.coordinator;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Conflates the ticks handed from {@link Coordinator} to the rate manager.
+ * <p>
+ * Every tick lands in a latest-value slot per provider and rate type. A newer tick replaces a pending one, so when
+ * ticks arrive faster than they are processed, a backlog collapses to the newest tick of each key instead of
+ * processing every stale one. A key is queued on the executor when its slot becomes dirty and stays in the dirty
+ * set until its tick was processed, so each key has at most one tick in flight and its ticks are processed in order.
+ * A tick that arrives meanwhile is picked up right after, by a new task.
+ * </p>
+ */
+final class TickConflator {
+    private final Executor executor;
+    private final Consumer<RawRate> processor;
+
+    private final Map<Key, RawRate> slots = new ConcurrentHashMap<>();
+    private final Set<Key> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+
+    /**
+     * @param executor  Runs the processing of the dirty keys.
+     * @param processor Processes the newest tick of a key.
+     */
+    TickConflator(Executor executor, Consumer<RawRate> processor) {
+        this.executor = executor;
+        this.processor = processor;
+    }
+
+    /**
+     * Stores the tick in its slot and queues the key unless it is already queued or in flight.
+     *
+     * @throws RuntimeException if the executor rejects the key; the tick stays in its slot and the next tick of
+     *                          the key queues it again
+     */
+    void offer(RawRate rate) {
+        Key key = new Key(rate.getProvider(), rate.getType());
+
+        received.increment();
+        if (slots.put(key, rate) != null) {
+            conflated.increment();
+        }
+
+        if (dirtyKeys.add(key)) {
+            schedule(key);
+        }
+    }
+
+    private void schedule(Key key) {
+        try {
+            executor.execute(() -> drain(key));
+        } catch (RuntimeException e) {
+            dirtyKeys.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Processes the newest tick of the key, then queues the key again if a tick arrived meanwhile.
+     */
+    private void drain(Key key) {
+        try {
+            RawRate rate = slots.remove(key);
+            if (rate != null) {
+                processor.accept(rate);
+                processed.increment();
+            }
+        } finally {
+            dirtyKeys.remove(key);
+            if (slots.containsKey(key) && dirtyKeys.add(key)) {
+                schedule(key);
+            }
+        }
+    }
+
+    /**
+     * @return the tick counters so far
+     */
+    Statistics getStatistics() {
+        return new Statistics(received.sum(), processed.sum(), conflated.sum(), slots.size());
+    }
+
+    private record Key(String provider, String type) {
+    }
+
+    /**
+     * Counters of the conflator.
+     *
+     * @param received  ticks offered
+     * @param processed ticks handed to the rate manager
+     * @param conflated ticks replaced by a newer tick of the same key before they were processed
+     * @param pending   keys holding a tick not yet processed
+     */
+    record Statistics(long received, long processed, long conflated, int pending) {
+        /**
+         * @return the share of received ticks that were never processed
+         */
+        double conflationRatio() {
+            return received == 0 ? 0 : (double) conflated / received;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.berkepite.RateDistributionEngine.exception;
 
+import com.berkepite.RateDistributionEngine.common.cache.IAsyncRateCacheService;
 import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
 import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
 import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
@@ -120,6 +121,17 @@ public class ExceptionHandler {
                 isDebugEnabled ? e : e.getMessage());
     }
 
+    /**
+     * Handles cache exceptions with asynchronous cache service context.
+     *
+     * @param e            The CacheException caught.
+     * @param cacheService The cache service instance involved.
+     */
+    public void handle(CacheException e, IAsyncRateCacheService cacheService) {
+        LOGGER.error("({}) cache error: {}", cacheService.getName(),
+                isDebugEnabled ? e : e.getMessage());
+    }
+
     /**
      * Handles general cache exceptions.
      *
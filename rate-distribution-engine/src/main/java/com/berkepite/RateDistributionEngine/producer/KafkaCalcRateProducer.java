@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Producer service responsible for sending calculated rate events to Kafka.
  */
@@ -31,4 +33,15 @@ public class KafkaCalcRateProducer {
     public void sendCalcRate(CalculatedRate rate) {
         kafkaCalcRateTemplate.sendDefault(rate);
     }
+
+    /**
+     * Sends several calculated rate messages to the default Kafka topic.
+     * The records are handed to the producer back to back, so they are accumulated
+     * into the same producer batch instead of being sent one request at a time.
+     *
+     * @param rates The calculated rates to be sent.
+     */
+    public void sendCalcRates(List<CalculatedRate> rates) {
+        rates.forEach(kafkaCalcRateTemplate::sendDefault);
+    }
 }
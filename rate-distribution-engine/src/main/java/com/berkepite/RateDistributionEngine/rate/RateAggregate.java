@@ -0,0 +1,127 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.common.decimal.FixedPoint;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running aggregate of the latest raw rate of every provider of one rate type.
+ * <p>
+ * Every provider has a slot holding its last bid and ask. The sums of the bids and asks are kept as
+ * {@link FixedPoint} values, so a tick updates the mean in constant time by subtracting the provider's old
+ * contribution and adding the new one, and the sums never drift however many ticks they have seen.
+ * </p>
+ * <p>
+ * Not thread-safe: an aggregate belongs to the lane of its rate type and is only used from that lane.
+ * </p>
+ */
+final class RateAggregate {
+    private static final FixedPoint FIXED_POINT = new FixedPoint(FixedPoint.MAX_SCALE, RoundingMode.HALF_EVEN);
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private double[] bids = new double[4];
+    private double[] asks = new double[4];
+    private long[] fixedBids = new long[4];
+    private long[] fixedAsks = new long[4];
+    private long bidSum;
+    private long askSum;
+    private int count;
+
+    /**
+     * Creates an aggregate holding the given raw rates, for example those read from the cache.
+     */
+    static RateAggregate of(List<RawRate> rates) {
+        RateAggregate aggregate = new RateAggregate();
+        for (RawRate rate : rates) {
+            aggregate.put(rate);
+        }
+
+        return aggregate;
+    }
+
+    /**
+     * @return whether the provider already contributed a rate
+     */
+    boolean contains(String provider) {
+        return slots.containsKey(provider);
+    }
+
+    /**
+     * @return the number of providers that contributed a rate
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Replaces the provider's contribution with the given rate, or adds it if the provider is new.
+     *
+     * @throws ArithmeticException if a price is not finite or out of the fixed-point range, or a sum would overflow;
+     *                             the aggregate is left as it was
+     */
+    void put(RawRate rate) {
+        long fixedBid = FIXED_POINT.fromDouble(rate.getBid());
+        long fixedAsk = FIXED_POINT.fromDouble(rate.getAsk());
+
+        Integer slot = slots.get(rate.getProvider());
+        long newBidSum = slot == null ? bidSum : FIXED_POINT.subtract(bidSum, fixedBids[slot]);
+        long newAskSum = slot == null ? askSum : FIXED_POINT.subtract(askSum, fixedAsks[slot]);
+        newBidSum = FIXED_POINT.add(newBidSum, fixedBid);
+        newAskSum = FIXED_POINT.add(newAskSum, fixedAsk);
+
+        // Nothing is changed until every sum is known to fit
+        if (slot == null) {
+            slot = count;
+            if (slot == bids.length) {
+                grow();
+            }
+            slots.put(rate.getProvider(), slot);
+            count++;
+        }
+
+        bidSum = newBidSum;
+        askSum = newAskSum;
+        fixedBids[slot] = fixedBid;
+        fixedAsks[slot] = fixedAsk;
+        bids[slot] = rate.getBid();
+        asks[slot] = rate.getAsk();
+    }
+
+    /**
+     * Returns the mean bid and ask of the providers, each rounded once from the exact fixed-point sums.
+     *
+     * @throws ArithmeticException if no provider contributed yet
+     */
+    MeanRate getMeanRate() {
+        long divisor = FIXED_POINT.fromLong(count);
+
+        MeanRate meanRate = new MeanRate();
+        meanRate.setMeanBid(FIXED_POINT.toDouble(FIXED_POINT.divide(bidSum, divisor)));
+        meanRate.setMeanAsk(FIXED_POINT.toDouble(FIXED_POINT.divide(askSum, divisor)));
+        return meanRate;
+    }
+
+    /**
+     * Returns the bids and asks of the providers as the calculators take them, copies in the order the providers
+     * first contributed.
+     *
+     * @return A list containing two arrays: first for bids, second for asks.
+     */
+    List<double[]> getBidsAndAsks() {
+        return Arrays.asList(Arrays.copyOf(bids, count), Arrays.copyOf(asks, count));
+    }
+
+    private void grow() {
+        int length = bids.length * 2;
+        bids = Arrays.copyOf(bids, length);
+        asks = Arrays.copyOf(asks, length);
+        fixedBids = Arrays.copyOf(fixedBids, length);
+        fixedAsks = Arrays.copyOf(fixedAsks, length);
+    }
+}
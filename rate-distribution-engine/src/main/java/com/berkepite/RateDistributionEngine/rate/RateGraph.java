@@ -0,0 +1,344 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph of the rates {@link RateManager} derives from the raw rates.
+ * <p>
+ * The graph has four kinds of nodes:
+ * </p>
+ * <ul>
+ *     <li>{@link Kind#RAW}: one per configured raw rate type, fed by the ticks.</li>
+ *     <li>{@link Kind#INTERMEDIATE}: the USD mid rate, derived from the "USD_TRY" raw rates.</li>
+ *     <li>{@link Kind#OUTPUT}: one calculated rate per raw rate type, named by the {@link IRateConverter}. The one of
+ *     "USD_TRY" is derived from its raw rates alone, every other one also from the USD mid rate.</li>
+ *     <li>{@link Kind#SYNTHETIC}: configured pairs such as {@code EUR_GBP=EUR_TRY/GBP_TRY}, the quotient of two
+ *     outputs or other synthetic pairs.</li>
+ * </ul>
+ * <p>
+ * A tick makes its raw node dirty and, through it, every node that depends on it. For each raw rate type the graph
+ * knows these descendants in advance, grouped into levels by their longest path from the raw node: all inputs of a
+ * node are up to date once the levels before it are computed, and the nodes of one level do not depend on each
+ * other, so they can be computed in parallel. The first level is computed by the tick itself, unless the rates are
+ * recomputed in a micro-batch window for the ticks of several raw rate types at once.
+ * </p>
+ * <p>
+ * Immutable once built, so it is shared by all lanes without locking.
+ * </p>
+ */
+final class RateGraph {
+    static final String USDMID_INPUT = "USD_TRY";
+    static final String USDMID = "USDMID";
+
+    /**
+     * The kinds of nodes.
+     */
+    enum Kind {
+        RAW, INTERMEDIATE, OUTPUT, SYNTHETIC
+    }
+
+    /**
+     * A node of the graph.
+     */
+    static final class Node {
+        private final Kind kind;
+        private final String name;
+        private final String lane;
+        private final List<Node> inputs;
+        private final List<Node> dependents = new ArrayList<>();
+
+        private Node(Kind kind, String name, String lane, List<Node> inputs) {
+            this.kind = kind;
+            this.name = name;
+            this.lane = lane;
+            this.inputs = inputs;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the rate type of a raw node, the calculated type of an output or a synthetic pair, "USDMID" otherwise
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the symbol whose lane computes the node: the raw rate type an output is derived from, since its
+         * raw rates belong to that lane, or the node's own name
+         */
+        String getLane() {
+            return lane;
+        }
+
+        /**
+         * @return the inputs, for a synthetic pair the numerator first and the denominator second
+         */
+        List<Node> getInputs() {
+            return inputs;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + name;
+        }
+    }
+
+    private final Map<String, Node> rawNodes;
+    private final List<Node> order;
+    private final Map<String, List<List<Node>>> dirtyLevels;
+    private final Map<Kind, Integer> nodeCounts;
+
+    private RateGraph(Map<String, Node> rawNodes, List<Node> order) {
+        this.rawNodes = rawNodes;
+        this.order = order;
+
+        Map<String, List<List<Node>>> levels = new HashMap<>();
+        for (Node rawNode : rawNodes.values()) {
+            levels.put(rawNode.getName(), levelsBelow(List.of(rawNode), order, 2));
+        }
+        this.dirtyLevels = levels;
+
+        Map<Kind, Integer> counts = new EnumMap<>(Kind.class);
+        for (Node node : order) {
+            counts.merge(node.getKind(), 1, Integer::sum);
+        }
+        this.nodeCounts = Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Builds the graph.
+     *
+     * @param rawRateTypes   The configured raw rate types.
+     * @param rateConverter  Names the output of each raw rate type.
+     * @param syntheticPairs Definitions such as {@code EUR_GBP=EUR_TRY/GBP_TRY}; the inputs are outputs or synthetic
+     *                       pairs defined anywhere in the list.
+     * @return the graph
+     * @throws IllegalArgumentException if a definition is malformed, names an unknown or ambiguous input, defines a
+     *                                  rate twice, or the synthetic pairs depend on each other in a cycle
+     */
+    static RateGraph build(List<String> rawRateTypes, IRateConverter rateConverter, List<String> syntheticPairs) {
+        Map<String, Node> rawNodes = new LinkedHashMap<>();
+        for (String type : rawRateTypes) {
+            rawNodes.put(type, new Node(Kind.RAW, type, type, List.of()));
+        }
+
+        List<Node> nodes = new ArrayList<>(rawNodes.values());
+        Node usdmid = null;
+        if (rawNodes.containsKey(USDMID_INPUT)) {
+            usdmid = new Node(Kind.INTERMEDIATE, USDMID, USDMID_INPUT, List.of(rawNodes.get(USDMID_INPUT)));
+            nodes.add(usdmid);
+        }
+
+        // Outputs by calculated type; two raw rate types may share one, which then cannot be an input
+        Map<String, Node> known = new LinkedHashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (Node rawNode : rawNodes.values()) {
+            String type = rawNode.getName();
+            List<Node> inputs = type.equals(USDMID_INPUT) || usdmid == null ? List.of(rawNode) : List.of(rawNode, usdmid);
+            Node output = new Node(Kind.OUTPUT, rateConverter.convertFromRawToCalc(type), type, inputs);
+
+            nodes.add(output);
+            if (known.putIfAbsent(output.getName(), output) != null) {
+                ambiguous.add(output.getName());
+            }
+        }
+
+        Map<String, String[]> definitions = new LinkedHashMap<>();
+        for (String pair : syntheticPairs) {
+            String[] definition = parse(pair);
+            if (known.containsKey(definition[0]) || definitions.put(definition[0], definition) != null) {
+                throw new IllegalArgumentException("Rate %s is defined more than once.".formatted(definition[0]));
+            }
+        }
+
+        Set<String> resolving = new HashSet<>();
+        for (String name : definitions.keySet()) {
+            resolve(name, definitions, known, ambiguous, resolving);
+        }
+        for (Node node : known.values()) {
+            if (node.getKind() == Kind.SYNTHETIC) {
+                nodes.add(node);
+            }
+        }
+
+        for (Node node : nodes) {
+            for (Node input : node.getInputs()) {
+                input.dependents.add(node);
+            }
+        }
+
+        return new RateGraph(rawNodes, topologicalOrder(nodes));
+    }
+
+    /**
+     * Returns the nodes to recompute after a tick of the raw rate type, beyond the first level the tick computes
+     * itself: its output and, for "USD_TRY", the USD mid rate.
+     *
+     * @return the levels in the order they must be computed, empty if nothing else depends on the type
+     */
+    List<List<Node>> getDirtyLevels(String rawRateType) {
+        List<List<Node>> levels = dirtyLevels.get(rawRateType);
+        return levels == null ? List.of() : levels;
+    }
+
+    /**
+     * Returns the outputs and synthetic pairs to recompute after ticks of several raw rate types, each once, for
+     * ticks whose rates were not calculated when they were saved. The USD mid rate is left out, the "USD_TRY" ticks
+     * compute it themselves.
+     *
+     * @return the levels in the order they must be computed
+     */
+    List<List<Node>> getRecalculationLevels(Collection<String> rawRateTypes) {
+        List<Node> roots = new ArrayList<>(rawRateTypes.size());
+        for (String type : rawRateTypes) {
+            Node rawNode = rawNodes.get(type);
+            if (rawNode != null) {
+                roots.add(rawNode);
+            }
+        }
+
+        return levelsBelow(roots, order, 1);
+    }
+
+    /**
+     * @return the number of nodes of each kind
+     */
+    Map<Kind, Integer> getNodeCounts() {
+        return nodeCounts;
+    }
+
+    /**
+     * Returns the node of an output or a synthetic pair, creating the synthetic pair and its inputs first.
+     */
+    private static Node resolve(String name, Map<String, String[]> definitions, Map<String, Node> known,
+                                Set<String> ambiguous, Set<String> resolving) {
+        if (ambiguous.contains(name)) {
+            throw new IllegalArgumentException("Rate %s is calculated from more than one raw rate type.".formatted(name));
+        }
+
+        Node node = known.get(name);
+        if (node != null) {
+            return node;
+        }
+
+        String[] definition = definitions.get(name);
+        if (definition == null) {
+            throw new IllegalArgumentException("Unknown rate %s in the synthetic pairs.".formatted(name));
+        }
+        if (!resolving.add(name)) {
+            throw new IllegalArgumentException("Synthetic pairs depend on each other in a cycle through %s.".formatted(name));
+        }
+
+        Node numerator = resolve(definition[1], definitions, known, ambiguous, resolving);
+        Node denominator = resolve(definition[2], definitions, known, ambiguous, resolving);
+        resolving.remove(name);
+
+        node = new Node(Kind.SYNTHETIC, name, name, List.of(numerator, denominator));
+        known.put(name, node);
+        return node;
+    }
+
+    /**
+     * Parses {@code NAME=NUMERATOR/DENOMINATOR} into its three names.
+     */
+    private static String[] parse(String pair) {
+        String[] sides = pair.split("=");
+        String[] operands = sides.length == 2 ? sides[1].split("/") : new String[0];
+        if (operands.length != 2) {
+            throw new IllegalArgumentException("Synthetic pair must be NAME=NUMERATOR/DENOMINATOR: %s".formatted(pair));
+        }
+
+        return new String[]{sides[0].trim(), operands[0].trim(), operands[1].trim()};
+    }
+
+    /**
+     * Orders the nodes so that every node comes after its inputs.
+     */
+    private static List<Node> topologicalOrder(List<Node> nodes) {
+        Map<Node, Integer> pendingInputs = new HashMap<>();
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes) {
+            pendingInputs.put(node, node.getInputs().size());
+            if (node.getInputs().isEmpty()) {
+                ready.add(node);
+            }
+        }
+
+        List<Node> order = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            order.add(node);
+            for (Node dependent : node.dependents) {
+                if (pendingInputs.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (order.size() != nodes.size()) {
+            throw new IllegalArgumentException("The rate graph has a cycle.");
+        }
+        return order;
+    }
+
+    /**
+     * Groups the outputs and synthetic pairs below the raw nodes by their longest path from any of them, starting
+     * with the given depth; levels left empty are dropped.
+     */
+    private static List<List<Node>> levelsBelow(Collection<Node> rawNodes, List<Node> order, int firstDepth) {
+        Map<Node, Integer> depths = new HashMap<>();
+        for (Node rawNode : rawNodes) {
+            depths.put(rawNode, 0);
+        }
+
+        int maxDepth = 0;
+        for (Node node : order) {
+            int depth = -1;
+            for (Node input : node.getInputs()) {
+                Integer inputDepth = depths.get(input);
+                if (inputDepth != null) {
+                    depth = Math.max(depth, inputDepth + 1);
+                }
+            }
+            if (depth > 0) {
+                depths.put(node, depth);
+                maxDepth = Math.max(maxDepth, depth);
+            }
+        }
+
+        List<List<Node>> levels = new ArrayList<>();
+        for (int depth = firstDepth; depth <= maxDepth; depth++) {
+            levels.add(new ArrayList<>());
+        }
+        for (Node node : order) {
+            int depth = depths.getOrDefault(node, 0);
+            if (depth >= firstDepth && (node.getKind() == Kind.OUTPUT || node.getKind() == Kind.SYNTHETIC)) {
+                levels.get(depth - firstDepth).add(node);
+            }
+        }
+
+        List<List<Node>> unmodifiable = new ArrayList<>(levels.size());
+        for (List<Node> level : levels) {
+            if (!level.isEmpty()) {
+                unmodifiable.add(Collections.unmodifiableList(level));
+            }
+        }
+        return Collections.unmodifiableList(unmodifiable);
+    }
+}
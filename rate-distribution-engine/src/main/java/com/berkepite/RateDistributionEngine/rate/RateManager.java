@@ -1,6 +1,10 @@
 package com.berkepite.RateDistributionEngine.rate;
 
+import com.berkepite.RateDistributionEngine.common.cache.IAsyncRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.IAtomicRateCacheService;
 import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
 import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
 import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
 import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
@@ -10,13 +14,27 @@ import com.berkepite.RateDistributionEngine.exception.ExceptionHandler;
 import com.berkepite.RateDistributionEngine.producer.KafkaCalcRateProducer;
 import com.berkepite.RateDistributionEngine.producer.KafkaRawRateProducer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service responsible for managing raw and calculated currency rates.
@@ -27,17 +45,76 @@ import java.util.List;
  */
 @Service
 public class RateManager implements IRateManager {
+    private static final MathContext MATH_CONTEXT = new MathContext(20, RoundingMode.HALF_UP);
+
     private final Logger LOGGER = LogManager.getLogger(RateManager.class);
 
     private final IRatesLoader ratesLoader;
     private final ExceptionHandler exceptionHandler;
     private final IRateCacheService rateCacheService;
+    /**
+     * Non-blocking cache the ticks are read and written through if one is configured, null otherwise.
+     */
+    private final IAsyncRateCacheService asyncRateCacheService;
+    /**
+     * The cache the incoming raw rates are upserted in atomically, null if atomic upserts are disabled or not supported.
+     */
+    private IAtomicRateCacheService atomicRateCacheService;
     private final ICalculatorFactory calculatorFactory;
     private IRateCalculator rateCalculator;
     private final KafkaRawRateProducer kafkaRawRateProducer;
     private final KafkaCalcRateProducer kafkaCalcRateProducer;
 
-    private List<String> rawRateTypesExcludingUSD_TRY;
+    private final IRateConverter rateConverter;
+    private final IRateFactory rateFactory;
+
+    /**
+     * Synthetic pairs derived from the calculated rates, such as {@code EUR_GBP=EUR_TRY/GBP_TRY}, comma separated.
+     */
+    @Value("${app.rate-graph.synthetic-pairs:}")
+    private String syntheticPairs;
+    private RateGraph rateGraph;
+
+    /**
+     * Number of lanes the ticks are processed on, the number of available processors if not positive.
+     */
+    @Value("${app.rate-manager.lanes:0}")
+    private int laneCount;
+    private SymbolLanes lanes;
+
+    /**
+     * Length of the micro-batch window the derived rates are recomputed in, in microseconds; 0 recomputes them per tick.
+     */
+    @Value("${app.rate-manager.recalculation-window-micros:0}")
+    private long recalculationWindowMicros;
+    /**
+     * The window dirty raw rate types are collected in, null if the rates are recomputed per tick.
+     */
+    private RecalculationWindow recalculationWindow;
+
+    /**
+     * Whether the raw rates and the USD mid rate are aggregated in memory, with the cache only persisting them.
+     */
+    @Value("${app.rate-manager.aggregate.enabled:false}")
+    private boolean aggregateEnabled;
+    /**
+     * Where the rates are cached, "redis" or "memory". Aggregates are only kept with "memory".
+     */
+    @Value("${app.rate-cache:redis}")
+    private String rateCache;
+    /**
+     * Whether incoming raw rates are checked and saved in one atomic step by the cache, if it supports that.
+     */
+    @Value("${app.redis.atomic-upsert.enabled:false}")
+    private boolean atomicUpsertEnabled;
+    /**
+     * The aggregate of every rate type seen so far, each used only on the lane of its type; null if disabled.
+     */
+    private Map<String, RateAggregate> aggregates;
+    /**
+     * The USD mid rate kept next to the aggregates: null until read from the cache, empty if there is none yet.
+     */
+    private final AtomicReference<Optional<Double>> aggregatedUsdmid = new AtomicReference<>();
 
     /**
      * Constructs the RateManager with dependencies injected.
@@ -45,15 +122,23 @@ public class RateManager implements IRateManager {
      * @param ratesLoader           Loader service for raw rate types configuration.
      * @param rateCacheService      Cache service for raw and calculated rates.
      * @param calculatorFactory     Factory to get the rate calculator implementation.
+     * @param rateConverter         Converter naming the calculated rate of each raw rate type.
+     * @param rateFactory           Factory for the synthetic rates.
      * @param kafkaRawRateProducer  Producer service for raw rate events to Kafka.
      * @param kafkaCalcRateProducer Producer service for calculated rate events to Kafka.
      * @param exceptionHandler      Centralized exception handler for rate-related exceptions.
+     * @param asyncRateCacheService Non-blocking cache service, if one is configured.
      */
     public RateManager(IRatesLoader ratesLoader, IRateCacheService rateCacheService,
-                       ICalculatorFactory calculatorFactory, KafkaRawRateProducer kafkaRawRateProducer,
-                       KafkaCalcRateProducer kafkaCalcRateProducer, ExceptionHandler exceptionHandler) {
+                       ICalculatorFactory calculatorFactory, IRateConverter rateConverter, IRateFactory rateFactory,
+                       KafkaRawRateProducer kafkaRawRateProducer,
+                       KafkaCalcRateProducer kafkaCalcRateProducer, ExceptionHandler exceptionHandler,
+                       Optional<IAsyncRateCacheService> asyncRateCacheService) {
         this.rateCacheService = rateCacheService;
+        this.asyncRateCacheService = asyncRateCacheService.orElse(null);
         this.calculatorFactory = calculatorFactory;
+        this.rateConverter = rateConverter;
+        this.rateFactory = rateFactory;
         this.ratesLoader = ratesLoader;
         this.kafkaRawRateProducer = kafkaRawRateProducer;
         this.kafkaCalcRateProducer = kafkaCalcRateProducer;
@@ -61,11 +146,53 @@ public class RateManager implements IRateManager {
     }
 
     /**
-     * Initializes the rate calculator and prepares the list of raw rate types
-     * excluding the "USD_TRY" pair after the bean construction.
+     * @return the settings read from the configuration
+     */
+    Settings getSettings() {
+        return new Settings(syntheticPairs, laneCount, aggregateEnabled, recalculationWindowMicros, rateCache, atomicUpsertEnabled);
+    }
+
+    /**
+     * Applies the settings of another rate manager, for one created outside of Spring. Called before {@link #init()}.
+     */
+    void applySettings(Settings settings) {
+        this.syntheticPairs = settings.syntheticPairs();
+        this.laneCount = settings.laneCount();
+        this.aggregateEnabled = settings.aggregateEnabled();
+        this.recalculationWindowMicros = settings.recalculationWindowMicros();
+        this.rateCache = settings.rateCache();
+        this.atomicUpsertEnabled = settings.atomicUpsertEnabled();
+    }
+
+    /**
+     * Starts the lanes, initializes the rate calculator and builds the rate graph after the bean construction.
+     *
+     * @throws IllegalArgumentException If the synthetic pairs are invalid.
      */
     @PostConstruct
     public void init() {
+        lanes = new SymbolLanes(laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors());
+        LOGGER.info("Processing ticks on {} lanes.", lanes.size());
+
+        if (atomicUpsertEnabled) {
+            if (rateCacheService instanceof IAtomicRateCacheService atomicCache) {
+                atomicRateCacheService = atomicCache;
+            } else {
+                LOGGER.warn("Atomic upserts are disabled, the {} cache does not support them.", rateCacheService.getName());
+            }
+        }
+
+        if (aggregateEnabled) {
+            if (!"memory".equals(rateCache)) {
+                // Read once and never refreshed, the aggregates would miss what other instances write to a shared cache
+                LOGGER.warn("Rate aggregates are disabled, they are only kept with the in-memory cache, not with {}.", rateCache);
+            } else if (atomicRateCacheService != null) {
+                LOGGER.warn("Rate aggregates are disabled, the cache upserts raw rates atomically for other instances.");
+            } else {
+                aggregates = new ConcurrentHashMap<>();
+            }
+        }
+
         try {
             rateCalculator = calculatorFactory.getCalculator();
         } catch (CalculatorException e) {
@@ -74,186 +201,650 @@ public class RateManager implements IRateManager {
             return;
         }
 
-        rawRateTypesExcludingUSD_TRY = ratesLoader.getRatesList();
-        rawRateTypesExcludingUSD_TRY.remove("USD_TRY");
+        if (atomicRateCacheService != null) {
+            LOGGER.warn("Incoming raw rates are checked by the {} cache with the tolerance of app.redis.atomic-upsert.tolerance-percent, "
+                    + "hasAtLeastOnePercentDiff of the {} calculator is not used.", atomicRateCacheService.getName(), rateCalculator.getStrategy());
+        }
+
+        List<String> pairs = syntheticPairs == null || syntheticPairs.isBlank() ? List.of() : List.of(syntheticPairs.split(","));
+        rateGraph = RateGraph.build(ratesLoader.getRatesList(), rateConverter, pairs);
+        LOGGER.info("Rate graph built with {} nodes.", rateGraph.getNodeCounts());
+
+        if (recalculationWindowMicros > 0) {
+            recalculationWindow = new RecalculationWindow(recalculationWindowMicros, this::recalculateWindow);
+            LOGGER.info("Recomputing derived rates in windows of {} µs.", recalculationWindowMicros);
+        }
+    }
+
+    /**
+     * Recomputes the rates of the last window, then stops the lanes after the ticks already handed in.
+     */
+    @PreDestroy
+    public void close() {
+        if (recalculationWindow != null) {
+            recalculationWindow.close();
+        }
+        lanes.close();
     }
 
     /**
      * Processes an incoming raw rate by performing the following steps:
      * <ul>
      *     <li>Sends the raw rate to Kafka for persistence.</li>
-     *     <li>Checks if the raw rate exists in cache and saves it if new or updated with
-     *     a significant difference compared to cached mean rates.</li>
-     *     <li>If the rate type is "USD_TRY", calculates and saves the USD mid rate and related rates.</li>
-     *     <li>Otherwise, calculates and saves rates based on the incoming raw rate's type.</li>
+     *     <li>Reads everything the rate needs from the cache in one snapshot: the USD mid rate and the
+     *     raw rates of its type.</li>
+     *     <li>Drops the rate if its provider is already cached and it differs at least one percent
+     *     from the mean of the cached rates.</li>
+     *     <li>If the rate type is "USD_TRY", calculates the USD mid rate and the "USD_TRY" rate.</li>
+     *     <li>Otherwise, calculates the rate for the incoming raw rate's type.</li>
+     *     <li>Saves the raw rate and everything calculated with one cache write and sends the
+     *     calculated rates to Kafka.</li>
+     *     <li>Recomputes the rates that depend on the rates just calculated, as the {@link RateGraph} tells.</li>
      * </ul>
+     * <p>
+     * Calculations see the cached raw rates with the incoming one already in place, exactly as if it had
+     * been saved first.
+     * </p>
+     * <p>
+     * Ticks are processed on {@link SymbolLanes}: each rate type is owned by one single-threaded lane, so the ticks
+     * of a type are processed one at a time and every tick sees the writes of the previous one, while the ticks of
+     * types on other lanes are processed in parallel. The calling thread waits until its tick is processed.
+     * </p>
+     * <p>
+     * Rates derived from more than one type are recomputed after the tick is saved, level by level of the
+     * {@link RateGraph}: after a "USD_TRY" tick the USD mid rate changed, so every other type is recalculated on its
+     * own lane, one batch per lane; then the synthetic pairs whose inputs changed. Only the nodes that depend on the
+     * tick are recomputed, each level after the one before, the nodes of a level on their lanes in parallel. Each
+     * batch reads its inputs when it runs, so a tick of another type processed before it is recomputed by it and one
+     * processed after it already sees the new values. Either way the cached rates end up as if the ticks had been
+     * processed one after another.
+     * </p>
+     * <p>
+     * With a recalculation window configured, a tick only saves its raw rate, and for "USD_TRY" the USD mid rate, and
+     * marks its type dirty in the {@link RecalculationWindow}. When the window ends, the rates derived from every type
+     * marked meanwhile are recomputed once, level by level as above, so a burst of ticks calls the calculator and
+     * sends each derived rate once per window instead of once per tick.
+     * </p>
+     * <p>
+     * With aggregates enabled, nothing is read from the cache per tick. Each rate type keeps a {@link RateAggregate}
+     * of the latest rate of every provider on its lane, which the tolerance check reads its mean from in constant time
+     * and the calculations their bids and asks; the USD mid rate is kept next to them. Both are read from the cache
+     * once, when first needed, and the cache writes only persist them. They are therefore only kept with the in-memory
+     * cache, which no other instance writes to.
+     * </p>
+     * <p>
+     * With atomic upserts, the tolerance check, the write of the raw rate and the snapshot read happen as one step
+     * in the cache instead, see {@link IAtomicRateCacheService#upsertRawRate(RawRate, List)}.
+     * </p>
+     * <p>
+     * With an {@link IAsyncRateCacheService}, the tick waits only for its snapshot. The write is sent without
+     * waiting for its reply, so it overlaps with sending the calculated rates and with the next tick; the next
+     * snapshot is read after it on the same connection and still sees it. A failed write is logged.
+     * </p>
      *
      * @param incomingRate The raw rate received to be managed.
      */
+    @Override
     public void manageIncomingRawRate(RawRate incomingRate) {
+        publishRawRate(incomingRate);
+        processRawRate(incomingRate);
+    }
+
+    /**
+     * Sends the raw rate to Kafka for persistence, the first step of {@link #manageIncomingRawRate(RawRate)}.
+     *
+     * @param incomingRate The raw rate received.
+     */
+    @Override
+    public void publishRawRate(RawRate incomingRate) {
         kafkaRawRateProducer.sendRawRate(incomingRate);
+    }
+
+    /**
+     * Processes a raw rate already sent to Kafka, all steps of {@link #manageIncomingRawRate(RawRate)} but the first.
+     * A caller that may drop ticks before they are processed publishes each of them first, so the raw rate topic
+     * still receives every tick.
+     *
+     * @param incomingRate The raw rate received to be managed.
+     */
+    @Override
+    public void processRawRate(RawRate incomingRate) {
+        String type = incomingRate.getType();
+        boolean saved = Boolean.TRUE.equals(lanes.call(type, () -> processTick(incomingRate)));
+
+        if (saved && recalculationWindow != null) {
+            recalculationWindow.mark(type);
+        } else if (saved) {
+            for (List<RateGraph.Node> level : rateGraph.getDirtyLevels(type)) {
+                lanes.forEachLane(level, RateGraph.Node::getLane, this::recalculate);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the rates derived from the raw rate types marked dirty in the last window, each once. Runs on the
+     * window thread, which waits for the lanes level by level.
+     *
+     * @param types The raw rate types of the ticks saved in the window.
+     */
+    private void recalculateWindow(Set<String> types) {
+        for (List<RateGraph.Node> level : rateGraph.getRecalculationLevels(types)) {
+            lanes.forEachLane(level, RateGraph.Node::getLane, this::recalculate);
+        }
+    }
+
+    /**
+     * Reads the raw rates and the USD mid rate of one tick, calculates the rates of its type and writes the results
+     * back; with a recalculation window, the rates of its type are left to the window. Runs on the lane of the
+     * tick's type.
+     *
+     * @param incomingRate The raw rate received to be managed.
+     * @return true if the tick was accepted and saved.
+     */
+    private boolean processTick(RawRate incomingRate) {
+        String type = incomingRate.getType();
 
         try {
-            if (rateCacheService.getRawRate(incomingRate) == null) {
-                rateCacheService.saveRawRate(incomingRate);
-            } else {
-                var allRawRatesForType = rateCacheService.getAllRawRatesForType(incomingRate.getType());
+            Double usdmid;
+            List<double[]> bidsAndAsks;
+            RawRate rawRateToSave;
+
+            if (aggregates != null) {
+                RateAggregate aggregate = getAggregate(type);
+                if (aggregate.contains(incomingRate.getProvider()) && !isWithinTolerance(incomingRate, aggregate.getMeanRate())) {
+                    return false;
+                }
 
-                if (allRawRatesForType.isEmpty()) {
-                    LOGGER.error("No cached rates found for type {} while calculating mean rate. Aborting.",
-                            incomingRate.getType());
-                    return;
+                aggregate.put(incomingRate);
+                usdmid = getAggregatedUSDMID();
+                bidsAndAsks = aggregate.getBidsAndAsks();
+                rawRateToSave = incomingRate;
+            } else if (atomicRateCacheService != null) {
+                RawRateUpsertResult result = atomicRateCacheService.upsertRawRate(incomingRate, List.of(type));
+                if (!result.isAccepted()) {
+                    logDroppedRate(incomingRate);
+                    return false;
                 }
 
-                var values = getBidsAndAsks(allRawRatesForType);
-                var bids = values.get(0);
-                var asks = values.get(1);
-
-                var meanRate = rateCalculator.calculateMeanRate(bids, asks);
-                if (!rateCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate)) {
-                    rateCacheService.saveRawRate(incomingRate);
-                } else {
-                    LOGGER.info("Incoming rate from provider {} for type {} differs more than 1%, dropping rate.",
-                            incomingRate.getProvider(), incomingRate.getType());
-                    return;
+                usdmid = result.getSnapshot().getUSDMID();
+                bidsAndAsks = getBidsAndAsks(result.getSnapshot().getRawRates(type));
+                rawRateToSave = null;
+            } else {
+                RateCacheSnapshot snapshot = getTickSnapshot(List.of(type));
+                List<RawRate> cachedRates = snapshot.getRawRates(type);
+
+                if (isCached(cachedRates, incomingRate) && !isWithinTolerance(incomingRate, calculateMeanRate(cachedRates))) {
+                    return false;
                 }
+
+                usdmid = snapshot.getUSDMID();
+                bidsAndAsks = getBidsAndAsks(withIncomingRate(cachedRates, incomingRate));
+                rawRateToSave = incomingRate;
             }
 
-            if (incomingRate.getType().equals("USD_TRY")) {
-                calculateAndSaveUSDMID(incomingRate);
-                calculateAndSaveForUSD_TRY(incomingRate);
+            Double newUsdmid = null;
+            List<CalculatedRate> calcRates = new ArrayList<>(1);
 
-                if (!rawRateTypesExcludingUSD_TRY.isEmpty()) {
-                    rawRateTypesExcludingUSD_TRY.forEach(this::calculateAndSaveForType);
+            if (type.equals(RateGraph.USDMID_INPUT)) {
+                newUsdmid = calculateUSDMID(incomingRate, usdmid, bidsAndAsks);
+                if (newUsdmid != null && aggregates != null) {
+                    aggregatedUsdmid.set(Optional.of(newUsdmid));
                 }
-            } else {
-                calculateAndSaveForType(incomingRate.getType());
+
+                if (recalculationWindow == null) {
+                    addIfPresent(calcRates, calculateForUSD_TRY(bidsAndAsks));
+                }
+            } else if (recalculationWindow == null) {
+                addIfPresent(calcRates, calculateForType(type, usdmid, bidsAndAsks));
+            }
+
+            if (rawRateToSave != null || newUsdmid != null || !calcRates.isEmpty()) {
+                saveTick(rawRateToSave, newUsdmid, calcRates);
             }
+            kafkaCalcRateProducer.sendCalcRates(calcRates);
+            return true;
 
+        } catch (ArithmeticException e) {
+            exceptionHandler.handle(new CalculatorException("Failed to aggregate raw rate: " + e.getMessage(), e), rateCalculator);
         } catch (CalculatorException e) {
             exceptionHandler.handle(e, rateCalculator);
         } catch (CacheException e) {
-            exceptionHandler.handle(e, rateCacheService);
+            handle(e);
         }
+
+        return false;
     }
 
     /**
-     * Calculates and persists the calculated rate for a given raw rate type.
-     * Also sends the calculated rate event to Kafka.
+     * Recomputes the given nodes of one level of the rate graph after a tick was saved. Runs on the lane that owns the
+     * nodes: the calculated rates of raw rate types are recalculated in one batch with the current USD mid rate,
+     * between two ticks of their types, then the synthetic pairs from their cached inputs.
      *
-     * @param type The raw rate type to calculate for.
+     * @param nodes The nodes owned by the lane.
      */
-    private synchronized void calculateAndSaveForType(String type) {
+    private void recalculate(List<RateGraph.Node> nodes) {
+        List<String> types = new ArrayList<>(nodes.size());
+        List<RateGraph.Node> syntheticNodes = new ArrayList<>();
+        for (RateGraph.Node node : nodes) {
+            if (node.getKind() == RateGraph.Kind.OUTPUT) {
+                types.add(node.getLane());
+            } else if (node.getKind() == RateGraph.Kind.SYNTHETIC) {
+                syntheticNodes.add(node);
+            }
+        }
+
         try {
-            Double usdmid = rateCacheService.getUSDMID();
-            if (usdmid == null) {
-                LOGGER.warn("USD mid rate not found in cache. Aborting calculation for type: {}.", type);
-                return;
+            List<CalculatedRate> calcRates = new ArrayList<>(nodes.size());
+            if (!types.isEmpty()) {
+                calcRates.addAll(recalculateForTypes(types));
+            }
+            for (RateGraph.Node node : syntheticNodes) {
+                addIfPresent(calcRates, calculateSynthetic(node));
             }
 
-            List<RawRate> allRawRates = rateCacheService.getAllRawRatesForType(type);
-            if (allRawRates.isEmpty()) {
-                LOGGER.error("No raw rates cached for type {}. Aborting calculation.", type);
+            if (calcRates.isEmpty()) {
                 return;
             }
 
-            var values = getBidsAndAsks(allRawRates);
-            var bids = values.get(0);
-            var asks = values.get(1);
-
-            CalculatedRate calcRate = rateCalculator.calculateForRawRateType(type, usdmid, bids, asks);
-            rateCacheService.saveCalcRate(calcRate);
-            kafkaCalcRateProducer.sendCalcRate(calcRate);
+            saveTick(null, null, calcRates);
+            kafkaCalcRateProducer.sendCalcRates(calcRates);
 
-        } catch (CalculatorException e) {
-            exceptionHandler.handle(e, rateCalculator);
+        } catch (ArithmeticException e) {
+            exceptionHandler.handle(new CalculatorException("Failed to aggregate raw rates: " + e.getMessage(), e), rateCalculator);
         } catch (CacheException e) {
-            exceptionHandler.handle(e, rateCacheService);
+            handle(e);
+        }
+    }
+
+    /**
+     * Recalculates the given types in one batch with the current USD mid rate; "USD_TRY", recomputed only after a
+     * recalculation window, from its raw rates alone. Types without raw rates are skipped.
+     *
+     * @param types The raw rate types owned by the lane.
+     * @return The calculated rates, empty if they could not be calculated.
+     * @throws CacheException If the raw rates or the USD mid rate cannot be read.
+     */
+    private List<CalculatedRate> recalculateForTypes(List<String> types) throws CacheException {
+        Double usdmid;
+        Map<String, List<double[]>> bidsAndAsksPerType = new LinkedHashMap<>();
+
+        if (aggregates != null) {
+            usdmid = getAggregatedUSDMID();
+            for (String type : types) {
+                RateAggregate aggregate = getAggregate(type);
+                if (aggregate.size() == 0) {
+                    logNoRawRates(type);
+                    continue;
+                }
+
+                bidsAndAsksPerType.put(type, aggregate.getBidsAndAsks());
+            }
+        } else {
+            RateCacheSnapshot snapshot = getTickSnapshot(types);
+            usdmid = snapshot.getUSDMID();
+            for (String type : types) {
+                List<RawRate> rawRates = snapshot.getRawRates(type);
+                if (rawRates.isEmpty()) {
+                    logNoRawRates(type);
+                    continue;
+                }
+
+                bidsAndAsksPerType.put(type, getBidsAndAsks(rawRates));
+            }
         }
+
+        List<CalculatedRate> calcRates = new ArrayList<>(bidsAndAsksPerType.size());
+        List<double[]> usdTryBidsAndAsks = bidsAndAsksPerType.remove(RateGraph.USDMID_INPUT);
+        if (usdTryBidsAndAsks != null) {
+            addIfPresent(calcRates, calculateForUSD_TRY(usdTryBidsAndAsks));
+        }
+        calcRates.addAll(calculateForTypes(usdmid, bidsAndAsksPerType));
+
+        return calcRates;
     }
 
     /**
-     * Calculates and saves the calculated rate specifically for "USD_TRY" raw rate type.
+     * Calculates a synthetic pair from the cached rates of its numerator and denominator: the bid is the numerator's
+     * bid over the denominator's ask, the ask the numerator's ask over the denominator's bid.
      *
-     * @param incomingRate The incoming raw rate for "USD_TRY".
+     * @param node The synthetic pair.
+     * @return The calculated rate, or null if an input is missing or it could not be calculated.
+     * @throws CacheException If the inputs cannot be read.
      */
-    private synchronized void calculateAndSaveForUSD_TRY(RawRate incomingRate) {
+    private CalculatedRate calculateSynthetic(RateGraph.Node node) throws CacheException {
+        CalculatedRate numerator = getCalcRate(node.getInputs().get(0).getName());
+        CalculatedRate denominator = getCalcRate(node.getInputs().get(1).getName());
+        if (numerator == null || denominator == null) {
+            LOGGER.warn("Inputs of synthetic rate {} not found in cache. Aborting calculation.", node.getName());
+            return null;
+        }
+
         try {
-            var allRawRatesForUSD_TRY = rateCacheService.getAllRawRatesForType(incomingRate.getType());
+            return rateFactory.createCalcRate(node.getName(),
+                    BigDecimal.valueOf(numerator.getBid()).divide(BigDecimal.valueOf(denominator.getAsk()), MATH_CONTEXT).doubleValue(),
+                    BigDecimal.valueOf(numerator.getAsk()).divide(BigDecimal.valueOf(denominator.getBid()), MATH_CONTEXT).doubleValue(),
+                    Instant.now());
+        } catch (ArithmeticException e) {
+            exceptionHandler.handle(new CalculatorException("Failed to calculate synthetic rate %s.".formatted(node.getName()), e), rateCalculator);
+            return null;
+        }
+    }
 
-            if (allRawRatesForUSD_TRY.isEmpty()) {
-                LOGGER.error("No cached rates found for USD_TRY type. Aborting calculation.");
-                return;
+    /**
+     * Reads a calculated rate, through the asynchronous cache if one is configured.
+     */
+    private CalculatedRate getCalcRate(String type) throws CacheException {
+        CalculatedRate key = rateFactory.createCalcRate(type, 0.0, 0.0, null);
+        return asyncRateCacheService == null ? rateCacheService.getCalcRate(key) : join(asyncRateCacheService.getCalcRate(key));
+    }
+
+    /**
+     * Returns the aggregate of a rate type, reading its raw rates from the cache the first time.
+     * Only called on the lane of the type.
+     */
+    private RateAggregate getAggregate(String type) throws CacheException {
+        RateAggregate aggregate = aggregates.get(type);
+        if (aggregate == null) {
+            List<RawRate> rawRates = asyncRateCacheService == null
+                    ? rateCacheService.getAllRawRatesForType(type)
+                    : join(asyncRateCacheService.getAllRawRatesForType(type));
+            aggregate = RateAggregate.of(rawRates);
+            aggregates.put(type, aggregate);
+        }
+
+        return aggregate;
+    }
+
+    /**
+     * Returns the USD mid rate kept next to the aggregates, reading it from the cache the first time.
+     * A value set by a "USD_TRY" tick meanwhile is never replaced by the one read.
+     */
+    private Double getAggregatedUSDMID() throws CacheException {
+        Optional<Double> usdmid = aggregatedUsdmid.get();
+        if (usdmid == null) {
+            Double cached = asyncRateCacheService == null ? rateCacheService.getUSDMID() : join(asyncRateCacheService.getUSDMID());
+            aggregatedUsdmid.compareAndSet(null, Optional.ofNullable(cached));
+            usdmid = aggregatedUsdmid.get();
+        }
+
+        return usdmid.orElse(null);
+    }
+
+    /**
+     * Reads the snapshot of a tick, through the asynchronous cache if one is configured.
+     */
+    private RateCacheSnapshot getTickSnapshot(List<String> types) throws CacheException {
+        return asyncRateCacheService == null ? rateCacheService.getTickSnapshot(types) : join(asyncRateCacheService.getTickSnapshot(types));
+    }
+
+    /**
+     * Writes the results of a tick, through the asynchronous cache without waiting if one is configured.
+     */
+    private void saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) throws CacheException {
+        if (asyncRateCacheService == null) {
+            rateCacheService.saveTick(rawRate, usdmid, calcRates);
+        } else {
+            saveTickAsync(rawRate, usdmid, calcRates);
+        }
+    }
+
+    /**
+     * Sends the writes of a tick through the asynchronous cache without waiting for them.
+     */
+    private void saveTickAsync(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) {
+        CompletableFuture<Void> saved = asyncRateCacheService.saveTick(rawRate, usdmid, calcRates);
+        saved.whenComplete((ignored, e) -> {
+            if (e != null) {
+                exceptionHandler.handle(asCacheException(e), asyncRateCacheService);
             }
+        });
+    }
+
+    /**
+     * Waits for a read of the asynchronous cache.
+     */
+    private static <T> T join(CompletableFuture<T> reply) throws CacheException {
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            throw asCacheException(e);
+        }
+    }
+
+    private static CacheException asCacheException(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof CacheException cacheException ? cacheException : new CacheException(cause.getMessage(), cause);
+    }
+
+    private void handle(CacheException e) {
+        if (asyncRateCacheService == null) {
+            exceptionHandler.handle(e, rateCacheService);
+        } else {
+            exceptionHandler.handle(e, asyncRateCacheService);
+        }
+    }
+
+    /**
+     * Calculates the mean of the cached rates of a type with the calculator.
+     *
+     * @throws CalculatorException If the calculation fails.
+     */
+    private MeanRate calculateMeanRate(List<RawRate> cachedRates) throws CalculatorException {
+        var values = getBidsAndAsks(cachedRates);
+        var bids = values.get(0);
+        var asks = values.get(1);
+
+        return rateCalculator.calculateMeanRate(bids, asks);
+    }
+
+    /**
+     * Checks the incoming rate against the mean of the cached rates of its type.
+     *
+     * @param incomingRate The incoming raw rate.
+     * @param meanRate     The mean of the cached raw rates of its type.
+     * @return true if the difference is below one percent and the rate is kept.
+     * @throws CalculatorException If the check fails.
+     */
+    private boolean isWithinTolerance(RawRate incomingRate, MeanRate meanRate) throws CalculatorException {
+        if (rateCalculator.hasAtLeastOnePercentDiff(incomingRate, meanRate)) {
+            logDroppedRate(incomingRate);
+            return false;
+        }
+
+        return true;
+    }
+
+    private void logDroppedRate(RawRate incomingRate) {
+        LOGGER.info("Incoming rate from provider {} for type {} differs more than 1%, dropping rate.",
+                incomingRate.getProvider(), incomingRate.getType());
+    }
+
+    private void logNoRawRates(String type) {
+        LOGGER.error("No raw rates cached for type {}. Aborting calculation.", type);
+    }
+
+    /**
+     * Calculates the rate for a given raw rate type.
+     *
+     * @param type        The raw rate type to calculate for.
+     * @param usdmid      The USD mid rate, may be null.
+     * @param bidsAndAsks The bids and asks of the type's raw rates.
+     * @return The calculated rate, or null if it could not be calculated.
+     */
+    private CalculatedRate calculateForType(String type, Double usdmid, List<double[]> bidsAndAsks) {
+        if (usdmid == null) {
+            LOGGER.warn("USD mid rate not found in cache. Aborting calculation for type: {}.", type);
+            return null;
+        }
+
+        try {
+            var bids = bidsAndAsks.get(0);
+            var asks = bidsAndAsks.get(1);
+
+            return rateCalculator.calculateForRawRateType(type, usdmid, bids, asks);
+        } catch (CalculatorException e) {
+            exceptionHandler.handle(e, rateCalculator);
+            return null;
+        }
+    }
 
-            var values = getBidsAndAsks(allRawRatesForUSD_TRY);
-            var bids = values.get(0);
-            var asks = values.get(1);
+    /**
+     * Calculates the rates for several raw rate types in one batch, with a single calculator call.
+     *
+     * @param usdmid             The USD mid rate, may be null.
+     * @param bidsAndAsksPerType The bids and asks of the raw rates of each type.
+     * @return The calculated rates, empty if they could not be calculated.
+     */
+    private List<CalculatedRate> calculateForTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) {
+        if (bidsAndAsksPerType.isEmpty()) {
+            return List.of();
+        }
 
-            CalculatedRate calculatedRate = rateCalculator.calculateForUSD_TRY(bids, asks);
-            rateCacheService.saveCalcRate(calculatedRate);
-            kafkaCalcRateProducer.sendCalcRate(calculatedRate);
+        if (usdmid == null) {
+            LOGGER.warn("USD mid rate not found in cache. Aborting calculation for types: {}.", bidsAndAsksPerType.keySet());
+            return List.of();
+        }
 
+        try {
+            return rateCalculator.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
         } catch (CalculatorException e) {
             exceptionHandler.handle(e, rateCalculator);
-        } catch (CacheException e) {
-            exceptionHandler.handle(e, rateCacheService);
+            return List.of();
         }
     }
 
     /**
-     * Calculates the USD mid rate and saves it in the cache.
-     * If the USD mid rate is already cached, recalculates it using all "USD_TRY" raw rates.
+     * Calculates the rate specifically for the "USD_TRY" raw rate type.
+     *
+     * @param bidsAndAsks The bids and asks of the "USD_TRY" raw rates.
+     * @return The calculated rate, or null if it could not be calculated.
+     */
+    private CalculatedRate calculateForUSD_TRY(List<double[]> bidsAndAsks) {
+        try {
+            var bids = bidsAndAsks.get(0);
+            var asks = bidsAndAsks.get(1);
+
+            return rateCalculator.calculateForUSD_TRY(bids, asks);
+        } catch (CalculatorException e) {
+            exceptionHandler.handle(e, rateCalculator);
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the USD mid rate.
+     * If no USD mid rate is cached yet, it is calculated from the incoming rate alone,
+     * otherwise it is recalculated using all "USD_TRY" raw rates.
      *
      * @param incomingRate The incoming raw rate to calculate from.
+     * @param cachedUsdmid The cached USD mid rate, may be null.
+     * @param bidsAndAsks  The bids and asks of the "USD_TRY" raw rates.
+     * @return The new USD mid rate, or null if it could not be calculated.
      */
-    private synchronized void calculateAndSaveUSDMID(RawRate incomingRate) {
+    private Double calculateUSDMID(RawRate incomingRate, Double cachedUsdmid, List<double[]> bidsAndAsks) {
         try {
-            if (rateCacheService.getUSDMID() == null) {
+            if (cachedUsdmid == null) {
                 Double usdmid = rateCalculator.calculateUSDMID(
-                        new Double[]{incomingRate.getBid()},
-                        new Double[]{incomingRate.getAsk()});
+                        new double[]{incomingRate.getBid()},
+                        new double[]{incomingRate.getAsk()});
                 LOGGER.info("Calculated new USDMID from scratch: {}", usdmid);
-                rateCacheService.saveUSDMID(usdmid);
-            } else {
-                List<RawRate> allUSDTRY = rateCacheService.getAllRawRatesForType("USD_TRY");
-                if (allUSDTRY.isEmpty()) {
-                    LOGGER.error("No cached USD_TRY raw rates found while calculating USDMID.");
-                    return;
-                }
+                return usdmid;
+            }
 
-                var values = getBidsAndAsks(allUSDTRY);
-                var bids = values.get(0);
-                var asks = values.get(1);
+            var bids = bidsAndAsks.get(0);
+            var asks = bidsAndAsks.get(1);
 
-                Double calculated_usdmid = rateCalculator.calculateUSDMID(bids, asks);
-                LOGGER.info("Recalculated USDMID: {}", calculated_usdmid);
-                rateCacheService.saveUSDMID(calculated_usdmid);
-            }
+            Double calculated_usdmid = rateCalculator.calculateUSDMID(bids, asks);
+            LOGGER.info("Recalculated USDMID: {}", calculated_usdmid);
+            return calculated_usdmid;
         } catch (CalculatorException e) {
             exceptionHandler.handle(e, rateCalculator);
-        } catch (CacheException e) {
-            exceptionHandler.handle(e, rateCacheService);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the provider of the incoming rate already has a cached rate.
+     */
+    private static boolean isCached(List<RawRate> cachedRates, RawRate incomingRate) {
+        for (RawRate rate : cachedRates) {
+            if (incomingRate.getProvider().equals(rate.getProvider())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the cached rates as they are after saving the incoming rate: the provider's cached rate is
+     * replaced in place, or the incoming rate is appended if the provider is new.
+     */
+    private static List<RawRate> withIncomingRate(List<RawRate> cachedRates, RawRate incomingRate) {
+        List<RawRate> rates = new ArrayList<>(cachedRates.size() + 1);
+        boolean replaced = false;
+        for (RawRate rate : cachedRates) {
+            if (!replaced && incomingRate.getProvider().equals(rate.getProvider())) {
+                rates.add(incomingRate);
+                replaced = true;
+            } else {
+                rates.add(rate);
+            }
+        }
+
+        if (!replaced) {
+            rates.add(incomingRate);
+        }
+
+        return rates;
+    }
+
+    private static void addIfPresent(List<CalculatedRate> calcRates, CalculatedRate calcRate) {
+        if (calcRate != null) {
+            calcRates.add(calcRate);
         }
     }
 
     /**
-     * Extracts bids and asks from a list of raw rates.
+     * Extracts bids and asks from a list of raw rates into primitive arrays,
+     * which the calculators pass to the scripts without boxing each price.
      *
      * @param rates List of raw rates.
      * @return A list containing two arrays: first for bids, second for asks.
      */
-    private List<Double[]> getBidsAndAsks(List<RawRate> rates) {
+    private List<double[]> getBidsAndAsks(List<RawRate> rates) {
         if (rates == null || rates.isEmpty()) {
             return null;
         }
 
-        List<Double> bids = new ArrayList<>();
-        rates.forEach(rate -> bids.add(rate.getBid()));
+        double[] bids = new double[rates.size()];
+        double[] asks = new double[rates.size()];
+        for (int i = 0; i < rates.size(); i++) {
+            RawRate rate = rates.get(i);
+            bids[i] = rate.getBid();
+            asks[i] = rate.getAsk();
+        }
 
-        List<Double> asks = new ArrayList<>();
-        rates.forEach(rate -> asks.add(rate.getAsk()));
+        return Arrays.asList(bids, asks);
+    }
 
-        return Arrays.asList(bids.toArray(new Double[0]), asks.toArray(new Double[0]));
+    /**
+     * Settings of a rate manager that are read from the configuration.
+     *
+     * @param syntheticPairs            comma separated synthetic pairs, see {@code app.rate-graph.synthetic-pairs}
+     * @param laneCount                 number of lanes, the number of available processors if not positive
+     * @param aggregateEnabled          whether the raw rates are aggregated in memory
+     * @param recalculationWindowMicros length of the recalculation window, 0 to recompute per tick
+     * @param rateCache                 where the rates are cached, see {@code app.rate-cache}
+     * @param atomicUpsertEnabled       whether incoming raw rates are upserted atomically, see {@code app.redis.atomic-upsert.enabled}
+     */
+    record Settings(String syntheticPairs, int laneCount, boolean aggregateEnabled, long recalculationWindowMicros, String rateCache,
+                    boolean atomicUpsertEnabled) {
+        /**
+         * @return these settings for a rate manager on a cache of its own, which leaves the raw rates to the manager
+         */
+        Settings withoutAtomicUpsert() {
+            return new Settings(syntheticPairs, laneCount, aggregateEnabled, recalculationWindowMicros, rateCache, false);
+        }
     }
 }
@@ -0,0 +1,276 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceInMemory;
+import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.IRatesLoader;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.exception.ExceptionHandler;
+import com.berkepite.RateDistributionEngine.producer.KafkaCalcRateProducer;
+import com.berkepite.RateDistributionEngine.producer.KafkaRawRateProducer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that warms up the calculation pipeline before the subscribers connect.
+ * <p>
+ * Synthetic ticks for every configured rate type are driven through a private {@link RateManager}
+ * that uses the real calculator and the settings of the live one, but an isolated in-memory cache and Kafka
+ * producers that discard everything. This lets the JIT and the polyglot engine compile the hot path without touching the
+ * shared cache or publishing any rate.
+ * </p>
+ * <p>
+ * The private rate manager calls the calculator of the configured strategy without its wrappers, so the synthetic
+ * ticks are neither memoized nor recorded as recent inputs for a hot reload. Every tick has new prices, so each one
+ * runs the whole calculation.
+ * </p>
+ * <p>
+ * Ticks are measured in windows; the warm-up stops once the mean per-tick latency of consecutive
+ * windows stays within the configured tolerance, or when the time budget runs out.
+ * </p>
+ */
+@Service
+public class RateWarmUp {
+    private static final Logger LOGGER = LogManager.getLogger(RateWarmUp.class);
+    private static final String PROVIDER_PREFIX = "WARMUP_";
+
+    private final IRatesLoader ratesLoader;
+    private final ICalculatorFactory calculatorFactory;
+    private final IRateFactory rateFactory;
+    private final IRateConverter rateConverter;
+    private final ExceptionHandler exceptionHandler;
+    private final RateManager liveRateManager;
+
+    /**
+     * Whether the warm-up runs at startup.
+     */
+    @Value("${app.warm-up.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Upper bound (in milliseconds) for the whole warm-up.
+     */
+    @Value("${app.warm-up.max-duration-ms:30000}")
+    private long maxDurationMillis;
+
+    /**
+     * Number of synthetic providers that send ticks for every rate type.
+     */
+    @Value("${app.warm-up.providers:4}")
+    private int providers;
+
+    /**
+     * Number of ticks per measurement window.
+     */
+    @Value("${app.warm-up.window-ticks:500}")
+    private int windowTicks;
+
+    /**
+     * Maximum relative change of the mean tick latency between two windows that still counts as stable.
+     */
+    @Value("${app.warm-up.stable-tolerance:0.05}")
+    private double stableTolerance;
+
+    /**
+     * Number of consecutive stable windows after which the warm-up stops.
+     */
+    @Value("${app.warm-up.stable-windows:3}")
+    private int stableWindows;
+
+    /**
+     * Constructs the RateWarmUp with its dependencies.
+     *
+     * @param ratesLoader       Loader for the configured rate types.
+     * @param calculatorFactory Factory providing the real rate calculator, which is used without its wrappers.
+     * @param rateFactory       Factory for the synthetic raw rates.
+     * @param rateConverter     Converter passed to the private rate manager.
+     * @param exceptionHandler  Exception handler passed to the private rate manager.
+     * @param liveRateManager   The rate manager processing the live ticks, whose settings the private one takes.
+     */
+    public RateWarmUp(IRatesLoader ratesLoader, ICalculatorFactory calculatorFactory,
+                      IRateFactory rateFactory, IRateConverter rateConverter, ExceptionHandler exceptionHandler,
+                      RateManager liveRateManager) {
+        this.ratesLoader = ratesLoader;
+        this.calculatorFactory = calculatorFactory;
+        this.rateFactory = rateFactory;
+        this.rateConverter = rateConverter;
+        this.exceptionHandler = exceptionHandler;
+        this.liveRateManager = liveRateManager;
+    }
+
+    /**
+     * Runs the warm-up if it is enabled.
+     *
+     * @return the warm-up result, or null if the warm-up is disabled
+     */
+    public WarmUpResult warmUpIfEnabled() {
+        if (!enabled) {
+            return null;
+        }
+
+        return warmUp();
+    }
+
+    /**
+     * Drives synthetic ticks through an isolated rate manager until the tick latency stabilises
+     * or the time budget runs out, and logs how long it took and which latency it reached.
+     *
+     * @return the warm-up result
+     */
+    public WarmUpResult warmUp() {
+        RateManager rateManager = new RateManager(ratesLoader, new RateCacheServiceInMemory(),
+                new UnwrappedCalculatorFactory(calculatorFactory), rateConverter, rateFactory, new DiscardingRawRateProducer(),
+                new DiscardingCalcRateProducer(), exceptionHandler, Optional.empty());
+        rateManager.applySettings(liveRateManager.getSettings().withoutAtomicUpsert());
+        rateManager.init();
+
+        try {
+            List<String> types = ratesLoader.getRatesList();
+            // USD_TRY first, so the USD mid rate exists before the cross rates are calculated.
+            if (types.remove("USD_TRY")) {
+                types.addFirst("USD_TRY");
+            }
+
+            if (types.isEmpty()) {
+                LOGGER.warn("No rate types configured, skipping warm-up.");
+                return new WarmUpResult(0, 0, 0, false);
+            }
+
+            LOGGER.info("Warming up the calculation pipeline for {}...", types);
+
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxDurationMillis);
+            long ticks = 0;
+            double previousWindowNanos = -1;
+            double windowNanos = 0;
+            int stableWindowCount = 0;
+
+            while (stableWindowCount < stableWindows && System.nanoTime() < deadline) {
+                long windowStart = System.nanoTime();
+                for (int i = 0; i < windowTicks; i++, ticks++) {
+                    rateManager.manageIncomingRawRate(createTick(types, ticks));
+                }
+                windowNanos = (double) (System.nanoTime() - windowStart) / windowTicks;
+
+                if (previousWindowNanos > 0 && Math.abs(windowNanos - previousWindowNanos) / previousWindowNanos <= stableTolerance) {
+                    stableWindowCount++;
+                } else {
+                    stableWindowCount = 0;
+                }
+                previousWindowNanos = windowNanos;
+            }
+
+            WarmUpResult result = new WarmUpResult(ticks,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    windowNanos / 1000,
+                    stableWindowCount >= stableWindows);
+
+            if (result.stabilised()) {
+                LOGGER.info("Warm-up finished in {} ms after {} ticks, latency stabilised at {} µs per tick.",
+                        result.durationMillis(), result.ticks(), "%.1f".formatted(result.latencyMicros()));
+            } else {
+                LOGGER.warn("Warm-up stopped after {} ms and {} ticks without stabilising, last latency {} µs per tick.",
+                        result.durationMillis(), result.ticks(), "%.1f".formatted(result.latencyMicros()));
+            }
+
+            return result;
+        } finally {
+            rateManager.close();
+        }
+    }
+
+    /**
+     * Creates the synthetic tick with the given index. Providers and types rotate, and prices are drawn at
+     * random within 0.2% around a fixed level, so no two ticks repeat and none is dropped by the one percent
+     * difference check.
+     */
+    private RawRate createTick(List<String> types, long index) {
+        String type = types.get((int) (index % types.size()));
+        String provider = PROVIDER_PREFIX + (index / types.size()) % providers;
+
+        double level = type.equals("USD_TRY") ? 34.0 : 1.0;
+        double bid = level * (1 + ThreadLocalRandom.current().nextDouble(-0.002, 0.002));
+        double ask = bid * 1.001;
+
+        return rateFactory.createRawRate(type, provider, bid, ask, Instant.now());
+    }
+
+    /**
+     * Outcome of a warm-up run.
+     *
+     * @param ticks          number of synthetic ticks processed
+     * @param durationMillis wall-clock duration of the warm-up
+     * @param latencyMicros  mean per-tick latency of the last window
+     * @param stabilised     whether the latency stabilised within the time budget
+     */
+    public record WarmUpResult(long ticks, long durationMillis, double latencyMicros, boolean stabilised) {
+    }
+
+    /**
+     * Calculator factory that hands out the unwrapped calculator of another one.
+     */
+    private static final class UnwrappedCalculatorFactory implements ICalculatorFactory {
+        private final ICalculatorFactory calculatorFactory;
+
+        private UnwrappedCalculatorFactory(ICalculatorFactory calculatorFactory) {
+            this.calculatorFactory = calculatorFactory;
+        }
+
+        @Override
+        public IRateCalculator getCalculator() throws CalculatorException {
+            return calculatorFactory.getUnwrappedCalculator();
+        }
+
+        @Override
+        public IRateCalculator getUnwrappedCalculator() throws CalculatorException {
+            return calculatorFactory.getUnwrappedCalculator();
+        }
+
+        @Override
+        public void setCoordinator(ICoordinator coordinator) {
+        }
+    }
+
+    /**
+     * Raw rate producer that drops every rate instead of sending it to Kafka.
+     */
+    private static final class DiscardingRawRateProducer extends KafkaRawRateProducer {
+        private DiscardingRawRateProducer() {
+            super(null);
+        }
+
+        @Override
+        public void sendRawRate(RawRate rate) {
+        }
+    }
+
+    /**
+     * Calculated rate producer that drops every rate instead of sending it to Kafka.
+     */
+    private static final class DiscardingCalcRateProducer extends KafkaCalcRateProducer {
+        private DiscardingCalcRateProducer() {
+            super(null);
+        }
+
+        @Override
+        public void sendCalcRate(CalculatedRate rate) {
+        }
+
+        @Override
+        public void sendCalcRates(List<CalculatedRate> rates) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Micro-batch window the derived rates of {@link RateManager} are recomputed in.
+ * <p>
+ * A saved tick marks its raw rate type dirty. The first mark opens a window of fixed length; when it ends, every type
+ * marked meanwhile is handed to the flusher at once, so a burst of ticks recomputes and publishes each derived rate
+ * once instead of once per tick. The window is not extended by later marks, so the derived rates of a tick are
+ * recomputed at most one window after it was saved, plus the time a flush still running takes.
+ * </p>
+ * <p>
+ * Flushes run one at a time on a thread of their own, which waits for the lanes like any other caller.
+ * </p>
+ */
+final class RecalculationWindow implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(RecalculationWindow.class);
+
+    private final long windowMicros;
+    private final Consumer<Set<String>> flusher;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Set<String> dirtyTypes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean open = new AtomicBoolean();
+
+    private final LongAdder marks = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedTypes = new LongAdder();
+
+    /**
+     * Starts the window thread.
+     *
+     * @param windowMicros Length of a window.
+     * @param flusher      Recomputes the rates derived from the dirty raw rate types.
+     */
+    RecalculationWindow(long windowMicros, Consumer<Set<String>> flusher) {
+        this.windowMicros = windowMicros;
+        this.flusher = flusher;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "rate-recalculation-window");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Marks the raw rate type dirty and opens a window unless one is open.
+     */
+    void mark(String type) {
+        marks.increment();
+        dirtyTypes.add(type);
+
+        if (open.compareAndSet(false, true)) {
+            scheduler.schedule(this::flushQuietly, windowMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Closes the window and hands the dirty types to the flusher. A type marked while the flusher runs opens the
+     * next window.
+     */
+    void flush() {
+        open.set(false);
+
+        Set<String> types = new LinkedHashSet<>();
+        Iterator<String> iterator = dirtyTypes.iterator();
+        while (iterator.hasNext()) {
+            types.add(iterator.next());
+            iterator.remove();
+        }
+        if (types.isEmpty()) {
+            return;
+        }
+
+        flusher.accept(types);
+        flushes.increment();
+        flushedTypes.add(types.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Recalculation of the derived rates failed.", e);
+        }
+    }
+
+    /**
+     * @return the mark and flush counters so far
+     */
+    Statistics getStatistics() {
+        return new Statistics(marks.sum(), flushes.sum(), flushedTypes.sum());
+    }
+
+    /**
+     * Stops the window thread without waiting for the open window, flushes the remaining dirty types and logs the
+     * statistics.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Recalculation window did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushQuietly();
+        LOGGER.info("Recalculation window: {}", getStatistics());
+    }
+
+    /**
+     * Counters of the window.
+     *
+     * @param marks        saved ticks that marked their type dirty
+     * @param flushes      windows that recomputed at least one type
+     * @param flushedTypes raw rate types recomputed, summed over the flushes
+     */
+    record Statistics(long marks, long flushes, long flushedTypes) {
+        /**
+         * @return the share of marks that did not cause a recomputation of their own
+         */
+        double batchingRatio() {
+            return marks == 0 ? 0 : 1 - (double) flushedTypes / marks;
+        }
+    }
+}
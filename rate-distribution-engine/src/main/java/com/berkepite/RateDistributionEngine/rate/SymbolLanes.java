@@ -0,0 +1,149 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-threaded lanes the ticks of {@link RateManager} are processed on, partitioned by symbol.
+ * <p>
+ * Every symbol is owned by one lane, chosen by its hash, so the ticks of a symbol are processed one at a time and in
+ * the order they were handed in, without a lock, while the ticks of symbols on other lanes run in parallel. Callers
+ * wait for their task, so a caller sees the outcome of its tick exactly as before. Tasks never wait for other lanes;
+ * only callers do, which keeps the lanes free of deadlocks.
+ * </p>
+ */
+final class SymbolLanes implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(SymbolLanes.class);
+
+    private final ExecutorService[] lanes;
+
+    /**
+     * Starts the lanes.
+     *
+     * @param count Number of lanes, at least one.
+     */
+    SymbolLanes(int count) {
+        lanes = new ExecutorService[Math.max(1, count)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "rate-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return the number of lanes
+     */
+    int size() {
+        return lanes.length;
+    }
+
+    /**
+     * @return the index of the lane that owns the symbol
+     */
+    int laneOf(String symbol) {
+        return Math.floorMod(symbol.hashCode(), lanes.length);
+    }
+
+    /**
+     * Runs the task on the lane of the symbol and waits for it.
+     *
+     * @return the result of the task
+     */
+    <T> T call(String symbol, Supplier<T> task) {
+        return await(lanes[laneOf(symbol)].submit(task::get));
+    }
+
+    /**
+     * Groups the symbols by lane, runs the task once per lane with the symbols that lane owns, all lanes in
+     * parallel, and waits for every one of them.
+     */
+    void forEachLane(List<String> symbols, Consumer<List<String>> task) {
+        forEachLane(symbols, Function.identity(), task);
+    }
+
+    /**
+     * Groups the items by the lane of their symbol, runs the task once per lane with the items of that lane, all
+     * lanes in parallel, and waits for every one of them.
+     */
+    <T> void forEachLane(List<T> items, Function<T, String> symbolOf, Consumer<List<T>> task) {
+        Map<Integer, List<T>> itemsByLane = new LinkedHashMap<>();
+        for (T item : items) {
+            itemsByLane.computeIfAbsent(laneOf(symbolOf.apply(item)), lane -> new ArrayList<>()).add(item);
+        }
+
+        List<Future<?>> results = new ArrayList<>(itemsByLane.size());
+        for (Map.Entry<Integer, List<T>> entry : itemsByLane.entrySet()) {
+            List<T> itemsOfLane = entry.getValue();
+            results.add(lanes[entry.getKey()].submit(() -> task.accept(itemsOfLane)));
+        }
+
+        for (Future<?> result : results) {
+            await(result);
+        }
+    }
+
+    /**
+     * Waits for a task of a lane. An interrupt does not stop the wait, since the task runs on and the caller acts on
+     * its outcome; the interrupt status is restored once the task is done.
+     */
+    private static <T> T await(Future<T> result) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops the lanes after the tasks already handed in.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Rate lane did not stop in time.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
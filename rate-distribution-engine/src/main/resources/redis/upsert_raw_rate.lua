@@ -0,0 +1,94 @@
+-- Checks an incoming raw rate against the mean of the cached rates of its type and saves it, as one atomic step.
+--
+-- KEYS[1]    hash of the incoming rate's type, raw_rates:{type}
+-- KEYS[2]    the USD mid rate, usdmid
+-- KEYS[3..n] hashes of further types whose rates are returned, e.g. every other type for USD_TRY
+-- ARGV[1]    provider of the incoming rate
+-- ARGV[2]    the incoming rate, serialized as it is stored in the hash
+-- ARGV[3]    bid of the incoming rate
+-- ARGV[4]    ask of the incoming rate
+-- ARGV[5]    tolerance in percent
+-- ARGV[6]    channel to publish to once the rate is saved, or empty
+-- ARGV[7]    message to publish
+--
+-- A rate whose provider is already cached is dropped if the average of its bid and ask difference from the mean
+-- is at least the tolerance; this is the rule of the shipped IRateCalculator.hasAtLeastOnePercentDiff, computed in
+-- doubles with the tolerance of app.redis.atomic-upsert.tolerance-percent. The configured calculator is not called.
+--
+-- Returns {0} if the rate was dropped, otherwise {1, usdmid, n, rate 1, ..., rate n, m, rate 1, ..., rate m, ...}
+-- with the rates of KEYS[1], after the write, followed by those of KEYS[3..n].
+
+-- Raw rates are stored by RawRateRedisSerializer: a version byte, the type and the provider each as a length byte
+-- and their bytes (255 for null), then bid and ask as big-endian doubles. Rates cached as JSON by earlier
+-- versions start with '{'.
+local function skipString(value, offset)
+    local length = string.byte(value, offset)
+    if length == 255 then
+        return offset + 1
+    end
+    return offset + 1 + length
+end
+
+local function bidAndAsk(value)
+    local version = string.byte(value, 1)
+    if version == 123 then
+        local rate = cjson.decode(value)
+        return rate.bid, rate.ask
+    end
+
+    if version ~= 1 then
+        error('Unsupported raw rate format version: ' .. version)
+    end
+
+    local offset = skipString(value, skipString(value, 2))
+    local bid, askOffset = struct.unpack('>d', value, offset)
+    local ask = struct.unpack('>d', value, askOffset)
+    return bid, ask
+end
+
+local provider = ARGV[1]
+local bid = tonumber(ARGV[3])
+local ask = tonumber(ARGV[4])
+local tolerance = tonumber(ARGV[5])
+
+if redis.call('HEXISTS', KEYS[1], provider) == 1 then
+    local cached = redis.call('HVALS', KEYS[1])
+    local bidSum = 0
+    local askSum = 0
+    for _, value in ipairs(cached) do
+        local rateBid, rateAsk = bidAndAsk(value)
+        bidSum = bidSum + rateBid
+        askSum = askSum + rateAsk
+    end
+
+    local meanBid = bidSum / #cached
+    local meanAsk = askSum / #cached
+    local percentageAsk = math.abs((ask - meanAsk) / ask * 100)
+    local percentageBid = math.abs((bid - meanBid) / bid * 100)
+
+    if (percentageAsk + percentageBid) / 2 >= tolerance then
+        return {0}
+    end
+end
+
+redis.call('HSET', KEYS[1], provider, ARGV[2])
+if ARGV[6] ~= '' then
+    redis.call('PUBLISH', ARGV[6], ARGV[7])
+end
+
+local result = {1, redis.call('GET', KEYS[2])}
+
+local function appendRates(key)
+    local rates = redis.call('HVALS', key)
+    result[#result + 1] = #rates
+    for _, value in ipairs(rates) do
+        result[#result + 1] = value
+    end
+end
+
+appendRates(KEYS[1])
+for i = 3, #KEYS do
+    appendRates(KEYS[i])
+end
+
+return result
@@ -0,0 +1,176 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RateCacheServiceInMemoryTest {
+    private static final int THREADS = 8;
+    private static final int TYPES = 20;
+    private static final int PROVIDERS = 12;
+    private static final int ROUNDS = 2_000;
+
+    private final RateFactory rateFactory = new RateFactory();
+
+    @Test
+    public void shouldKeepLatestRatePerProvider() {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        RawRate first = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, null);
+        RawRate second = rateFactory.createRawRate("USD_TRY", "REST_PROVIDER", 34.0, 34.2, null);
+        RawRate update = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.2, 34.4, null);
+
+        cache.saveRawRate(first);
+        cache.saveRawRate(second);
+        cache.saveRawRate(update);
+
+        Assertions.assertEquals(List.of(update, second), cache.getAllRawRatesForType("USD_TRY"));
+        Assertions.assertSame(update, cache.getRawRate(first));
+        Assertions.assertEquals(List.of(), cache.getAllRawRatesForType("EUR_USD"));
+        Assertions.assertNull(cache.getRawRate(rateFactory.createRawRate("EUR_USD", "TCP_PROVIDER", 1.0, 1.1, null)));
+    }
+
+    @Test
+    public void shouldRegisterEveryTypeAndProviderOnce_whenWrittenConcurrently() throws Exception {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+
+        // Every thread writes every type and provider, so registrations race on all of them
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS / 20; round++) {
+                for (int type = 0; type < TYPES; type++) {
+                    for (int provider = 0; provider < PROVIDERS; provider++) {
+                        cache.saveRawRate(rawRate(type, provider, thread * ROUNDS + round));
+                    }
+                }
+            }
+        });
+
+        for (int type = 0; type < TYPES; type++) {
+            List<RawRate> rates = cache.getAllRawRatesForType(type(type));
+            Assertions.assertEquals(PROVIDERS, rates.size());
+            Assertions.assertEquals(PROVIDERS, providersOf(rates).size());
+        }
+    }
+
+    @Test
+    public void shouldNeverExposePartialWrites_whenReadConcurrently() throws Exception {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<String> violations = new ArrayList<>();
+
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readerResults.add(readers.submit(() -> {
+                while (writing.get()) {
+                    for (int type = 0; type < TYPES; type++) {
+                        List<RawRate> rates = cache.getAllRawRatesForType(type(type));
+                        Set<String> providers = providersOf(rates);
+                        if (providers.size() != rates.size() || rates.size() > PROVIDERS) {
+                            synchronized (violations) {
+                                violations.add(type(type) + " " + rates);
+                            }
+                        }
+                        for (RawRate rate : rates) {
+                            // Every rate is written with ask = bid + 1 and the type it is filed under
+                            if (rate.getAsk() != rate.getBid() + 1 || !rate.getType().equals(type(type))) {
+                                synchronized (violations) {
+                                    violations.add(rate.toString());
+                                }
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Each thread owns some providers, so the latest rate of every provider is known
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int type = 0; type < TYPES; type++) {
+                    for (int provider = thread; provider < PROVIDERS; provider += THREADS) {
+                        cache.saveRawRate(rawRate(type, provider, round));
+                    }
+                    cache.saveCalcRate(rateFactory.createCalcRate(type(type), (double) round, (double) round + 1, null));
+                }
+                cache.saveUSDMID((double) round);
+            }
+        });
+        writing.set(false);
+        for (Future<?> result : readerResults) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        readers.shutdown();
+
+        Assertions.assertEquals(List.of(), violations);
+        for (int type = 0; type < TYPES; type++) {
+            List<RawRate> rates = cache.getAllRawRatesForType(type(type));
+            Assertions.assertEquals(PROVIDERS, rates.size());
+            for (RawRate rate : rates) {
+                Assertions.assertEquals(ROUNDS - 1, rate.getBid());
+            }
+            CalculatedRate calcRate = cache.getCalcRate(rateFactory.createCalcRate(type(type), 0.0, 0.0, null));
+            Assertions.assertEquals(ROUNDS - 1, calcRate.getBid());
+        }
+        Assertions.assertEquals(ROUNDS - 1, cache.getUSDMID());
+    }
+
+    private RawRate rawRate(int type, int provider, double bid) {
+        return rateFactory.createRawRate(type(type), "PROVIDER_" + provider, bid, bid + 1, null);
+    }
+
+    private static String type(int type) {
+        return "T%02d_USD".formatted(type);
+    }
+
+    private static Set<String> providersOf(List<RawRate> rates) {
+        Set<String> providers = new HashSet<>();
+        for (RawRate rate : rates) {
+            providers.add(rate.getProvider());
+        }
+
+        return providers;
+    }
+
+    private interface Writer {
+        void write(int thread) throws Exception;
+    }
+
+    /**
+     * Starts the writer on {@link #THREADS} threads at once and waits for all of them.
+     */
+    private static void runConcurrently(Writer writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            Callable<Void> task = () -> {
+                start.await();
+                writer.write(id);
+                return null;
+            };
+            results.add(executor.submit(task));
+        }
+
+        start.countDown();
+        for (Future<Void> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+}
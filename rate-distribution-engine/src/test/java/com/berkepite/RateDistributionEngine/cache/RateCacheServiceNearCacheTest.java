@@ -0,0 +1,138 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RateCacheServiceNearCacheTest {
+    private final RateFactory rateFactory = new RateFactory();
+    private RateCacheServiceRedisAPI redis;
+    private RateCacheServiceNearCache nearCache;
+
+    @BeforeEach
+    public void setUp() {
+        redis = mock(RateCacheServiceRedisAPI.class);
+        nearCache = new RateCacheServiceNearCache(redis, mock(RedisConnectionFactory.class));
+        nearCache.onChannelSubscribed(CacheInvalidation.CHANNEL.getBytes(StandardCharsets.UTF_8), 1);
+    }
+
+    @Test
+    public void shouldReadFromRedisOnce_andThenFromMemory() throws Exception {
+        RawRate rate = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, Instant.now());
+        when(redis.getTickSnapshot(List.of("USD_TRY"))).thenReturn(new RateCacheSnapshot(34.2, Map.of("USD_TRY", List.of(rate))));
+
+        RateCacheSnapshot first = nearCache.getTickSnapshot(List.of("USD_TRY"));
+        RateCacheSnapshot second = nearCache.getTickSnapshot(List.of("USD_TRY"));
+
+        Assertions.assertEquals(34.2, second.getUSDMID());
+        Assertions.assertEquals(first.getRawRates("USD_TRY"), second.getRawRates("USD_TRY"));
+        verify(redis, times(1)).getTickSnapshot(any());
+    }
+
+    @Test
+    public void shouldKeepOwnWrites_andPublishInvalidation() throws Exception {
+        RawRate cached = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, Instant.now());
+        RawRate incoming = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.2, 34.4, Instant.now());
+        RawRate newProvider = rateFactory.createRawRate("USD_TRY", "REST_PROVIDER", 34.0, 34.2, Instant.now());
+        when(redis.getTickSnapshot(List.of("USD_TRY"))).thenReturn(new RateCacheSnapshot(34.2, Map.of("USD_TRY", List.of(cached))));
+        nearCache.getTickSnapshot(List.of("USD_TRY"));
+
+        nearCache.saveTick(incoming, 34.3, List.of());
+        nearCache.saveTick(newProvider, null, List.of());
+        RateCacheSnapshot snapshot = nearCache.getTickSnapshot(List.of("USD_TRY"));
+
+        Assertions.assertEquals(34.3, snapshot.getUSDMID());
+        Assertions.assertEquals(List.of(incoming, newProvider), snapshot.getRawRates("USD_TRY"));
+        verify(redis, times(1)).getTickSnapshot(any());
+        verify(redis, times(2)).saveTick(any(), any(), any(), any(CacheInvalidation.class));
+    }
+
+    @Test
+    public void shouldReload_whenAnotherInstanceInvalidates() throws Exception {
+        RawRate rate = rateFactory.createRawRate("EUR_USD", "TCP_PROVIDER", 1.08, 1.09, Instant.now());
+        when(redis.getAllRawRatesForType("EUR_USD")).thenReturn(List.of(rate));
+        nearCache.getAllRawRatesForType("EUR_USD");
+
+        nearCache.onMessage(message(new CacheInvalidation("other-instance", List.of("raw_rates:EUR_USD"))), null);
+        nearCache.getAllRawRatesForType("EUR_USD");
+
+        verify(redis, times(2)).getAllRawRatesForType("EUR_USD");
+    }
+
+    @Test
+    public void shouldNotCache_untilSubscribed() throws Exception {
+        RateCacheServiceNearCache unsubscribed = new RateCacheServiceNearCache(redis, mock(RedisConnectionFactory.class));
+        when(redis.getUSDMID()).thenReturn(34.2);
+
+        unsubscribed.getUSDMID();
+        unsubscribed.getUSDMID();
+
+        verify(redis, times(2)).getUSDMID();
+    }
+
+    @Test
+    public void shouldKeepAUSDMIDSavedWhileAnUpsertRuns() throws Exception {
+        RawRate cached = rateFactory.createRawRate("EUR_USD", "TCP_PROVIDER", 1.08, 1.09, Instant.now());
+        RawRate incoming = rateFactory.createRawRate("EUR_USD", "REST_PROVIDER", 1.081, 1.091, Instant.now());
+        when(redis.getTickSnapshot(List.of("EUR_USD"))).thenReturn(new RateCacheSnapshot(34.0, Map.of("EUR_USD", List.of(cached))));
+        nearCache.getTickSnapshot(List.of("EUR_USD"));
+
+        // The USD_TRY lane saves a new USD mid rate while the script of the EUR_USD tick runs and reads the one before
+        when(redis.upsertRawRate(any(), any(), any(CacheInvalidation.class))).thenAnswer(invocation -> {
+            nearCache.saveTick(null, 34.5, List.of());
+            return RawRateUpsertResult.accepted(new RateCacheSnapshot(34.2, Map.of("EUR_USD", List.of(cached, incoming))));
+        });
+
+        nearCache.upsertRawRate(incoming, List.of("EUR_USD"));
+        RateCacheSnapshot snapshot = nearCache.getTickSnapshot(List.of("EUR_USD"));
+
+        Assertions.assertEquals(34.5, snapshot.getUSDMID());
+        Assertions.assertEquals(List.of(cached, incoming), snapshot.getRawRates("EUR_USD"));
+        verify(redis, times(1)).getTickSnapshot(any());
+    }
+
+    @Test
+    public void shouldKeepARawRateSavedWhileAnUpsertRuns() throws Exception {
+        RawRate cached = rateFactory.createRawRate("EUR_USD", "TCP_PROVIDER", 1.08, 1.09, Instant.now());
+        RawRate saved = rateFactory.createRawRate("EUR_USD", "TCP_PROVIDER", 1.082, 1.092, Instant.now());
+        RawRate incoming = rateFactory.createRawRate("EUR_USD", "REST_PROVIDER", 1.081, 1.091, Instant.now());
+        RawRate usdTry = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, Instant.now());
+        when(redis.getTickSnapshot(List.of("EUR_USD"))).thenReturn(new RateCacheSnapshot(34.0, Map.of("EUR_USD", List.of(cached))));
+        nearCache.getTickSnapshot(List.of("EUR_USD"));
+
+        when(redis.upsertRawRate(any(), any(), any(CacheInvalidation.class))).thenAnswer(invocation -> {
+            nearCache.saveRawRate(saved);
+            return RawRateUpsertResult.accepted(new RateCacheSnapshot(34.0, Map.of(
+                    "EUR_USD", List.of(cached, incoming), "USD_TRY", List.of(usdTry))));
+        });
+
+        nearCache.upsertRawRate(incoming, List.of("EUR_USD", "USD_TRY"));
+
+        Assertions.assertEquals(List.of(saved, incoming), nearCache.getAllRawRatesForType("EUR_USD"));
+        Assertions.assertEquals(List.of(usdTry), nearCache.getAllRawRatesForType("USD_TRY"));
+        verify(redis, times(0)).getAllRawRatesForType(any());
+    }
+
+    private static Message message(CacheInvalidation invalidation) {
+        Message message = mock(Message.class);
+        when(message.getBody()).thenReturn(invalidation.toMessage().getBytes(StandardCharsets.UTF_8));
+        return message;
+    }
+}
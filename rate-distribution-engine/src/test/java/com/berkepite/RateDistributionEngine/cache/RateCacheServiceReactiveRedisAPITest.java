@@ -0,0 +1,129 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import com.berkepite.RateDistributionEngine.rate.TestRates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.bytes;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RateCacheServiceReactiveRedisAPITest {
+    private final RateFactory rateFactory = new RateFactory();
+    private final RawRateRedisSerializer rawRateSerializer = new RawRateRedisSerializer(
+            new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, RawRate.class));
+
+    private ReactiveValueOperations<String, byte[]> values;
+    private ReactiveHashOperations<String, String, byte[]> hashes;
+    private RateCacheServiceReactiveRedisAPI redis;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ReactiveRedisTemplate<String, byte[]> template = mock(ReactiveRedisTemplate.class);
+        values = mock(ReactiveValueOperations.class);
+        hashes = mock(ReactiveHashOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        when(template.<String, byte[]>opsForHash()).thenReturn(hashes);
+
+        redis = new RateCacheServiceReactiveRedisAPI(template, rawRateSerializer,
+                new CalculatedRateRedisSerializer(new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, CalculatedRate.class)),
+                new GenericToStringSerializer<>(Double.class));
+    }
+
+    @Test
+    public void shouldKeepTheRawRatesInTheOrderOfTheTypes_whenTheRepliesArriveOutOfOrder() throws Exception {
+        RawRate usdTry = rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3);
+        RawRate eurUsd = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        when(values.get(RateCacheServiceRedisAPI.USDMID_KEY)).thenReturn(Mono.just(bytes("34.2")));
+        // The first HVALS answers last
+        when(hashes.values("raw_rates:USD_TRY")).thenReturn(Flux.just(serialize(usdTry)).delaySubscription(Duration.ofMillis(100)));
+        when(hashes.values("raw_rates:EUR_USD")).thenReturn(Flux.just(serialize(eurUsd)));
+        when(hashes.values("raw_rates:GBP_USD")).thenReturn(Flux.just());
+
+        RateCacheSnapshot snapshot = redis.getTickSnapshot(List.of("USD_TRY", "EUR_USD", "GBP_USD")).get();
+
+        Assertions.assertEquals(34.2, snapshot.getUSDMID());
+        Assertions.assertEquals(usdTry.toString(), snapshot.getRawRates("USD_TRY").getFirst().toString());
+        Assertions.assertEquals(eurUsd.toString(), snapshot.getRawRates("EUR_USD").getFirst().toString());
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("GBP_USD"));
+    }
+
+    @Test
+    public void shouldReadTheSnapshot_whenThereIsNoUSDMID() throws Exception {
+        when(values.get(RateCacheServiceRedisAPI.USDMID_KEY)).thenReturn(Mono.empty());
+        when(hashes.values("raw_rates:EUR_USD")).thenReturn(Flux.just());
+
+        RateCacheSnapshot snapshot = redis.getTickSnapshot(List.of("EUR_USD")).get();
+
+        Assertions.assertNull(snapshot.getUSDMID());
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("EUR_USD"));
+    }
+
+    @Test
+    public void shouldFailWithACacheException_whenACommandFails() {
+        when(values.get(RateCacheServiceRedisAPI.USDMID_KEY)).thenReturn(Mono.error(new IllegalStateException("Connection closed")));
+
+        Throwable failure = failure(redis.getUSDMID());
+
+        Assertions.assertInstanceOf(CacheException.class, failure);
+        Assertions.assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    public void shouldFailWithACacheException_whenACommandCannotBeSent() {
+        when(hashes.put(anyString(), anyString(), any())).thenThrow(new IllegalStateException("Connection closed"));
+
+        Throwable failure = failure(redis.saveRawRate(rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3)));
+
+        Assertions.assertInstanceOf(CacheException.class, failure);
+    }
+
+    @Test
+    public void shouldFailTheTick_whenOneOfItsWritesFails() {
+        RawRate rawRate = rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3);
+        CalculatedRate calcRate = rateFactory.createCalcRate("EUR_TRY", 36.8, 37.0, TestRates.TIMESTAMP);
+        when(hashes.put(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(values.set(anyString(), any())).thenReturn(Mono.error(new IllegalStateException("OOM command not allowed")));
+        when(values.multiSet(anyMap())).thenReturn(Mono.just(true));
+
+        Throwable failure = failure(redis.saveTick(rawRate, 34.2, List.of(calcRate)));
+
+        Assertions.assertInstanceOf(CacheException.class, failure);
+        // The other writes of the tick are still sent
+        verify(hashes).put(eq("raw_rates:USD_TRY"), eq("CNN_TCP"), any());
+        verify(values).multiSet(anyMap());
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        return Assertions.assertThrows(ExecutionException.class, future::get).getCause();
+    }
+
+    private byte[] serialize(RawRate rate) {
+        return rawRateSerializer.serialize(rate);
+    }
+}
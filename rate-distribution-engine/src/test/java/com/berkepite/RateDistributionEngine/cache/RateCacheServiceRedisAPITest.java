@@ -0,0 +1,317 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.connection.RedisPubSubCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.TIMESTAMP;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.bytes;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.strings;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RateCacheServiceRedisAPITest {
+    private final RawRateRedisSerializer rawRateSerializer = new RawRateRedisSerializer(
+            new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, RawRate.class));
+    private final CalculatedRateRedisSerializer calcRateSerializer = new CalculatedRateRedisSerializer(
+            new Jackson2JsonRedisSerializer<>(CacheConfig.LEGACY_JSON_MAPPER, CalculatedRate.class));
+    private final RateFactory rateFactory = new RateFactory();
+
+    private RedisTemplate<String, RawRate> rawRateRedisTemplate;
+    private RateCacheServiceRedisAPI redis;
+
+    /**
+     * Keys and arguments of the last script call, the arguments with the varargs expanded.
+     */
+    private List<String> scriptKeys;
+    private Object[] scriptArguments;
+
+    /**
+     * Commands sent in the last pipeline, in order, with their keys and decoded values.
+     */
+    private final List<String> commands = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rawRateRedisTemplate = mock(RedisTemplate.class);
+        RedisTemplate<String, CalculatedRate> calculatedRateRedisTemplate = mock(RedisTemplate.class);
+        RedisTemplate<String, Double> usdmidRedisTemplate = mock(RedisTemplate.class);
+        doReturn(rawRateSerializer).when(rawRateRedisTemplate).getHashValueSerializer();
+        doReturn(calcRateSerializer).when(calculatedRateRedisTemplate).getValueSerializer();
+        doReturn(new GenericToStringSerializer<>(Double.class)).when(usdmidRedisTemplate).getValueSerializer();
+
+        redis = new RateCacheServiceRedisAPI(rawRateRedisTemplate, calculatedRateRedisTemplate, usdmidRedisTemplate);
+        ReflectionTestUtils.setField(redis, "upsertTolerancePercent", 2.5);
+    }
+
+    @Test
+    public void shouldParseTheRatesOfEveryTypeFromTheReply() throws Exception {
+        RawRate incoming = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        RawRate cachedEurUsd = rawRate("EUR_USD", "BLOOMBERG_REST", 1.07, 1.08);
+        RawRate cachedUsdTry = rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3);
+        mockReply(1L, bytes("34.2"),
+                2L, serialize(cachedEurUsd), serialize(incoming),
+                1L, serialize(cachedUsdTry),
+                0L);
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("USD_TRY", "EUR_USD", "GBP_USD"));
+
+        Assertions.assertEquals(List.of("raw_rates:EUR_USD", "usdmid", "raw_rates:USD_TRY", "raw_rates:GBP_USD"), scriptKeys);
+        Assertions.assertEquals("CNN_TCP", new String((byte[]) scriptArguments[4], StandardCharsets.UTF_8));
+        Assertions.assertEquals("1.08", new String((byte[]) scriptArguments[6], StandardCharsets.UTF_8));
+        Assertions.assertEquals("2.5", new String((byte[]) scriptArguments[8], StandardCharsets.UTF_8));
+
+        Assertions.assertTrue(result.isAccepted());
+        RateCacheSnapshot snapshot = result.getSnapshot();
+        Assertions.assertEquals(34.2, snapshot.getUSDMID());
+        Assertions.assertEquals(strings(cachedEurUsd, incoming), strings(snapshot.getRawRates("EUR_USD")));
+        Assertions.assertEquals(strings(cachedUsdTry), strings(snapshot.getRawRates("USD_TRY")));
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("GBP_USD"));
+    }
+
+    @Test
+    public void shouldReadALegacyJsonRateAndAMissingUSDMIDFromTheReply() throws Exception {
+        RawRate incoming = rawRate("USD_TRY", "CNN_TCP", 34.2, 34.4);
+        RawRate legacy = rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3);
+        mockReply(1L, null, 2L, CacheConfig.LEGACY_JSON_MAPPER.writeValueAsBytes(legacy), serialize(incoming));
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("USD_TRY"));
+
+        Assertions.assertEquals(List.of("raw_rates:USD_TRY", "usdmid"), scriptKeys);
+        Assertions.assertTrue(result.isAccepted());
+        Assertions.assertNull(result.getSnapshot().getUSDMID());
+        Assertions.assertEquals(strings(legacy, incoming), strings(result.getSnapshot().getRawRates("USD_TRY")));
+    }
+
+    @Test
+    public void shouldRejectTheRate_whenTheScriptDropsIt() throws Exception {
+        mockReply(0L);
+
+        RawRateUpsertResult result = redis.upsertRawRate(rawRate("EUR_USD", "CNN_TCP", 2.0, 2.1), List.of("EUR_USD"));
+
+        Assertions.assertFalse(result.isAccepted());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldKeepAUSDMIDFlushedWhileTheScriptRuns() throws Exception {
+        ReflectionTestUtils.setField(redis, "writeBehindEnabled", true);
+        ReflectionTestUtils.setField(redis, "writeBehindFlushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(redis, "writeBehindBatchSize", 512);
+        redis.init();
+        redis.saveUSDMID(34.5);
+
+        // The script reads the USD mid rate before the buffered one is flushed, which empties the buffer
+        RawRate incoming = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        when(rawRateRedisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    redis.close();
+                    return new ArrayList<>(List.of(1L, bytes("34.2"), 1L, serialize(incoming)));
+                });
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("EUR_USD"));
+
+        Assertions.assertEquals(34.5, result.getSnapshot().getUSDMID());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWrapAFailedScriptCall() {
+        when(rawRateRedisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), any(Object[].class)))
+                .thenThrow(new IllegalStateException("NOSCRIPT"));
+
+        Assertions.assertThrows(CacheException.class, () -> redis.upsertRawRate(rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09), List.of("EUR_USD")));
+    }
+
+    @Test
+    public void shouldDecodeThePipelinedRepliesInTheOrderOfTheTypes() throws Exception {
+        RawRate usdTryCnn = rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3);
+        RawRate usdTryBloomberg = rawRate("USD_TRY", "BLOOMBERG_REST", 34.2, 34.4);
+        RawRate eurUsd = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        mockPipelinedReads(bytes("34.2"),
+                List.of(serialize(usdTryCnn), serialize(usdTryBloomberg)),
+                List.of(serialize(eurUsd)));
+
+        RateCacheSnapshot snapshot = redis.getTickSnapshot(List.of("USD_TRY", "EUR_USD"));
+
+        Assertions.assertEquals(List.of("GET usdmid", "HVALS raw_rates:USD_TRY", "HVALS raw_rates:EUR_USD"), commands);
+        Assertions.assertEquals(34.2, snapshot.getUSDMID());
+        Assertions.assertEquals(strings(usdTryCnn, usdTryBloomberg), strings(snapshot.getRawRates("USD_TRY")));
+        Assertions.assertEquals(strings(eurUsd), strings(snapshot.getRawRates("EUR_USD")));
+    }
+
+    @Test
+    public void shouldReadAMissingUSDMIDAndEmptyHashesFromThePipeline() throws Exception {
+        // Redis answers HVALS on a missing key with an empty list, a reply can also be dropped as null
+        mockPipelinedReads(null, List.of(), null);
+
+        RateCacheSnapshot snapshot = redis.getTickSnapshot(List.of("USD_TRY", "EUR_USD"));
+
+        Assertions.assertNull(snapshot.getUSDMID());
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("USD_TRY"));
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("EUR_USD"));
+    }
+
+    @Test
+    public void shouldSendTheWritesOfATickInOnePipeline() throws Exception {
+        mockPipelinedWrites();
+        RawRate rawRate = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        CalculatedRate eurTry = rateFactory.createCalcRate("EUR_TRY", 36.8, 37.0, TIMESTAMP);
+        CalculatedRate gbpTry = rateFactory.createCalcRate("GBP_TRY", 43.1, 43.3, TIMESTAMP);
+
+        redis.saveTick(rawRate, 34.2, List.of(eurTry, gbpTry),
+                new CacheInvalidation("instance-1", List.of("raw_rates:EUR_USD", "usdmid")));
+
+        Assertions.assertEquals(List.of(
+                "HSET raw_rates:EUR_USD CNN_TCP " + rawRate,
+                "SET usdmid 34.2",
+                "MSET calc_rates::rates:EUR_TRY " + eurTry + " calc_rates::rates:GBP_TRY " + gbpTry,
+                "PUBLISH rate_cache:invalidations instance-1\nraw_rates:EUR_USD\nusdmid"), commands);
+    }
+
+    @Test
+    public void shouldOnlySendTheRawRate_whenNothingElseChanged() throws Exception {
+        mockPipelinedWrites();
+        RawRate rawRate = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+
+        redis.saveTick(rawRate, null, List.of());
+
+        Assertions.assertEquals(List.of("HSET raw_rates:EUR_USD CNN_TCP " + rawRate), commands);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWrapAFailedPipeline() {
+        when(rawRateRedisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+                .thenThrow(new IllegalStateException("Connection closed"));
+        when(rawRateRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new IllegalStateException("Connection closed"));
+
+        Assertions.assertThrows(CacheException.class, () -> redis.getTickSnapshot(List.of("EUR_USD")));
+        Assertions.assertThrows(CacheException.class, () -> redis.saveTick(rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09), 34.2, List.of()));
+    }
+
+    /**
+     * Answers the next pipelined read with the given replies, one per command: bulk strings as bytes,
+     * HVALS as lists of bytes and nil as null.
+     */
+    @SuppressWarnings("unchecked")
+    private void mockPipelinedReads(Object... replies) {
+        RedisConnection connection = recordingConnection();
+        when(rawRateRedisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+                .thenAnswer(invocation -> {
+                    ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+                    return new ArrayList<>(Arrays.asList(replies));
+                });
+    }
+
+    /**
+     * Records the commands of the next pipelined write.
+     */
+    @SuppressWarnings("unchecked")
+    private void mockPipelinedWrites() {
+        RedisConnection connection = recordingConnection();
+        when(rawRateRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(invocation -> {
+                    ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+                    return new ArrayList<>();
+                });
+    }
+
+    /**
+     * A connection that records the commands sent on it into {@link #commands}, answering each with null
+     * as a pipelined connection does.
+     */
+    private RedisConnection recordingConnection() {
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(stringCommands.get(any(byte[].class))).thenAnswer(invocation -> record("GET", invocation.<byte[]>getArgument(0)));
+        when(stringCommands.set(any(byte[].class), any(byte[].class))).thenAnswer(invocation ->
+                record("SET", invocation.<byte[]>getArgument(0), invocation.<byte[]>getArgument(1)));
+        when(stringCommands.mSet(anyMap())).thenAnswer(invocation -> {
+            StringBuilder command = new StringBuilder("MSET");
+            for (Map.Entry<byte[], byte[]> entry : invocation.<Map<byte[], byte[]>>getArgument(0).entrySet()) {
+                command.append(' ').append(string(entry.getKey())).append(' ').append(calcRateSerializer.deserialize(entry.getValue()));
+            }
+            commands.add(command.toString());
+            return null;
+        });
+
+        RedisHashCommands hashCommands = mock(RedisHashCommands.class);
+        when(hashCommands.hVals(any(byte[].class))).thenAnswer(invocation -> record("HVALS", invocation.<byte[]>getArgument(0)));
+        when(hashCommands.hSet(any(byte[].class), any(byte[].class), any(byte[].class))).thenAnswer(invocation -> {
+            commands.add("HSET " + string(invocation.<byte[]>getArgument(0)) + " " + string(invocation.<byte[]>getArgument(1))
+                    + " " + rawRateSerializer.deserialize(invocation.<byte[]>getArgument(2)));
+            return null;
+        });
+
+        RedisPubSubCommands pubSubCommands = mock(RedisPubSubCommands.class);
+        when(pubSubCommands.publish(any(byte[].class), any(byte[].class))).thenAnswer(invocation ->
+                record("PUBLISH", invocation.<byte[]>getArgument(0), invocation.<byte[]>getArgument(1)));
+
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        when(connection.pubSubCommands()).thenReturn(pubSubCommands);
+        return connection;
+    }
+
+    private Object record(String command, byte[]... arguments) {
+        StringBuilder line = new StringBuilder(command);
+        for (byte[] argument : arguments) {
+            line.append(' ').append(string(argument));
+        }
+        commands.add(line.toString());
+        return null;
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Answers the next script call with the given reply, as {@code RedisTemplate} hands it back: numbers as longs,
+     * bulk strings as bytes and nil as null.
+     */
+    @SuppressWarnings("unchecked")
+    private void mockReply(Object... reply) {
+        when(rawRateRedisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    scriptKeys = invocation.getArgument(3);
+                    scriptArguments = invocation.getArguments();
+                    return new ArrayList<>(Arrays.asList(reply));
+                });
+    }
+
+    private byte[] serialize(RawRate rate) {
+        return rawRateSerializer.serialize(rate);
+    }
+}
@@ -0,0 +1,66 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+public class RateCacheSnapshotFileTest {
+    private final RateFactory rateFactory = new RateFactory();
+
+    @Test
+    public void shouldReadBackWhatWasWritten() throws Exception {
+        Path path = Files.createTempFile("rate-cache", ".snapshot");
+        Instant now = Instant.parse("2025-03-01T10:15:30.123456789Z");
+        List<RawRate> rawRates = List.of(
+                rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.12345, 34.13456, now),
+                rateFactory.createRawRate("EUR_USD", "REST_PROVIDER", 1.0812, 1.0815, null));
+        List<CalculatedRate> calcRates = List.of(rateFactory.createCalcRate("EUR_TRY", 37.1, 37.2, now));
+
+        try {
+            RateCacheSnapshotFile.write(path, new RateCacheSnapshotFile.Contents(now, 34.125, rawRates, calcRates));
+            RateCacheSnapshotFile.Contents contents = RateCacheSnapshotFile.read(path);
+
+            Assertions.assertEquals(now.toEpochMilli(), contents.writtenAt().toEpochMilli());
+            Assertions.assertEquals(34.125, contents.usdmid());
+            Assertions.assertEquals(rawRates.toString(), contents.rawRates().toString());
+            Assertions.assertEquals(calcRates.toString(), contents.calcRates().toString());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void shouldKeepMissingUSDMIDMissing() throws Exception {
+        Path path = Files.createTempFile("rate-cache", ".snapshot");
+
+        try {
+            RateCacheSnapshotFile.write(path, new RateCacheSnapshotFile.Contents(Instant.now(), null, List.of(), List.of()));
+            RateCacheSnapshotFile.Contents contents = RateCacheSnapshotFile.read(path);
+
+            Assertions.assertNull(contents.usdmid());
+            Assertions.assertEquals(List.of(), contents.rawRates());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void shouldRejectOtherFiles() throws Exception {
+        Path path = Files.createTempFile("rate-cache", ".snapshot");
+
+        try {
+            Files.writeString(path, "USD_TRY,EUR_USD,GBP_USD");
+            Assertions.assertThrows(IOException.class, () -> RateCacheSnapshotFile.read(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
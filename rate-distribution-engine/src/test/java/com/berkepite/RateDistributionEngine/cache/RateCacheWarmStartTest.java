@@ -0,0 +1,168 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class RateCacheWarmStartTest {
+    private static final List<String> TYPES = List.of("USD_TRY", "EUR_USD", "GBP_USD");
+
+    private final RateFactory rateFactory = new RateFactory();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldLoadTheSnapshotIntoTheInMemoryCache() throws Exception {
+        RawRate usdTry = rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3);
+        RawRate eurUsd = rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+        RawRate otherEurUsd = rawRate("EUR_USD", "BLOOMBERG_REST", 1.07, 1.08);
+        CalculatedRate eurTry = rateFactory.createCalcRate("EUR_TRY", 36.8, 37.0, Instant.now());
+        Path snapshot = tempDir.resolve("rate-cache.snapshot");
+        RateCacheSnapshotFile.write(snapshot, new RateCacheSnapshotFile.Contents(Instant.now(), 34.2,
+                List.of(usdTry, eurUsd, otherEurUsd), List.of(eurTry)));
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+
+        RateCacheWarmStart.WarmStartResult result = warmStart(cache, "memory", snapshot).warmStartIfEnabled();
+
+        Assertions.assertEquals(snapshot.toString(), result.source());
+        Assertions.assertEquals(3, result.rawRates());
+        Assertions.assertEquals(1, result.calcRates());
+        Assertions.assertTrue(result.usdmid());
+        Assertions.assertEquals(34.2, cache.getUSDMID());
+        Assertions.assertEquals(usdTry.toString(), cache.getRawRate(usdTry).toString());
+        Assertions.assertEquals(2, cache.getAllRawRatesForType("EUR_USD").size());
+        Assertions.assertEquals(eurTry.toString(), cache.getCalcRate(eurTry).toString());
+    }
+
+    @Test
+    public void shouldStartCold_whenTheSnapshotIsTooOld() throws Exception {
+        RawRate usdTry = rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3);
+        Path snapshot = tempDir.resolve("rate-cache.snapshot");
+        RateCacheSnapshotFile.write(snapshot, new RateCacheSnapshotFile.Contents(Instant.now().minus(Duration.ofHours(1)), 34.2,
+                List.of(usdTry), List.of()));
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+
+        RateCacheWarmStart.WarmStartResult result = warmStart(cache, "memory", snapshot).warmStartIfEnabled();
+
+        Assertions.assertNull(result);
+        Assertions.assertNull(cache.getUSDMID());
+        Assertions.assertNull(cache.getRawRate(usdTry));
+    }
+
+    @Test
+    public void shouldStartCold_withoutASnapshot() throws Exception {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+
+        Assertions.assertNull(warmStart(cache, "memory", tempDir.resolve("missing.snapshot")).warmStartIfEnabled());
+        Assertions.assertNull(cache.getUSDMID());
+    }
+
+    @Test
+    public void shouldLoadTheSnapshotWrittenOnShutdown() throws Exception {
+        Path snapshot = tempDir.resolve("rate-cache.snapshot");
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        RawRate gbpUsd = rawRate("GBP_USD", "CNN_TCP", 1.27, 1.28);
+        cache.saveUSDMID(34.2);
+        cache.saveRawRate(gbpUsd);
+        cache.saveCalcRate(rateFactory.createCalcRate("GBP_TRY", 43.4, 43.8, Instant.now()));
+        warmStart(cache, "memory", snapshot).saveSnapshotIfEnabled();
+
+        RateCacheServiceInMemory restarted = new RateCacheServiceInMemory();
+        RateCacheWarmStart.WarmStartResult result = warmStart(restarted, "memory", snapshot).warmStartIfEnabled();
+
+        Assertions.assertEquals(1, result.rawRates());
+        Assertions.assertEquals(1, result.calcRates());
+        Assertions.assertEquals(34.2, restarted.getUSDMID());
+        Assertions.assertEquals(gbpUsd.toString(), restarted.getRawRate(gbpUsd).toString());
+    }
+
+    @Test
+    public void shouldCountTheRatesReadFromTheCache() throws Exception {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        cache.saveRawRate(rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+        cache.saveRawRate(rawRate("EUR_USD", "BLOOMBERG_REST", 1.07, 1.08));
+        cache.saveRawRate(rawRate("GBP_USD", "CNN_TCP", 1.27, 1.28));
+        cache.saveCalcRate(rateFactory.createCalcRate("EUR_TRY", 36.8, 37.0, Instant.now()));
+
+        RateCacheWarmStart.WarmStartResult result = warmStart(cache, "redis", null).warmStartIfEnabled();
+
+        Assertions.assertEquals("InMemoryAPI", result.source());
+        Assertions.assertEquals(3, result.rawRates());
+        Assertions.assertEquals(1, result.calcRates());
+        Assertions.assertFalse(result.usdmid());
+    }
+
+    @Test
+    public void shouldReadEveryTypeFromTheCache() throws Exception {
+        IRateCacheService cache = mock(IRateCacheService.class);
+        when(cache.getUSDMID()).thenReturn(34.2);
+        when(cache.getAllRawRatesForType(any())).thenReturn(List.of());
+        when(cache.getName()).thenReturn("RedisAPI");
+
+        RateCacheWarmStart.WarmStartResult result = warmStart(cache, "redis", null).warmStartIfEnabled();
+
+        Assertions.assertTrue(result.usdmid());
+        for (String type : TYPES) {
+            verify(cache).getAllRawRatesForType(type);
+        }
+        verify(cache).getCalcRate(calcRateOfType("USD_TRY"));
+        verify(cache).getCalcRate(calcRateOfType("EUR_TRY"));
+        verify(cache).getCalcRate(calcRateOfType("GBP_TRY"));
+    }
+
+    @Test
+    public void shouldStartCold_whenTheCacheFails() throws Exception {
+        IRateCacheService cache = mock(IRateCacheService.class);
+        when(cache.getAllRawRatesForType(any())).thenThrow(new CacheException("Connection refused"));
+
+        Assertions.assertNull(warmStart(cache, "redis", null).warmStartIfEnabled());
+    }
+
+    @Test
+    public void shouldDoNothing_whenDisabled() {
+        IRateCacheService cache = mock(IRateCacheService.class);
+        RateCacheWarmStart warmStart = warmStart(cache, "memory", tempDir.resolve("rate-cache.snapshot"));
+        ReflectionTestUtils.setField(warmStart, "enabled", false);
+
+        Assertions.assertNull(warmStart.warmStartIfEnabled());
+        warmStart.saveSnapshotIfEnabled();
+
+        Assertions.assertFalse(tempDir.resolve("rate-cache.snapshot").toFile().exists());
+        verifyNoInteractions(cache);
+    }
+
+    private RateCacheWarmStart warmStart(IRateCacheService cache, String rateCache, Path snapshot) {
+        RateCacheWarmStart warmStart = new RateCacheWarmStart(cache, () -> TYPES, new RateConverter(), rateFactory);
+        ReflectionTestUtils.setField(warmStart, "enabled", true);
+        ReflectionTestUtils.setField(warmStart, "rateCache", rateCache);
+        ReflectionTestUtils.setField(warmStart, "snapshotFile", snapshot == null ? "" : snapshot.toString());
+        ReflectionTestUtils.setField(warmStart, "snapshotMaxAgeMillis", 600_000L);
+        ReflectionTestUtils.setField(warmStart, "parallelism", 4);
+        return warmStart;
+    }
+
+    private static CalculatedRate calcRateOfType(String type) {
+        return argThat(rate -> rate != null && rate.getType().equals(type));
+    }
+}
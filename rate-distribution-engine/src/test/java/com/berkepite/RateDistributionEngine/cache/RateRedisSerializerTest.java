@@ -0,0 +1,69 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public class RateRedisSerializerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final RateFactory rateFactory = new RateFactory();
+    private final RawRateRedisSerializer rawRateSerializer = new RawRateRedisSerializer(new Jackson2JsonRedisSerializer<>(MAPPER, RawRate.class));
+    private final CalculatedRateRedisSerializer calcRateSerializer = new CalculatedRateRedisSerializer(new Jackson2JsonRedisSerializer<>(MAPPER, CalculatedRate.class));
+
+    @Test
+    public void shouldRoundTripRawRate() {
+        RawRate rate = rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.123456789, 0.1 + 0.2,
+                Instant.parse("2026-10-18T10:15:30.123456789Z"));
+
+        byte[] bytes = rawRateSerializer.serialize(rate);
+
+        Assertions.assertEquals(BinaryRateSerializer.VERSION_1, bytes[0]);
+        Assertions.assertEquals(rate.toString(), rawRateSerializer.deserialize(bytes).toString());
+    }
+
+    @Test
+    public void shouldRoundTripCalculatedRate_withNullTimestamp() {
+        CalculatedRate rate = rateFactory.createCalcRate("EUR_TRY", 37.1, 37.3, null);
+
+        Assertions.assertEquals(rate.toString(), calcRateSerializer.deserialize(calcRateSerializer.serialize(rate)).toString());
+    }
+
+    @Test
+    public void shouldReadRatesCachedAsJson() {
+        byte[] json = "{\"provider\":\"REST_PROVIDER\",\"type\":\"GBP_USD\",\"bid\":1.27,\"ask\":1.28,\"timestamp\":null}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        RawRate rate = rawRateSerializer.deserialize(json);
+
+        Assertions.assertEquals("REST_PROVIDER", rate.getProvider());
+        Assertions.assertEquals(1.27, rate.getBid());
+        Assertions.assertEquals(1.28, rate.getAsk());
+    }
+
+    @Test
+    public void shouldRejectUnknownVersion() {
+        byte[] bytes = rawRateSerializer.serialize(rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, null));
+        bytes[0] = 2;
+
+        Assertions.assertThrows(SerializationException.class, () -> rawRateSerializer.deserialize(bytes));
+    }
+
+    @Test
+    public void shouldRejectTruncatedValue() {
+        byte[] bytes = rawRateSerializer.serialize(rateFactory.createRawRate("USD_TRY", "TCP_PROVIDER", 34.1, 34.3, null));
+        byte[] truncated = new byte[bytes.length - 4];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        Assertions.assertThrows(SerializationException.class, () -> rawRateSerializer.deserialize(truncated));
+    }
+}
@@ -0,0 +1,76 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RawRateKeyMigrationTest {
+    private RedisTemplate<String, RawRate> rawRateRedisTemplate;
+    private ValueOperations<String, RawRate> valueOperations;
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rawRateRedisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        hashOperations = mock(HashOperations.class);
+        when(rawRateRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(rawRateRedisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    public void shouldMoveLegacyKeysIntoTypeHashes() {
+        RawRate usdTry = new RateFactory().createRawRate("USD_TRY", "REST_PROVIDER", 34.1, 34.3, Instant.now());
+        RawRate gbpUsd = new RateFactory().createRawRate("GBP_USD", "TCP_PROVIDER", 1.27, 1.28, Instant.now());
+        mockScan(List.of("raw_rates::rates:REST_PROVIDER:USD_TRY", "raw_rates::rates:TCP_PROVIDER:GBP_USD"));
+        when(valueOperations.get("raw_rates::rates:REST_PROVIDER:USD_TRY")).thenReturn(usdTry);
+        when(valueOperations.get("raw_rates::rates:TCP_PROVIDER:GBP_USD")).thenReturn(gbpUsd);
+
+        int migrated = new RawRateKeyMigration(rawRateRedisTemplate).migrate();
+
+        Assertions.assertEquals(2, migrated);
+        verify(hashOperations).putIfAbsent("raw_rates:USD_TRY", "REST_PROVIDER", usdTry);
+        verify(hashOperations).putIfAbsent("raw_rates:GBP_USD", "TCP_PROVIDER", gbpUsd);
+        verify(rawRateRedisTemplate).delete("raw_rates::rates:REST_PROVIDER:USD_TRY");
+        verify(rawRateRedisTemplate).delete("raw_rates::rates:TCP_PROVIDER:GBP_USD");
+    }
+
+    @Test
+    public void shouldSkipMalformedKeys() {
+        mockScan(List.of("raw_rates::rates:NO_SEPARATOR"));
+
+        int migrated = new RawRateKeyMigration(rawRateRedisTemplate).migrate();
+
+        Assertions.assertEquals(0, migrated);
+        verify(hashOperations, never()).putIfAbsent(anyString(), any(), any());
+        verify(rawRateRedisTemplate, never()).delete(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockScan(List<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        when(rawRateRedisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+    }
+}
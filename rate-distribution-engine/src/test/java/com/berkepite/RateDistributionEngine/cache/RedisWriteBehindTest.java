@@ -0,0 +1,146 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+
+public class RedisWriteBehindTest {
+    /**
+     * Long enough that only the test triggers flushes.
+     */
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    private final RateFactory rateFactory = new RateFactory();
+    private final List<Batch> batches = new ArrayList<>();
+
+    private record Batch(List<RawRate> rawRates, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) {
+    }
+
+    @Test
+    public void shouldWriteOnlyTheLatestValuePerKey() throws Exception {
+        RedisWriteBehind writeBehind = new RedisWriteBehind(this::record, NEVER, 1000);
+        RawRate latestTcp = null;
+        for (int i = 0; i < 10; i++) {
+            latestTcp = rawRate("USD_TRY", "TCP_PROVIDER", 34.0 + i);
+            writeBehind.save(latestTcp, 34.0 + i, List.of(rateFactory.createCalcRate("EUR_TRY", 37.0 + i, 37.1 + i, null)), null);
+        }
+        RawRate rest = rawRate("USD_TRY", "REST_PROVIDER", 34.5);
+        writeBehind.save(rest, null, List.of(), null);
+
+        writeBehind.flush();
+
+        Assertions.assertEquals(1, batches.size());
+        Batch batch = batches.get(0);
+        Assertions.assertEquals(2, batch.rawRates().size());
+        Assertions.assertTrue(batch.rawRates().contains(latestTcp));
+        Assertions.assertTrue(batch.rawRates().contains(rest));
+        Assertions.assertEquals(43.0, batch.usdmid());
+        Assertions.assertEquals(1, batch.calcRates().size());
+        Assertions.assertEquals(46.0, batch.calcRates().get(0).getBid());
+        Assertions.assertNull(batch.invalidation());
+
+        RedisWriteBehind.Statistics statistics = writeBehind.getStatistics();
+        Assertions.assertEquals(31, statistics.writes());
+        Assertions.assertEquals(4, statistics.flushedWrites());
+        Assertions.assertEquals(1, statistics.flushes());
+        Assertions.assertEquals(1 - 4 / 31.0, statistics.coalescingRatio(), 1e-9);
+
+        // Nothing is pending after the flush
+        writeBehind.flush();
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertNull(writeBehind.pendingUSDMID());
+        Assertions.assertEquals(Map.of(), writeBehind.pendingRawRates("USD_TRY"));
+        writeBehind.close();
+    }
+
+    @Test
+    public void shouldKeepPendingValues_whenFlushFails() throws Exception {
+        boolean[] failing = {true};
+        RedisWriteBehind writeBehind = new RedisWriteBehind((rawRates, usdmid, calcRates, invalidation) -> {
+            if (failing[0]) {
+                throw new CacheException("Connection refused");
+            }
+            record(rawRates, usdmid, calcRates, invalidation);
+        }, NEVER, 1000);
+
+        RawRate rate = rawRate("USD_TRY", "TCP_PROVIDER", 34.1);
+        writeBehind.save(rate, 34.2, List.of(), new CacheInvalidation("instance-1", List.of()));
+
+        Assertions.assertThrows(CacheException.class, writeBehind::flush);
+        Assertions.assertSame(rate, writeBehind.pendingRawRates("USD_TRY").get("TCP_PROVIDER"));
+        Assertions.assertEquals(34.2, writeBehind.pendingUSDMID());
+        Assertions.assertEquals(1, writeBehind.getStatistics().failedFlushes());
+
+        failing[0] = false;
+        writeBehind.flush();
+
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(List.of(rate), batches.get(0).rawRates());
+        CacheInvalidation invalidation = batches.get(0).invalidation();
+        Assertions.assertEquals("instance-1", invalidation.origin());
+        Assertions.assertEquals(List.of(RateCacheServiceRedisAPI.rawRatesKey("USD_TRY"), RateCacheServiceRedisAPI.USDMID_KEY), invalidation.keys());
+        Assertions.assertNull(writeBehind.pendingUSDMID());
+        writeBehind.close();
+    }
+
+    @Test
+    public void shouldFlushEarly_whenBatchSizeIsReached() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        RedisWriteBehind writeBehind = new RedisWriteBehind((rawRates, usdmid, calcRates, invalidation) -> {
+            record(rawRates, usdmid, calcRates, invalidation);
+            flushed.countDown();
+        }, NEVER, 3);
+
+        writeBehind.save(rawRate("USD_TRY", "TCP_PROVIDER", 34.1), null, List.of(), null);
+        writeBehind.save(rawRate("USD_TRY", "TCP_PROVIDER", 34.2), null, List.of(), null);
+        writeBehind.save(rawRate("EUR_USD", "TCP_PROVIDER", 1.1), null, List.of(), null);
+        Assertions.assertEquals(1, flushed.getCount());
+
+        writeBehind.save(rawRate("GBP_USD", "TCP_PROVIDER", 1.3), null, List.of(), null);
+
+        Assertions.assertTrue(flushed.await(10, TimeUnit.SECONDS));
+        writeBehind.close();
+    }
+
+    @Test
+    public void shouldFlushPendingValues_whenClosed() {
+        RedisWriteBehind writeBehind = new RedisWriteBehind(this::record, NEVER, 1000);
+        writeBehind.save(null, 34.2, List.of(), null);
+
+        writeBehind.close();
+
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(34.2, batches.get(0).usdmid());
+    }
+
+    @Test
+    public void shouldOverlayPendingRatesOnStoredRates() {
+        RawRate storedTcp = rawRate("USD_TRY", "TCP_PROVIDER", 34.0);
+        RawRate storedRest = rawRate("USD_TRY", "REST_PROVIDER", 34.1);
+        RawRate pendingTcp = rawRate("USD_TRY", "TCP_PROVIDER", 34.2);
+        RawRate pendingSoap = rawRate("USD_TRY", "SOAP_PROVIDER", 34.3);
+
+        List<RawRate> rates = RedisWriteBehind.overlay(List.of(storedTcp, storedRest),
+                Map.of("TCP_PROVIDER", pendingTcp, "SOAP_PROVIDER", pendingSoap));
+
+        Assertions.assertEquals(3, rates.size());
+        Assertions.assertSame(pendingTcp, rates.get(0));
+        Assertions.assertSame(storedRest, rates.get(1));
+        Assertions.assertSame(pendingSoap, rates.get(2));
+    }
+
+    private synchronized void record(List<RawRate> rawRates, Double usdmid, List<CalculatedRate> calcRates, CacheInvalidation invalidation) {
+        batches.add(new Batch(rawRates, usdmid, calcRates, invalidation));
+    }
+}
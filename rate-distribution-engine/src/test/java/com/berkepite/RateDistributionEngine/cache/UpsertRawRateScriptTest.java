@@ -0,0 +1,152 @@
+package com.berkepite.RateDistributionEngine.cache;
+
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.bytes;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+import static com.berkepite.RateDistributionEngine.rate.TestRates.strings;
+
+/**
+ * Runs {@code redis/upsert_raw_rate.lua} on a real Redis; skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class UpsertRawRateScriptTest {
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7.4-alpine"))
+            .withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, RawRate> rawRateRedisTemplate;
+    private RateCacheServiceRedisAPI redis;
+
+    @BeforeAll
+    public static void connect() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+
+        CacheConfig cacheConfig = new CacheConfig();
+        rawRateRedisTemplate = cacheConfig.rawRateRedisTemplate(connectionFactory);
+        RedisTemplate<String, CalculatedRate> calculatedRateRedisTemplate = cacheConfig.calculatedRateRedisTemplate(connectionFactory);
+        RedisTemplate<String, Double> usdmidRedisTemplate = cacheConfig.usdmidRedisTemplate(connectionFactory);
+        rawRateRedisTemplate.afterPropertiesSet();
+        calculatedRateRedisTemplate.afterPropertiesSet();
+        usdmidRedisTemplate.afterPropertiesSet();
+
+        redis = new RateCacheServiceRedisAPI(rawRateRedisTemplate, calculatedRateRedisTemplate, usdmidRedisTemplate);
+        ReflectionTestUtils.setField(redis, "upsertTolerancePercent", 1.0);
+    }
+
+    @Test
+    public void shouldSaveTheRateOfANewProvider_whateverItsPrice() throws Exception {
+        RawRate cached = rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3);
+        RawRate eurUsd = rawRate("EUR_USD", "BLOOMBERG_REST", 1.08, 1.09);
+        RawRate incoming = rawRate("USD_TRY", "CNN_TCP", 40.0, 40.2);
+        redis.saveRawRate(cached);
+        redis.saveRawRate(eurUsd);
+        redis.saveUSDMID(34.2);
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("USD_TRY", "EUR_USD", "GBP_USD"));
+
+        Assertions.assertTrue(result.isAccepted());
+        RateCacheSnapshot snapshot = result.getSnapshot();
+        Assertions.assertEquals(34.2, snapshot.getUSDMID());
+        Assertions.assertEquals(sorted(List.of(cached, incoming)), sorted(snapshot.getRawRates("USD_TRY")));
+        Assertions.assertEquals(strings(eurUsd), strings(snapshot.getRawRates("EUR_USD")));
+        Assertions.assertEquals(List.of(), snapshot.getRawRates("GBP_USD"));
+        Assertions.assertEquals(incoming.toString(), redis.getRawRate(incoming).toString());
+    }
+
+    @Test
+    public void shouldSaveARateWithinTheTolerance() throws Exception {
+        redis.saveRawRate(rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3));
+        redis.saveRawRate(rawRate("USD_TRY", "CNN_TCP", 34.2, 34.4));
+        RawRate incoming = rawRate("USD_TRY", "CNN_TCP", 34.25, 34.45);
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("USD_TRY"));
+
+        Assertions.assertTrue(result.isAccepted());
+        Assertions.assertNull(result.getSnapshot().getUSDMID());
+        Assertions.assertEquals(2, result.getSnapshot().getRawRates("USD_TRY").size());
+        Assertions.assertEquals(incoming.toString(), redis.getRawRate(incoming).toString());
+    }
+
+    @Test
+    public void shouldDropARateOutsideTheTolerance() throws Exception {
+        RawRate cached = rawRate("USD_TRY", "CNN_TCP", 34.2, 34.4);
+        redis.saveRawRate(rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3));
+        redis.saveRawRate(cached);
+
+        RawRateUpsertResult result = redis.upsertRawRate(rawRate("USD_TRY", "CNN_TCP", 36.0, 36.2), List.of("USD_TRY"));
+
+        Assertions.assertFalse(result.isAccepted());
+        Assertions.assertEquals(cached.toString(), redis.getRawRate(cached).toString());
+    }
+
+    @Test
+    public void shouldKeepARateWithinAWiderConfiguredTolerance() throws Exception {
+        ReflectionTestUtils.setField(redis, "upsertTolerancePercent", 10.0);
+        redis.saveRawRate(rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3));
+        redis.saveRawRate(rawRate("USD_TRY", "CNN_TCP", 34.2, 34.4));
+        RawRate incoming = rawRate("USD_TRY", "CNN_TCP", 36.0, 36.2);
+
+        RawRateUpsertResult result = redis.upsertRawRate(incoming, List.of("USD_TRY"));
+
+        Assertions.assertTrue(result.isAccepted());
+        Assertions.assertEquals(incoming.toString(), redis.getRawRate(incoming).toString());
+    }
+
+    @Test
+    public void shouldCheckAgainstRatesCachedAsJsonByEarlierVersions() throws Exception {
+        RawRate legacy = rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.hashCommands().hSet(bytes("raw_rates:USD_TRY"), bytes("BLOOMBERG_REST"), CacheConfig.LEGACY_JSON_MAPPER.writeValueAsBytes(legacy));
+        }
+
+        RawRateUpsertResult dropped = redis.upsertRawRate(rawRate("USD_TRY", "BLOOMBERG_REST", 36.0, 36.2), List.of("USD_TRY"));
+        RawRate incoming = rawRate("USD_TRY", "BLOOMBERG_REST", 34.15, 34.35);
+        RawRateUpsertResult accepted = redis.upsertRawRate(incoming, List.of("USD_TRY"));
+
+        Assertions.assertFalse(dropped.isAccepted());
+        Assertions.assertTrue(accepted.isAccepted());
+        Assertions.assertEquals(strings(incoming), strings(accepted.getSnapshot().getRawRates("USD_TRY")));
+    }
+
+    /**
+     * HVALS returns the fields of a hash in no particular order.
+     */
+    private static List<String> sorted(List<RawRate> rates) {
+        return strings(rates).stream().sorted().toList();
+    }
+}
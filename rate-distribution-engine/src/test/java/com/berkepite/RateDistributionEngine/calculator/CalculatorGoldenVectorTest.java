@@ -0,0 +1,148 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the JavaScript, Python, native Java and formula calculators on the same inputs and checks that
+ * every strategy produces exactly the same doubles as the golden values.
+ */
+public class CalculatorGoldenVectorTest {
+
+    private static List<IRateCalculator> calculators;
+
+    @BeforeAll
+    static void initCalculators() throws Exception {
+        JavascriptCalculator javascriptCalculator = new JavascriptCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        javascriptCalculator.init("src/test/resources/rate_calculators/js-test-valid.mjs");
+
+        PythonCalculator pythonCalculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        pythonCalculator.init("src/test/resources/rate_calculators/py-test-valid.py");
+
+        NativeCalculator nativeCalculator = new NativeCalculator(new RateFactory(), new RateConverter());
+        nativeCalculator.init(null);
+
+        FormulaCalculator formulaCalculator = new FormulaCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        formulaCalculator.init("src/test/resources/rate_calculators/formula-test-valid.formula");
+
+        calculators = List.of(javascriptCalculator, pythonCalculator, nativeCalculator, formulaCalculator);
+    }
+
+    @AfterAll
+    static void closeCalculators() {
+        calculators.forEach(IRateCalculator::close);
+    }
+
+    static Stream<Arguments> meanVectors() {
+        return Stream.of(
+                Arguments.of(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}, 5.0, 4.0, 4.5),
+                Arguments.of(new double[]{0.2, 0.1}, new double[]{0.4, 0.3}, 0.15, 0.35, 0.25),
+                Arguments.of(new double[]{35.6655, 34.1234}, new double[]{36.7765, 35.4321}, 34.89445, 36.1043, 35.499375),
+                Arguments.of(new double[]{34.1, 34.2, 34.4}, new double[]{34.3, 34.5, 34.6},
+                        34.233333333333334, 34.46666666666667, 34.35),
+                Arguments.of(new double[]{1.0 / 3, 2.0 / 3}, new double[]{0.1 + 0.2, 0.7}, 0.49999999999999994, 0.5, 0.5),
+                Arguments.of(new double[]{1.23456789012345}, new double[]{1.23456789012346},
+                        1.23456789012345, 1.23456789012346, 1.234567890123455),
+                Arguments.of(new double[]{12345.6789, 0.000123, 98765.4321}, new double[]{0.1, 0.2, 0.3},
+                        37037.037041, 0.2, 18518.6185205),
+                Arguments.of(new double[]{1.08765, 1.08771, 1.08769, 1.08774, 1.08768, 1.08770, 1.08772},
+                        new double[]{1.08785, 1.08791, 1.08789, 1.08794, 1.08788, 1.08790, 1.08792},
+                        1.0876985714285714, 1.0878985714285714, 1.0877985714285714)
+        );
+    }
+
+    static Stream<Arguments> crossVectors() {
+        return Stream.of(
+                Arguments.of(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}, 34.85, 174.25, 139.4),
+                Arguments.of(new double[]{0.2, 0.1}, new double[]{0.4, 0.3}, 34.85, 5.2275, 12.1975),
+                Arguments.of(new double[]{35.6655, 34.1234}, new double[]{36.7765, 35.4321}, 35.499375,
+                        1238.73116596875, 1281.6800848125),
+                Arguments.of(new double[]{1.022, 1.045}, new double[]{1.037, 1.041}, 34.85, 36.017475, 36.20915),
+                Arguments.of(new double[]{34.1, 34.2, 34.4}, new double[]{34.3, 34.5, 34.6}, 1.0 / 3,
+                        11.41111111111111, 11.488888888888887),
+                Arguments.of(new double[]{1.0 / 3, 2.0 / 3}, new double[]{0.1 + 0.2, 0.7}, 34.85,
+                        17.424999999999997, 17.425),
+                Arguments.of(new double[]{1.23456789012345}, new double[]{1.23456789012346}, 35.499375,
+                        43.826388494451145, 43.8263884944515),
+                Arguments.of(new double[]{12345.6789, 0.000123, 98765.4321}, new double[]{0.1, 0.2, 0.3}, 34.85,
+                        1290740.74087885, 6.97),
+                Arguments.of(new double[]{1.08765, 1.08771, 1.08769, 1.08774, 1.08768, 1.08770, 1.08772},
+                        new double[]{1.08785, 1.08791, 1.08789, 1.08794, 1.08788, 1.08790, 1.08792}, 1.0 / 3,
+                        0.36256619047619043, 0.3626328571428571)
+        );
+    }
+
+    static Stream<Arguments> percentDiffVectors() {
+        return Stream.of(
+                Arguments.of(1.005, 2.1, 1.01, 2.0, true),
+                Arguments.of(1.0, 1.0, 1.01, 1.01, true),
+                Arguments.of(1.0, 1.0, 1.0099, 1.0099, false),
+                Arguments.of(34.5, 35.0, 34.0, 34.6, true),
+                Arguments.of(34.5, 35.0, 34.4, 34.9, false)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("meanVectors")
+    void shouldMatchGoldenMeanRateAndUSDMID(double[] bids, double[] asks, double meanBid, double meanAsk, double usdmid) throws Exception {
+        for (IRateCalculator calculator : calculators) {
+            MeanRate meanRate = calculator.calculateMeanRate(bids, asks);
+
+            assertEquals(meanBid, meanRate.getMeanBid(), calculator.getStrategy());
+            assertEquals(meanAsk, meanRate.getMeanAsk(), calculator.getStrategy());
+            assertEquals(usdmid, calculator.calculateUSDMID(bids, asks), calculator.getStrategy());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("meanVectors")
+    void shouldMatchGoldenUSD_TRY(double[] bids, double[] asks, double meanBid, double meanAsk, double ignoredUsdmid) throws Exception {
+        for (IRateCalculator calculator : calculators) {
+            CalculatedRate calcRate = calculator.calculateForUSD_TRY(bids, asks);
+
+            assertEquals(meanBid, calcRate.getBid(), calculator.getStrategy());
+            assertEquals(meanAsk, calcRate.getAsk(), calculator.getStrategy());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("crossVectors")
+    void shouldMatchGoldenCrossRate(double[] bids, double[] asks, Double usdmid, double bid, double ask) throws Exception {
+        for (IRateCalculator calculator : calculators) {
+            CalculatedRate calcRate = calculator.calculateForRawRateType("EUR_USD", usdmid, bids, asks);
+
+            assertEquals(bid, calcRate.getBid(), calculator.getStrategy());
+            assertEquals(ask, calcRate.getAsk(), calculator.getStrategy());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("percentDiffVectors")
+    void shouldMatchGoldenPercentDiff(double bid, double ask, double meanBid, double meanAsk, boolean expected) throws Exception {
+        RawRate incomingRate = new RawRate();
+        incomingRate.setBid(bid);
+        incomingRate.setAsk(ask);
+
+        MeanRate meanRate = new MeanRate();
+        meanRate.setMeanBid(meanBid);
+        meanRate.setMeanAsk(meanAsk);
+
+        for (IRateCalculator calculator : calculators) {
+            assertEquals(expected, calculator.hasAtLeastOnePercentDiff(incomingRate, meanRate), calculator.getStrategy());
+        }
+    }
+}
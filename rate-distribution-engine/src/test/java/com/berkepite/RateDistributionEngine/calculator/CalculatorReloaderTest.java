@@ -0,0 +1,189 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+public class CalculatorReloaderTest {
+
+    private static final String CONSTANT_MEAN_RATE = """
+
+
+            @polyglot.export_value
+            def calculate_mean_rate(bids, asks):
+                return 1.0, 2.0
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldSwapCalculator_whenChangedScriptValidates() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(createCalculator(script));
+        CalculatorReloader reloader = new CalculatorReloader(script, reloadableCalculator,
+                () -> createCalculator(script), UnaryOperator.identity(), 50, 10, 0);
+
+        Files.writeString(script, CONSTANT_MEAN_RATE, StandardOpenOption.APPEND);
+
+        Assertions.assertTrue(reloader.reload());
+
+        MeanRate meanRate = reloadableCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        Assertions.assertEquals(1.0, meanRate.getMeanBid());
+        Assertions.assertEquals(2.0, meanRate.getMeanAsk());
+
+        reloadableCalculator.close();
+    }
+
+    @Test
+    public void shouldKeepLiveCalculator_whenChangedScriptIsBroken() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(createCalculator(script));
+        IRateCalculator liveCalculator = reloadableCalculator.getLiveCalculator();
+        CalculatorReloader reloader = new CalculatorReloader(script, reloadableCalculator,
+                () -> createCalculator(script), UnaryOperator.identity(), 50, 10, 0);
+
+        Files.writeString(script, "def broken(:\n");
+
+        Assertions.assertFalse(reloader.reload());
+        Assertions.assertSame(liveCalculator, reloadableCalculator.getLiveCalculator());
+
+        MeanRate meanRate = reloadableCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        Assertions.assertEquals(5.0, meanRate.getMeanBid());
+        Assertions.assertEquals(4.0, meanRate.getMeanAsk());
+
+        reloadableCalculator.close();
+    }
+
+    @Test
+    public void shouldKeepLiveCalculator_whenChangedScriptDeviatesTooFar() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(createCalculator(script));
+        IRateCalculator liveCalculator = reloadableCalculator.getLiveCalculator();
+        CalculatorReloader reloader = new CalculatorReloader(script, reloadableCalculator,
+                () -> createCalculator(script), UnaryOperator.identity(), 50, 10, 0.1);
+        reloadableCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        // The mean bid drops from 5.0 to 1.0
+        Files.writeString(script, CONSTANT_MEAN_RATE, StandardOpenOption.APPEND);
+
+        Assertions.assertFalse(reloader.reload());
+        Assertions.assertSame(liveCalculator, reloadableCalculator.getLiveCalculator());
+        Assertions.assertEquals(5.0, reloadableCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}).getMeanBid());
+
+        reloadableCalculator.close();
+    }
+
+    @Test
+    public void shouldWarmUpTheUnwrappedCalculator_andWrapItWhenSwapping() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(new NativeCalculator(new RateFactory(), new RateConverter()));
+        AtomicInteger usdmidCalls = new AtomicInteger();
+        CalculatorReloader reloader = new CalculatorReloader(script, reloadableCalculator,
+                () -> new NativeCalculator(new RateFactory(), new RateConverter()) {
+                    @Override
+                    public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+                        usdmidCalls.incrementAndGet();
+                        return super.calculateUSDMID(bids, asks);
+                    }
+                },
+                calculator -> new MemoizingCalculator(calculator, new RateFactory(), 1024), 50, 10, 0.1);
+
+        Assertions.assertTrue(reloader.reload());
+
+        // Every warm-up round and the comparison with the live calculator reach it, although they repeat one input
+        Assertions.assertEquals(11, usdmidCalls.get());
+        Assertions.assertInstanceOf(MemoizingCalculator.class, reloadableCalculator.getLiveCalculator());
+
+        reloadableCalculator.close();
+    }
+
+    @Test
+    public void shouldReload_whenWatchedScriptChanges() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(createCalculator(script));
+        IRateCalculator liveCalculator = reloadableCalculator.getLiveCalculator();
+
+        try (CalculatorReloader reloader = new CalculatorReloader(script, reloadableCalculator,
+                () -> createCalculator(script), UnaryOperator.identity(), 50, 10, 0)) {
+            reloader.start();
+
+            Files.writeString(script, CONSTANT_MEAN_RATE, StandardOpenOption.APPEND);
+
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (reloadableCalculator.getLiveCalculator() == liveCalculator && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+
+        Assertions.assertNotSame(liveCalculator, reloadableCalculator.getLiveCalculator());
+        Assertions.assertEquals(1.0, reloadableCalculator.calculateMeanRate(new double[]{8.0}, new double[]{6.0}).getMeanBid());
+
+        reloadableCalculator.close();
+    }
+
+    @Test
+    public void shouldNotFailInFlightCalculations_whileSwapping() throws Exception {
+        Path script = copyValidScript();
+        ReloadableCalculator reloadableCalculator = new ReloadableCalculator(createCalculator(script));
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    int calls = 0;
+                    while (running.get()) {
+                        MeanRate meanRate = reloadableCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+                        Assertions.assertEquals(5.0, meanRate.getMeanBid());
+                        calls++;
+                    }
+                    return calls;
+                }));
+            }
+
+            for (int i = 0; i < 3; i++) {
+                reloadableCalculator.swap(createCalculator(script));
+            }
+            running.set(false);
+
+            for (Future<Integer> future : futures) {
+                Assertions.assertTrue(future.get() > 0);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+            reloadableCalculator.close();
+        }
+    }
+
+    private Path copyValidScript() throws Exception {
+        Path script = tempDir.resolve("calculator.py");
+        Files.copy(Path.of("src/test/resources/rate_calculators/py-test-valid.py"), script);
+        return script;
+    }
+
+    private static PythonCalculator createCalculator(Path script) throws CalculatorException {
+        PythonCalculator pythonCalculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader(), 2, 1000);
+        pythonCalculator.init(script.toString());
+        return pythonCalculator;
+    }
+}
@@ -0,0 +1,91 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorFallbackException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorTimeoutException;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FallbackCalculatorTest {
+    private static final String LOOPING_SCRIPT = "src/test/resources/rate_calculators/faulty_scripts/loops_in_usdmid.mjs";
+
+    @Test
+    public void shouldCancelCall_whenDeadlineIsExceeded() throws Exception {
+        JavascriptCalculator javascriptCalculator = createJavascriptCalculator(100);
+
+        long start = System.nanoTime();
+        CalculatorException e = Assertions.assertThrows(CalculatorException.class,
+                () -> javascriptCalculator.calculateUSDMID(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertInstanceOf(CalculatorTimeoutException.class, e.getCause());
+        Assertions.assertTrue(elapsedMillis < 5_000, "cancelled after " + elapsedMillis + " ms");
+
+        // The cancelled context is replaced, so the pool keeps working.
+        MeanRate meanRate = javascriptCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        Assertions.assertEquals(5.0, meanRate.getMeanBid());
+        Assertions.assertEquals(4.0, meanRate.getMeanAsk());
+
+        javascriptCalculator.close();
+    }
+
+    @Test
+    public void shouldFallBackAndReport_whenCallTimesOut() throws Exception {
+        JavascriptCalculator javascriptCalculator = createJavascriptCalculator(100);
+        NativeCalculator nativeCalculator = new NativeCalculator(new RateFactory(), new RateConverter());
+        List<CalculatorException> reported = new ArrayList<>();
+        List<IRateCalculator> reportedCalculators = new ArrayList<>();
+        FallbackCalculator fallbackCalculator = new FallbackCalculator(javascriptCalculator, nativeCalculator, (calculator, e) -> {
+            reportedCalculators.add(calculator);
+            reported.add(e);
+        });
+
+        Double usdmid = fallbackCalculator.calculateUSDMID(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        Assertions.assertEquals(4.5, usdmid);
+        Assertions.assertEquals(1, fallbackCalculator.getFallbackCount());
+        Assertions.assertEquals(1, reported.size());
+        Assertions.assertInstanceOf(CalculatorTimeoutException.class, reported.get(0).getCause());
+        Assertions.assertEquals("JAVA", Assertions.assertInstanceOf(CalculatorFallbackException.class, reported.get(0)).getFallbackStrategy());
+        Assertions.assertTrue(reported.get(0).getMessage().endsWith("calculated by the JAVA calculator instead."));
+        Assertions.assertSame(javascriptCalculator, reportedCalculators.get(0));
+
+        MeanRate meanRate = fallbackCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        Assertions.assertEquals(5.0, meanRate.getMeanBid());
+        Assertions.assertEquals(1, fallbackCalculator.getFallbackCount());
+
+        fallbackCalculator.close();
+    }
+
+    @Test
+    public void shouldRethrow_whenFailureIsNotATimeout() throws Exception {
+        JavascriptCalculator javascriptCalculator = new JavascriptCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader(),
+                ContextPool.DEFAULT_SIZE, ContextPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS, 1_000);
+        javascriptCalculator.init("src/test/resources/rate_calculators/faulty_scripts/returns_object_instead_of_array.mjs");
+        List<CalculatorException> reported = new ArrayList<>();
+        FallbackCalculator fallbackCalculator = new FallbackCalculator(javascriptCalculator,
+                new NativeCalculator(new RateFactory(), new RateConverter()), (calculator, e) -> reported.add(e));
+
+        Assertions.assertThrows(CalculatorException.class,
+                () -> fallbackCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+        Assertions.assertTrue(reported.isEmpty());
+        Assertions.assertEquals(0, fallbackCalculator.getFallbackCount());
+
+        fallbackCalculator.close();
+    }
+
+    private JavascriptCalculator createJavascriptCalculator(long callTimeoutMillis) throws CalculatorException {
+        JavascriptCalculator javascriptCalculator = new JavascriptCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader(),
+                ContextPool.DEFAULT_SIZE, ContextPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS, callTimeoutMillis);
+        javascriptCalculator.init(LOOPING_SCRIPT);
+
+        return javascriptCalculator;
+    }
+}
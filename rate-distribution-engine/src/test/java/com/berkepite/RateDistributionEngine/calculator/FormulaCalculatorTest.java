@@ -0,0 +1,133 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorLoadingException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormulaCalculatorTest {
+
+    private static final String REQUIRED_FORMULAS = """
+            mean.bid = mean(bid)
+            mean.ask = mean(ask)
+            usdmid = (mean(USD_TRY.bid) + mean(USD_TRY.ask)) / 2
+            diff = (abs((incoming.ask - mean.ask) / incoming.ask * 100) + abs((incoming.bid - mean.bid) / incoming.bid * 100)) / 2
+            USD_TRY.bid = mean(USD_TRY.bid)
+            USD_TRY.ask = mean(USD_TRY.ask)
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldUseTypeFormula_beforeWildcard() throws Exception {
+        FormulaCalculator formulaCalculator = createCalculator(REQUIRED_FORMULAS + """
+                EUR_TRY.bid = max(EUR_USD.bid) * usdmid
+                EUR_TRY.ask = min(EUR_USD.ask) * usdmid
+                *.bid = mean(bid) * usdmid
+                *.ask = mean(ask) * usdmid
+                """);
+
+        CalculatedRate eurTry = formulaCalculator.calculateForRawRateType("EUR_USD", 2.0, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        CalculatedRate gbpTry = formulaCalculator.calculateForRawRateType("GBP_USD", 2.0, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        Assertions.assertEquals("EUR_TRY", eurTry.getType());
+        Assertions.assertEquals(16.0, eurTry.getBid());
+        Assertions.assertEquals(4.0, eurTry.getAsk());
+        Assertions.assertEquals("GBP_TRY", gbpTry.getType());
+        Assertions.assertEquals(10.0, gbpTry.getBid());
+        Assertions.assertEquals(8.0, gbpTry.getAsk());
+    }
+
+    @Test
+    public void shouldRoundWithConfiguredPrecision() throws Exception {
+        FormulaCalculator formulaCalculator = createCalculator("precision = 3\n" + REQUIRED_FORMULAS);
+
+        Assertions.assertEquals(0.333, formulaCalculator.calculateMeanRate(new double[]{1.0, 0.0, 0.0}, new double[]{1.0}).getMeanBid());
+    }
+
+    @Test
+    public void shouldThrowCalculatorException_whenNoFormulaForType() throws Exception {
+        FormulaCalculator formulaCalculator = createCalculator(REQUIRED_FORMULAS);
+
+        assertThrows(CalculatorException.class,
+                () -> formulaCalculator.calculateForRawRateType("EUR_USD", 2.0, new double[]{1.0}, new double[]{1.0}));
+    }
+
+    @Test
+    public void shouldThrowCalculatorException_whenDividingByZero() throws Exception {
+        FormulaCalculator formulaCalculator = createCalculator(REQUIRED_FORMULAS + """
+                *.bid = mean(bid) / (usdmid - usdmid)
+                *.ask = mean(ask)
+                """);
+
+        assertThrows(CalculatorException.class,
+                () -> formulaCalculator.calculateForRawRateType("EUR_USD", 2.0, new double[]{1.0}, new double[]{1.0}));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "EUR_TRY.bid = mean(bid) * usdmid",
+            "EUR_TRY.bid = mean(GBP_USD.bid) * usdmid\nEUR_TRY.ask = mean(ask)",
+            "*.bid = bid * usdmid\n*.ask = mean(ask)",
+            "*.bid = mean(bid) * usdmid +\n*.ask = mean(ask)",
+            "*.bid = median(bid)\n*.ask = mean(ask)",
+            "*.bid = mean(bid) * incoming.bid\n*.ask = mean(ask)",
+            "mean.bid = mean(bid)",
+            "unknown = 1",
+            "precision = high",
+    })
+    public void shouldThrowCalculatorLoadingException_whenFormulaFileInvalid(String formulas) throws Exception {
+        Path formulaFile = tempDir.resolve("invalid.formula");
+        Files.writeString(formulaFile, REQUIRED_FORMULAS + formulas);
+
+        FormulaCalculator formulaCalculator = new FormulaCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+
+        assertThrows(CalculatorLoadingException.class, () -> formulaCalculator.init(formulaFile.toString()));
+    }
+
+    @Test
+    public void shouldLinkEveryFormulaIntoAClassOfItsOwn() throws Exception {
+        FormulaCompiler compiler = new FormulaCompiler(MathContext.DECIMAL64);
+        FormulaCompiler.Scope scope = new FormulaCompiler.Scope(type -> false, Map.of("usdmid", 0));
+
+        FormulaCompiler.Formula bid = compiler.compile("mean(bid) * usdmid", scope);
+        FormulaCompiler.Formula ask = compiler.compile("mean(ask) * usdmid", scope);
+
+        Assertions.assertTrue(bid.getClass().isHidden());
+        Assertions.assertNotSame(bid.getClass(), ask.getClass());
+        Assertions.assertEquals(10.0, bid.evaluate(new double[]{4.0, 6.0}, new double[]{7.0}, new double[]{2.0}).doubleValue());
+        Assertions.assertEquals(14.0, ask.evaluate(new double[]{4.0, 6.0}, new double[]{7.0}, new double[]{2.0}).doubleValue());
+    }
+
+    @Test
+    public void shouldThrowCalculatorLoadingException_whenRequiredFormulaMissing() throws Exception {
+        FormulaCalculator formulaCalculator = new FormulaCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        Path formulaFile = tempDir.resolve("missing.formula");
+        Files.writeString(formulaFile, "mean.bid = mean(bid)\n");
+
+        assertThrows(CalculatorLoadingException.class, () -> formulaCalculator.init(formulaFile.toString()));
+    }
+
+    private FormulaCalculator createCalculator(String formulas) throws Exception {
+        Path formulaFile = tempDir.resolve("calculator.formula");
+        Files.writeString(formulaFile, formulas);
+
+        FormulaCalculator formulaCalculator = new FormulaCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        formulaCalculator.init(formulaFile.toString());
+        return formulaCalculator;
+    }
+}
@@ -0,0 +1,146 @@
+package com.berkepite.RateDistributionEngine.calculator;
+
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.rate.RateConverter;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MemoizingCalculatorTest {
+
+    @Test
+    public void shouldSkipCalculator_whenInputRepeats() throws Exception {
+        CountingCalculator countingCalculator = new CountingCalculator();
+        MemoizingCalculator memoizingCalculator = new MemoizingCalculator(countingCalculator, new RateFactory(), 16);
+
+        MeanRate first = memoizingCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        MeanRate second = memoizingCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        Assertions.assertEquals(1, countingCalculator.meanRateCalls);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(5.0, second.getMeanBid());
+        Assertions.assertEquals(4.0, second.getMeanAsk());
+
+        Assertions.assertEquals(4.5, memoizingCalculator.calculateUSDMID(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+        Assertions.assertEquals(4.5, memoizingCalculator.calculateUSDMID(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+        Assertions.assertEquals(1, countingCalculator.usdmidCalls);
+
+        MemoizingCalculator.Statistics statistics = memoizingCalculator.getStatistics(MemoizingCalculator.Operation.MEAN_RATE);
+        Assertions.assertEquals(1, statistics.hits());
+        Assertions.assertEquals(1, statistics.misses());
+        Assertions.assertEquals(1, statistics.size());
+    }
+
+    @Test
+    public void shouldCallCalculator_whenInputChanges() throws Exception {
+        CountingCalculator countingCalculator = new CountingCalculator();
+        MemoizingCalculator memoizingCalculator = new MemoizingCalculator(countingCalculator, new RateFactory(), 16);
+
+        CalculatedRate first = memoizingCalculator.calculateForRawRateType("EUR_USD", 34.85, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        CalculatedRate otherUsdmid = memoizingCalculator.calculateForRawRateType("EUR_USD", 34.86, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        CalculatedRate otherType = memoizingCalculator.calculateForRawRateType("GBP_USD", 34.85, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+        CalculatedRate repeated = memoizingCalculator.calculateForRawRateType("EUR_USD", 34.85, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        Assertions.assertEquals(3, countingCalculator.rawRateTypeCalls);
+        Assertions.assertEquals("GBP_TRY", otherType.getType());
+        Assertions.assertEquals(first.getType(), repeated.getType());
+        Assertions.assertEquals(first.getBid(), repeated.getBid());
+        Assertions.assertEquals(first.getAsk(), repeated.getAsk());
+        Assertions.assertNotEquals(first.getBid(), otherUsdmid.getBid());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedInput() throws Exception {
+        CountingCalculator countingCalculator = new CountingCalculator();
+        MemoizingCalculator memoizingCalculator = new MemoizingCalculator(countingCalculator, new RateFactory(), 2);
+
+        memoizingCalculator.calculateUSDMID(new double[]{1.0}, new double[]{1.0});
+        memoizingCalculator.calculateUSDMID(new double[]{2.0}, new double[]{2.0});
+        memoizingCalculator.calculateUSDMID(new double[]{1.0}, new double[]{1.0});
+        memoizingCalculator.calculateUSDMID(new double[]{3.0}, new double[]{3.0});
+        memoizingCalculator.calculateUSDMID(new double[]{1.0}, new double[]{1.0});
+        memoizingCalculator.calculateUSDMID(new double[]{2.0}, new double[]{2.0});
+
+        Assertions.assertEquals(4, countingCalculator.usdmidCalls);
+        Assertions.assertEquals(2, memoizingCalculator.getStatistics(MemoizingCalculator.Operation.USDMID).size());
+    }
+
+    @Test
+    public void shouldNotBeAffected_whenCallerReusesArrays() throws Exception {
+        CountingCalculator countingCalculator = new CountingCalculator();
+        MemoizingCalculator memoizingCalculator = new MemoizingCalculator(countingCalculator, new RateFactory(), 16);
+
+        double[] bids = {8.0, 2.0};
+        double[] asks = {6.0, 2.0};
+        memoizingCalculator.calculateMeanRate(bids, asks);
+        bids[0] = 4.0;
+
+        Assertions.assertEquals(3.0, memoizingCalculator.calculateMeanRate(bids, asks).getMeanBid());
+        Assertions.assertEquals(2, countingCalculator.meanRateCalls);
+    }
+
+    @Test
+    public void shouldCalculateOnlyMissingTypes_inBatch() throws Exception {
+        CountingCalculator countingCalculator = new CountingCalculator();
+        MemoizingCalculator memoizingCalculator = new MemoizingCalculator(countingCalculator, new RateFactory(), 16);
+
+        memoizingCalculator.calculateForRawRateType("GBP_USD", 34.85, new double[]{8.0, 2.0}, new double[]{6.0, 2.0});
+
+        Map<String, List<double[]>> bidsAndAsksPerType = new LinkedHashMap<>();
+        bidsAndAsksPerType.put("EUR_USD", List.of(new double[]{1.022, 1.045}, new double[]{1.037, 1.041}));
+        bidsAndAsksPerType.put("GBP_USD", List.of(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+        bidsAndAsksPerType.put("CHF_USD", List.of(new double[]{1.1}, new double[]{1.2}));
+
+        List<CalculatedRate> calcRates = memoizingCalculator.calculateForRawRateTypes(34.85, bidsAndAsksPerType);
+
+        Assertions.assertEquals(List.of("EUR_TRY", "GBP_TRY", "CHF_TRY"), calcRates.stream().map(CalculatedRate::getType).toList());
+        Assertions.assertEquals(36.017475, calcRates.get(0).getBid());
+        Assertions.assertEquals(174.25, calcRates.get(1).getBid());
+        Assertions.assertEquals(List.of(List.of("EUR_USD", "CHF_USD")), countingCalculator.batches);
+    }
+
+    /**
+     * Native calculator that counts the calls reaching it.
+     */
+    private static class CountingCalculator extends NativeCalculator {
+        private int meanRateCalls;
+        private int usdmidCalls;
+        private int rawRateTypeCalls;
+        private final List<List<String>> batches = new ArrayList<>();
+
+        private CountingCalculator() {
+            super(new RateFactory(), new RateConverter());
+        }
+
+        @Override
+        public MeanRate calculateMeanRate(double[] bids, double[] asks) throws CalculatorException {
+            meanRateCalls++;
+            return super.calculateMeanRate(bids, asks);
+        }
+
+        @Override
+        public Double calculateUSDMID(double[] bids, double[] asks) throws CalculatorException {
+            usdmidCalls++;
+            return super.calculateUSDMID(bids, asks);
+        }
+
+        @Override
+        public CalculatedRate calculateForRawRateType(String type, Double usdmid, double[] bids, double[] asks) throws CalculatorException {
+            rawRateTypeCalls++;
+            return super.calculateForRawRateType(type, usdmid, bids, asks);
+        }
+
+        @Override
+        public List<CalculatedRate> calculateForRawRateTypes(Double usdmid, Map<String, List<double[]>> bidsAndAsksPerType) throws CalculatorException {
+            batches.add(List.copyOf(bidsAndAsksPerType.keySet()));
+            return super.calculateForRawRateTypes(usdmid, bidsAndAsksPerType);
+        }
+    }
+}
@@ -15,7 +15,12 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -47,9 +52,9 @@ public class PythonCalculatorTest {
         otherPlatformRates.add(createRateWithBidAndAsk(8, 6));
         otherPlatformRates.add(createRateWithBidAndAsk(2, 2));
 
-        List<Double[]> values = getBidsAndAsks(otherPlatformRates);
-        Double[] bids = values.get(0);
-        Double[] asks = values.get(1);
+        List<double[]> values = getBidsAndAsks(otherPlatformRates);
+        double[] bids = values.get(0);
+        double[] asks = values.get(1);
 
         MeanRate rate = pythonCalculator.calculateMeanRate(bids, asks);
 
@@ -67,9 +72,9 @@ public class PythonCalculatorTest {
         otherPlatformRates.add(createRateWithBidAndAsk(0.2, 0.4));
         otherPlatformRates.add(createRateWithBidAndAsk(0.1, 0.3));
 
-        List<Double[]> values = getBidsAndAsks(otherPlatformRates);
-        Double[] bids = values.get(0);
-        Double[] asks = values.get(1);
+        List<double[]> values = getBidsAndAsks(otherPlatformRates);
+        double[] bids = values.get(0);
+        double[] asks = values.get(1);
 
         MeanRate rate = pythonCalculator.calculateMeanRate(bids, asks);
 
@@ -86,9 +91,9 @@ public class PythonCalculatorTest {
         rates.add(createRateWithBidAndAsk(35.6655, 36.7765));
         rates.add(createRateWithBidAndAsk(34.1234, 35.4321));
 
-        List<Double[]> values = getBidsAndAsks(rates);
-        Double[] bids = values.get(0);
-        Double[] asks = values.get(1);
+        List<double[]> values = getBidsAndAsks(rates);
+        double[] bids = values.get(0);
+        double[] asks = values.get(1);
 
         Double usdmid = pythonCalculator.calculateUSDMID(bids, asks);
 
@@ -104,9 +109,9 @@ public class PythonCalculatorTest {
         rates.add(createRateWithBidAndAsk(1.022, 1.037));
         rates.add(createRateWithBidAndAsk(1.045, 1.041));
 
-        List<Double[]> values = getBidsAndAsks(rates);
-        Double[] bids = values.get(0);
-        Double[] asks = values.get(1);
+        List<double[]> values = getBidsAndAsks(rates);
+        double[] bids = values.get(0);
+        double[] asks = values.get(1);
 
         CalculatedRate calcRate = pythonCalculator.calculateForUSD_TRY(bids, asks);
 
@@ -123,9 +128,9 @@ public class PythonCalculatorTest {
         rates.add(createRateWithBidAndAsk(1.022, 1.037));
         rates.add(createRateWithBidAndAsk(1.045, 1.041));
 
-        List<Double[]> values = getBidsAndAsks(rates);
-        Double[] bids = values.get(0);
-        Double[] asks = values.get(1);
+        List<double[]> values = getBidsAndAsks(rates);
+        double[] bids = values.get(0);
+        double[] asks = values.get(1);
 
         Double usdmid = 34.85;
 
@@ -135,6 +140,41 @@ public class PythonCalculatorTest {
         Assertions.assertEquals(36.20915, calcRate.getAsk());
     }
 
+    @Test
+    public void shouldCalculateForRawRateTypes_inOneCall() throws Exception {
+        PythonCalculator pythonCalculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        pythonCalculator.init("src/test/resources/rate_calculators/py-test-valid.py");
+
+        Map<String, List<double[]>> bidsAndAsksPerType = new LinkedHashMap<>();
+        bidsAndAsksPerType.put("EUR_USD", Arrays.asList(new double[]{1.022, 1.045}, new double[]{1.037, 1.041}));
+        bidsAndAsksPerType.put("GBP_USD", Arrays.asList(new double[]{8.0, 2.0}, new double[]{6.0, 2.0}));
+
+        List<CalculatedRate> calcRates = pythonCalculator.calculateForRawRateTypes(34.85, bidsAndAsksPerType);
+
+        Assertions.assertEquals(2, calcRates.size());
+        Assertions.assertEquals("EUR_TRY", calcRates.get(0).getType());
+        Assertions.assertEquals(36.017475, calcRates.get(0).getBid());
+        Assertions.assertEquals(36.20915, calcRates.get(0).getAsk());
+        Assertions.assertEquals("GBP_TRY", calcRates.get(1).getType());
+        Assertions.assertEquals(174.25, calcRates.get(1).getBid());
+        Assertions.assertEquals(139.4, calcRates.get(1).getAsk());
+    }
+
+    @Test
+    public void shouldCalculateForRawRateTypes_oneByOne_whenBatchFunctionMissing() throws Exception {
+        PythonCalculator pythonCalculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
+        pythonCalculator.init("src/test/resources/rate_calculators/faulty_scripts/no_calculateMean.py");
+
+        Map<String, List<double[]>> bidsAndAsksPerType = new LinkedHashMap<>();
+        bidsAndAsksPerType.put("EUR_USD", Arrays.asList(new double[]{1.022, 1.045}, new double[]{1.037, 1.041}));
+
+        List<CalculatedRate> calcRates = pythonCalculator.calculateForRawRateTypes(34.85, bidsAndAsksPerType);
+
+        Assertions.assertEquals(1, calcRates.size());
+        Assertions.assertEquals(36.017475, calcRates.get(0).getBid());
+        Assertions.assertEquals(36.20915, calcRates.get(0).getAsk());
+    }
+
     @Test
     void init_shouldThrowCalculatorLoadingException_whenFileNotFound() {
         PythonCalculator calculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader());
@@ -151,7 +191,7 @@ public class PythonCalculatorTest {
         pythonCalculator.init("src/test/resources/rate_calculators/faulty_scripts/no_calculateMean.py");
 
         Exception exception = assertThrows(CalculatorException.class, () -> {
-            pythonCalculator.calculateMeanRate(new Double[]{1.0}, new Double[]{2.0});
+            pythonCalculator.calculateMeanRate(new double[]{1.0}, new double[]{2.0});
         });
 
         assertTrue(exception.getMessage().contains("Failed to calculate mean rate"));
@@ -164,7 +204,7 @@ public class PythonCalculatorTest {
         pythonCalculator.init("src/test/resources/rate_calculators/faulty_scripts/throws_in_usdmid.py");
 
         Exception exception = assertThrows(CalculatorException.class, () -> {
-            pythonCalculator.calculateUSDMID(new Double[]{1.0}, new Double[]{2.0});
+            pythonCalculator.calculateUSDMID(new double[]{1.0}, new double[]{2.0});
         });
 
         assertTrue(exception.getMessage().contains("Failed to calculate for usdmid"));
@@ -176,10 +216,33 @@ public class PythonCalculatorTest {
         pythonCalculator.init("src/test/resources/rate_calculators/faulty_scripts/returns_object_instead_of_array.py");
 
         assertThrows(CalculatorException.class, () -> {
-            pythonCalculator.calculateMeanRate(new Double[]{1.0}, new Double[]{2.0});
+            pythonCalculator.calculateMeanRate(new double[]{1.0}, new double[]{2.0});
         });
     }
 
+    @Test
+    void shouldServeConcurrentCalculations_fromSmallContextPool() throws Exception {
+        PythonCalculator pythonCalculator = new PythonCalculator(new RateFactory(), new RateConverter(), new CalculatorLoader(), 2, 5000);
+        pythonCalculator.init("src/test/resources/rate_calculators/py-test-valid.py");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MeanRate>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> pythonCalculator.calculateMeanRate(new double[]{8.0, 2.0}, new double[]{6.0, 2.0})));
+            }
+
+            for (Future<MeanRate> future : futures) {
+                MeanRate rate = future.get();
+                Assertions.assertEquals(5, rate.getMeanBid());
+                Assertions.assertEquals(4, rate.getMeanAsk());
+            }
+        } finally {
+            executor.shutdownNow();
+            pythonCalculator.close();
+        }
+    }
+
     private RawRate createRateWithBidAndAsk(double bid, double ask) throws Exception {
         RawRate rate = new RawRate();
         rate.setBid(bid);
@@ -194,13 +257,10 @@ public class PythonCalculatorTest {
         return rate;
     }
 
-    private List<Double[]> getBidsAndAsks(List<RawRate> rates) {
-        List<Double> bids = new ArrayList<>();
-        rates.forEach(platformRate -> bids.add(platformRate.getBid()));
-
-        List<Double> asks = new ArrayList<>();
-        rates.forEach(platformRate -> asks.add(platformRate.getAsk()));
+    private List<double[]> getBidsAndAsks(List<RawRate> rates) {
+        double[] bids = rates.stream().mapToDouble(RawRate::getBid).toArray();
+        double[] asks = rates.stream().mapToDouble(RawRate::getAsk).toArray();
 
-        return Arrays.asList(bids.toArray(new Double[0]), asks.toArray(new Double[0]));
+        return Arrays.asList(bids, asks);
     }
 }
@@ -0,0 +1,124 @@
+package com.berkepite.RateDistributionEngine.coordinator;
+
+import com.berkepite.RateDistributionEngine.common.rate.IRateManager;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.common.subscriber.ISubscriber;
+import com.berkepite.RateDistributionEngine.common.subscriber.ISubscriberConfig;
+import com.berkepite.RateDistributionEngine.rate.RateFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoordinatorTest {
+    private final RateFactory rateFactory = new RateFactory();
+    private final RecordingRateManager rateManager = new RecordingRateManager();
+    private ThreadPoolTaskExecutor executor;
+    private ISubscriber subscriber;
+    private Coordinator coordinator;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+
+        ISubscriberConfig config = mock(ISubscriberConfig.class);
+        when(config.getName()).thenReturn("CNN_TCP");
+        subscriber = mock(ISubscriber.class);
+        when(subscriber.getConfig()).thenReturn(config);
+
+        coordinator = new Coordinator(null, null, null, rateManager, null, executor, null, null, null);
+        ReflectionTestUtils.setField(coordinator, "conflationEnabled", true);
+        ReflectionTestUtils.setField(coordinator, "conflationSymbols", "EUR_USD");
+        ReflectionTestUtils.invokeMethod(coordinator, "initConflation");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldPublishEveryTick_beforeItIsConflated() throws Exception {
+        coordinator.onRateUpdate(subscriber, rawRate("EUR_USD", 1.080));
+        Assertions.assertTrue(rateManager.firstTickStarted.await(5, TimeUnit.SECONDS));
+
+        // Both arrive while the first tick is processed, the second replaces the first
+        coordinator.onRateUpdate(subscriber, rawRate("EUR_USD", 1.081));
+        coordinator.onRateUpdate(subscriber, rawRate("EUR_USD", 1.082));
+        rateManager.releaseFirstTick.countDown();
+        Assertions.assertTrue(rateManager.twoTicksProcessed.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(List.of(1.080, 1.081, 1.082), bids(rateManager.published));
+        Assertions.assertEquals(List.of(1.080, 1.082), bids(rateManager.processed));
+        Assertions.assertEquals(List.of(), rateManager.managed);
+    }
+
+    @Test
+    public void shouldLeaveThePublishingToTheRateManager_whenATickIsNotConflated() throws Exception {
+        coordinator.onRateUpdate(subscriber, rawRate("GBP_USD", 1.27));
+        executor.shutdown();
+        Assertions.assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(List.of(1.27), bids(rateManager.managed));
+        Assertions.assertEquals(List.of(), rateManager.published);
+    }
+
+    private RawRate rawRate(String type, double bid) {
+        return rateFactory.createRawRate(type, "CNN_TCP", bid, bid + 0.001, null);
+    }
+
+    private static List<Double> bids(List<RawRate> rates) {
+        synchronized (rates) {
+            return rates.stream().map(RawRate::getBid).toList();
+        }
+    }
+
+    /**
+     * Records the raw rates it is given; the first processed tick waits until it is released.
+     */
+    private static final class RecordingRateManager implements IRateManager {
+        private final List<RawRate> managed = Collections.synchronizedList(new ArrayList<>());
+        private final List<RawRate> published = Collections.synchronizedList(new ArrayList<>());
+        private final List<RawRate> processed = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch firstTickStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseFirstTick = new CountDownLatch(1);
+        private final CountDownLatch twoTicksProcessed = new CountDownLatch(2);
+
+        @Override
+        public void manageIncomingRawRate(RawRate rawRate) {
+            managed.add(rawRate);
+        }
+
+        @Override
+        public void publishRawRate(RawRate rawRate) {
+            published.add(rawRate);
+        }
+
+        @Override
+        public void processRawRate(RawRate rawRate) {
+            processed.add(rawRate);
+            if (firstTickStarted.getCount() > 0) {
+                firstTickStarted.countDown();
+                try {
+                    releaseFirstTick.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            twoTicksProcessed.countDown();
+        }
+    }
+}
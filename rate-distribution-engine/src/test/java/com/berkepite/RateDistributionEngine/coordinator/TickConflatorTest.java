@@ -0,0 +1,82 @@
+package com.berkepite.RateDistributionEngine.coordinator;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.berkepite.RateDistributionEngine.rate.TestRates.rawRate;
+
+public class TickConflatorTest {
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private final List<RawRate> processed = new ArrayList<>();
+
+    @Test
+    public void shouldCollapseABacklogToTheNewestTickPerKey() {
+        TickConflator conflator = new TickConflator(tasks::add, processed::add);
+
+        conflator.offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.10));
+        conflator.offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.20));
+        conflator.offer(rawRate("USD_TRY", "REST_PROVIDER", 34.15));
+        conflator.offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.30));
+        conflator.offer(rawRate("EUR_USD", "TCP_PROVIDER", 1.08));
+        runTasks();
+
+        Assertions.assertEquals(3, processed.size());
+        Assertions.assertEquals(34.30, processed.get(0).getBid());
+        Assertions.assertEquals(34.15, processed.get(1).getBid());
+        Assertions.assertEquals(1.08, processed.get(2).getBid());
+        Assertions.assertEquals(new TickConflator.Statistics(5, 3, 2, 0), conflator.getStatistics());
+        Assertions.assertEquals(0.4, conflator.getStatistics().conflationRatio(), 1e-9);
+    }
+
+    @Test
+    public void shouldProcessATickArrivingInFlightAfterTheCurrentOne() {
+        List<TickConflator> conflator = new ArrayList<>(1);
+        conflator.add(new TickConflator(tasks::add, rate -> {
+            processed.add(rate);
+            if (processed.size() == 1) {
+                conflator.get(0).offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.20));
+                Assertions.assertEquals(0, tasks.size());
+            }
+        }));
+
+        conflator.get(0).offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.10));
+        runTasks();
+
+        Assertions.assertEquals(2, processed.size());
+        Assertions.assertEquals(34.10, processed.get(0).getBid());
+        Assertions.assertEquals(34.20, processed.get(1).getBid());
+        Assertions.assertEquals(new TickConflator.Statistics(2, 2, 0, 0), conflator.get(0).getStatistics());
+    }
+
+    @Test
+    public void shouldQueueARejectedKeyAgainWithItsNextTick() {
+        boolean[] reject = {true};
+        TickConflator conflator = new TickConflator(task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException("full");
+            }
+            tasks.add(task);
+        }, processed::add);
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> conflator.offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.10)));
+        reject[0] = false;
+        conflator.offer(rawRate("USD_TRY", "TCP_PROVIDER", 34.20));
+        runTasks();
+
+        Assertions.assertEquals(1, processed.size());
+        Assertions.assertEquals(34.20, processed.get(0).getBid());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+}
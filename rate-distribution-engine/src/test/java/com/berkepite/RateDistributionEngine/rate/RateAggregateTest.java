@@ -0,0 +1,90 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.common.rate.MeanRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class RateAggregateTest {
+    private final RateFactory rateFactory = new RateFactory();
+
+    @Test
+    public void shouldReplaceTheContributionOfAKnownProvider() {
+        RateAggregate aggregate = RateAggregate.of(List.of(
+                rawRate("TCP_PROVIDER", 34.10, 34.20),
+                rawRate("REST_PROVIDER", 34.30, 34.40)));
+
+        aggregate.put(rawRate("TCP_PROVIDER", 34.50, 34.60));
+
+        MeanRate meanRate = aggregate.getMeanRate();
+        Assertions.assertEquals(2, aggregate.size());
+        Assertions.assertTrue(aggregate.contains("TCP_PROVIDER"));
+        Assertions.assertFalse(aggregate.contains("BLOOMBERG_REST"));
+        Assertions.assertEquals(34.40, meanRate.getMeanBid());
+        Assertions.assertEquals(34.50, meanRate.getMeanAsk());
+        Assertions.assertEquals(34.50, aggregate.getBidsAndAsks().get(0)[0]);
+        Assertions.assertEquals(34.30, aggregate.getBidsAndAsks().get(0)[1]);
+    }
+
+    @Test
+    public void shouldKeepTheBidsAndAsksOfEveryProvider() {
+        RateAggregate aggregate = new RateAggregate();
+        for (int i = 0; i < 10; i++) {
+            aggregate.put(rawRate("PROVIDER_" + i, i, i + 1));
+        }
+
+        List<double[]> bidsAndAsks = aggregate.getBidsAndAsks();
+        Assertions.assertEquals(10, bidsAndAsks.get(0).length);
+        Assertions.assertEquals(9.0, bidsAndAsks.get(0)[9]);
+        Assertions.assertEquals(10.0, bidsAndAsks.get(1)[9]);
+        Assertions.assertEquals(4.5, aggregate.getMeanRate().getMeanBid());
+    }
+
+    @Test
+    public void shouldNotDriftAfterManyUpdates() {
+        RateAggregate aggregate = new RateAggregate();
+        Random random = new Random(42);
+        double[] lastBids = new double[3];
+
+        for (int i = 0; i < 100_000; i++) {
+            int provider = i % 3;
+            double bid = Math.round((34 + random.nextDouble()) * 100_000) / 100_000.0;
+            lastBids[provider] = bid;
+            aggregate.put(rawRate("PROVIDER_" + provider, bid, bid + 0.01));
+        }
+
+        double expected = Math.round((lastBids[0] + lastBids[1] + lastBids[2]) * 100_000) / 300_000.0;
+        Assertions.assertEquals(expected, aggregate.getMeanRate().getMeanBid(), 1e-9);
+    }
+
+    @Test
+    public void shouldRejectPricesThatAreNotFinite() {
+        RateAggregate aggregate = RateAggregate.of(List.of(rawRate("TCP_PROVIDER", 34.10, 34.20)));
+
+        Assertions.assertThrows(ArithmeticException.class, () -> aggregate.put(rawRate("TCP_PROVIDER", Double.NaN, 34.20)));
+        Assertions.assertEquals(34.10, aggregate.getMeanRate().getMeanBid());
+    }
+
+    @Test
+    public void shouldStayUnchanged_whenASumWouldOverflow() {
+        RateAggregate aggregate = RateAggregate.of(List.of(
+                rawRate("TCP_PROVIDER", 5e9, 5e9),
+                rawRate("REST_PROVIDER", 1.0, 2.0)));
+
+        Assertions.assertThrows(ArithmeticException.class, () -> aggregate.put(rawRate("BLOOMBERG_REST", 5e9, 5e9)));
+        Assertions.assertThrows(ArithmeticException.class, () -> aggregate.put(rawRate("REST_PROVIDER", 5e9, 5e9)));
+
+        Assertions.assertEquals(2, aggregate.size());
+        Assertions.assertFalse(aggregate.contains("BLOOMBERG_REST"));
+        Assertions.assertEquals(2.5e9 + 0.5, aggregate.getMeanRate().getMeanBid(), 1e-3);
+        Assertions.assertEquals(2.5e9 + 1.0, aggregate.getMeanRate().getMeanAsk(), 1e-3);
+        Assertions.assertEquals(1.0, aggregate.getBidsAndAsks().get(0)[1]);
+    }
+
+    private RawRate rawRate(String provider, double bid, double ask) {
+        return rateFactory.createRawRate("USD_TRY", provider, bid, ask, null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RateGraphTest {
+    private final RateConverter rateConverter = new RateConverter();
+
+    @Test
+    public void shouldRecalculateEveryCrossRateAfterUSD_TRY() {
+        RateGraph graph = RateGraph.build(List.of("USD_TRY", "EUR_USD", "GBP_USD"), rateConverter, List.of());
+
+        Assertions.assertEquals(List.of(List.of("OUTPUT EUR_TRY", "OUTPUT GBP_TRY")), names(graph.getDirtyLevels("USD_TRY")));
+        Assertions.assertEquals(List.of(), names(graph.getDirtyLevels("EUR_USD")));
+        Assertions.assertEquals("EUR_USD", graph.getDirtyLevels("USD_TRY").get(0).get(0).getLane());
+    }
+
+    @Test
+    public void shouldRecalculateOnlyTheSyntheticPairsATickReaches() {
+        RateGraph graph = RateGraph.build(List.of("USD_TRY", "EUR_USD", "GBP_USD", "CHF_USD"), rateConverter,
+                List.of("EUR_GBP = EUR_TRY / GBP_TRY", "EUR_GBP_CHF=EUR_GBP/CHF_TRY"));
+
+        Assertions.assertEquals(List.of(List.of("SYNTHETIC EUR_GBP"), List.of("SYNTHETIC EUR_GBP_CHF")),
+                names(graph.getDirtyLevels("EUR_USD")));
+        Assertions.assertEquals(List.of(List.of("SYNTHETIC EUR_GBP_CHF")), names(graph.getDirtyLevels("CHF_USD")));
+        Assertions.assertEquals(List.of(
+                        List.of("OUTPUT EUR_TRY", "OUTPUT GBP_TRY", "OUTPUT CHF_TRY"),
+                        List.of("SYNTHETIC EUR_GBP"),
+                        List.of("SYNTHETIC EUR_GBP_CHF")),
+                names(graph.getDirtyLevels("USD_TRY")));
+        Assertions.assertEquals(2, (int) graph.getNodeCounts().get(RateGraph.Kind.SYNTHETIC));
+    }
+
+    @Test
+    public void shouldRecalculateEveryRateOfAWindowOnce() {
+        RateGraph graph = RateGraph.build(List.of("USD_TRY", "EUR_USD", "GBP_USD"), rateConverter,
+                List.of("EUR_GBP=EUR_TRY/GBP_TRY"));
+
+        Assertions.assertEquals(List.of(List.of("OUTPUT EUR_TRY"), List.of("SYNTHETIC EUR_GBP")),
+                names(graph.getRecalculationLevels(List.of("EUR_USD"))));
+        Assertions.assertEquals(List.of(
+                        List.of("OUTPUT USD_TRY"),
+                        List.of("OUTPUT EUR_TRY", "OUTPUT GBP_TRY"),
+                        List.of("SYNTHETIC EUR_GBP")),
+                names(graph.getRecalculationLevels(List.of("EUR_USD", "USD_TRY", "GBP_USD"))));
+        Assertions.assertEquals(List.of(), names(graph.getRecalculationLevels(List.of("CHF_USD"))));
+    }
+
+    @Test
+    public void shouldRejectInvalidSyntheticPairs() {
+        List<String> types = List.of("USD_TRY", "EUR_USD", "GBP_USD");
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RateGraph.build(types, rateConverter, List.of("EUR_GBP=EUR_TRY")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RateGraph.build(types, rateConverter, List.of("EUR_CHF=EUR_TRY/CHF_TRY")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RateGraph.build(types, rateConverter, List.of("EUR_TRY=EUR_TRY/GBP_TRY")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RateGraph.build(types, rateConverter, List.of("A_B=B_A/EUR_TRY", "B_A=A_B/GBP_TRY")));
+    }
+
+    private static List<List<String>> names(List<List<RateGraph.Node>> levels) {
+        List<List<String>> names = new ArrayList<>();
+        for (List<RateGraph.Node> level : levels) {
+            names.add(level.stream().map(RateGraph.Node::toString).toList());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,124 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceInMemory;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateManagerAggregateTest {
+
+    @Test
+    public void shouldReadEveryTypeFromTheCacheOnce() throws Exception {
+        CountingCache cache = new CountingCache();
+        cache.saveRawRate(new RateFactory().createRawRate("EUR_USD", "BLOOMBERG_REST", 1.07, 1.08, null));
+
+        try (TestRateManager manager = new TestRateManager(cache, aggregated("memory"))) {
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3));
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("USD_TRY", "BLOOMBERG_REST", 34.2, 34.4));
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.081, 1.091));
+
+            Assertions.assertEquals(0, cache.snapshotReads.get());
+            Assertions.assertEquals(Map.of("USD_TRY", 1, "EUR_USD", 1, "GBP_USD", 1), cache.rawRateReads);
+
+            // The rates calculated from the aggregates are those calculated from what the cache persisted
+            List<RawRate> usdTry = cache.getAllRawRatesForType("USD_TRY");
+            List<RawRate> eurUsd = cache.getAllRawRatesForType("EUR_USD");
+            double usdmid = manager.calculator.calculateUSDMID(bids(usdTry), asks(usdTry));
+            CalculatedRate expected = manager.calculator.calculateForRawRateType("EUR_USD", usdmid, bids(eurUsd), asks(eurUsd));
+            Assertions.assertEquals(usdmid, cache.getUSDMID());
+            Assertions.assertEquals(2, eurUsd.size());
+            Assertions.assertEquals(expected.getBid(), manager.lastSent("EUR_TRY").getBid(), 1e-12);
+            Assertions.assertEquals(expected.getAsk(), manager.lastSent("EUR_TRY").getAsk(), 1e-12);
+        }
+    }
+
+    @Test
+    public void shouldDropARateOutsideTheToleranceOfTheAggregate() {
+        CountingCache cache = new CountingCache();
+
+        try (TestRateManager manager = new TestRateManager(cache, aggregated("memory"))) {
+            RawRate cached = manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+            manager.rateManager.manageIncomingRawRate(cached);
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.2, 1.21));
+
+            Assertions.assertEquals(cached.toString(), cache.getRawRate(cached).toString());
+        }
+    }
+
+    @Test
+    public void shouldKeepTheAggregate_whenARateOverflowsIt() {
+        CountingCache cache = new CountingCache();
+
+        try (TestRateManager manager = new TestRateManager(cache, aggregated("memory"))) {
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 5e9, 5e9));
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "BLOOMBERG_REST", 5e9, 5e9));
+
+            Assertions.assertEquals(1, manager.handledExceptions.size());
+            Assertions.assertInstanceOf(CalculatorException.class, manager.handledExceptions.getFirst());
+            Assertions.assertEquals(1, cache.getAllRawRatesForType("EUR_USD").size());
+
+            // Still within the tolerance of the one rate the aggregate holds
+            RawRate next = manager.rawRate("EUR_USD", "CNN_TCP", 5.001e9, 5.001e9);
+            manager.rateManager.manageIncomingRawRate(next);
+            Assertions.assertEquals(next.toString(), cache.getRawRate(next).toString());
+        }
+    }
+
+    @Test
+    public void shouldReadTheCachePerTick_withARedisCache() {
+        CountingCache cache = new CountingCache();
+
+        try (TestRateManager manager = new TestRateManager(cache, aggregated("redis"))) {
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+            manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.081, 1.091));
+
+            Assertions.assertEquals(2, cache.snapshotReads.get());
+        }
+    }
+
+    private static RateManager.Settings aggregated(String rateCache) {
+        return new RateManager.Settings("", 2, true, 0, rateCache, false);
+    }
+
+    private static double[] bids(List<RawRate> rates) {
+        return rates.stream().mapToDouble(RawRate::getBid).toArray();
+    }
+
+    private static double[] asks(List<RawRate> rates) {
+        return rates.stream().mapToDouble(RawRate::getAsk).toArray();
+    }
+
+    /**
+     * Counts the snapshot reads, and the reads of the raw rates of each type made outside of them.
+     */
+    private static final class CountingCache extends RateCacheServiceInMemory {
+        private final AtomicInteger snapshotReads = new AtomicInteger();
+        private final Map<String, Integer> rawRateReads = new ConcurrentHashMap<>();
+
+        @Override
+        public RateCacheSnapshot getTickSnapshot(List<String> types) {
+            snapshotReads.incrementAndGet();
+            Map<String, List<RawRate>> rawRatesByType = new LinkedHashMap<>();
+            for (String type : types) {
+                rawRatesByType.put(type, super.getAllRawRatesForType(type));
+            }
+            return new RateCacheSnapshot(getUSDMID(), rawRatesByType);
+        }
+
+        @Override
+        public List<RawRate> getAllRawRatesForType(String type) {
+            rawRateReads.merge(type, 1, Integer::sum);
+            return super.getAllRawRatesForType(type);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceInMemory;
+import com.berkepite.RateDistributionEngine.common.cache.IAsyncRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RateManagerAsyncCacheTest {
+    private OrderedAsyncCache asyncCache;
+    private TestRateManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        asyncCache = new OrderedAsyncCache();
+        // Nothing is read from or written to the blocking cache while an asynchronous one is configured
+        manager = new TestRateManager(TestRateManager.TYPES, new RateCacheServiceInMemory(), asyncCache, TestRateManager.settings(2));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        manager.close();
+        asyncCache.connection.shutdownNow();
+    }
+
+    @Test
+    public void shouldReadTheWritesOfThePreviousTick_withoutWaitingForThem() throws Exception {
+        manager.rateManager.manageIncomingRawRate(manager.rawRate("USD_TRY", "CNN_TCP", 34.1, 34.3));
+        manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+        asyncCache.sync();
+
+        double usdmid = manager.calculator.calculateUSDMID(new double[]{34.1}, new double[]{34.3});
+        Assertions.assertEquals(usdmid, asyncCache.cache.getUSDMID());
+        Assertions.assertEquals(1.08 * usdmid, manager.lastSent("EUR_TRY").getBid(), 1e-9);
+        Assertions.assertEquals(1.09 * usdmid, manager.lastSent("EUR_TRY").getAsk(), 1e-9);
+        Assertions.assertEquals(2, asyncCache.cache.getAllRawRatesForType("USD_TRY").size() + asyncCache.cache.getAllRawRatesForType("EUR_USD").size());
+        Assertions.assertEquals(List.of(), manager.handledExceptions);
+    }
+
+    @Test
+    public void shouldReportAFailedWrite() throws Exception {
+        CacheException failure = new CacheException("OOM command not allowed");
+        asyncCache.writeFailure = failure;
+
+        manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+        asyncCache.sync();
+
+        Assertions.assertEquals(List.of(failure), manager.handledExceptions);
+        Assertions.assertEquals(List.of(), asyncCache.cache.getAllRawRatesForType("EUR_USD"));
+    }
+
+    @Test
+    public void shouldReportAFailedRead_andDropTheTick() throws Exception {
+        CacheException failure = new CacheException("Connection closed");
+        asyncCache.readFailure = failure;
+
+        manager.rateManager.manageIncomingRawRate(manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09));
+        asyncCache.sync();
+
+        Assertions.assertEquals(List.of(failure), manager.handledExceptions);
+        Assertions.assertEquals(List.of(), manager.sentCalcRates);
+        Assertions.assertEquals(List.of(), asyncCache.cache.getAllRawRatesForType("EUR_USD"));
+    }
+
+    /**
+     * Runs the calls on an in-memory cache one after another on a single thread, in the order they were made, as
+     * commands sent on one connection; writes take a while to be answered.
+     */
+    private static final class OrderedAsyncCache implements IAsyncRateCacheService {
+        private final RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        private final ExecutorService connection = Executors.newSingleThreadExecutor();
+        private volatile CacheException readFailure;
+        private volatile CacheException writeFailure;
+
+        /**
+         * Waits until every call made so far is answered, and their callbacks have run.
+         */
+        private void sync() throws Exception {
+            send(() -> null).get();
+        }
+
+        private <T> CompletableFuture<T> read(Callable<T> command) {
+            return send(() -> {
+                if (readFailure != null) {
+                    throw readFailure;
+                }
+                return command.call();
+            });
+        }
+
+        private <T> CompletableFuture<T> write(Callable<T> command) {
+            return send(() -> {
+                Thread.sleep(20);
+                if (writeFailure != null) {
+                    throw writeFailure;
+                }
+                return command.call();
+            });
+        }
+
+        private <T> CompletableFuture<T> send(Callable<T> command) {
+            CompletableFuture<T> reply = new CompletableFuture<>();
+            connection.execute(() -> {
+                try {
+                    reply.complete(command.call());
+                } catch (Exception e) {
+                    reply.completeExceptionally(e);
+                }
+            });
+            return reply;
+        }
+
+        @Override
+        public CompletableFuture<CalculatedRate> getCalcRate(CalculatedRate rate) {
+            return read(() -> cache.getCalcRate(rate));
+        }
+
+        @Override
+        public CompletableFuture<RawRate> getRawRate(RawRate rate) {
+            return read(() -> cache.getRawRate(rate));
+        }
+
+        @Override
+        public CompletableFuture<CalculatedRate> saveCalcRate(CalculatedRate rate) {
+            return write(() -> cache.saveCalcRate(rate));
+        }
+
+        @Override
+        public CompletableFuture<List<CalculatedRate>> saveCalcRates(List<CalculatedRate> rates) {
+            return write(() -> cache.saveCalcRates(rates));
+        }
+
+        @Override
+        public CompletableFuture<Double> saveUSDMID(Double value) {
+            return write(() -> cache.saveUSDMID(value));
+        }
+
+        @Override
+        public CompletableFuture<Double> getUSDMID() {
+            return read(cache::getUSDMID);
+        }
+
+        @Override
+        public CompletableFuture<RawRate> saveRawRate(RawRate rate) {
+            return write(() -> cache.saveRawRate(rate));
+        }
+
+        @Override
+        public CompletableFuture<List<RawRate>> getAllRawRatesForType(String type) {
+            return read(() -> cache.getAllRawRatesForType(type));
+        }
+
+        @Override
+        public CompletableFuture<RateCacheSnapshot> getTickSnapshot(List<String> types) {
+            return read(() -> cache.getTickSnapshot(types));
+        }
+
+        @Override
+        public CompletableFuture<Void> saveTick(RawRate rawRate, Double usdmid, List<CalculatedRate> calcRates) {
+            return write(() -> {
+                cache.saveTick(rawRate, usdmid, calcRates);
+                return null;
+            });
+        }
+
+        @Override
+        public String getName() {
+            return "OrderedAsync";
+        }
+    }
+}
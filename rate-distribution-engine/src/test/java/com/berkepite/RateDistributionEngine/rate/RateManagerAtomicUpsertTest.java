@@ -0,0 +1,123 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceInMemory;
+import com.berkepite.RateDistributionEngine.common.cache.IAtomicRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.RateCacheSnapshot;
+import com.berkepite.RateDistributionEngine.common.cache.RawRateUpsertResult;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class RateManagerAtomicUpsertTest {
+    private AtomicUpsertCache cache;
+    private TestRateManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new AtomicUpsertCache();
+        // The manager must decide on the snapshot of the upsert, not on what it could read from the cache itself
+        cache.saveUSDMID(30.0);
+        manager = new TestRateManager(cache, atomicUpserts(true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    public void shouldCalculateFromTheUpsertSnapshot_withoutSavingTheRawRateAgain() {
+        RawRate incoming = manager.rawRate("EUR_USD", "CNN_TCP", 1.005, 2.02);
+        cache.reply = RawRateUpsertResult.accepted(new RateCacheSnapshot(10.0, Map.of("EUR_USD", List.of(
+                manager.rawRate("EUR_USD", "BLOOMBERG_REST", 1.0, 2.0), incoming))));
+
+        manager.rateManager.manageIncomingRawRate(incoming);
+
+        Assertions.assertEquals(List.of(incoming), cache.upserted);
+        Assertions.assertEquals(List.of(List.of("EUR_USD")), cache.upsertedTypes);
+        Assertions.assertEquals(List.of(), cache.savedRawRates);
+        Assertions.assertNull(cache.getRawRate(incoming));
+
+        CalculatedRate cached = cache.getCalcRate(manager.rateFactory.createCalcRate("EUR_TRY", 0.0, 0.0, null));
+        Assertions.assertEquals(10.025, cached.getBid(), 1e-9);
+        Assertions.assertEquals(20.1, cached.getAsk(), 1e-9);
+        Assertions.assertEquals(cached.getBid(), manager.lastSent("EUR_TRY").getBid());
+        Assertions.assertEquals(30.0, cache.getUSDMID());
+        Assertions.assertEquals(List.of(incoming), manager.sentRawRates);
+    }
+
+    @Test
+    public void shouldDropTheRate_whenTheUpsertRejectsIt() {
+        RawRate incoming = manager.rawRate("EUR_USD", "CNN_TCP", 1.5, 2.5);
+        cache.reply = RawRateUpsertResult.rejected();
+
+        manager.rateManager.manageIncomingRawRate(incoming);
+
+        Assertions.assertEquals(List.of(incoming), cache.upserted);
+        Assertions.assertNull(cache.getCalcRate(manager.rateFactory.createCalcRate("EUR_TRY", 0.0, 0.0, null)));
+        Assertions.assertEquals(List.of(), manager.sentCalcRates);
+        Assertions.assertEquals(List.of(incoming), manager.sentRawRates);
+    }
+
+    @Test
+    public void shouldSaveTheUSDMIDOfTheUpsertSnapshot() throws Exception {
+        RawRate incoming = manager.rawRate("USD_TRY", "CNN_TCP", 34.3, 34.5);
+        cache.reply = RawRateUpsertResult.accepted(new RateCacheSnapshot(34.0, Map.of("USD_TRY", List.of(
+                manager.rawRate("USD_TRY", "BLOOMBERG_REST", 34.1, 34.3), incoming))));
+
+        manager.rateManager.manageIncomingRawRate(incoming);
+
+        double usdmid = manager.calculator.calculateUSDMID(new double[]{34.1, 34.3}, new double[]{34.3, 34.5});
+        Assertions.assertEquals(usdmid, cache.getUSDMID());
+        Assertions.assertEquals(List.of(), cache.savedRawRates);
+        Assertions.assertEquals(34.2, manager.lastSent("USD_TRY").getBid(), 1e-9);
+        Assertions.assertEquals(34.4, manager.lastSent("USD_TRY").getAsk(), 1e-9);
+    }
+
+    @Test
+    public void shouldCheckAndSaveTheRateItself_whenAtomicUpsertsAreDisabled() {
+        manager.close();
+        manager = new TestRateManager(cache, atomicUpserts(false));
+        RawRate incoming = manager.rawRate("EUR_USD", "CNN_TCP", 1.08, 1.09);
+
+        manager.rateManager.manageIncomingRawRate(incoming);
+
+        Assertions.assertEquals(List.of(), cache.upserted);
+        Assertions.assertEquals(List.of(incoming), cache.savedRawRates);
+        Assertions.assertEquals(incoming.toString(), cache.getRawRate(incoming).toString());
+    }
+
+    private static RateManager.Settings atomicUpserts(boolean enabled) {
+        return new RateManager.Settings("", 2, false, 0, "memory", enabled);
+    }
+
+    /**
+     * Answers every upsert with a given reply, as a cache whose script decided on the rate would.
+     */
+    private static final class AtomicUpsertCache extends RateCacheServiceInMemory implements IAtomicRateCacheService {
+        private final List<RawRate> upserted = new ArrayList<>();
+        private final List<List<String>> upsertedTypes = new ArrayList<>();
+        private final List<RawRate> savedRawRates = new ArrayList<>();
+        private RawRateUpsertResult reply;
+
+        @Override
+        public RawRateUpsertResult upsertRawRate(RawRate rawRate, List<String> types) {
+            upserted.add(rawRate);
+            upsertedTypes.add(types);
+            return reply;
+        }
+
+        @Override
+        public RawRate saveRawRate(RawRate rate) {
+            savedRawRates.add(rate);
+            return super.saveRawRate(rate);
+        }
+    }
+}
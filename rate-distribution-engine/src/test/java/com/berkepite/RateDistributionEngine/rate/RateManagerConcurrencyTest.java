@@ -0,0 +1,102 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.cache.RateCacheServiceInMemory;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hands ticks to a rate manager from many threads at once and checks that every cached rate is the one a serial run
+ * would have left for the raw rates it ended with.
+ */
+public class RateManagerConcurrencyTest {
+    private static final List<String> TYPES = List.of("USD_TRY", "EUR_USD", "GBP_USD", "AUD_USD", "CHF_USD", "JPY_USD");
+    private static final String SYNTHETIC_PAIRS = "EUR_GBP=EUR_TRY/GBP_TRY,EUR_AUD=EUR_TRY/AUD_TRY,GBP_AUD_X=EUR_AUD/EUR_GBP,USD_EUR=USD_TRY/EUR_TRY";
+    private static final int THREADS = 16;
+    private static final int TICKS_PER_THREAD = 1000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4})
+    public void shouldLeaveTheRatesOfTheLastRawRates_whenTicksArriveConcurrently(int laneCount) throws Exception {
+        RateCacheServiceInMemory cache = new RateCacheServiceInMemory();
+        try (TestRateManager manager = new TestRateManager(TYPES, cache, null, new RateManager.Settings(SYNTHETIC_PAIRS, laneCount, false, 0, "memory", false))) {
+            sendTicks(manager);
+
+            List<RawRate> usdTry = cache.getAllRawRatesForType("USD_TRY");
+            assertClose("usdmid", manager.calculator.calculateUSDMID(bids(usdTry), asks(usdTry)), cache.getUSDMID());
+
+            for (String type : TYPES) {
+                List<RawRate> rawRates = cache.getAllRawRatesForType(type);
+                CalculatedRate expected = type.equals("USD_TRY")
+                        ? manager.calculator.calculateForUSD_TRY(bids(rawRates), asks(rawRates))
+                        : manager.calculator.calculateForRawRateType(type, cache.getUSDMID(), bids(rawRates), asks(rawRates));
+                CalculatedRate cached = calcRate(manager, cache, manager.rateConverter.convertFromRawToCalc(type));
+                assertClose(type + " bid", expected.getBid(), cached.getBid());
+                assertClose(type + " ask", expected.getAsk(), cached.getAsk());
+            }
+
+            for (String pair : SYNTHETIC_PAIRS.split(",")) {
+                String name = pair.substring(0, pair.indexOf('='));
+                String[] legs = pair.substring(pair.indexOf('=') + 1).split("/");
+                CalculatedRate numerator = calcRate(manager, cache, legs[0]);
+                CalculatedRate denominator = calcRate(manager, cache, legs[1]);
+                CalculatedRate cached = calcRate(manager, cache, name);
+                assertClose(name + " bid", numerator.getBid() / denominator.getAsk(), cached.getBid());
+                assertClose(name + " ask", numerator.getAsk() / denominator.getBid(), cached.getAsk());
+            }
+
+            Assertions.assertEquals(List.of(), manager.handledExceptions);
+        }
+    }
+
+    /**
+     * Sends random ticks of four providers from every thread and waits for all of them.
+     */
+    private static void sendTicks(TestRateManager manager) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> senders = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                Random random = new Random(thread);
+                senders.add(executor.submit(() -> {
+                    for (int i = 0; i < TICKS_PER_THREAD; i++) {
+                        String type = TYPES.get(random.nextInt(TYPES.size()));
+                        double level = type.equals("USD_TRY") ? 34.0 : 1.0;
+                        double bid = level * (1 + 0.002 * (random.nextDouble() - 0.5));
+                        manager.rateManager.manageIncomingRawRate(manager.rawRate(type, "PROVIDER_" + random.nextInt(4), bid, bid * 1.001));
+                    }
+                }));
+            }
+
+            for (Future<?> sender : senders) {
+                sender.get();
+            }
+        }
+    }
+
+    private static CalculatedRate calcRate(TestRateManager manager, RateCacheServiceInMemory cache, String type) {
+        CalculatedRate rate = cache.getCalcRate(manager.rateFactory.createCalcRate(type, 0.0, 0.0, null));
+        Assertions.assertNotNull(rate, type);
+        return rate;
+    }
+
+    private static void assertClose(String name, double expected, double actual) {
+        Assertions.assertEquals(expected, actual, 1e-12 * Math.max(1, Math.abs(expected)), name);
+    }
+
+    private static double[] bids(List<RawRate> rates) {
+        return rates.stream().mapToDouble(RawRate::getBid).toArray();
+    }
+
+    private static double[] asks(List<RawRate> rates) {
+        return rates.stream().mapToDouble(RawRate::getAsk).toArray();
+    }
+}
@@ -0,0 +1,103 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.calculator.MemoizingCalculator;
+import com.berkepite.RateDistributionEngine.calculator.NativeCalculator;
+import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
+import com.berkepite.RateDistributionEngine.common.rate.IRateConverter;
+import com.berkepite.RateDistributionEngine.common.rate.IRateFactory;
+import com.berkepite.RateDistributionEngine.common.rate.IRatesLoader;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.exception.ExceptionHandler;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+@SpringBootTest
+@Import(TestKafkaConfig.class)
+@ActiveProfiles("test")
+public class RateWarmUpTest {
+
+    @Autowired
+    @Qualifier("rateCacheServiceInMemory")
+    private IRateCacheService rateCacheService;
+
+    @Autowired
+    private RateWarmUp rateWarmUp;
+
+    @Autowired
+    private IRatesLoader ratesLoader;
+
+    @Autowired
+    private IRateFactory rateFactory;
+
+    @Autowired
+    private IRateConverter rateConverter;
+
+    @Autowired
+    private ExceptionHandler exceptionHandler;
+
+    @Autowired
+    private RateManager rateManager;
+
+    @Test
+    public void shouldSkipWarmUp_whenDisabled() {
+        Assertions.assertThat(rateWarmUp.warmUpIfEnabled()).isNull();
+    }
+
+    @Test
+    public void shouldWarmUp_withoutTouchingSharedCache() throws Exception {
+        RateWarmUp.WarmUpResult result = rateWarmUp.warmUp();
+
+        Assertions.assertThat(result.ticks()).isPositive();
+        Assertions.assertThat(result.latencyMicros()).isPositive();
+
+        for (String type : List.of("USD_TRY", "GBP_USD")) {
+            List<RawRate> rawRates = rateCacheService.getAllRawRatesForType(type);
+            Assertions.assertThat(rawRates).noneMatch(rawRate -> rawRate.getProvider().startsWith("WARMUP_"));
+        }
+    }
+
+    @Test
+    public void shouldWarmUpTheUnwrappedCalculator() {
+        NativeCalculator unwrappedCalculator = new NativeCalculator(rateFactory, rateConverter);
+        MemoizingCalculator liveCalculator = new MemoizingCalculator(unwrappedCalculator, rateFactory, 1024);
+        ICalculatorFactory calculatorFactory = new ICalculatorFactory() {
+            @Override
+            public IRateCalculator getCalculator() {
+                return liveCalculator;
+            }
+
+            @Override
+            public IRateCalculator getUnwrappedCalculator() {
+                return unwrappedCalculator;
+            }
+
+            @Override
+            public void setCoordinator(ICoordinator coordinator) {
+            }
+        };
+        RateWarmUp warmUp = new RateWarmUp(ratesLoader, calculatorFactory, rateFactory, rateConverter, exceptionHandler, rateManager);
+        ReflectionTestUtils.setField(warmUp, "maxDurationMillis", 5000L);
+        ReflectionTestUtils.setField(warmUp, "providers", 4);
+        ReflectionTestUtils.setField(warmUp, "windowTicks", 50);
+        ReflectionTestUtils.setField(warmUp, "stableTolerance", 0.05);
+        ReflectionTestUtils.setField(warmUp, "stableWindows", 3);
+
+        Assertions.assertThat(warmUp.warmUp().ticks()).isPositive();
+
+        for (MemoizingCalculator.Operation operation : MemoizingCalculator.Operation.values()) {
+            MemoizingCalculator.Statistics statistics = liveCalculator.getStatistics(operation);
+            Assertions.assertThat(statistics.hits() + statistics.misses()).isZero();
+        }
+    }
+}
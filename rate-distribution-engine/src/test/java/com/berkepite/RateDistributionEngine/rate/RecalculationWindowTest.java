@@ -0,0 +1,42 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class RecalculationWindowTest {
+
+    @Test
+    public void shouldRecalculateTheTypesOfABurstOnce() throws InterruptedException {
+        List<Set<String>> flushed = new CopyOnWriteArrayList<>();
+
+        try (RecalculationWindow window = new RecalculationWindow(200_000, flushed::add)) {
+            for (int i = 0; i < 10; i++) {
+                window.mark(i % 2 == 0 ? "EUR_USD" : "GBP_USD");
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (flushed.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            Assertions.assertEquals(List.of(Set.of("EUR_USD", "GBP_USD")), flushed);
+            Assertions.assertEquals(new RecalculationWindow.Statistics(10, 1, 2), window.getStatistics());
+            Assertions.assertEquals(0.8, window.getStatistics().batchingRatio(), 1e-9);
+        }
+    }
+
+    @Test
+    public void shouldRecalculateTheLastWindowOnClose() {
+        List<Set<String>> flushed = new CopyOnWriteArrayList<>();
+
+        RecalculationWindow window = new RecalculationWindow(60_000_000, flushed::add);
+        window.mark("USD_TRY");
+        window.close();
+
+        Assertions.assertEquals(List.of(Set.of("USD_TRY")), flushed);
+    }
+}
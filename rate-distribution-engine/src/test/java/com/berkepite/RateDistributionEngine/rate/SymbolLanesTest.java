@@ -0,0 +1,85 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SymbolLanesTest {
+
+    @Test
+    public void shouldRunEverySymbolOnOneThreadInOrder() {
+        try (SymbolLanes lanes = new SymbolLanes(4)) {
+            Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+            Map<String, String> threads = new ConcurrentHashMap<>();
+
+            for (int i = 0; i < 100; i++) {
+                int tick = i;
+                String symbol = List.of("USD_TRY", "EUR_USD", "GBP_USD").get(i % 3);
+                lanes.call(symbol, () -> {
+                    processed.computeIfAbsent(symbol, s -> new ArrayList<>()).add(tick);
+                    Assertions.assertEquals(threads.computeIfAbsent(symbol, s -> Thread.currentThread().getName()),
+                            Thread.currentThread().getName());
+                    return null;
+                });
+            }
+
+            List<Integer> usdTry = processed.get("USD_TRY");
+            Assertions.assertEquals(34, usdTry.size());
+            for (int i = 1; i < usdTry.size(); i++) {
+                Assertions.assertTrue(usdTry.get(i - 1) < usdTry.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void shouldGiveEveryLaneOnlyTheSymbolsItOwns() {
+        try (SymbolLanes lanes = new SymbolLanes(3)) {
+            List<String> symbols = List.of("EUR_USD", "GBP_USD", "CHF_USD", "JPY_USD", "AUD_USD", "CAD_USD");
+            List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+            lanes.forEachLane(symbols, symbolsOfLane -> {
+                for (String symbol : symbolsOfLane) {
+                    Assertions.assertEquals("rate-lane-" + lanes.laneOf(symbol), Thread.currentThread().getName());
+                }
+                seen.addAll(symbolsOfLane);
+            });
+
+            Assertions.assertEquals(symbols.size(), seen.size());
+            Assertions.assertTrue(seen.containsAll(symbols));
+        }
+    }
+
+    @Test
+    public void shouldRethrowFailuresToTheCaller() {
+        try (SymbolLanes lanes = new SymbolLanes(2)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> lanes.call("USD_TRY", () -> {
+                throw new IllegalArgumentException("failed");
+            }));
+            Assertions.assertEquals("done", lanes.call("USD_TRY", () -> "done"));
+        }
+    }
+
+    @Test
+    public void shouldWaitForTheTask_whenTheCallerIsInterrupted() {
+        try (SymbolLanes lanes = new SymbolLanes(2)) {
+            Thread.currentThread().interrupt();
+
+            String result = lanes.call("USD_TRY", () -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "done";
+            });
+
+            Assertions.assertEquals("done", result);
+            Assertions.assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.calculator.NativeCalculator;
+import com.berkepite.RateDistributionEngine.common.cache.IAsyncRateCacheService;
+import com.berkepite.RateDistributionEngine.common.cache.IRateCacheService;
+import com.berkepite.RateDistributionEngine.common.calculator.ICalculatorFactory;
+import com.berkepite.RateDistributionEngine.common.calculator.IRateCalculator;
+import com.berkepite.RateDistributionEngine.common.coordinator.ICoordinator;
+import com.berkepite.RateDistributionEngine.common.exception.cache.CacheException;
+import com.berkepite.RateDistributionEngine.common.exception.calculator.CalculatorException;
+import com.berkepite.RateDistributionEngine.common.rate.CalculatedRate;
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+import com.berkepite.RateDistributionEngine.exception.ExceptionHandler;
+import com.berkepite.RateDistributionEngine.producer.KafkaCalcRateProducer;
+import com.berkepite.RateDistributionEngine.producer.KafkaRawRateProducer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A {@link RateManager} built without Spring around a given cache, with the native calculator and producers and an
+ * exception handler that record what they are given.
+ */
+final class TestRateManager implements AutoCloseable {
+    static final List<String> TYPES = List.of("USD_TRY", "EUR_USD", "GBP_USD");
+
+    final RateFactory rateFactory = new RateFactory();
+    final RateConverter rateConverter = new RateConverter();
+    final NativeCalculator calculator = new NativeCalculator(rateFactory, rateConverter);
+
+    final List<RawRate> sentRawRates = Collections.synchronizedList(new ArrayList<>());
+    final List<CalculatedRate> sentCalcRates = Collections.synchronizedList(new ArrayList<>());
+    final List<Exception> handledExceptions = Collections.synchronizedList(new ArrayList<>());
+
+    final RateManager rateManager;
+
+    TestRateManager(IRateCacheService cache, RateManager.Settings settings) {
+        this(TYPES, cache, null, settings);
+    }
+
+    TestRateManager(List<String> types, IRateCacheService cache, IAsyncRateCacheService asyncCache, RateManager.Settings settings) {
+        ICalculatorFactory calculatorFactory = new ICalculatorFactory() {
+            @Override
+            public IRateCalculator getCalculator() {
+                return calculator;
+            }
+
+            @Override
+            public IRateCalculator getUnwrappedCalculator() {
+                return calculator;
+            }
+
+            @Override
+            public void setCoordinator(ICoordinator coordinator) {
+            }
+        };
+
+        rateManager = new RateManager(() -> new ArrayList<>(types), cache, calculatorFactory, rateConverter, rateFactory,
+                new RecordingRawRateProducer(), new RecordingCalcRateProducer(), new RecordingExceptionHandler(),
+                Optional.ofNullable(asyncCache));
+        rateManager.applySettings(settings);
+        rateManager.init();
+    }
+
+    static RateManager.Settings settings(int laneCount) {
+        return new RateManager.Settings("", laneCount, false, 0, "memory", false);
+    }
+
+    RawRate rawRate(String type, String provider, double bid, double ask) {
+        return rateFactory.createRawRate(type, provider, bid, ask, null);
+    }
+
+    /**
+     * @return the last calculated rate of the given type sent to Kafka, or null
+     */
+    CalculatedRate lastSent(String type) {
+        synchronized (sentCalcRates) {
+            for (int i = sentCalcRates.size() - 1; i >= 0; i--) {
+                if (sentCalcRates.get(i).getType().equals(type)) {
+                    return sentCalcRates.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        rateManager.close();
+    }
+
+    private final class RecordingRawRateProducer extends KafkaRawRateProducer {
+        private RecordingRawRateProducer() {
+            super(null);
+        }
+
+        @Override
+        public void sendRawRate(RawRate rate) {
+            sentRawRates.add(rate);
+        }
+    }
+
+    private final class RecordingCalcRateProducer extends KafkaCalcRateProducer {
+        private RecordingCalcRateProducer() {
+            super(null);
+        }
+
+        @Override
+        public void sendCalcRate(CalculatedRate rate) {
+            sentCalcRates.add(rate);
+        }
+
+        @Override
+        public void sendCalcRates(List<CalculatedRate> rates) {
+            sentCalcRates.addAll(rates);
+        }
+    }
+
+    private final class RecordingExceptionHandler extends ExceptionHandler {
+        private RecordingExceptionHandler() {
+            super(null, null);
+        }
+
+        @Override
+        public void handle(CalculatorException e, IRateCalculator calculator) {
+            handledExceptions.add(e);
+        }
+
+        @Override
+        public void handle(CalculatorException e) {
+            handledExceptions.add(e);
+        }
+
+        @Override
+        public void handle(CacheException e, IRateCacheService cacheService) {
+            handledExceptions.add(e);
+        }
+
+        @Override
+        public void handle(CacheException e, IAsyncRateCacheService cacheService) {
+            handledExceptions.add(e);
+        }
+
+        @Override
+        public void handle(CacheException e) {
+            handledExceptions.add(e);
+        }
+    }
+}
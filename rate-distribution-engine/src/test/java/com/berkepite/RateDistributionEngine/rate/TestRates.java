@@ -0,0 +1,40 @@
+package com.berkepite.RateDistributionEngine.rate;
+
+import com.berkepite.RateDistributionEngine.common.rate.RawRate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Rates and helpers shared by the tests. Raw rates get a fixed timestamp, so their encoded forms and their strings
+ * can be compared.
+ */
+public final class TestRates {
+    public static final Instant TIMESTAMP = Instant.parse("2025-01-01T10:00:00Z");
+
+    private static final RateFactory RATE_FACTORY = new RateFactory();
+
+    private TestRates() {
+    }
+
+    public static RawRate rawRate(String type, String provider, double bid, double ask) {
+        return RATE_FACTORY.createRawRate(type, provider, bid, ask, TIMESTAMP);
+    }
+
+    public static RawRate rawRate(String type, String provider, double bid) {
+        return rawRate(type, provider, bid, bid + 0.1);
+    }
+
+    public static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static List<String> strings(RawRate... rates) {
+        return strings(List.of(rates));
+    }
+
+    public static List<String> strings(List<RawRate> rates) {
+        return rates.stream().map(RawRate::toString).toList();
+    }
+}
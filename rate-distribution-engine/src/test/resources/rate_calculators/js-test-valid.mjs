@@ -36,6 +36,18 @@ export function calculateForRawRateType(usdmid, bids, asks) {
     return [bid_mean.mul(usdmid_dec).toNumber(), ask_mean.mul(usdmid_dec).toNumber()];
 }
 
+export function calculateForRawRateTypes(usdmid, bidsPerType, asksPerType) {
+    const usdmid_dec = new Decimal(usdmid.toString());
+    const rates = [];
+
+    for (let i = 0; i < bidsPerType.length; i++) {
+        const [bid_mean, ask_mean] = calculateMeans(bidsPerType[i], asksPerType[i]);
+        rates.push([bid_mean.mul(usdmid_dec).toNumber(), ask_mean.mul(usdmid_dec).toNumber()]);
+    }
+
+    return rates;
+}
+
 export function calculateForUSD_TRY(bids, asks) {
     const [bid_mean, ask_mean] = calculateMeans(bids, asks);
 
@@ -38,6 +38,16 @@ def calculate_for_raw_rate_type(usdmid, bids, asks):
     return float(bid_mean * usdmid_dec), float(ask_mean * usdmid_dec)
 
 
+@polyglot.export_value
+def calculate_for_raw_rate_types(usdmid, bids_per_type, asks_per_type):
+    usdmid_dec = Decimal(str(usdmid))
+    rates = []
+    for i in range(len(bids_per_type)):
+        bid_mean, ask_mean = calculate_means(bids_per_type[i], asks_per_type[i])
+        rates.append((float(bid_mean * usdmid_dec), float(ask_mean * usdmid_dec)))
+    return rates
+
+
 @polyglot.export_value
 def calculate_for_USD_TRY(bids, asks):
     bid_mean, ask_mean = calculate_means(bids, asks)